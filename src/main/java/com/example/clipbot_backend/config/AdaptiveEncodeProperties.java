@@ -0,0 +1,114 @@
+package com.example.clipbot_backend.config;
+
+import com.example.clipbot_backend.model.PlanTier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Bounds and targets for queue-aware x264 preset/CRF selection of clip renders.
+ */
+@ConfigurationProperties(prefix = "render.adaptive")
+public class AdaptiveEncodeProperties {
+
+    private boolean enabled = true;
+    private int targetDrainSeconds = 120;
+    private Map<PlanTier, Bounds> plans = defaultPlans();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTargetDrainSeconds() {
+        return targetDrainSeconds;
+    }
+
+    public void setTargetDrainSeconds(int targetDrainSeconds) {
+        this.targetDrainSeconds = targetDrainSeconds;
+    }
+
+    public Map<PlanTier, Bounds> getPlans() {
+        return plans;
+    }
+
+    public void setPlans(Map<PlanTier, Bounds> plans) {
+        this.plans = plans;
+    }
+
+    /**
+     * Returns the quality bounds for a tier, falling back to TRIAL bounds.
+     *
+     * @param tier account tier (nullable).
+     * @return bounds, never {@code null}.
+     */
+    public Bounds boundsFor(PlanTier tier) {
+        Bounds b = tier != null ? plans.get(tier) : null;
+        if (b != null) return b;
+        return plans.getOrDefault(PlanTier.TRIAL, new Bounds("veryfast", "fast", 23, 28));
+    }
+
+    private static Map<PlanTier, Bounds> defaultPlans() {
+        Map<PlanTier, Bounds> m = new EnumMap<>(PlanTier.class);
+        m.put(PlanTier.TRIAL, new Bounds("veryfast", "fast", 23, 28));
+        m.put(PlanTier.STARTER, new Bounds("veryfast", "medium", 21, 26));
+        m.put(PlanTier.PRO, new Bounds("veryfast", "slow", 19, 24));
+        return m;
+    }
+
+    /**
+     * Allowed preset range (fastest..slowest) and CRF range (best..worst) for one plan.
+     */
+    public static class Bounds {
+        private String fastestPreset;
+        private String slowestPreset;
+        private int minCrf;
+        private int maxCrf;
+
+        public Bounds() {
+        }
+
+        public Bounds(String fastestPreset, String slowestPreset, int minCrf, int maxCrf) {
+            this.fastestPreset = fastestPreset;
+            this.slowestPreset = slowestPreset;
+            this.minCrf = minCrf;
+            this.maxCrf = maxCrf;
+        }
+
+        public String getFastestPreset() {
+            return fastestPreset;
+        }
+
+        public void setFastestPreset(String fastestPreset) {
+            this.fastestPreset = fastestPreset;
+        }
+
+        public String getSlowestPreset() {
+            return slowestPreset;
+        }
+
+        public void setSlowestPreset(String slowestPreset) {
+            this.slowestPreset = slowestPreset;
+        }
+
+        public int getMinCrf() {
+            return minCrf;
+        }
+
+        public void setMinCrf(int minCrf) {
+            this.minCrf = minCrf;
+        }
+
+        public int getMaxCrf() {
+            return maxCrf;
+        }
+
+        public void setMaxCrf(int maxCrf) {
+            this.maxCrf = maxCrf;
+        }
+    }
+}
@@ -7,6 +7,6 @@ import org.springframework.context.annotation.Configuration;
  * Enables application-specific configuration properties.
  */
 @Configuration
-@EnableConfigurationProperties({BrandProperties.class, PlansProperties.class, IngestCleanupProperties.class})
+@EnableConfigurationProperties({BrandProperties.class, PlansProperties.class, IngestCleanupProperties.class, AdaptiveEncodeProperties.class, SpeculativeRenderProperties.class, ScoringVocabularyProperties.class})
 public class AppPropertiesConfig {
 }
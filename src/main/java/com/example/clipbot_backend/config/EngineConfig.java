@@ -1,9 +1,12 @@
 package com.example.clipbot_backend.config;
 
+import com.example.clipbot_backend.engine.AudioFeatureStore;
 import com.example.clipbot_backend.engine.FfmpegClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.engine.DetectionEngineImpl;
+import com.example.clipbot_backend.engine.DetectionStageCache;
+import com.example.clipbot_backend.service.Interfaces.SceneDetector;
 import com.example.clipbot_backend.service.Interfaces.SilenceDetector;
 import com.example.clipbot_backend.service.Interfaces.StorageService;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,8 +21,16 @@ import java.time.Duration;
 public class EngineConfig {
 
     @Bean
-    public DetectionEngine detectionEngine(SilenceDetector silenceDetector) {
-        return new DetectionEngineImpl(silenceDetector);
+    public DetectionStageCache detectionStageCache(@Value("${detect.stageCache.maxEntries:32}") int maxEntries) {
+        return new DetectionStageCache(maxEntries);
+    }
+
+    @Bean
+    public DetectionEngine detectionEngine(SilenceDetector silenceDetector, SceneDetector sceneDetector,
+                                           AudioFeatureStore audioFeatures,
+                                           @Value("${detect.audio.energyWeight:0.1}") double energyWeight,
+                                           ScoringVocabularyProperties vocabularies, DetectionStageCache stages) {
+        return new DetectionEngineImpl(silenceDetector, sceneDetector, audioFeatures, energyWeight, vocabularies.compile(), stages);
     }
 
     @Bean
@@ -28,14 +39,20 @@ public class EngineConfig {
             @Value("${ffmpeg.binary:ffmpeg}") String ffmpegBin,
             @Value("${clip.render.workDir:./data/work}") String workDir,
             @Value("${clip.render.timeoutSeconds:180}") long timeoutSeconds,
-            @Value("${engine.render.fontsDir:}")Path fontsDir
+            @Value("${engine.render.fontsDir:}")Path fontsDir,
+            @Value("${clip.render.chunk.parallelism:2}") int chunkParallelism,
+            @Value("${clip.render.chunk.minDurationSeconds:240}") long chunkMinDurationSeconds,
+            @Value("${clip.render.chunk.lengthSeconds:60}") long chunkLengthSeconds
     ) {
         return new FfmpegClipRenderEngine(
                 storageService,
                 ffmpegBin,
                 Path.of(workDir),
                 Duration.ofSeconds(Math.max(1, timeoutSeconds)),
-                fontsDir
+                fontsDir,
+                chunkParallelism,
+                Duration.ofSeconds(Math.max(0, chunkMinDurationSeconds)),
+                Duration.ofSeconds(Math.max(2, chunkLengthSeconds))
         );
     }
 }
@@ -7,6 +7,8 @@ public class FwProperties {
     private String baseUrl = "http://127.0.0.1:8000";
     private String model = "Systran/faster-distil-whisper-large-v3";
     private long timeoutSeconds = 5400;
+    /** Maximaal aantal gelijktijdige window-requests bij segment-refinement. */
+    private int refineConcurrency = 4;
 
     public String getBaseUrl() {
         return baseUrl;
@@ -31,4 +33,12 @@ public class FwProperties {
     public void setTimeoutSeconds(long timeoutSeconds) {
         this.timeoutSeconds = timeoutSeconds;
     }
+
+    public int getRefineConcurrency() {
+        return refineConcurrency;
+    }
+
+    public void setRefineConcurrency(int refineConcurrency) {
+        this.refineConcurrency = refineConcurrency;
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.clipbot_backend.config;
+
+import com.example.clipbot_backend.util.KeywordMatcher;
+import com.example.clipbot_backend.util.ScoringVocabulary;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-language hook/payoff vocabularies for detection scoring, e.g.
+ * {@code detect.vocabulary.languages.de.hook=geheimnis,warum}. Languages without an entry use the built-in
+ * vocabulary ({@code en}, {@code nl}).
+ */
+@ConfigurationProperties(prefix = "detect.vocabulary")
+public class ScoringVocabularyProperties {
+    private Map<String, Words> languages = new HashMap<>();
+
+    public Map<String, Words> getLanguages() {
+        return languages;
+    }
+
+    public void setLanguages(Map<String, Words> languages) {
+        this.languages = languages;
+    }
+
+    /**
+     * Compiles the configured languages once; keys are primary language codes.
+     *
+     * @return compiled vocabularies per language.
+     */
+    public Map<String, ScoringVocabulary> compile() {
+        Map<String, ScoringVocabulary> out = new HashMap<>();
+        languages.forEach((lang, words) -> {
+            ScoringVocabulary fallback = ScoringVocabulary.builtIn(lang);
+            out.put(ScoringVocabulary.primaryLanguage(lang), new ScoringVocabulary(
+                    words.getHook().isEmpty() ? fallback.hook() : KeywordMatcher.of(words.getHook()),
+                    words.getPayoff().isEmpty() ? fallback.payoff() : KeywordMatcher.of(words.getPayoff())));
+        });
+        return out;
+    }
+
+    public static class Words {
+        private List<String> hook = new ArrayList<>();
+        private List<String> payoff = new ArrayList<>();
+
+        public List<String> getHook() {
+            return hook;
+        }
+
+        public void setHook(List<String> hook) {
+            this.hook = hook;
+        }
+
+        public List<String> getPayoff() {
+            return payoff;
+        }
+
+        public void setPayoff(List<String> payoff) {
+            this.payoff = payoff;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.clipbot_backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Controls speculative pre-rendering of top-scored segments while render slots are idle.
+ */
+@ConfigurationProperties(prefix = "render.speculative")
+public class SpeculativeRenderProperties {
+    private boolean enabled = true;
+    /** Number of top-scored segments per media to pre-render. */
+    private int topK = 3;
+    /** Unclaimed renders older than this are deleted and counted as wasted work. */
+    private Duration ttl = Duration.ofHours(6);
+    /** Upper bound on media waiting for speculative renders. */
+    private int maxPendingMedia = 32;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxPendingMedia() {
+        return maxPendingMedia;
+    }
+
+    public void setMaxPendingMedia(int maxPendingMedia) {
+        this.maxPendingMedia = maxPendingMedia;
+    }
+}
@@ -1,17 +1,20 @@
 package com.example.clipbot_backend.controller;
 
-import com.example.clipbot_backend.dto.SegmentDTO;
 import com.example.clipbot_backend.dto.web.EnqueueRequest;
 import com.example.clipbot_backend.dto.web.RunNowRequest;
+import com.example.clipbot_backend.model.Media;
 import com.example.clipbot_backend.repository.MediaRepository;
 import com.example.clipbot_backend.service.AccountService;
+import com.example.clipbot_backend.service.DetectNowStreams;
 import com.example.clipbot_backend.service.DetectionService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
 
@@ -23,11 +26,13 @@ public class DetectController {
 
   private final AccountService accountService;
   private final DetectionService detectionService;
+  private final DetectNowStreams detectNowStreams;
   private final MediaRepository mediaRepo;
 
-  public DetectController(AccountService accountService, DetectionService detectionService, MediaRepository mediaRepo) {
+  public DetectController(AccountService accountService, DetectionService detectionService, DetectNowStreams detectNowStreams, MediaRepository mediaRepo) {
       this.accountService = accountService;
       this.detectionService = detectionService;
+    this.detectNowStreams = detectNowStreams;
     this.mediaRepo = mediaRepo;
   }
 
@@ -52,11 +57,16 @@ public class DetectController {
             .body(Map.of("jobId", jobId, "mediaId", mediaId,"status","QUEUED"));
   }
 
+  /**
+   * Start een interactieve detectie als DETECT-job en geeft meteen een handle terug; segmenten volgen via
+   * {@code GET /detect/now/{jobId}/events}. Het event {@code done} draagt {@code completed=false} als het
+   * tijdsbudget op was.
+   */
   @PostMapping("/detect/now")
-  public List<SegmentDTO> runNow(@PathVariable UUID mediaId,
-                                 @RequestParam String ownerExternalSubject,
-                                 @RequestBody(required = false) RunNowRequest req) throws Exception {
-    ensureOwnedBy(mediaId, ownerExternalSubject);
+  public ResponseEntity<Map<String,Object>> runNow(@PathVariable UUID mediaId,
+                                                   @RequestParam String ownerExternalSubject,
+                                                   @RequestBody(required = false) RunNowRequest req) {
+    var media = ensureOwnedBy(mediaId, ownerExternalSubject);
 
     Integer max = req != null ? req.maxCandidates() : null;
     if (max != null && (max <= 0 || max > 64))
@@ -72,7 +82,26 @@ public class DetectController {
             max,
             scene
     );
-    return detectionService.runDetectNow(mediaId, opts);
+    // owner en aanvrager (evt. admin) mogen de stream volgen, zonder dat die endpoint de DB nog raakt
+    Set<String> subjects = new HashSet<>();
+    subjects.add(ownerExternalSubject);
+    if (media.getOwner().getExternalSubject() != null) subjects.add(media.getOwner().getExternalSubject());
+
+    UUID jobId = detectionService.startDetectNow(mediaId, opts, subjects);
+    return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(Map.of("jobId", jobId, "mediaId", mediaId, "status", "QUEUED",
+                    "events", "/v1/media/" + mediaId + "/detect/now/" + jobId + "/events"));
+  }
+
+  /**
+   * SSE-stream van een DetectNow-job: {@code segment} per gevonden segment, daarna {@code done} of {@code error}.
+   * Geen DB-toegang hier: met open-in-view zou een async request anders zijn connectie vasthouden.
+   */
+  @GetMapping(path = "/detect/now/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter events(@PathVariable UUID mediaId,
+                           @PathVariable UUID jobId,
+                           @RequestParam String ownerExternalSubject) {
+    return detectNowStreams.subscribe(jobId, mediaId, ownerExternalSubject);
   }
 
   @GetMapping("/segments")
@@ -85,13 +114,14 @@ public class DetectController {
     return detectionService.listSegments(mediaId,page,size); // paginatie optioneel toevoegen
   }
 
-  private void ensureOwnedBy(UUID mediaId, String subject) {
+  private Media ensureOwnedBy(UUID mediaId, String subject) {
     var media = mediaRepo.findByIdWithOwner(mediaId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "MEDIA_NOT_FOUND"));
-    if (isAdmin(subject)) return; // admin bypass
+    if (isAdmin(subject)) return media; // admin bypass
     var ownerSub = media.getOwner().getExternalSubject();
     if (!Objects.equals(ownerSub, subject))
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "MEDIA_NOT_OWNED");
+    return media;
   }
 
   private boolean isAdmin(String sub) {
@@ -1,8 +1,12 @@
 package com.example.clipbot_backend.controller;
 
+import com.example.clipbot_backend.model.Asset;
 import com.example.clipbot_backend.service.FileService;
+import com.example.clipbot_backend.service.PreviewService;
+import com.example.clipbot_backend.service.RenderService;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,19 +15,27 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/v1/files")
 public class FileController {
+    private static final String RENDITION_RETRY_AFTER_SECONDS = "3";
 
     private final FileService files;
+    private final RenderService renderService;
+    private final PreviewService previews;
 
-    public FileController(FileService files) {
+    public FileController(FileService files, RenderService renderService, PreviewService previews) {
         this.files = files;
+        this.renderService = renderService;
+        this.previews = previews;
     }
 
     @GetMapping(value = "/out/**", produces = MediaType.ALL_VALUE)
@@ -43,6 +55,45 @@ public class FileController {
         return files.streamOut(objectKey, range, ifNoneMatch, asDownload);
     }
 
+    /**
+     * Streamt een profiel-rendition van een clip. Bestaat hij nog niet, dan start de afleiding uit de master op de
+     * achtergrond en volgt 202 met Retry-After; de client pollt tot de cached asset er is.
+     */
+    @GetMapping(value = "/clips/{clipId}/renditions/{profile}", produces = MediaType.ALL_VALUE)
+    public ResponseEntity<Resource> getRendition(
+            @PathVariable UUID clipId,
+            @PathVariable String profile,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "download", required = false) Integer download
+    ) throws IOException {
+        Optional<Asset> rendition = renderService.requestRendition(clipId, profile);
+        if (rendition.isEmpty()) {
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.RETRY_AFTER, RENDITION_RETRY_AFTER_SECONDS)
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
+        boolean asDownload = (download != null && download == 1);
+        return files.streamOut(rendition.get().getObjectKey(), range, ifNoneMatch, asDownload);
+    }
+
+    /** Directe preview van een bronfragment: remux (-c copy) als fragmented MP4, zonder job of render. */
+    @GetMapping(value = "/preview/{mediaId}", produces = MediaType.ALL_VALUE)
+    public ResponseEntity<StreamingResponseBody> preview(
+            @PathVariable UUID mediaId,
+            @RequestParam long startMs,
+            @RequestParam long endMs
+    ) {
+        PreviewService.Preview preview = previews.open(mediaId, startMs, endMs);
+        return ResponseEntity.ok()
+                .contentType(preview.contentType())
+                .cacheControl(CacheControl.noStore())
+                .header("X-Preview-Start-Ms", String.valueOf(preview.startMs()))
+                .header("X-Preview-End-Ms", String.valueOf(preview.endMs()))
+                .body(preview.body());
+    }
+
     // (optioneel) HEAD-variant voor betere caching/players
 //    @RequestMapping(value = "/out/**", method = RequestMethod.HEAD, produces = MediaType.ALL_VALUE)
 //    public ResponseEntity<Resource> headOut(HttpServletRequest req,
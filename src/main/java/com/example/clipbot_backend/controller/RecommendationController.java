@@ -2,8 +2,10 @@ package com.example.clipbot_backend.controller;
 
 import com.example.clipbot_backend.api.dto.PageResponse;
 import com.example.clipbot_backend.dto.ClipSummary;
+import com.example.clipbot_backend.dto.MultiRecommendationResult;
 import com.example.clipbot_backend.dto.RecommendationResult;
 import com.example.clipbot_backend.dto.web.ComputeRequest;
+import com.example.clipbot_backend.dto.web.MultiComputeRequest;
 import com.example.clipbot_backend.model.Media;
 import com.example.clipbot_backend.repository.MediaRepository;
 import com.example.clipbot_backend.service.AccountService;
@@ -23,6 +25,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -33,6 +36,8 @@ import java.util.UUID;
 @RequestMapping("/v1/media/{mediaId}/recommendations")
 public class RecommendationController {
 
+    static final int MAX_PROFILES = 8;
+
     private final RecommendationService recommendationService;
     private final MediaRepository mediaRepository;
     private final AccountService accountService;
@@ -64,6 +69,32 @@ public class RecommendationController {
         return recommendationService.computeRecommendations(media.getId(), topN, profile, enqueue);
     }
 
+    /**
+     * Computes recommendations for several target profiles in one pass over the shared window features.
+     *
+     * @param mediaId media identifier.
+     * @param body    profiles (at most {@value #MAX_PROFILES}) and render flag.
+     * @param ownerExternalSubject ownership marker used for authorization.
+     * @return one result per profile, in request order.
+     */
+    @PostMapping("/compute/multi")
+    public MultiRecommendationResult computeMulti(@PathVariable UUID mediaId,
+                                                  @RequestBody MultiComputeRequest body,
+                                                  @RequestParam String ownerExternalSubject) {
+        Media media = ensureOwned(mediaId, ownerExternalSubject);
+        if (body == null || body.profiles() == null || body.profiles().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "PROFILES_REQUIRED");
+        }
+        if (body.profiles().size() > MAX_PROFILES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "TOO_MANY_PROFILES");
+        }
+        if (body.profiles().stream().anyMatch(Objects::isNull)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "INVALID_PROFILE");
+        }
+        boolean enqueue = body.enqueueRender() == null || body.enqueueRender();
+        return recommendationService.computeRecommendations(media.getId(), body.profiles(), enqueue);
+    }
+
     /**
      * Lists stored recommendations for the media sorted by score.
      *
@@ -0,0 +1,10 @@
+package com.example.clipbot_backend.dto;
+
+import java.util.List;
+
+/**
+ * Detected segments and whether detection ran to completion. {@code completed} is false when a time budget cut
+ * the window search short or a slow analysis stage was skipped; the segments are then the best found so far.
+ */
+public record DetectionResult(List<SegmentDTO> segments, boolean completed) {
+}
@@ -0,0 +1,43 @@
+package com.example.clipbot_backend.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EBU R128 meting van een volledige media-bron (ffmpeg loudnorm, eerste pass).
+ * Wordt eenmalig bij ingest bepaald en per clip hergebruikt als "measured_*" input,
+ * zodat normalisatie in de bestaande encode-pass lineair kan gebeuren.
+ */
+public record LoudnessProfile(double integratedLufs,
+                              double lra,
+                              double truePeakDb,
+                              double thresholdLufs,
+                              double targetOffset) {
+
+    public static final String META_KEY = "loudness";
+
+    public Map<String, Object> toMeta() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("i", integratedLufs);
+        m.put("lra", lra);
+        m.put("tp", truePeakDb);
+        m.put("thresh", thresholdLufs);
+        m.put("offset", targetOffset);
+        return m;
+    }
+
+    /** Leest een profiel terug uit render-meta; {@code null} als het ontbreekt of onvolledig is. */
+    public static LoudnessProfile fromMeta(Map<String, Object> meta) {
+        if (meta == null || !(meta.get(META_KEY) instanceof Map<?, ?> m)) return null;
+        Double i = num(m.get("i")), lra = num(m.get("lra")), tp = num(m.get("tp")), th = num(m.get("thresh"));
+        if (i == null || lra == null || tp == null || th == null) return null;
+        Double off = num(m.get("offset"));
+        return new LoudnessProfile(i, lra, tp, th, off != null ? off : 0.0);
+    }
+
+    private static Double num(Object v) {
+        if (v instanceof Number n) return n.doubleValue();
+        try { return v != null ? Double.parseDouble(v.toString()) : null; }
+        catch (Exception e) { return null; }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.clipbot_backend.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response payload for a multi-profile recommendation computation.
+ *
+ * @param mediaId  media identifier.
+ * @param profiles one result per requested profile, in request order.
+ */
+public record MultiRecommendationResult(UUID mediaId, List<ProfileResult> profiles) {
+
+    /**
+     * @param name        caller label of the profile, {@code null} when none was given.
+     * @param profileHash hash the clips of this profile are stored under.
+     * @param count       number of clips included in the result.
+     * @param clips       ordered clip summaries.
+     */
+    public record ProfileResult(String name, String profileHash, int count, List<ClipSummary> clips) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.clipbot_backend.dto;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * One target profile of a multi-profile recommendation request. Selector fields left {@code null} fall back to
+ * {@code SelectorConfig.defaults()}; {@code weights} only needs the keys it overrides.
+ *
+ * @param name              caller label echoed in the result (optional).
+ * @param topN              number of clips to keep (defaults to six, capped at twelve).
+ * @param targetDurationSec preferred clip duration in seconds.
+ * @param minSpeechDensity  minimum acceptable speech density.
+ * @param maxSilencePenalty maximum acceptable silence penalty.
+ * @param weights           selector weight overrides ({@code speech}, {@code conf}, {@code energy}, {@code silence},
+ *                          {@code keyword}).
+ * @param profile           render/profile metadata, as for the single-profile compute.
+ */
+public record RecommendationProfile(@Nullable String name,
+                                    @Nullable Integer topN,
+                                    @Nullable Integer targetDurationSec,
+                                    @Nullable Double minSpeechDensity,
+                                    @Nullable Double maxSilencePenalty,
+                                    @Nullable Map<String, Double> weights,
+                                    @Nullable Map<String, Object> profile) {
+
+    /**
+     * @return profile with default selector settings, as used by the single-profile compute.
+     */
+    public static RecommendationProfile of(int topN, @Nullable Map<String, Object> profile) {
+        return new RecommendationProfile(null, topN, null, null, null, null, profile);
+    }
+
+    /** @return whether any selector setting deviates from the defaults. */
+    public boolean hasSelectorOverrides() {
+        return targetDurationSec != null || minSpeechDensity != null || maxSilencePenalty != null
+                || (weights != null && !weights.isEmpty());
+    }
+}
@@ -1,4 +1,12 @@
 package com.example.clipbot_backend.dto;
 
-public record RenderResult(String mp4Key, long mp4Size, String thumbKey, long thumbSize) {
+/**
+ * Output of a render.
+ *
+ * @param encodeMs wall time of the ffmpeg encode alone (no thumbnails/upload); 0 when not measured.
+ */
+public record RenderResult(String mp4Key, long mp4Size, String thumbKey, long thumbSize, long encodeMs) {
+    public RenderResult(String mp4Key, long mp4Size, String thumbKey, long thumbSize) {
+        this(mp4Key, mp4Size, thumbKey, thumbSize, 0L);
+    }
 }
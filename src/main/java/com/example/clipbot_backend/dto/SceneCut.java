@@ -0,0 +1,7 @@
+package com.example.clipbot_backend.dto;
+
+/**
+ * Scene change at {@code ms} with the ffmpeg scene score (0..1) of the frame that starts the new shot.
+ */
+public record SceneCut(long ms, double score) {
+}
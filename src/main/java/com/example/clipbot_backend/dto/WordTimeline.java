@@ -0,0 +1,445 @@
+package com.example.clipbot_backend.dto;
+
+import com.example.clipbot_backend.model.Transcript;
+import com.example.clipbot_backend.util.TokenScan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, time-indexed view over transcript words in struct-of-arrays form.
+ * Words are ordered by start; range lookups are binary searches and speech time, confidence and flag counts over
+ * a range come from prefix sums, so a range summary costs O(log n) instead of a walk over its words.
+ * Per-word text flags and the normalized form are computed once per distinct word at construction.
+ */
+public final class WordTimeline {
+    public static final WordTimeline EMPTY = new WordTimeline(new long[0], new long[0], new float[0], new String[0], new String[0], new byte[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final float[] conf;
+    private final String[] text;
+    /** Alleen ASCII-letters/cijfers, lowercase ({@link TokenScan#normalizeAlnum}). */
+    private final String[] normalized;
+    /** {@link TokenScan#flags} per woord. */
+    private final byte[] flags;
+    /** Lopend maximum van de eindtijden; monotoon, dus ook bruikbaar als woorden overlappen. */
+    private final long[] maxEndUpTo;
+    /** Prefix-sommen over index [0, i): duur, aantal gesproken woorden, bekende confidence, ontbrekende confidence. */
+    private final long[] durPrefix;
+    private final int[] spokenPrefix;
+    private final double[] confPrefix;
+    private final int[] missingConfPrefix;
+    /** Prefix-sommen van gesproken woorden met {@link TokenScan#EXCITED} resp. {@link TokenScan#UPPERCASE}. */
+    private final int[] excitedPrefix;
+    private final int[] uppercasePrefix;
+    /** Geen overlap tussen opeenvolgende woorden: dan zijn ook de eindtijden gesorteerd. */
+    private final boolean disjoint;
+
+    private WordTimeline(long[] starts, long[] ends, float[] conf, String[] text, String[] normalized, byte[] flags) {
+        int n = starts.length;
+        this.starts = starts;
+        this.ends = ends;
+        this.conf = conf;
+        this.text = text;
+        this.normalized = normalized;
+        this.flags = flags;
+        this.maxEndUpTo = new long[n];
+        this.durPrefix = new long[n + 1];
+        this.spokenPrefix = new int[n + 1];
+        this.confPrefix = new double[n + 1];
+        this.missingConfPrefix = new int[n + 1];
+        this.excitedPrefix = new int[n + 1];
+        this.uppercasePrefix = new int[n + 1];
+        boolean ordered = true;
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            maxEnd = Math.max(maxEnd, ends[i]);
+            maxEndUpTo[i] = maxEnd;
+            boolean spoken = ends[i] > starts[i];
+            durPrefix[i + 1] = durPrefix[i] + (ends[i] - starts[i]);
+            spokenPrefix[i + 1] = spokenPrefix[i] + (spoken ? 1 : 0);
+            confPrefix[i + 1] = confPrefix[i] + (spoken && !Float.isNaN(conf[i]) ? conf[i] : 0.0);
+            missingConfPrefix[i + 1] = missingConfPrefix[i] + (spoken && Float.isNaN(conf[i]) ? 1 : 0);
+            excitedPrefix[i + 1] = excitedPrefix[i] + (spoken && (flags[i] & TokenScan.EXCITED) != 0 ? 1 : 0);
+            uppercasePrefix[i + 1] = uppercasePrefix[i] + (spoken && (flags[i] & TokenScan.UPPERCASE) != 0 ? 1 : 0);
+            if (i > 0 && starts[i] < ends[i - 1]) ordered = false;
+        }
+        this.disjoint = ordered;
+    }
+
+    /**
+     * Builds a timeline from parsed words; words are expected in start order as returned by
+     * {@link WordsParser#extract(Transcript)}.
+     *
+     * @param words parsed words (nullable).
+     * @return timeline, {@link #EMPTY} when there are no words.
+     */
+    public static WordTimeline of(List<WordsParser.WordAdapter> words) {
+        if (words == null || words.isEmpty()) return EMPTY;
+        int n = words.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        float[] conf = new float[n];
+        String[] text = new String[n];
+        String[] normalized = new String[n];
+        byte[] flags = new byte[n];
+        // per uniek woord één keer scannen; herhaalde woorden delen tekst, vorm en flags
+        Map<String, Integer> pool = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            WordsParser.WordAdapter w = words.get(i);
+            starts[i] = w.startMs;
+            ends[i] = w.endMs;
+            conf[i] = w.confidence == null ? Float.NaN : w.confidence.floatValue();
+            Integer first = pool.putIfAbsent(w.text, i);
+            if (first == null) {
+                text[i] = w.text;
+                normalized[i] = TokenScan.normalizeAlnum(w.text);
+                flags[i] = (byte) TokenScan.flags(w.text);
+            } else {
+                text[i] = text[first];
+                normalized[i] = normalized[first];
+                flags[i] = flags[first];
+            }
+        }
+        return new WordTimeline(starts, ends, conf, text, normalized, flags);
+    }
+
+    /**
+     * @param transcript transcript (nullable).
+     * @return timeline over the transcript words.
+     */
+    public static WordTimeline of(Transcript transcript) {
+        return of(WordsParser.extract(transcript));
+    }
+
+    /**
+     * Builds a timeline from a faster-whisper verbose response (segment words), shifted by {@code offsetMs}.
+     *
+     * @param fw       response (nullable).
+     * @param offsetMs offset added to every word time.
+     * @return timeline, {@link #EMPTY} when the response has no words.
+     */
+    public static WordTimeline of(FwVerboseResponse fw, long offsetMs) {
+        if (fw == null || fw.segments() == null) return EMPTY;
+        List<WordsParser.WordAdapter> words = new ArrayList<>();
+        for (FwVerboseResponse.Seg seg : fw.segments()) {
+            if (seg.words() == null) continue;
+            for (FwVerboseResponse.SegWord w : seg.words()) {
+                long ws = Math.round((w.start() == null ? 0.0 : w.start()) * 1000) + offsetMs;
+                long we = Math.round((w.end() == null ? 0.0 : w.end()) * 1000) + offsetMs;
+                words.add(new WordsParser.WordAdapter(w.word(), ws, we, w.probability()));
+            }
+        }
+        words.sort((a, b) -> Long.compare(a.startMs, b.startMs));
+        return of(words);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public long startMs(int i) {
+        return starts[i];
+    }
+
+    public long endMs(int i) {
+        return ends[i];
+    }
+
+    /** @return confidence of word {@code i}, {@link Float#NaN} when unknown. */
+    public float confidence(int i) {
+        return conf[i];
+    }
+
+    public String text(int i) {
+        return text[i];
+    }
+
+    /** @return word {@code i} reduced to lowercase ASCII letters and digits. */
+    public String normalized(int i) {
+        return normalized[i];
+    }
+
+    /** @return whether word {@code i} ends a sentence ({@code .}, {@code !} or {@code ?}). */
+    public boolean isSentenceFinal(int i) {
+        return (flags[i] & TokenScan.SENTENCE_FINAL) != 0;
+    }
+
+    /** @return whether word {@code i} contains {@code !} or {@code ?}. */
+    public boolean isExcited(int i) {
+        return (flags[i] & TokenScan.EXCITED) != 0;
+    }
+
+    /** @return whether word {@code i} contains an uppercase letter. */
+    public boolean hasUppercase(int i) {
+        return (flags[i] & TokenScan.UPPERCASE) != 0;
+    }
+
+    /** @return latest word end, {@code 0} when empty. */
+    public long maxEndMs() {
+        return starts.length == 0 ? 0L : maxEndUpTo[starts.length - 1];
+    }
+
+    /**
+     * @param i      word index.
+     * @param fromMs range start (inclusive).
+     * @param toMs   range end (exclusive).
+     * @return whether word {@code i} intersects {@code [fromMs, toMs)}.
+     */
+    public boolean overlaps(int i, long fromMs, long toMs) {
+        return ends[i] > fromMs && starts[i] < toMs;
+    }
+
+    /**
+     * First index that can intersect a range starting at {@code fromMs}: every word before it ends at or
+     * before {@code fromMs}.
+     *
+     * @param fromMs range start.
+     * @return index in {@code [0, size()]}.
+     */
+    public int firstEndingAfter(long fromMs) {
+        int lo = 0, hi = maxEndUpTo.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEndUpTo[mid] > fromMs) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /**
+     * First index that starts at or after {@code toMs}; words from here on cannot intersect a range ending there.
+     *
+     * @param toMs range end (exclusive).
+     * @return index in {@code [0, size()]}.
+     */
+    public int firstStartingAtOrAfter(long toMs) {
+        return lowerBound(starts, toMs);
+    }
+
+    /**
+     * Milliseconds of speech inside {@code [fromMs, toMs)}, each word clipped to the range.
+     *
+     * @param fromMs range start.
+     * @param toMs   range end.
+     * @return covered milliseconds.
+     */
+    public long speechMs(long fromMs, long toMs) {
+        int lo = firstEndingAfter(fromMs);
+        int hi = firstStartingAtOrAfter(toMs);
+        if (lo >= hi) return 0L;
+        if (!disjoint) {
+            long sum = 0;
+            for (int i = lo; i < hi; i++) {
+                sum += Math.max(0L, Math.min(ends[i], toMs) - Math.max(starts[i], fromMs));
+            }
+            return sum;
+        }
+        // zonder overlap zijn alleen het eerste en laatste woord mogelijk afgekapt
+        return durPrefix[hi] - durPrefix[lo]
+                - Math.max(0L, fromMs - starts[lo])
+                - Math.max(0L, ends[hi - 1] - toMs);
+    }
+
+    /**
+     * Number of words with a non-empty intersection with {@code [fromMs, toMs)}.
+     *
+     * @param fromMs range start.
+     * @param toMs   range end.
+     * @return word count.
+     */
+    public int spokenCount(long fromMs, long toMs) {
+        int lo = firstEndingAfter(fromMs);
+        int hi = firstStartingAtOrAfter(toMs);
+        if (lo >= hi) return 0;
+        if (disjoint) return spokenPrefix[hi] - spokenPrefix[lo];
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            if (Math.min(ends[i], toMs) > Math.max(starts[i], fromMs)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Sum of confidences of the words counted by {@link #spokenCount(long, long)}.
+     *
+     * @param fromMs            range start.
+     * @param toMs              range end.
+     * @param defaultConfidence value used for words without a confidence.
+     * @return confidence sum.
+     */
+    public double confidenceSum(long fromMs, long toMs, double defaultConfidence) {
+        int lo = firstEndingAfter(fromMs);
+        int hi = firstStartingAtOrAfter(toMs);
+        if (lo >= hi) return 0.0;
+        if (disjoint) {
+            return (confPrefix[hi] - confPrefix[lo]) + (missingConfPrefix[hi] - missingConfPrefix[lo]) * defaultConfidence;
+        }
+        double sum = 0.0;
+        for (int i = lo; i < hi; i++) {
+            if (Math.min(ends[i], toMs) > Math.max(starts[i], fromMs)) {
+                sum += Float.isNaN(conf[i]) ? defaultConfidence : conf[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Number of words counted by {@link #spokenCount(long, long)} that contain {@code !} or {@code ?}.
+     *
+     * @param fromMs range start.
+     * @param toMs   range end.
+     * @return word count.
+     */
+    public int excitedCount(long fromMs, long toMs) {
+        return flagCount(excitedPrefix, TokenScan.EXCITED, fromMs, toMs);
+    }
+
+    /**
+     * Number of words counted by {@link #spokenCount(long, long)} that contain an uppercase letter.
+     *
+     * @param fromMs range start.
+     * @param toMs   range end.
+     * @return word count.
+     */
+    public int uppercaseCount(long fromMs, long toMs) {
+        return flagCount(uppercasePrefix, TokenScan.UPPERCASE, fromMs, toMs);
+    }
+
+    private int flagCount(int[] prefix, int flag, long fromMs, long toMs) {
+        int lo = firstEndingAfter(fromMs);
+        int hi = firstStartingAtOrAfter(toMs);
+        if (lo >= hi) return 0;
+        if (disjoint) return prefix[hi] - prefix[lo];
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            if ((flags[i] & flag) != 0 && Math.min(ends[i], toMs) > Math.max(starts[i], fromMs)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Indexes where the given keywords occur, for repeated {@link KeywordIndex#matches} lookups over many ranges.
+     * Build it once per keyword set; words match on their {@link #normalized(int)} form.
+     *
+     * @param keywords  normalized keywords (nullable).
+     * @param minLength shorter keywords never match.
+     * @return index over the spoken occurrences of each keyword.
+     */
+    public KeywordIndex keywordIndex(Set<String> keywords, int minLength) {
+        if (keywords == null || keywords.isEmpty()) return new KeywordIndex(new String[0], new int[0][]);
+        Map<String, int[]> hits = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        for (int i = 0; i < starts.length; i++) {
+            String word = normalized[i];
+            if (ends[i] <= starts[i] || word.length() < minLength || !keywords.contains(word)) continue;
+            int size = sizes.merge(word, 1, Integer::sum);
+            int[] at = hits.get(word);
+            if (at == null || at.length < size) {
+                at = at == null ? new int[4] : Arrays.copyOf(at, at.length * 2);
+                hits.put(word, at);
+            }
+            at[size - 1] = i;
+        }
+        String[] found = new String[hits.size()];
+        int[][] occurrences = new int[hits.size()][];
+        int k = 0;
+        for (Map.Entry<String, int[]> e : hits.entrySet()) {
+            found[k] = e.getKey();
+            occurrences[k++] = Arrays.copyOf(e.getValue(), sizes.get(e.getKey()));
+        }
+        return new KeywordIndex(found, occurrences);
+    }
+
+    /**
+     * Sorted word indices per keyword; a range lookup is one binary search per keyword that occurs at all.
+     */
+    public final class KeywordIndex {
+        private final String[] keywords;
+        private final int[][] occurrences;
+
+        private KeywordIndex(String[] keywords, int[][] occurrences) {
+            this.keywords = keywords;
+            this.occurrences = occurrences;
+        }
+
+        /**
+         * @param fromMs range start.
+         * @param toMs   range end.
+         * @return keywords with an occurrence among the words counted by {@link #spokenCount(long, long)}.
+         */
+        public Set<String> matches(long fromMs, long toMs) {
+            if (keywords.length == 0) return Set.of();
+            int lo = firstEndingAfter(fromMs);
+            int hi = firstStartingAtOrAfter(toMs);
+            if (lo >= hi) return Set.of();
+            Set<String> matched = new HashSet<>();
+            for (int k = 0; k < keywords.length; k++) {
+                int[] at = occurrences[k];
+                int j = Arrays.binarySearch(at, lo);
+                if (j < 0) j = -j - 1;
+                // zonder overlap raakt elk gesproken woord in [lo, hi) het bereik
+                for (; j < at.length && at[j] < hi; j++) {
+                    if (disjoint || overlaps(at[j], fromMs, toMs)) {
+                        matched.add(keywords[k]);
+                        break;
+                    }
+                }
+            }
+            return matched;
+        }
+    }
+
+    /**
+     * Word start closest to {@code t}; on a tie the earlier word wins.
+     *
+     * @param t time in milliseconds.
+     * @return nearest start, or {@code -1} when empty.
+     */
+    public long nearestStart(long t) {
+        return nearest(starts, t);
+    }
+
+    /**
+     * Word end closest to {@code t}; on a tie the earlier word wins.
+     *
+     * @param t time in milliseconds.
+     * @return nearest end, or {@code -1} when empty.
+     */
+    public long nearestEnd(long t) {
+        if (disjoint) return nearest(ends, t);
+        long best = -1L;
+        for (long e : ends) {
+            if (best < 0 || Math.abs(e - t) < Math.abs(best - t)) best = e;
+        }
+        return best;
+    }
+
+    private static long nearest(long[] sorted, long t) {
+        if (sorted.length == 0) return -1L;
+        int idx = lowerBound(sorted, t);
+        if (idx == sorted.length) return sorted[idx - 1];
+        if (idx == 0) return sorted[0];
+        long before = sorted[idx - 1];
+        long after = sorted[idx];
+        return (t - before) <= (after - t) ? before : after;
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.clipbot_backend.dto.media;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Container-header metadata of a media file (MP4/M4A/MOV or WebM/Matroska), read in-JVM at ingest.
+ *
+ * @param container   container family, e.g. {@code mp4}, {@code m4a}, {@code webm}, {@code matroska}.
+ * @param durationUs  presentation duration in microseconds, {@code 0} when unknown.
+ * @param streams     tracks in container order.
+ * @param keyframesUs sorted keyframe presentation timestamps (microseconds) of the first video track; empty for
+ *                    audio-only. A list rather than an array so the record is value-equal and the jsonb column is
+ *                    not rewritten on every flush.
+ */
+public record ContainerInfo(String container, long durationUs, List<StreamInfo> streams, List<Long> keyframesUs) {
+
+    public ContainerInfo {
+        streams = streams == null ? List.of() : List.copyOf(streams);
+        keyframesUs = keyframesUs == null ? List.of() : List.copyOf(keyframesUs);
+    }
+
+    /**
+     * @param type       {@code video}, {@code audio} or {@code other}.
+     * @param codec      codec fourcc (MP4) or CodecID (Matroska).
+     * @param width      pixel width for video tracks.
+     * @param height     pixel height for video tracks.
+     * @param sampleRate sample rate in Hz for audio tracks.
+     * @param channels   channel count for audio tracks.
+     */
+    public record StreamInfo(String type, String codec, Integer width, Integer height, Integer sampleRate, Integer channels) {
+        @JsonIgnore
+        public boolean isVideo() { return "video".equals(type); }
+        @JsonIgnore
+        public boolean isAudio() { return "audio".equals(type); }
+    }
+
+    @JsonIgnore
+    public long durationMs() { return durationUs / 1000L; }
+
+    @JsonIgnore
+    public boolean hasVideo() { return streams.stream().anyMatch(StreamInfo::isVideo); }
+
+    @JsonIgnore
+    public boolean hasAudio() { return streams.stream().anyMatch(StreamInfo::isAudio); }
+
+    @JsonIgnore
+    public boolean audioOnly() { return hasAudio() && !hasVideo(); }
+
+    @JsonIgnore
+    public StreamInfo firstVideo() {
+        return streams.stream().filter(StreamInfo::isVideo).findFirst().orElse(null);
+    }
+
+    /** Laatste keyframe op of vóór {@code timeUs}; {@code -1} als er geen keyframe-index is. */
+    public long keyframeAtOrBefore(long timeUs) {
+        if (keyframesUs.isEmpty()) return -1;
+        int idx = Collections.binarySearch(keyframesUs, timeUs);
+        if (idx >= 0) return keyframesUs.get(idx);
+        int ins = -idx - 1;
+        return ins == 0 ? keyframesUs.get(0) : keyframesUs.get(ins - 1);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.clipbot_backend.dto.web;
+
+import com.example.clipbot_backend.dto.RecommendationProfile;
+
+import java.util.List;
+
+/**
+ * Request payload for computing recommendations for several target profiles at once.
+ *
+ * @param profiles      target profiles, at least one.
+ * @param enqueueRender whether to enqueue render jobs immediately.
+ */
+public record MultiComputeRequest(List<RecommendationProfile> profiles,
+                                  Boolean enqueueRender) {
+}
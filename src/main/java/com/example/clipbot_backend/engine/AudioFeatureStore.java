@@ -0,0 +1,95 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.model.AudioFeatureMap;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.repository.AudioFeatureMapRepository;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.service.PcmAudioService;
+import com.example.clipbot_backend.util.AudioFeatures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Persisted audio-energy features per media. Normally filled by the silence pass, which extracts them from the
+ * same PCM scan; {@link #load} extracts them itself when the silence map was already cached.
+ */
+@Component
+public class AudioFeatureStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AudioFeatureStore.class);
+
+    private final PcmAudioService pcmAudio;
+    private final AudioFeatureMapRepository featureMaps;
+    private final MediaRepository mediaRepo;
+
+    public AudioFeatureStore(PcmAudioService pcmAudio, AudioFeatureMapRepository featureMaps, MediaRepository mediaRepo) {
+        this.pcmAudio = pcmAudio;
+        this.featureMaps = featureMaps;
+        this.mediaRepo = mediaRepo;
+    }
+
+    /**
+     * Returns the features of a media's raw file, extracting and storing them when missing or stale.
+     *
+     * @return features, or {@link AudioFeatures#EMPTY} when the audio cannot be read.
+     */
+    public AudioFeatures load(UUID mediaId, Path mediaPath) {
+        String objectKey = mediaId == null ? null : mediaRepo.findById(mediaId).map(Media::getObjectKey).orElse(null);
+        long size;
+        long mtime;
+        try {
+            size = Files.size(mediaPath);
+            mtime = Files.getLastModifiedTime(mediaPath).toMillis();
+        } catch (IOException e) {
+            return AudioFeatures.EMPTY;
+        }
+        if (objectKey != null) {
+            Optional<AudioFeatureMap> cached = featureMaps.findByMediaId(mediaId);
+            if (cached.isPresent() && cached.get().matches(objectKey, size, mtime)) {
+                LOGGER.debug("Audio features hit media={} frames={}", mediaId, cached.get().getFrameCount());
+                return AudioFeatures.fromBytes(cached.get().getFeatures());
+            }
+        }
+
+        long t0 = System.nanoTime();
+        AudioFeatures features;
+        try {
+            features = pcmAudio.open(mediaPath).features();
+        } catch (Exception e) {
+            LOGGER.warn("Audio features skipped media={}: {}", mediaId, e.toString());
+            return AudioFeatures.EMPTY;
+        }
+        if (objectKey != null) store(mediaId, objectKey, features, size, mtime, (System.nanoTime() - t0) / 1_000_000L);
+        return features;
+    }
+
+    /** @return true when stored features match this raw file state. */
+    public boolean isCurrent(UUID mediaId, String objectKey, long sourceSize, long sourceMtimeMs) {
+        return featureMaps.findByMediaId(mediaId).map(m -> m.matches(objectKey, sourceSize, sourceMtimeMs)).orElse(false);
+    }
+
+    /**
+     * Stores features extracted elsewhere (the silence pass); failures are logged, never thrown.
+     */
+    public void store(UUID mediaId, String objectKey, AudioFeatures features, long sourceSize, long sourceMtimeMs, long extractMs) {
+        try {
+            AudioFeatureMap map = featureMaps.findByMediaId(mediaId).orElseGet(() -> new AudioFeatureMap(mediaId));
+            map.update(objectKey, features, sourceSize, sourceMtimeMs, extractMs);
+            featureMaps.save(map);
+            LOGGER.info("Audio features stored media={} frames={} bytes={} extractMs={}", mediaId, features.frameCount(),
+                    map.getFeatures().length, extractMs);
+        } catch (DataIntegrityViolationException e) {
+            // andere node was ons net voor; diens resultaat is even goed
+            LOGGER.debug("Audio features raced media={}: {}", mediaId, e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Audio features not persisted media={}: {}", mediaId, e.toString());
+        }
+    }
+}
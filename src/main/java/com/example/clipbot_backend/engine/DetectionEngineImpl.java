@@ -1,6 +1,7 @@
 package com.example.clipbot_backend.engine;
 
 import com.example.clipbot_backend.dto.DetectionParams;
+import com.example.clipbot_backend.dto.DetectionResult;
 import com.example.clipbot_backend.dto.SegmentDTO;
 import com.example.clipbot_backend.dto.SentenceSpan;
 import com.example.clipbot_backend.dto.SilenceEvent;
@@ -9,10 +10,11 @@ import com.example.clipbot_backend.dto.WordsParser;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.model.Transcript;
 import com.example.clipbot_backend.service.ClipAssembler;
+import com.example.clipbot_backend.service.Interfaces.SceneDetector;
 import com.example.clipbot_backend.service.Interfaces.SilenceDetector;
 import com.example.clipbot_backend.service.WorkerService;
 import com.example.clipbot_backend.util.HeuristicScorer;
-import com.example.clipbot_backend.util.TranscriptUtil;
+import com.example.clipbot_backend.util.ScoringVocabulary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,57 +22,205 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class DetectionEngineImpl implements DetectionEngine {
+public class DetectionEngineImpl implements DetectionEngine, AutoCloseable {
     private final SilenceDetector silenceDetector;
-    private final ClipAssembler assembler = new ClipAssembler();
+    private final SceneDetector sceneDetector;
+    private final AudioFeatureStore audioFeatures;
+    private final double energyWeight;
+    private final DetectionStageCache stages;
+    private final Map<String, ScoringVocabulary> vocabularies;
+    /** Eén assembler (en gecompileerde vocabulaire) per taal, hergebruikt over detect-runs. */
+    private final Map<String, ClipAssembler> assemblers = new ConcurrentHashMap<>();
     private static final Logger LOGGER = LoggerFactory.getLogger(DetectionEngineImpl.class);
+    private static final int DEFAULT_STAGE_CACHE_ENTRIES = 32;
+    /**
+     * Max. gelijktijdige stappen per pool. Scene-passes (volledige video-decode) hebben een eigen pool, zodat lange
+     * scene-runs van andere media de goedkope stilte/energie-stappen niet uithongeren.
+     */
+    private static final int AUDIO_STAGE_THREADS = 2;
+    private static final int SCENE_STAGE_THREADS = 2;
+    /** Wachtende stappen per pool; daarboven wordt de stap voor deze run overgeslagen (anytime). */
+    private static final int STAGE_QUEUE_CAPACITY = 32;
+    private static final AtomicInteger STAGE_THREAD_SEQ = new AtomicInteger();
+    /** Stilte- en energie-stappen in anytime-modus. */
+    private final ExecutorService audioStageExecutor = stagePool("detect-audio-", AUDIO_STAGE_THREADS);
+    /** Scene-stappen in anytime-modus. */
+    private final ExecutorService sceneStageExecutor = stagePool("detect-scene-", SCENE_STAGE_THREADS);
 
     public DetectionEngineImpl(SilenceDetector silenceDetector) {
+        this(silenceDetector, Map.of());
+    }
+
+    public DetectionEngineImpl(SilenceDetector silenceDetector, Map<String, ScoringVocabulary> vocabularies) {
+        this(silenceDetector, null, vocabularies);
+    }
+
+    public DetectionEngineImpl(SilenceDetector silenceDetector, SceneDetector sceneDetector, Map<String, ScoringVocabulary> vocabularies) {
+        this(silenceDetector, sceneDetector, vocabularies, new DetectionStageCache(DEFAULT_STAGE_CACHE_ENTRIES));
+    }
+
+    /**
+     * @param sceneDetector scene cut source for snapping and alignment scoring; null disables the scene terms.
+     * @param stages        memo of the parameter-independent stages, shared across detect runs.
+     */
+    public DetectionEngineImpl(SilenceDetector silenceDetector, SceneDetector sceneDetector,
+                               Map<String, ScoringVocabulary> vocabularies, DetectionStageCache stages) {
+        this(silenceDetector, sceneDetector, null, 0, vocabularies, stages);
+    }
+
+    /**
+     * @param audioFeatures source of the audio-energy features; null disables the energy term.
+     * @param energyWeight  maximum score an above-average loud, busy window gains.
+     */
+    public DetectionEngineImpl(SilenceDetector silenceDetector, SceneDetector sceneDetector,
+                               AudioFeatureStore audioFeatures, double energyWeight,
+                               Map<String, ScoringVocabulary> vocabularies, DetectionStageCache stages) {
         this.silenceDetector = silenceDetector;
+        this.sceneDetector = sceneDetector;
+        this.audioFeatures = audioFeatures;
+        this.energyWeight = energyWeight;
+        this.stages = stages;
+        this.vocabularies = vocabularies == null ? Map.of() : Map.copyOf(vocabularies);
+    }
+
+    /** Daemon zodat een lopende ffmpeg-pass shutdown niet blokkeert; {@link #close()} stopt de pool expliciet. */
+    private static ExecutorService stagePool(String prefix, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(STAGE_QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, prefix + STAGE_THREAD_SEQ.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Stops the stage pools; running stages are interrupted. Invoked by Spring on context shutdown (inferred
+     * destroy method of the {@code @Bean}).
+     */
+    @Override
+    public void close() {
+        audioStageExecutor.shutdownNow();
+        sceneStageExecutor.shutdownNow();
+    }
+
+    /** Volle queue of gestopte pool: de stap faalt en wordt voor deze run overgeslagen. */
+    private static <T> CompletableFuture<T> stage(Supplier<T> work, ExecutorService executor) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private ClipAssembler assemblerFor(String key) {
+        return assemblers.computeIfAbsent(key, k ->
+                new ClipAssembler(new HeuristicScorer(vocabularies.getOrDefault(k, ScoringVocabulary.builtIn(k)))));
+    }
+
+    /** Alleen het id: de media-proxy van een losgekoppeld transcript is verder niet geladen. */
+    private static UUID mediaIdOf(Transcript transcript) {
+        return transcript.getMedia() == null ? null : transcript.getMedia().getId();
     }
 
     @Override
     public List<SegmentDTO> detect(Path mediaFile, Transcript transcript, DetectionParams params) {
-        if (transcript == null) return List.of();
-        List<WordsParser.WordAdapter> words = WordsParser.extract(transcript);
-        List<SpeakerTurn> speakerTurns = WordsParser.extractSpeakerTurns(transcript);
+        return run(mediaFile, transcript, params, null).segments();
+    }
+
+    /**
+     * Anytime detection: silence and scene stages get half of the budget (a stage that is not ready by then is
+     * skipped for this call but keeps running and fills the stage cache), and the window search stops at the
+     * deadline with the best windows so far.
+     */
+    @Override
+    public DetectionResult detectWithin(Path mediaFile, Transcript transcript, DetectionParams params, Duration budget) {
+        return run(mediaFile, transcript, params, budget);
+    }
+
+    private DetectionResult run(Path mediaFile, Transcript transcript, DetectionParams params, Duration budget) {
+        if (transcript == null) return new DetectionResult(List.of(), true);
+        long t0 = System.nanoTime();
+        boolean bounded = budget != null;
+        long deadline = bounded ? t0 + Math.max(0, budget.toNanos()) : 0L;
+        DetectionStageCache.TranscriptStages parsed = stages.transcript(transcript);
+        List<WordsParser.WordAdapter> words = parsed.words();
+        List<SpeakerTurn> speakerTurns = parsed.speakerTurns();
         HeuristicScorer.SpeakerContext speakerContext = new HeuristicScorer.SpeakerContext(speakerTurns, params.speakerTurnsEnabled());
         LOGGER.info("DETECT extracted words={}, mediaFileExists={}", words.size(), Files.exists(mediaFile));
         LOGGER.debug("DETECT diarization segments={} speakerHeuristicsEnabled={}", speakerTurns.size(), params.speakerTurnsEnabled());
 
-        if (words.isEmpty()) return List.of();
+        if (words.isEmpty()) return new DetectionResult(List.of(), true);
+        String langKey = ScoringVocabulary.primaryLanguage(transcript.getLang());
+        ClipAssembler assembler = assemblerFor(langKey);
         if (mediaFile == null || !Files.exists(mediaFile))
             throw new IllegalArgumentException("Media file missing: " + mediaFile);
 
-        List<SentenceSpan> sentences = TranscriptUtil.toSentences(
-                words, w -> w.text, w -> w.startMs, w -> w.endMs
-        );
+        UUID mediaId = mediaIdOf(transcript);
+        List<SentenceSpan> sentences = parsed.sentences();
+        HeuristicScorer.Features features = parsed.features(langKey, assembler);
 
         List<SilenceEvent> silences;
-        try {
-            silences = Optional.ofNullable(
-                    silenceDetector.detect(mediaFile, params.silenceNoiseDb(), params.silenceMinDurSec())
-            ).orElse(List.of());
-        } catch (Exception e) {
-            silences = List.of();
+        HeuristicScorer.SceneContext sceneContext;
+        HeuristicScorer.EnergyContext energyContext;
+        boolean stagesComplete = true;
+        if (bounded) {
+            var silenceStage = stage(() -> silences(mediaId, mediaFile, params), audioStageExecutor);
+            var sceneStage = stage(() -> sceneContext(mediaId, mediaFile, params), sceneStageExecutor);
+            // na de stilte-pass: die slaat de kenmerken meestal al op
+            var energyStage = silenceStage.thenCompose(x -> stage(() -> energyContext(mediaId, mediaFile), audioStageExecutor));
+            long stageDeadline = t0 + (deadline - t0) / 2;
+            silences = await(silenceStage, stageDeadline, "silences", mediaId);
+            sceneContext = await(sceneStage, stageDeadline, "scenes", mediaId);
+            energyContext = await(energyStage, stageDeadline, "energy", mediaId);
+            stagesComplete = silences != null && sceneContext != null && energyContext != null;
+            if (silences == null) silences = List.of();
+            if (sceneContext == null) sceneContext = HeuristicScorer.SceneContext.NONE;
+            if (energyContext == null) energyContext = HeuristicScorer.EnergyContext.NONE;
+        } else {
+            silences = silences(mediaId, mediaFile, params);
+            sceneContext = sceneContext(mediaId, mediaFile, params);
+            energyContext = energyContext(mediaId, mediaFile);
         }
+        long stagesMs = (System.nanoTime() - t0) / 1_000_000L;
 
-        var wins = assembler.windows(
-                sentences, silences,
-                params.minDurationMs(), params.maxDurationMs(), params.snapThresholdMs(),
-                params.targetLenSec(), params.lenSigmaSec(),
-                params.maxCandidates(),
-                speakerContext
-        );
+        ClipAssembler.Assembly assembly = bounded
+                ? assembler.windowsUntil(sentences, features, silences,
+                        params.minDurationMs(), params.maxDurationMs(), params.snapThresholdMs(),
+                        params.targetLenSec(), params.lenSigmaSec(), params.maxCandidates(),
+                        speakerContext, sceneContext, energyContext, deadline)
+                : new ClipAssembler.Assembly(assembler.windows(
+                        sentences, features, silences,
+                        params.minDurationMs(), params.maxDurationMs(), params.snapThresholdMs(),
+                        params.targetLenSec(), params.lenSigmaSec(),
+                        params.maxCandidates(),
+                        speakerContext,
+                        sceneContext,
+                        energyContext
+                ), true);
+        var wins = assembly.windows();
+        boolean completed = stagesComplete && assembly.completed();
         if (wins.isEmpty()) {
             wins = assembler.windowsTextOnly(
-                    sentences,
+                    new ArrayList<>(sentences),     // sorteert in-place; gecachte lijst is immutable
                     params.minDurationMs(),        // minMs (long)
                     params.maxDurationMs(),        // maxMs (long)
                     params.targetLenSec(),         // double
@@ -82,19 +232,22 @@ public class DetectionEngineImpl implements DetectionEngine {
         }
 
         long mediaEndGuess = words.get(words.size()-1).endMs;
-        LOGGER.info("DETECT sentences={}, silences={}, windows={}", sentences.size(), silences.size(), wins.size());
+        LOGGER.info("DETECT sentences={}, silences={}, sceneCuts={}, audioFrames={}, windows={} stagesMs={} totalMs={} completed={}", sentences.size(), silences.size(),
+                sceneContext.cuts().size(), energyContext.features().frameCount(), wins.size(), stagesMs, (System.nanoTime() - t0) / 1_000_000L, completed);
 
-        return wins.stream().map(w -> {
+        List<SegmentDTO> segments = wins.stream().map(w -> {
             Map<String,Object> meta = new LinkedHashMap<>();
             if (w.scoreComponents != null) meta.putAll(w.scoreComponents);
             meta.put("startIdx", w.startIdx);
             meta.put("endIdx", w.endIdx);
             meta.put("snapped", true);
             meta.put("snapThresholdMs", params.snapThresholdMs());
+            meta.put("snapSceneMs", params.snapSceneMs());
             meta.put("minDurationMs", params.minDurationMs());
             meta.put("maxDurationMs", params.maxDurationMs());
             meta.put("schema","det-v1");
             meta.put("engine","clip-assembler");
+            if (bounded) meta.put("searchCompleted", completed);
 
             long s = Math.max(0, w.startMs);
             long e = Math.min(Math.max(s + 1, w.endMs), mediaEndGuess);
@@ -102,6 +255,55 @@ public class DetectionEngineImpl implements DetectionEngine {
             BigDecimal score = BigDecimal.valueOf(w.score).setScale(4, RoundingMode.HALF_UP);
             return new SegmentDTO(s, e, score, meta);
         }).toList();
+        return new DetectionResult(segments, completed);
+    }
+
+    private List<SilenceEvent> silences(UUID mediaId, Path mediaFile, DetectionParams params) {
+        try {
+            return stages.silences(mediaId, mediaFile, params.silenceNoiseDb(), params.silenceMinDurSec(), () ->
+                    silenceDetector.detect(mediaId, mediaFile, params.silenceNoiseDb(), params.silenceMinDurSec()));
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    /** @return stage result, or null when it is not ready by the deadline. */
+    private static <T> T await(CompletableFuture<T> stage, long deadlineNanos, String name, UUID mediaId) {
+        try {
+            return stage.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.info("DETECT anytime skipped stage={} media={} (keeps running for the cache)", name, mediaId);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.warn("DETECT stage={} failed media={}: {}", name, mediaId, e.getCause().toString());
+            return null;
+        }
+    }
+
+    /** Energieterm is optioneel: zonder leesbare audio scoort alles gewoon zonder. */
+    private HeuristicScorer.EnergyContext energyContext(UUID mediaId, Path mediaFile) {
+        if (audioFeatures == null || energyWeight <= 0) return HeuristicScorer.EnergyContext.NONE;
+        try {
+            return new HeuristicScorer.EnergyContext(stages.audio(mediaId, mediaFile, () -> audioFeatures.load(mediaId, mediaFile)), energyWeight);
+        } catch (Exception e) {
+            LOGGER.warn("DETECT audio features skipped media={}: {}", mediaId, e.toString());
+            return HeuristicScorer.EnergyContext.NONE;
+        }
+    }
+
+    /** Scene cuts zijn optioneel: audio-only bronnen of een mislukte pass scoren gewoon zonder. */
+    private HeuristicScorer.SceneContext sceneContext(UUID mediaId, Path mediaFile, DetectionParams params) {
+        if (sceneDetector == null) return HeuristicScorer.SceneContext.NONE;
+        try {
+            return HeuristicScorer.SceneContext.of(stages.scenes(mediaId, mediaFile, () -> sceneDetector.detect(mediaId, mediaFile)),
+                    params.sceneThreshold(), params.snapSceneMs(), params.sceneAlignBonus());
+        } catch (Exception e) {
+            LOGGER.warn("DETECT scene detection skipped media={}: {}", mediaId, e.toString());
+            return HeuristicScorer.SceneContext.NONE;
+        }
     }
 
 }
@@ -0,0 +1,215 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import com.example.clipbot_backend.dto.SentenceSpan;
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.dto.SpeakerTurn;
+import com.example.clipbot_backend.dto.WordsParser;
+import com.example.clipbot_backend.model.Transcript;
+import com.example.clipbot_backend.service.ClipAssembler;
+import com.example.clipbot_backend.util.AudioFeatures;
+import com.example.clipbot_backend.util.HeuristicScorer;
+import com.example.clipbot_backend.util.TranscriptUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory memo of the detection stages that do not depend on window parameters: parsed words, sentences and
+ * speaker turns per transcript version, sentence features per scoring language, and silence and scene maps and
+ * audio features per raw file state. A re-run with only new duration, candidate or scoring settings then goes straight to window
+ * assembly. Entries are least-recently-used bounded; cached lists are immutable.
+ */
+public class DetectionStageCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DetectionStageCache.class);
+
+    /**
+     * Parameter-independent transcript artifacts of one transcript version.
+     */
+    public static final class TranscriptStages {
+        private final List<WordsParser.WordAdapter> words;
+        private final List<SentenceSpan> sentences;
+        private final List<SpeakerTurn> speakerTurns;
+        private final Map<String, HeuristicScorer.Features> features = new ConcurrentHashMap<>();
+
+        TranscriptStages(List<WordsParser.WordAdapter> words, List<SentenceSpan> sentences, List<SpeakerTurn> speakerTurns) {
+            this.words = words;
+            this.sentences = sentences;
+            this.speakerTurns = speakerTurns;
+        }
+
+        public List<WordsParser.WordAdapter> words() { return words; }
+        public List<SentenceSpan> sentences() { return sentences; }
+        public List<SpeakerTurn> speakerTurns() { return speakerTurns; }
+
+        /**
+         * Sentence features for one scoring language, computed on first use.
+         *
+         * @param langKey   primary language key of the assembler.
+         * @param assembler assembler whose vocabulary the features are built with.
+         * @return features of {@link #sentences()}.
+         */
+        public HeuristicScorer.Features features(String langKey, ClipAssembler assembler) {
+            return features.computeIfAbsent(langKey, k -> assembler.prepare(sentences));
+        }
+    }
+
+    private final Map<String, TranscriptStages> transcripts;
+    private final Map<String, List<SilenceEvent>> silences;
+    private final Map<String, List<SceneCut>> scenes;
+    private final Map<String, AudioFeatures> audio;
+    /** Lopende berekeningen per cache, zodat gelijktijdige detects voor dezelfde sleutel één pass delen. */
+    private final Map<Map<String, ?>, ConcurrentHashMap<String, CompletableFuture<Object>>> inFlight = new IdentityHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DetectionStageCache(int maxTranscripts) {
+        int max = Math.max(1, maxTranscripts);
+        this.transcripts = lru(max);
+        // per transcript vaak meerdere drempelcombinaties
+        this.silences = lru(max * 4);
+        this.scenes = lru(max);
+        this.audio = lru(max);
+        for (Map<String, ?> cache : List.of(transcripts, silences, scenes, audio)) {
+            inFlight.put(cache, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the parsed stages of a transcript, keyed by id and optimistic-lock version so an updated
+     * transcript is parsed again. Transcripts without id are parsed but not cached.
+     *
+     * @param transcript transcript to parse.
+     * @return cached or freshly parsed stages.
+     */
+    public TranscriptStages transcript(Transcript transcript) {
+        if (transcript.getId() == null) return parse(transcript);
+        String key = transcript.getId() + ":" + transcript.getVersion();
+        return memo(transcripts, key, k -> parse(transcript));
+    }
+
+    /**
+     * Returns the silences of a raw file for one threshold pair, running {@code detect} on a miss.
+     * Empty results are cached as well; a failing {@code detect} is not. Concurrent misses for the same key
+     * share one {@code detect} run.
+     */
+    public List<SilenceEvent> silences(UUID mediaId, Path mediaFile, double noiseDb, double minSilenceSec,
+                                       Supplier<List<SilenceEvent>> detect) {
+        String fingerprint = fingerprint(mediaId, mediaFile);
+        if (fingerprint == null) return detect.get();
+        return memo(silences, fingerprint + "|" + noiseDb + "|" + minSilenceSec, k -> immutable(detect.get()));
+    }
+
+    /**
+     * Returns the scene cuts of a raw file, running {@code detect} on a miss.
+     */
+    public List<SceneCut> scenes(UUID mediaId, Path mediaFile, Supplier<List<SceneCut>> detect) {
+        String fingerprint = fingerprint(mediaId, mediaFile);
+        if (fingerprint == null) return detect.get();
+        return memo(scenes, fingerprint, k -> immutable(detect.get()));
+    }
+
+    /**
+     * Returns the audio-energy features of a raw file, running {@code load} on a miss.
+     */
+    public AudioFeatures audio(UUID mediaId, Path mediaFile, Supplier<AudioFeatures> load) {
+        String fingerprint = fingerprint(mediaId, mediaFile);
+        if (fingerprint == null) return load.get();
+        return memo(audio, fingerprint, k -> {
+            AudioFeatures features = load.get();
+            return features == null ? AudioFeatures.EMPTY : features;
+        });
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+
+    @SuppressWarnings("unchecked")
+    private <V> V memo(Map<String, V> cache, String key, Function<String, V> compute) {
+        V cached = cache.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        ConcurrentHashMap<String, CompletableFuture<Object>> flights = inFlight.get(cache);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            hits.incrementAndGet();
+            return (V) await(running);
+        }
+        misses.incrementAndGet();
+        // buiten de lock berekenen: een trage ffmpeg-pass mag andere media niet blokkeren
+        try {
+            V value = compute.apply(key);
+            cache.put(key, value);
+            flight.complete(value);
+            LOGGER.debug("Detect stage cached key={}", key);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /** Wacht op de pass van een andere detect en gooit diens fout opnieuw. */
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private static TranscriptStages parse(Transcript transcript) {
+        List<WordsParser.WordAdapter> words = List.copyOf(WordsParser.extract(transcript));
+        List<SpeakerTurn> turns = List.copyOf(WordsParser.extractSpeakerTurns(transcript));
+        List<SentenceSpan> sentences = words.isEmpty() ? List.of() : List.copyOf(TranscriptUtil.toSentences(
+                words, w -> w.text, w -> w.startMs, w -> w.endMs
+        ));
+        return new TranscriptStages(words, sentences, turns);
+    }
+
+    /** Media, pad, grootte en mtime: een vervangen raw-bestand is een nieuwe sleutel. */
+    private static String fingerprint(UUID mediaId, Path mediaFile) {
+        if (mediaFile == null) return null;
+        try {
+            return mediaId + "|" + mediaFile.toAbsolutePath().normalize() + "|" + Files.size(mediaFile)
+                    + "|" + Files.getLastModifiedTime(mediaFile).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static <T> List<T> immutable(List<T> list) {
+        return list == null ? List.of() : List.copyOf(list);
+    }
+
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.clipbot_backend.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verdeelt een lange export in chunks die los (parallel) ge-encodeerd en daarna met de
+ * concat demuxer (-c copy) samengevoegd worden.
+ * Grenzen liggen op veelvouden van de GOP-lengte, zodat elke chunk op een keyframe begint
+ * en het samengevoegde resultaat hetzelfde keyframe-raster heeft als een enkele encode.
+ */
+final class ExportChunkPlan {
+
+    record Chunk(int index, long offsetMs, long durationMs) {}
+
+    private ExportChunkPlan() {}
+
+    /**
+     * @param durationMs  totale exportduur
+     * @param chunkMs     gewenste chunk-lengte (wordt naar beneden afgerond op de GOP)
+     * @param gopMs       keyframe-interval van de output
+     * @return chunks met offsets relatief aan de exportstart; één chunk als splitsen niet loont
+     */
+    static List<Chunk> plan(long durationMs, long chunkMs, long gopMs) {
+        if (durationMs <= 0) {
+            throw new IllegalArgumentException("durationMs must be > 0");
+        }
+        long gop = Math.max(1, gopMs);
+        long step = Math.max(gop, (chunkMs / gop) * gop);
+        List<Chunk> out = new ArrayList<>();
+        long offset = 0;
+        while (offset < durationMs) {
+            long remaining = durationMs - offset;
+            // korte staart (< halve chunk) bij de vorige chunk voegen i.p.v. een extra proces te starten
+            long len = remaining < step + step / 2 ? remaining : step;
+            out.add(new Chunk(out.size(), offset, len));
+            offset += len;
+        }
+        return out;
+    }
+}
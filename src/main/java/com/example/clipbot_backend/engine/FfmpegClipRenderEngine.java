@@ -1,14 +1,17 @@
 package com.example.clipbot_backend.engine;
 
+import com.example.clipbot_backend.dto.LoudnessProfile;
 import com.example.clipbot_backend.dto.RenderOptions;
 import com.example.clipbot_backend.dto.RenderResult;
 import com.example.clipbot_backend.dto.RenderSpec;
 import com.example.clipbot_backend.dto.SubtitleFiles;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
 import com.example.clipbot_backend.dto.render.SubtitleStyle;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.ffmpeg.AssStyleUtil;
 
 import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.util.ContainerProbe;
 import com.example.clipbot_backend.util.SmartThumbnailer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,10 +25,17 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
-
-public class FfmpegClipRenderEngine  implements ClipRenderEngine {
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FfmpegClipRenderEngine  implements ClipRenderEngine, AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(FfmpegClipRenderEngine.class);
 
     private final StorageService storageService;
@@ -34,18 +44,77 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
     private final Duration timeout;
     private final @Nullable Path fontsDir;
 
+    // parallel chunked encoding voor lange exports (renderStyled)
+    private static final long EXPORT_GOP_MS = 2000;
+    private final int chunkParallelism;
+    private final long chunkMinDurationMs;
+    private final long chunkLengthMs;
+    private final @Nullable ExecutorService chunkExecutor;
+
     public FfmpegClipRenderEngine(StorageService storageService, String ffmpegBin, Path workDir, Duration timeout, @Nullable Path fontsDir) {
+        this(storageService, ffmpegBin, workDir, timeout, fontsDir, 1, Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * @param chunkParallelism   max. gelijktijdige chunk-encoders over alle exports heen (1 = uit)
+     * @param chunkMinDuration   exports korter dan dit worden in één proces ge-encodeerd
+     * @param chunkLength        doel-lengte per chunk
+     */
+    public FfmpegClipRenderEngine(StorageService storageService, String ffmpegBin, Path workDir, Duration timeout, @Nullable Path fontsDir,
+                                  int chunkParallelism, Duration chunkMinDuration, Duration chunkLength) {
         this.storageService = storageService;
         this.ffmpegBin = ffmpegBin;
         this.workDir = workDir.toAbsolutePath().normalize();
         this.timeout = timeout !=  null ? timeout : Duration.ofMinutes(2);
         this.fontsDir = fontsDir != null ? fontsDir.toAbsolutePath().normalize() : null;
+        this.chunkParallelism = Math.max(1, chunkParallelism);
+        this.chunkMinDurationMs = chunkMinDuration != null ? chunkMinDuration.toMillis() : 0L;
+        this.chunkLengthMs = chunkLength != null ? Math.max(EXPORT_GOP_MS, chunkLength.toMillis()) : EXPORT_GOP_MS;
+        if (this.chunkParallelism > 1 && this.chunkMinDurationMs > 0) {
+            AtomicInteger seq = new AtomicInteger();
+            this.chunkExecutor = Executors.newFixedThreadPool(this.chunkParallelism, r -> {
+                Thread t = new Thread(r, "render-chunk-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.chunkExecutor = null;
+        }
         try {
             Files.createDirectories(this.workDir);
         } catch (Exception e) {
             throw new IllegalStateException("Unable to create work directory: " + this.workDir, e);
         }
     }
+
+    /**
+     * Stops the chunk pool; running chunk encoders are interrupted, which kills their ffmpeg process. Invoked by
+     * Spring on context shutdown (inferred destroy method of the {@code @Bean}).
+     */
+    @Override
+    public void close() {
+        if (chunkExecutor == null) return;
+        chunkExecutor.shutdownNow();
+        try {
+            if (!chunkExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Render chunk pool did not terminate within 5s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Audio-only bepalen zonder extra proces: eerst de bij ingest opgeslagen container-info
+     * (meta "sourceAudioOnly"), dan de header in-JVM lezen, pas daarna mime/extensie raden.
+     */
+    private static boolean isAudioOnly(Path file, @Nullable Map<String, Object> meta) {
+        Object known = meta != null ? meta.get("sourceAudioOnly") : null;
+        if (known instanceof Boolean b) return b;
+        ContainerInfo info = ContainerProbe.tryProbe(file);
+        if (info != null && !info.streams().isEmpty()) return info.audioOnly();
+        return probablyAudioOnly(file);
+    }
+
     private static boolean probablyAudioOnly(Path file) {
         try {
             String ct = java.nio.file.Files.probeContentType(file);
@@ -124,7 +193,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
         thumbAtSec = Math.max(0.2, Math.min(thumbAtSec, Math.max(0.2, durSec - 0.2)));
 
         // ----- canvas/defaults -----
-        boolean audioOnly = probablyAudioOnly(inputFile);
+        boolean audioOnly = isAudioOnly(inputFile, meta);
         int W = orDefault(width, 1920);  if ((W & 1) == 1) W++;
         int H = orDefault(height, 1080); if ((H & 1) == 1) H++;
         int FPS = orDefault(fps, 30);
@@ -141,6 +210,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
 
         SubtitleFiles subs = options != null ? options.subtitles() : null;
         String vf = null;
+        String af = LoudnormFilter.forProfile(LoudnessProfile.fromMeta(meta));
 
         if (!audioOnly) {
             // ========== VIDEO BRON ==========
@@ -184,6 +254,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             cmd.add("-preset"); cmd.add(targetPreset);
             cmd.add("-crf"); cmd.add(String.valueOf(targetCrf));
             if (fps != null) { cmd.add("-r"); cmd.add(String.valueOf(FPS)); } // optioneel
+            if (af != null) { cmd.add("-af"); cmd.add(af); }
             cmd.add("-c:a"); cmd.add("aac");
             cmd.add("-b:a"); cmd.add("128k");
 
@@ -232,6 +303,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             cmd.add("-c:v"); cmd.add("libx264");
             cmd.add("-preset"); cmd.add(targetPreset);
             cmd.add("-crf"); cmd.add(String.valueOf(targetCrf));
+            if (af != null) { cmd.add("-af"); cmd.add(af); }
             cmd.add("-c:a"); cmd.add("aac");
             cmd.add("-b:a"); cmd.add("128k");
             cmd.add("-shortest");
@@ -247,6 +319,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
         LOGGER.info("FFmpeg command: {}", String.join(" ", cmd));
 
         // ----- run ffmpeg -----
+        long encodeStart = System.nanoTime();
         ProcessBuilder pb = new ProcessBuilder(cmd).redirectErrorStream(false);
         Process p = pb.start();
 
@@ -266,7 +339,15 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
         tOut.setDaemon(true); tErr.setDaemon(true);
         tOut.start(); tErr.start();
 
-        boolean finished = p.waitFor(timeout.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        boolean finished;
+        try {
+            finished = p.waitFor(timeout.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // afgebroken (bv. speculatieve render die voorrang geeft): geen wees-ffmpeg achterlaten
+            p.destroyForcibly();
+            Files.deleteIfExists(tmpOut);
+            throw e;
+        }
         if (!finished) {
             p.destroyForcibly();
             throw new RuntimeException("ffmpeg timed out after " + timeout + "\n---- ffmpeg stderr ----\n" + errBuf);
@@ -275,6 +356,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             throw new RuntimeException("ffmpeg failed with exit " + p.exitValue()
                     + "\n---- ffmpeg stderr ----\n" + errBuf + "\n---- ffmpeg stdout ----\n" + outBuf);
         }
+        long encodeMs = (System.nanoTime() - encodeStart) / 1_000_000;
 
         // ----- upload clip -----
         String mp4Key = "clips/" + outName;
@@ -302,7 +384,7 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             Path thumb = workDir.resolve(outName.replace(".mp4", ".jpg"));
             List<String> tcmd = List.of(
                     ffmpegBin, "-y",
-                    "-ss", String.format(java.util.Locale.ROOT, "%.3f", Math.max(0.2, (durMs/2000.0) - 0.1)),
+                    "-ss", String.format(java.util.Locale.ROOT, "%.3f", midFrameSeekSec(tmpOut, durMs)),
                     "-i",  tmpOut.toAbsolutePath().toString(),
                     "-vframes", "1",
                     "-q:v", "3",
@@ -319,7 +401,16 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             try { Files.deleteIfExists(tmpOut); } catch (Exception ignore) {}
         }
 
-        return new RenderResult(mp4Key, mp4Size, thumbKey, thumbSize);
+        return new RenderResult(mp4Key, mp4Size, thumbKey, thumbSize, encodeMs);
+    }
+
+    /** Keyframe rond het midden van de render (geen decode van een halve GOP); anders midden - 0.1s. */
+    private static double midFrameSeekSec(Path rendered, long durMs) {
+        double fallback = Math.max(0.2, (durMs / 2000.0) - 0.1);
+        ContainerInfo info = ContainerProbe.tryProbe(rendered);
+        if (info == null) return fallback;
+        long kfUs = info.keyframeAtOrBefore(durMs * 500L);
+        return kfUs >= 200_000L ? kfUs / 1_000_000.0 : fallback;
     }
 
     @Override
@@ -332,6 +423,12 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
 
     @Override
     public RenderResult renderStyled(Path mediaFile, Path subtitleFile, long startMs, long endMs, RenderSpec spec, SubtitleStyle style) throws Exception {
+        return renderStyled(mediaFile, subtitleFile, startMs, endMs, spec, style, null);
+    }
+
+    @Override
+    public RenderResult renderStyled(Path mediaFile, Path subtitleFile, long startMs, long endMs, RenderSpec spec, SubtitleStyle style,
+                                     @Nullable LoudnessProfile loudness) throws Exception {
         if (mediaFile == null || !Files.exists(mediaFile)) {
             throw new IllegalArgumentException("Input file not found: " + mediaFile);
         }
@@ -359,20 +456,33 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
                 "pad=" + width + ":" + height + ":(ow-iw)/2:(oh-ih)/2," +
                 subFilter;
 
+        // null voor een al genormaliseerde clean master of een stille bron
+        String af = LoudnormFilter.forProfile(loudness);
+
         String outName = "export-" + UUID.randomUUID() + ".mp4";
         Path tmpOut = workDir.resolve(outName);
 
-        List<String> cmd = List.of(
+        if (chunkExecutor != null && durMs >= chunkMinDurationMs) {
+            List<ExportChunkPlan.Chunk> chunks = ExportChunkPlan.plan(durMs, chunkLengthMs, EXPORT_GOP_MS);
+            if (chunks.size() > 1) {
+                renderStyledChunked(mediaFile, startMs, durMs, width, height, subFilter, af, chunks, tmpOut);
+                return uploadExport(tmpOut, outName);
+            }
+        }
+
+        List<String> cmd = new ArrayList<>(List.of(
                 ffmpegBin, "-y",
                 "-ss", String.format(java.util.Locale.ROOT, "%.3f", startMs / 1000.0),
                 "-i", mediaFile.toAbsolutePath().toString(),
                 "-vf", vf,
-                "-c:v", "libx264", "-preset", "fast", "-crf", "23", "-r", "30",
+                "-c:v", "libx264", "-preset", "fast", "-crf", "23", "-r", "30"));
+        if (af != null) cmd.addAll(List.of("-af", af));
+        cmd.addAll(List.of(
                 "-c:a", "aac", "-b:a", "128k",
                 "-t", String.format(java.util.Locale.ROOT, "%.3f", durSec),
                 "-pix_fmt", "yuv420p", "-movflags", "+faststart",
                 tmpOut.toAbsolutePath().toString()
-        );
+        ));
         LOGGER.info("FFmpeg styled command: {}", String.join(" ", cmd));
 
         Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
@@ -392,6 +502,52 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
             throw new RuntimeException("ffmpeg styled render failed with exit " + p.exitValue() + "\n" + outBuf);
         }
 
+        return uploadExport(tmpOut, outName);
+    }
+
+    @Override
+    public RenderResult renderRendition(Path masterFile, RenderSpec spec, String objectKey) throws Exception {
+        if (masterFile == null || !Files.exists(masterFile)) {
+            throw new IllegalArgumentException("Master file not found: " + masterFile);
+        }
+        RenderSpec effective = spec != null ? spec : RenderSpec.DEFAULT;
+        if (effective.profile() != null && !effective.profile().isBlank()) {
+            effective = applyProfile(effective);
+        }
+        int width = orDefault(effective.width(), RenderSpec.DEFAULT.width());   if ((width & 1) == 1) width++;
+        int height = orDefault(effective.height(), RenderSpec.DEFAULT.height()); if ((height & 1) == 1) height++;
+        int fps = orDefault(effective.fps(), RenderSpec.DEFAULT.fps());
+        int crf = orDefault(effective.crf(), RenderSpec.DEFAULT.crf());
+        String preset = effective.preset() != null ? effective.preset() : "veryfast";
+
+        // master is al geknipt, genormaliseerd en in bron-aspect: alleen schalen/padden, audio kopiëren
+        String vf = "scale=" + width + ":" + height + ":force_original_aspect_ratio=decrease," +
+                "pad=" + width + ":" + height + ":(ow-iw)/2:(oh-ih)/2,setsar=1";
+        Path tmpOut = workDir.resolve("rendition-" + UUID.randomUUID() + ".mp4");
+        List<String> cmd = List.of(
+                ffmpegBin, "-y", "-hide_banner", "-loglevel", "error",
+                "-i", masterFile.toAbsolutePath().toString(),
+                "-vf", vf,
+                "-c:v", "libx264", "-preset", preset, "-crf", String.valueOf(crf), "-r", String.valueOf(fps),
+                "-pix_fmt", "yuv420p",
+                "-c:a", "copy",
+                "-movflags", "+faststart",
+                tmpOut.toAbsolutePath().toString()
+        );
+        try {
+            long t0 = System.nanoTime();
+            runFfmpeg(cmd, "rendition");
+            long encodeMs = (System.nanoTime() - t0) / 1_000_000;
+            storageService.uploadToOut(tmpOut, objectKey);
+            long size = Files.size(tmpOut);
+            LOGGER.info("Rendition {} {}x{} encoded in {} ms", objectKey, width, height, encodeMs);
+            return new RenderResult(objectKey, size, null, 0L, encodeMs);
+        } finally {
+            try { Files.deleteIfExists(tmpOut); } catch (Exception ignore) {}
+        }
+    }
+
+    private RenderResult uploadExport(Path tmpOut, String outName) throws IOException {
         String mp4Key = "clips/" + outName;
         storageService.uploadToOut(tmpOut, mp4Key);
         long mp4Size = Files.size(tmpOut);
@@ -402,6 +558,123 @@ public class FfmpegClipRenderEngine  implements ClipRenderEngine {
         return new RenderResult(mp4Key, mp4Size, null, 0L);
     }
 
+    /**
+     * Encodeert de video in GOP-uitgelijnde chunks parallel (zonder audio), de audio in één
+     * doorlopende pass, en voegt alles samen via de concat demuxer zonder her-encode.
+     * De audio-pass wordt alleen overgeslagen als de header zeker geen audiostream heeft.
+     * Elke chunk schuift zijn PTS terug naar de exporttijdlijn vóór het subtitles-filter,
+     * zodat ondertitels op dezelfde momenten verschijnen als bij een enkele encode.
+     */
+    private void renderStyledChunked(Path mediaFile, long startMs, long durMs, int width, int height, String subFilter, @Nullable String af,
+                                     List<ExportChunkPlan.Chunk> chunks, Path out) throws Exception {
+        Path dir = Files.createTempDirectory(workDir, "export-chunks-");
+        int threadsPerChunk = Math.max(2, Runtime.getRuntime().availableProcessors() / chunkParallelism);
+        String gopFrames = String.valueOf(30 * EXPORT_GOP_MS / 1000);
+        List<Future<Path>> videoParts = new ArrayList<>(chunks.size());
+        Future<Path> audioPart = null;
+        long t0 = System.nanoTime();
+        try {
+            // audio als één stuk: geen AAC priming-gaten of klikken op chunkgrenzen. Als eerste ingediend,
+            // zodat de langste enkele pass niet achter alle video-chunks in de queue staat.
+            ContainerInfo info = ContainerProbe.tryProbe(mediaFile);
+            boolean withAudio = info == null || info.streams().isEmpty() || info.hasAudio();
+            Path audio = dir.resolve("audio.m4a");
+            if (withAudio) {
+                List<String> audioCmd = new ArrayList<>(List.of(
+                        ffmpegBin, "-y",
+                        "-ss", String.format(Locale.ROOT, "%.3f", startMs / 1000.0),
+                        "-i", mediaFile.toAbsolutePath().toString(),
+                        "-t", String.format(Locale.ROOT, "%.3f", durMs / 1000.0),
+                        "-vn"));
+                if (af != null) audioCmd.addAll(List.of("-af", af));
+                audioCmd.addAll(List.of("-c:a", "aac", "-b:a", "128k", audio.toAbsolutePath().toString()));
+                audioPart = chunkExecutor.submit(() -> { runFfmpeg(audioCmd, "export-audio"); return audio; });
+            }
+
+            for (ExportChunkPlan.Chunk chunk : chunks) {
+                Path part = dir.resolve(String.format(Locale.ROOT, "part-%04d.mp4", chunk.index()));
+                double offsetSec = chunk.offsetMs() / 1000.0;
+                String vf = String.format(Locale.ROOT, "setpts=PTS+%.3f/TB,", offsetSec)
+                        + "scale=" + width + ":" + height + ":force_original_aspect_ratio=decrease,"
+                        + "pad=" + width + ":" + height + ":(ow-iw)/2:(oh-ih)/2,"
+                        + subFilter + ",setpts=PTS-STARTPTS";
+                List<String> cmd = List.of(
+                        ffmpegBin, "-y",
+                        "-ss", String.format(Locale.ROOT, "%.3f", (startMs + chunk.offsetMs()) / 1000.0),
+                        "-i", mediaFile.toAbsolutePath().toString(),
+                        "-t", String.format(Locale.ROOT, "%.3f", chunk.durationMs() / 1000.0),
+                        "-an",
+                        "-vf", vf,
+                        "-c:v", "libx264", "-preset", "fast", "-crf", "23", "-r", "30",
+                        "-g", gopFrames, "-force_key_frames", "expr:gte(t,n_forced*" + (EXPORT_GOP_MS / 1000) + ")",
+                        "-threads", String.valueOf(threadsPerChunk),
+                        "-pix_fmt", "yuv420p",
+                        part.toAbsolutePath().toString()
+                );
+                videoParts.add(chunkExecutor.submit(() -> { runFfmpeg(cmd, "export-chunk-" + chunk.index()); return part; }));
+            }
+
+            StringBuilder list = new StringBuilder();
+            for (Future<Path> f : videoParts) {
+                list.append("file '").append(f.get().toAbsolutePath().toString().replace("'", "'\\''")).append("'\n");
+            }
+            Path listFile = dir.resolve("concat.txt");
+            Files.writeString(listFile, list.toString());
+            // een mislukte audio-pass laat de export falen: nooit stil een video zonder geluid opleveren
+            Path audioFile = audioPart != null ? audioPart.get() : null;
+
+            List<String> concat = new ArrayList<>(List.of(
+                    ffmpegBin, "-y",
+                    "-f", "concat", "-safe", "0", "-i", listFile.toAbsolutePath().toString()));
+            if (audioFile != null) {
+                concat.addAll(List.of("-i", audioFile.toAbsolutePath().toString(), "-map", "0:v:0", "-map", "1:a:0"));
+            }
+            concat.addAll(List.of("-c", "copy", "-movflags", "+faststart", out.toAbsolutePath().toString()));
+            runFfmpeg(concat, "export-concat");
+            LOGGER.info("Chunked export done chunks={} durMs={} parallelism={} in={}ms",
+                    chunks.size(), durMs, chunkParallelism, (System.nanoTime() - t0) / 1_000_000);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            videoParts.forEach(f -> f.cancel(true));
+            if (audioPart != null) audioPart.cancel(true);
+            deleteRecursively(dir);
+        }
+    }
+
+    private void runFfmpeg(List<String> cmd, String tag) throws IOException, InterruptedException {
+        LOGGER.debug("FFmpeg {} command: {}", tag, String.join(" ", cmd));
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        StringBuilder outBuf = new StringBuilder();
+        Thread reader = new Thread(() -> {
+            try (var br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                br.lines().forEach(line -> outBuf.append(line).append('\n'));
+            } catch (Exception ignore) {}
+        });
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            if (!p.waitFor(timeout.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                throw new RuntimeException("ffmpeg " + tag + " timed out after " + timeout + "\n" + outBuf);
+            }
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            throw e;
+        }
+        if (p.exitValue() != 0) {
+            throw new RuntimeException("ffmpeg " + tag + " failed with exit " + p.exitValue() + "\n" + outBuf);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (var walk = Files.walk(dir)) {
+            walk.sorted(java.util.Comparator.reverseOrder()).forEach(path -> {
+                try { Files.deleteIfExists(path); } catch (Exception ignore) {}
+            });
+        } catch (Exception ignore) {}
+    }
+
 
     private Path resolveFirstExisting(String objectKey) {
         try {
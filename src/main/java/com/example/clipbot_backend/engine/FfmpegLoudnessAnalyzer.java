@@ -0,0 +1,101 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.LoudnessProfile;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meet integrated loudness, LRA en true peak van een volledige bron in één analyse-pass
+ * ({@code loudnorm=print_format=json}, geen video decode).
+ */
+@Component
+public class FfmpegLoudnessAnalyzer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FfmpegLoudnessAnalyzer.class);
+
+    private final String ffmpegBin;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FfmpegLoudnessAnalyzer(@Value("${ffmpeg.binary:ffmpeg}") String ffmpegBin,
+                                  @Value("${loudness.analyze.timeout:PT10M}") Duration timeout) {
+        this.ffmpegBin = ffmpegBin;
+        this.timeout = timeout;
+    }
+
+    public LoudnessProfile measure(Path mediaPath) {
+        List<String> cmd = List.of(
+                ffmpegBin, "-hide_banner", "-nostats",
+                "-i", mediaPath.toAbsolutePath().toString(),
+                "-vn", "-sn", "-dn",
+                "-af", "loudnorm=I=" + LoudnormFilter.TARGET_I + ":TP=" + LoudnormFilter.TARGET_TP
+                        + ":LRA=" + LoudnormFilter.TARGET_LRA + ":print_format=json",
+                "-f", "null", "-"
+        );
+        StringBuilder buf = new StringBuilder();
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                    br.lines().forEach(line -> buf.append(line).append('\n'));
+                } catch (Exception ignore) {}
+            });
+            reader.setDaemon(true);
+            reader.start();
+            if (!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                throw new IllegalStateException("loudnorm analysis timed out after " + timeout);
+            }
+            reader.join(2000);
+            if (p.exitValue() != 0) {
+                throw new IllegalStateException("loudnorm analysis failed: exit=" + p.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("loudnorm analysis interrupted", e);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("loudnorm analysis failed", e);
+        }
+        LoudnessProfile profile = parse(buf.toString());
+        LOGGER.debug("loudness measured path={} profile={}", mediaPath, profile);
+        return profile;
+    }
+
+    /** loudnorm print_format=json schrijft het JSON-blok als laatste {...} in stderr. */
+    LoudnessProfile parse(String output) {
+        int open = output.lastIndexOf('{');
+        int close = output.lastIndexOf('}');
+        if (open < 0 || close < open) {
+            throw new IllegalStateException("loudnorm output contained no JSON");
+        }
+        try {
+            JsonNode n = objectMapper.readTree(output.substring(open, close + 1));
+            return new LoudnessProfile(
+                    value(n, "input_i"),
+                    value(n, "input_lra"),
+                    value(n, "input_tp"),
+                    value(n, "input_thresh"),
+                    value(n, "target_offset"));
+        } catch (Exception e) {
+            throw new IllegalStateException("loudnorm JSON unparsable", e);
+        }
+    }
+
+    // loudnorm levert strings ("-23.40", "-inf") i.p.v. getallen
+    private static double value(JsonNode n, String field) {
+        String raw = n.path(field).asText("").trim();
+        if (raw.endsWith("inf")) return raw.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        try { return Double.parseDouble(raw); }
+        catch (NumberFormatException e) { return Double.NaN; }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import com.example.clipbot_backend.service.Interfaces.SceneDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One ffmpeg pass over the first video stream, decimated to a few frames per second and downscaled before the
+ * scene filter. Every frame is still decoded at source resolution, so the decode dominates; the filters only keep
+ * the scene comparison itself cheap.
+ */
+@Component
+public class FfmpegSceneDetector implements SceneDetector {
+    private static final Pattern PTS_TIME = Pattern.compile("pts_time:([0-9.]+)");
+    private static final Pattern SCORE = Pattern.compile("lavfi\\.scene_score=([0-9.]+)");
+    /** Na exit van ffmpeg: zo lang mag de reader nog de laatste regels uit de pipe halen. */
+    private static final long READER_DRAIN_MS = 5_000;
+
+    private final String ffmpegBin;
+    private final int fps;
+    private final int width;
+    private final double minScore;
+    private final Duration timeout;
+
+    public FfmpegSceneDetector(@Value("${ffmpeg.binary:ffmpeg}") String ffmpegBin,
+                               @Value("${detect.scene.fps:4}") int fps,
+                               @Value("${detect.scene.width:160}") int width,
+                               @Value("${detect.scene.minScore:0.2}") double minScore,
+                               @Value("${detect.scene.timeout:PT20M}") Duration timeout) {
+        this.ffmpegBin = (ffmpegBin == null || ffmpegBin.isBlank()) ? "ffmpeg" : ffmpegBin;
+        this.fps = Math.max(1, fps);
+        this.width = Math.max(32, width);
+        this.minScore = minScore;
+        this.timeout = timeout;
+    }
+
+    /** Ondergrens van de analyse; drempels eronder zien dezelfde cuts. */
+    public double minScore() {
+        return minScore;
+    }
+
+    @Override
+    public List<SceneCut> detect(java.util.UUID mediaId, Path mediaPath) {
+        List<String> output = Collections.synchronizedList(new ArrayList<>());
+        List<String> lines;
+        int exit;
+        try {
+            Process p = new ProcessBuilder(buildCommand(ffmpegBin, mediaPath, fps, width, minScore))
+                    .redirectErrorStream(true).start();
+            // uitlezen op een eigen thread: anders blokkeert readLine tot EOF en grijpt de timeout nooit in
+            Thread reader = new Thread(() -> {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                    String line;
+                    while ((line = br.readLine()) != null) output.add(line);
+                } catch (Exception ignore) {}
+            }, "scene-detect-reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                if (!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    p.destroyForcibly();
+                    throw new RuntimeException("FFmpeg scene detection timed out after " + timeout);
+                }
+                reader.join(READER_DRAIN_MS);
+            } catch (InterruptedException e) {
+                p.destroyForcibly();
+                throw e;
+            }
+            exit = p.exitValue();
+            synchronized (output) {
+                lines = List.copyOf(output);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("FFmpeg scene detection interrupted", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("FFmpeg scene detection failed", e);
+        }
+        if (exit != 0) {
+            // audio-only bron: geen videostream is geen fout, gewoon geen cuts
+            if (lines.stream().anyMatch(l -> l.contains("does not contain any stream") || l.contains("matches no streams"))) {
+                return List.of();
+            }
+            throw new RuntimeException("FFmpeg scene detection failed with code " + exit);
+        }
+        return parse(lines);
+    }
+
+    static List<String> buildCommand(String ffmpegBin, Path src, int fps, int width, double minScore) {
+        String filter = String.format(Locale.ROOT, "fps=%d,scale=%d:-2,select='gt(scene,%.3f)',metadata=print", fps, width, minScore);
+        return List.of(
+                ffmpegBin, "-hide_banner", "-nostats", "-nostdin",
+                "-i", src.toAbsolutePath().toString(),
+                "-map", "0:v:0", "-an", "-sn", "-dn",
+                "-vf", filter,
+                "-f", "null", "-"
+        );
+    }
+
+    /** metadata=print logt per geselecteerd frame eerst de pts_time-regel en daarna de scene_score. */
+    static List<SceneCut> parse(List<String> lines) {
+        List<SceneCut> out = new ArrayList<>();
+        Double pendingTime = null;
+        for (String line : lines) {
+            Matcher t = PTS_TIME.matcher(line);
+            if (t.find()) {
+                pendingTime = Double.parseDouble(t.group(1));
+                continue;
+            }
+            Matcher s = SCORE.matcher(line);
+            if (s.find() && pendingTime != null) {
+                out.add(new SceneCut(Math.round(pendingTime * 1000), Double.parseDouble(s.group(1))));
+                pendingTime = null;
+            }
+        }
+        return out;
+    }
+}
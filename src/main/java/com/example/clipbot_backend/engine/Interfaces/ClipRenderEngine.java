@@ -21,5 +21,29 @@ public interface ClipRenderEngine {
         throw new UnsupportedOperationException("renderStyled not implemented");
     }
 
+    /**
+     * As {@link #renderStyled(Path, Path, long, long, com.example.clipbot_backend.dto.RenderSpec,
+     * com.example.clipbot_backend.dto.render.SubtitleStyle)}, normalizing the audio with a loudness profile measured
+     * on {@code mediaFile}. Pass {@code null} for input that is already normalized, such as a clean master.
+     */
+    default RenderResult renderStyled(Path mediaFile, Path subtitleFile, long startMs, long endMs,
+                                      com.example.clipbot_backend.dto.RenderSpec spec,
+                                      com.example.clipbot_backend.dto.render.SubtitleStyle style,
+                                      com.example.clipbot_backend.dto.LoudnessProfile loudness) throws Exception {
+        return renderStyled(mediaFile, subtitleFile, startMs, endMs, spec, style);
+    }
+
+    /**
+     * Derives a profile rendition from an already rendered master with a scale/pad pass (audio copied).
+     *
+     * @param masterFile rendered master clip.
+     * @param spec       target spec; only {@code profile} is required.
+     * @param objectKey  destination key in the out-store.
+     */
+    default RenderResult renderRendition(Path masterFile, com.example.clipbot_backend.dto.RenderSpec spec,
+                                         String objectKey) throws Exception {
+        throw new UnsupportedOperationException("renderRendition not implemented");
+    }
+
 }
 
@@ -1,12 +1,25 @@
 package com.example.clipbot_backend.engine.Interfaces;
 
 import com.example.clipbot_backend.dto.DetectionParams;
+import com.example.clipbot_backend.dto.DetectionResult;
 import com.example.clipbot_backend.dto.SegmentDTO;
 import com.example.clipbot_backend.model.Transcript;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 public interface DetectionEngine {
     List<SegmentDTO> detect(Path mediaFile, Transcript transcript, DetectionParams params) throws Exception;
+
+    /**
+     * Detection within a time budget, returning the best candidates found when the budget runs out.
+     * Engines without an anytime mode run to completion.
+     *
+     * @param budget wall-clock budget for the whole call.
+     * @return segments plus whether the search completed.
+     */
+    default DetectionResult detectWithin(Path mediaFile, Transcript transcript, DetectionParams params, Duration budget) throws Exception {
+        return new DetectionResult(detect(mediaFile, transcript, params), true);
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.LoudnessProfile;
+
+import java.util.Locale;
+
+/**
+ * Bouwt de tweede-pass loudnorm filter op basis van een eerder gemeten {@link LoudnessProfile}.
+ * Met {@code linear=true} past ffmpeg één vaste gain toe i.p.v. dynamische compressie,
+ * waardoor een aparte analyse-pass per clip overbodig is.
+ */
+public final class LoudnormFilter {
+    static final double TARGET_I = -16.0;
+    static final double TARGET_TP = -1.5;
+    static final double TARGET_LRA = 11.0;
+
+    private LoudnormFilter() {}
+
+    /** loudnorm werkt intern op 192 kHz; terug naar 48 kHz voor de AAC encoder. */
+    public static String forProfile(LoudnessProfile p) {
+        if (p == null || !Double.isFinite(p.integratedLufs()) || p.integratedLufs() <= -70.0
+                || !Double.isFinite(p.lra()) || !Double.isFinite(p.truePeakDb()) || !Double.isFinite(p.thresholdLufs())) {
+            // stilte / "-inf" meting: niets te normaliseren
+            return null;
+        }
+        return String.format(Locale.ROOT,
+                "loudnorm=I=%.1f:TP=%.1f:LRA=%.1f:measured_I=%.2f:measured_LRA=%.2f:measured_TP=%.2f:measured_thresh=%.2f:offset=%.2f:linear=true,aresample=48000",
+                TARGET_I, TARGET_TP, TARGET_LRA,
+                p.integratedLufs(), p.lra(), p.truePeakDb(), p.thresholdLufs(), p.targetOffset());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.service.Interfaces.SilenceDetector;
+import com.example.clipbot_backend.service.PcmAudioService;
+import com.example.clipbot_backend.util.PcmAudio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Detects silences on the shared PCM extraction instead of running a separate ffmpeg decode; falls back to
+ * ffmpeg silencedetect when the PCM cannot be produced.
+ */
+@Component
+public class PcmSilenceDetector implements SilenceDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PcmSilenceDetector.class);
+
+    private final PcmAudioService pcmAudio;
+    private final FfmpegSilenceDetector fallback;
+
+    public PcmSilenceDetector(PcmAudioService pcmAudio, FfmpegSilenceDetector fallback) {
+        this.pcmAudio = pcmAudio;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public List<SilenceEvent> detect(Path mediaPath, double noiseDb, double minSilenceSec) {
+        try {
+            return pcmAudio.open(mediaPath).detectSilences(noiseDb, minSilenceSec);
+        } catch (Exception e) {
+            LOGGER.warn("PCM silence detection failed for {}, using ffmpeg: {}", mediaPath.getFileName(), e.toString());
+            return fallback.detect(mediaPath, noiseDb, minSilenceSec);
+        }
+    }
+
+    /**
+     * Silences plus audio-energy features from the same PCM scan. On the ffmpeg fallback there are no features.
+     */
+    public PcmAudio.Analysis analyze(Path mediaPath, double noiseDb, double minSilenceSec) {
+        try {
+            return pcmAudio.open(mediaPath).analyze(noiseDb, minSilenceSec);
+        } catch (Exception e) {
+            LOGGER.warn("PCM analysis failed for {}, using ffmpeg: {}", mediaPath.getFileName(), e.toString());
+            return new PcmAudio.Analysis(fallback.detect(mediaPath, noiseDb, minSilenceSec), null);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.SceneMap;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.SceneMapRepository;
+import com.example.clipbot_backend.service.Interfaces.SceneDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Serves scene cut maps from the database, so the video pass runs at most once per raw file of a media.
+ */
+@Primary
+@Component
+public class PersistentSceneDetector implements SceneDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentSceneDetector.class);
+
+    private final FfmpegSceneDetector delegate;
+    private final SceneMapRepository sceneMaps;
+    private final MediaRepository mediaRepo;
+
+    public PersistentSceneDetector(FfmpegSceneDetector delegate, SceneMapRepository sceneMaps, MediaRepository mediaRepo) {
+        this.delegate = delegate;
+        this.sceneMaps = sceneMaps;
+        this.mediaRepo = mediaRepo;
+    }
+
+    @Override
+    public List<SceneCut> detect(UUID mediaId, Path mediaPath) {
+        String objectKey = mediaId == null ? null : mediaRepo.findById(mediaId).map(Media::getObjectKey).orElse(null);
+        if (objectKey == null) return delegate.detect(mediaId, mediaPath);
+
+        long size;
+        long mtime;
+        try {
+            size = Files.size(mediaPath);
+            mtime = Files.getLastModifiedTime(mediaPath).toMillis();
+        } catch (IOException e) {
+            return delegate.detect(mediaId, mediaPath);
+        }
+
+        Optional<SceneMap> cached = sceneMaps.findByMediaId(mediaId);
+        if (cached.isPresent() && cached.get().matches(objectKey, size, mtime, delegate.minScore())) {
+            LOGGER.debug("Scene map hit media={} cuts={} savedMs={}", mediaId, cached.get().getCuts().size(), cached.get().getDetectMs());
+            return cached.get().getCuts();
+        }
+
+        long t0 = System.nanoTime();
+        List<SceneCut> cuts = delegate.detect(mediaId, mediaPath);
+        long detectMs = (System.nanoTime() - t0) / 1_000_000L;
+        SceneMap map = cached.orElseGet(() -> new SceneMap(mediaId));
+        try {
+            map.update(objectKey, delegate.minScore(), List.copyOf(cuts), size, mtime, detectMs);
+            sceneMaps.save(map);
+            LOGGER.info("Scene map {} media={} cuts={} detectMs={}", cached.isPresent() ? "refreshed" : "stored", mediaId, cuts.size(), detectMs);
+        } catch (DataIntegrityViolationException e) {
+            // andere node was ons net voor; diens resultaat is even goed
+            LOGGER.debug("Scene map raced media={}: {}", mediaId, e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Scene map not persisted media={}: {}", mediaId, e.toString());
+        }
+        return cuts;
+    }
+}
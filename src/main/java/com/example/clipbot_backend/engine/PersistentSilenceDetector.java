@@ -0,0 +1,112 @@
+package com.example.clipbot_backend.engine;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.SilenceMap;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.SilenceMapRepository;
+import com.example.clipbot_backend.service.Interfaces.SilenceDetector;
+import com.example.clipbot_backend.util.PcmAudio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Serves silence maps from the database, keyed by media, raw object key and thresholds, and only decodes the
+ * source when no map exists or the raw file changed (size or modification time differ).
+ */
+@Primary
+@Component
+public class PersistentSilenceDetector implements SilenceDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentSilenceDetector.class);
+
+    private final PcmSilenceDetector delegate;
+    private final SilenceMapRepository silenceMaps;
+    private final MediaRepository mediaRepo;
+    private final AudioFeatureStore audioFeatures;
+
+    public PersistentSilenceDetector(PcmSilenceDetector delegate, SilenceMapRepository silenceMaps, MediaRepository mediaRepo) {
+        this(delegate, silenceMaps, mediaRepo, null);
+    }
+
+    /**
+     * @param audioFeatures store that receives the audio-energy features of the silence scan; null skips them.
+     */
+    @Autowired
+    public PersistentSilenceDetector(PcmSilenceDetector delegate, SilenceMapRepository silenceMaps, MediaRepository mediaRepo,
+                                     AudioFeatureStore audioFeatures) {
+        this.delegate = delegate;
+        this.silenceMaps = silenceMaps;
+        this.mediaRepo = mediaRepo;
+        this.audioFeatures = audioFeatures;
+    }
+
+    @Override
+    public List<SilenceEvent> detect(Path mediaPath, double noiseDb, double minSilenceSec) {
+        return delegate.detect(mediaPath, noiseDb, minSilenceSec);
+    }
+
+    @Override
+    public List<SilenceEvent> detect(UUID mediaId, Path mediaPath, double noiseDb, double minSilenceSec) {
+        String objectKey = mediaId == null ? null : mediaRepo.findById(mediaId).map(Media::getObjectKey).orElse(null);
+        if (objectKey == null) return delegate.detect(mediaPath, noiseDb, minSilenceSec);
+
+        long size;
+        long mtime;
+        try {
+            size = Files.size(mediaPath);
+            mtime = Files.getLastModifiedTime(mediaPath).toMillis();
+        } catch (IOException e) {
+            return delegate.detect(mediaPath, noiseDb, minSilenceSec);
+        }
+
+        Optional<SilenceMap> cached = silenceMaps.findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(mediaId, objectKey, noiseDb, minSilenceSec);
+        if (cached.isPresent() && cached.get().getSourceSize() == size && cached.get().getSourceMtimeMs() == mtime) {
+            LOGGER.debug("Silence map hit media={} noiseDb={} minSec={} events={} savedMs={}",
+                    mediaId, noiseDb, minSilenceSec, cached.get().getEvents().size(), cached.get().getDetectMs());
+            return cached.get().getEvents();
+        }
+
+        long t0 = System.nanoTime();
+        List<SilenceEvent> events;
+        if (audioFeatures != null && !audioFeatures.isCurrent(mediaId, objectKey, size, mtime)) {
+            // energiekenmerken meenemen in dezelfde scan over de PCM
+            PcmAudio.Analysis analysis = delegate.analyze(mediaPath, noiseDb, minSilenceSec);
+            events = analysis.silences();
+            if (analysis.features() != null) {
+                audioFeatures.store(mediaId, objectKey, analysis.features(), size, mtime, (System.nanoTime() - t0) / 1_000_000L);
+            }
+        } else {
+            events = delegate.detect(mediaPath, noiseDb, minSilenceSec);
+        }
+        long detectMs = (System.nanoTime() - t0) / 1_000_000L;
+        store(cached.orElseGet(() -> new SilenceMap(mediaId, objectKey, noiseDb, minSilenceSec)), events, size, mtime, detectMs);
+        LOGGER.info("Silence map {} media={} noiseDb={} minSec={} events={} detectMs={}",
+                cached.isPresent() ? "refreshed" : "stored", mediaId, noiseDb, minSilenceSec, events.size(), detectMs);
+        return events;
+    }
+
+    private void store(SilenceMap map, List<SilenceEvent> events, long size, long mtime, long detectMs) {
+        try {
+            // kaarten van een eerder raw-object zijn nooit meer geldig
+            silenceMaps.deleteByMediaIdAndObjectKeyNot(map.getMediaId(), map.getObjectKey());
+            map.update(List.copyOf(events), size, mtime, detectMs);
+            silenceMaps.save(map);
+        } catch (DataIntegrityViolationException e) {
+            // andere node was ons net voor met dezelfde sleutel; diens resultaat is even goed
+            LOGGER.debug("Silence map raced media={}: {}", map.getMediaId(), e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Silence map not persisted media={}: {}", map.getMediaId(), e.toString());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.clipbot_backend.engine;
 
 import com.example.clipbot_backend.engine.Interfaces.TranscriptionEngine;
 import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.service.PcmAudioService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -27,9 +28,15 @@ public class WhisperLocalTranscriptionEngine implements TranscriptionEngine {
     private final Duration timeout;
     private final Path workDir;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PcmAudioService pcmAudio;
 
     public WhisperLocalTranscriptionEngine(StorageService storageService, String ffmpegBin, String whisperCmd, String whisperModel, Duration timeout, Path workDir) {
+        this(storageService, ffmpegBin, whisperCmd, whisperModel, timeout, workDir, null);
+    }
+
+    public WhisperLocalTranscriptionEngine(StorageService storageService, String ffmpegBin, String whisperCmd, String whisperModel, Duration timeout, Path workDir, PcmAudioService pcmAudio) {
         this.storageService = Objects.requireNonNull(storageService);
+        this.pcmAudio = pcmAudio;
         this.ffmpegBin = ffmpegBin != null ? ffmpegBin : "ffmpeg";
         this.whisperCmd = whisperCmd != null ? whisperCmd : "whisper";
         this.whisperModel = whisperModel != null ? whisperModel : "medium";
@@ -52,7 +59,10 @@ public class WhisperLocalTranscriptionEngine implements TranscriptionEngine {
 
         //2) convert naar wav/16/mono (sneller/robuster)
         Path wav = workDir.resolve("asr-" +request.mediaId() + ".wav");
-        runAndLog(List.of(
+        if (pcmAudio != null) {
+            // zelfde PCM als stiltedetectie en window-slicing: alleen een WAV-header ervoor
+            pcmAudio.open(input).writeWav(wav, 0, Long.MAX_VALUE);
+        } else runAndLog(List.of(
                 ffmpegBin, "-y",
                 "-i", input.toAbsolutePath().toString(),
                 "-ac", "1", "-ar", "16000",
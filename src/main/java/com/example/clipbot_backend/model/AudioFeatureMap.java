@@ -0,0 +1,104 @@
+package com.example.clipbot_backend.model;
+
+import com.example.clipbot_backend.util.AudioFeatures;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Audio-energy features of one media source in the compact {@link AudioFeatures#toBytes()} form.
+ * Object key, source size and modification time fingerprint the raw file; a mismatch means the map is stale.
+ */
+@Entity
+@Table(name = "audio_feature_map",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ux_audio_feature_map_media", columnNames = {"media_id"})
+        })
+public class AudioFeatureMap {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "media_id", nullable = false, updatable = false)
+    private UUID mediaId;
+
+    @Column(name = "object_key", nullable = false, columnDefinition = "text")
+    private String objectKey;
+
+    @Column(name = "source_size", nullable = false)
+    private long sourceSize;
+
+    @Column(name = "source_mtime_ms", nullable = false)
+    private long sourceMtimeMs;
+
+    @Column(name = "frame_ms", nullable = false)
+    private int frameMs;
+
+    @Column(name = "frame_count", nullable = false)
+    private int frameCount;
+
+    @Column(name = "features", nullable = false, columnDefinition = "bytea")
+    private byte[] features;
+
+    @Column(name = "extract_ms", nullable = false)
+    private long extractMs;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    protected AudioFeatureMap() {
+    }
+
+    public AudioFeatureMap(UUID mediaId) {
+        this.mediaId = mediaId;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getMediaId() { return mediaId; }
+    public String getObjectKey() { return objectKey; }
+    public long getSourceSize() { return sourceSize; }
+    public long getSourceMtimeMs() { return sourceMtimeMs; }
+    public int getFrameMs() { return frameMs; }
+    public int getFrameCount() { return frameCount; }
+    public byte[] getFeatures() { return features; }
+    public long getExtractMs() { return extractMs; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    /**
+     * @return true when the map was computed from this raw object and file state with the current frame length.
+     */
+    public boolean matches(String objectKey, long sourceSize, long sourceMtimeMs) {
+        return objectKey.equals(this.objectKey) && this.sourceSize == sourceSize
+                && this.sourceMtimeMs == sourceMtimeMs && frameMs == AudioFeatures.FRAME_MS;
+    }
+
+    /**
+     * Stores fresh features together with the fingerprint of the source they were computed from.
+     *
+     * @param objectKey     raw object key.
+     * @param features      extracted features.
+     * @param sourceSize    raw file size in bytes.
+     * @param sourceMtimeMs raw file modification time in epoch milliseconds.
+     * @param extractMs     extraction time in milliseconds.
+     */
+    public void update(String objectKey, AudioFeatures features, long sourceSize, long sourceMtimeMs, long extractMs) {
+        this.objectKey = objectKey;
+        this.frameMs = AudioFeatures.FRAME_MS;
+        this.frameCount = features.frameCount();
+        this.features = features.toBytes();
+        this.sourceSize = sourceSize;
+        this.sourceMtimeMs = sourceMtimeMs;
+        this.extractMs = extractMs;
+    }
+}
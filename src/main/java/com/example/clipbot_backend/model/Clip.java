@@ -60,6 +60,12 @@ public class Clip {
     @Column(name = "score", precision = 6, scale = 3)
     private BigDecimal score;
 
+    @Column(name = "render_preset", length = 16)
+    private String renderPreset;
+
+    @Column(name = "render_crf")
+    private Integer renderCrf;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -126,4 +132,32 @@ public class Clip {
      * @param score score value or {@code null}.
      */
     public void setScore(BigDecimal score) { this.score = score; }
+
+    /**
+     * Returns the x264 preset used for the last render of this clip.
+     *
+     * @return preset name or {@code null} when not rendered yet.
+     */
+    public String getRenderPreset() { return renderPreset; }
+
+    /**
+     * Records the x264 preset used for the render.
+     *
+     * @param renderPreset preset name.
+     */
+    public void setRenderPreset(String renderPreset) { this.renderPreset = renderPreset; }
+
+    /**
+     * Returns the x264 CRF used for the last render of this clip.
+     *
+     * @return CRF or {@code null} when not rendered yet.
+     */
+    public Integer getRenderCrf() { return renderCrf; }
+
+    /**
+     * Records the x264 CRF used for the render.
+     *
+     * @param renderCrf constant rate factor.
+     */
+    public void setRenderCrf(Integer renderCrf) { this.renderCrf = renderCrf; }
 }
@@ -1,11 +1,15 @@
 package com.example.clipbot_backend.model;
 
+import com.example.clipbot_backend.dto.LoudnessProfile;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
 import com.example.clipbot_backend.util.MediaStatus;
 import com.example.clipbot_backend.util.SpeakerMode;
 import jakarta.persistence.*;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
 
 import java.beans.Transient;
 import java.time.Instant;
@@ -58,6 +62,25 @@ public class Media {
     @Enumerated(EnumType.STRING)
     private SpeakerMode speakerMode = SINGLE;
 
+    @Column(name = "loudness_integrated")
+    private Double loudnessIntegrated;
+
+    @Column(name = "loudness_range")
+    private Double loudnessRange;
+
+    @Column(name = "loudness_true_peak")
+    private Double loudnessTruePeak;
+
+    @Column(name = "loudness_threshold")
+    private Double loudnessThreshold;
+
+    @Column(name = "loudness_offset")
+    private Double loudnessOffset;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "container_info", columnDefinition = "jsonb")
+    private ContainerInfo containerInfo;
+
     public Media(UUID id, Account owner, String objectKey, Long durationMs,String source, Instant createdAt) {
         this.id = id;
         this.owner = owner;
@@ -161,6 +184,33 @@ public class Media {
         this.speakerMode = speakerMode;
     }
 
+    /** Container-header info (streams, duur, keyframes) zoals bij ingest gelezen; {@code null} voor oudere media. */
+    public ContainerInfo getContainerInfo() {
+        return containerInfo;
+    }
+
+    public void setContainerInfo(ContainerInfo containerInfo) {
+        this.containerInfo = containerInfo;
+    }
+
+    /** Gemeten loudness van de bron, of {@code null} als er (nog) niet gemeten is. */
+    @Transient
+    public LoudnessProfile getLoudnessProfile() {
+        if (loudnessIntegrated == null || loudnessRange == null || loudnessTruePeak == null || loudnessThreshold == null) {
+            return null;
+        }
+        return new LoudnessProfile(loudnessIntegrated, loudnessRange, loudnessTruePeak, loudnessThreshold,
+                loudnessOffset != null ? loudnessOffset : 0.0);
+    }
+
+    public void setLoudnessProfile(LoudnessProfile profile) {
+        this.loudnessIntegrated = profile != null ? profile.integratedLufs() : null;
+        this.loudnessRange = profile != null ? profile.lra() : null;
+        this.loudnessTruePeak = profile != null ? profile.truePeakDb() : null;
+        this.loudnessThreshold = profile != null ? profile.thresholdLufs() : null;
+        this.loudnessOffset = profile != null ? profile.targetOffset() : null;
+    }
+
     @Transient
     public boolean isMultiSpeakerEffective() {
         return SpeakerMode.MULTI.equals(this.speakerMode);
@@ -0,0 +1,90 @@
+package com.example.clipbot_backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ranked recommendation windows of one media for one input version and profile hash, with the feature breakdown
+ * of every scored window. The input version fingerprints the transcript and segments the ranking was built from;
+ * a new transcript or detect run yields a new key, so a snapshot is never updated in place.
+ */
+@Entity
+@Table(name = "recommendation_snapshot",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ux_recommendation_snapshot_key", columnNames = {"media_id", "input_version", "profile_hash"})
+        })
+public class RecommendationSnapshot {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "media_id", nullable = false, updatable = false)
+    private UUID mediaId;
+
+    @Column(name = "input_version", nullable = false, updatable = false, columnDefinition = "text")
+    private String inputVersion;
+
+    @Column(name = "profile_hash", nullable = false, updatable = false, columnDefinition = "text")
+    private String profileHash;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "windows", nullable = false, columnDefinition = "jsonb")
+    private List<Entry> windows;
+
+    @Column(name = "compute_ms", nullable = false)
+    private long computeMs;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /**
+     * One scored window in rank order.
+     *
+     * @param explain feature breakdown as produced by the selector.
+     */
+    public record Entry(long startMs,
+                        long endMs,
+                        double speechDensity,
+                        double avgConfidence,
+                        double textEnergy,
+                        double silencePenalty,
+                        Set<String> keywords,
+                        double score,
+                        String explain) {
+    }
+
+    protected RecommendationSnapshot() {
+    }
+
+    public RecommendationSnapshot(UUID mediaId, String inputVersion, String profileHash, List<Entry> windows, long computeMs) {
+        this.mediaId = mediaId;
+        this.inputVersion = inputVersion;
+        this.profileHash = profileHash;
+        this.windows = windows;
+        this.computeMs = computeMs;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getMediaId() { return mediaId; }
+    public String getInputVersion() { return inputVersion; }
+    public String getProfileHash() { return profileHash; }
+    public List<Entry> getWindows() { return windows; }
+    public long getComputeMs() { return computeMs; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,104 @@
+package com.example.clipbot_backend.model;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scene cuts of one media source, detected once down to {@code minScore} and filtered per detect run.
+ * Object key, source size and modification time fingerprint the raw file; a mismatch means the map is stale.
+ */
+@Entity
+@Table(name = "scene_map",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ux_scene_map_media", columnNames = {"media_id"})
+        })
+public class SceneMap {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "media_id", nullable = false, updatable = false)
+    private UUID mediaId;
+
+    @Column(name = "object_key", nullable = false, columnDefinition = "text")
+    private String objectKey;
+
+    @Column(name = "min_score", nullable = false)
+    private double minScore;
+
+    @Column(name = "source_size", nullable = false)
+    private long sourceSize;
+
+    @Column(name = "source_mtime_ms", nullable = false)
+    private long sourceMtimeMs;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "cuts", nullable = false, columnDefinition = "jsonb")
+    private List<SceneCut> cuts;
+
+    @Column(name = "detect_ms", nullable = false)
+    private long detectMs;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    protected SceneMap() {
+    }
+
+    public SceneMap(UUID mediaId) {
+        this.mediaId = mediaId;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getMediaId() { return mediaId; }
+    public String getObjectKey() { return objectKey; }
+    public double getMinScore() { return minScore; }
+    public long getSourceSize() { return sourceSize; }
+    public long getSourceMtimeMs() { return sourceMtimeMs; }
+    public List<SceneCut> getCuts() { return cuts; }
+    public long getDetectMs() { return detectMs; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    /**
+     * @return true when the map was computed from this raw object and file state, down to at most {@code minScore}.
+     */
+    public boolean matches(String objectKey, long sourceSize, long sourceMtimeMs, double minScore) {
+        return objectKey.equals(this.objectKey) && this.sourceSize == sourceSize
+                && this.sourceMtimeMs == sourceMtimeMs && this.minScore <= minScore;
+    }
+
+    /**
+     * Stores a fresh detection result together with the fingerprint of the source it was computed from.
+     *
+     * @param objectKey     raw object key.
+     * @param minScore      analysis floor the cuts were detected with.
+     * @param cuts          detected cuts.
+     * @param sourceSize    raw file size in bytes.
+     * @param sourceMtimeMs raw file modification time in epoch milliseconds.
+     * @param detectMs      detection time in milliseconds.
+     */
+    public void update(String objectKey, double minScore, List<SceneCut> cuts, long sourceSize, long sourceMtimeMs, long detectMs) {
+        this.objectKey = objectKey;
+        this.minScore = minScore;
+        this.cuts = cuts;
+        this.sourceSize = sourceSize;
+        this.sourceMtimeMs = sourceMtimeMs;
+        this.detectMs = detectMs;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.clipbot_backend.model;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Silence detection result for one media source and threshold pair, reused across detect runs and nodes.
+ * The source size and modification time fingerprint the raw file; a mismatch means the map is stale.
+ */
+@Entity
+@Table(name = "silence_map",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ux_silence_map_key", columnNames = {"media_id", "object_key", "noise_db", "min_silence_sec"})
+        })
+public class SilenceMap {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "media_id", nullable = false, updatable = false)
+    private UUID mediaId;
+
+    @Column(name = "object_key", nullable = false, updatable = false, columnDefinition = "text")
+    private String objectKey;
+
+    @Column(name = "noise_db", nullable = false, updatable = false)
+    private double noiseDb;
+
+    @Column(name = "min_silence_sec", nullable = false, updatable = false)
+    private double minSilenceSec;
+
+    @Column(name = "source_size", nullable = false)
+    private long sourceSize;
+
+    @Column(name = "source_mtime_ms", nullable = false)
+    private long sourceMtimeMs;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "events", nullable = false, columnDefinition = "jsonb")
+    private List<SilenceEvent> events;
+
+    @Column(name = "detect_ms", nullable = false)
+    private long detectMs;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    protected SilenceMap() {
+    }
+
+    public SilenceMap(UUID mediaId, String objectKey, double noiseDb, double minSilenceSec) {
+        this.mediaId = mediaId;
+        this.objectKey = objectKey;
+        this.noiseDb = noiseDb;
+        this.minSilenceSec = minSilenceSec;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getMediaId() { return mediaId; }
+    public String getObjectKey() { return objectKey; }
+    public double getNoiseDb() { return noiseDb; }
+    public double getMinSilenceSec() { return minSilenceSec; }
+    public long getSourceSize() { return sourceSize; }
+    public long getSourceMtimeMs() { return sourceMtimeMs; }
+    public List<SilenceEvent> getEvents() { return events; }
+
+    /**
+     * Returns the wall-clock time the detection took, i.e. what a cache hit saves.
+     *
+     * @return detection time in milliseconds.
+     */
+    public long getDetectMs() { return detectMs; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    /**
+     * Stores a fresh detection result together with the fingerprint of the source it was computed from.
+     *
+     * @param events        detected silences.
+     * @param sourceSize    raw file size in bytes.
+     * @param sourceMtimeMs raw file modification time in epoch milliseconds.
+     * @param detectMs      detection time in milliseconds.
+     */
+    public void update(List<SilenceEvent> events, long sourceSize, long sourceMtimeMs, long detectMs) {
+        this.events = events;
+        this.sourceSize = sourceSize;
+        this.sourceMtimeMs = sourceMtimeMs;
+        this.detectMs = detectMs;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.clipbot_backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Clean clip rendered ahead of demand for a top-scored segment while render slots were idle.
+ */
+@Entity
+@Table(name = "speculative_render",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "ux_speculative_render_range", columnNames = {"media_id", "start_ms", "end_ms", "spec_key"})
+        },
+        indexes = {
+                @Index(name = "idx_speculative_render_created", columnList = "created_at")
+        })
+public class SpeculativeRender {
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    @Column(name = "id", nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "media_id", nullable = false, updatable = false)
+    private UUID mediaId;
+
+    @Column(name = "start_ms", nullable = false, updatable = false)
+    private long startMs;
+
+    @Column(name = "end_ms", nullable = false, updatable = false)
+    private long endMs;
+
+    @Column(name = "spec_key", nullable = false, updatable = false, columnDefinition = "text")
+    private String specKey;
+
+    @Column(name = "object_key", nullable = false, columnDefinition = "text")
+    private String objectKey;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "render_ms", nullable = false)
+    private long renderMs;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "claimed_at")
+    private Instant claimedAt;
+
+    protected SpeculativeRender() {
+    }
+
+    public SpeculativeRender(UUID mediaId, long startMs, long endMs, String specKey,
+                             String objectKey, long sizeBytes, long renderMs) {
+        this.mediaId = mediaId;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.specKey = specKey;
+        this.objectKey = objectKey;
+        this.sizeBytes = sizeBytes;
+        this.renderMs = renderMs;
+    }
+
+    public UUID getId() { return id; }
+    public UUID getMediaId() { return mediaId; }
+    public long getStartMs() { return startMs; }
+    public long getEndMs() { return endMs; }
+    public String getSpecKey() { return specKey; }
+    public String getObjectKey() { return objectKey; }
+    public long getSizeBytes() { return sizeBytes; }
+
+    /**
+     * Returns the wall-clock encode time spent on this speculative render.
+     *
+     * @return render time in milliseconds.
+     */
+    public long getRenderMs() { return renderMs; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    /**
+     * Returns when an explicit render took over this output, or {@code null} while unused.
+     *
+     * @return claim timestamp or {@code null}.
+     */
+    public Instant getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(Instant claimedAt) { this.claimedAt = claimedAt; }
+}
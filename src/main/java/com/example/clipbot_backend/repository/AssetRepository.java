@@ -22,6 +22,7 @@ public interface AssetRepository extends JpaRepository<Asset, UUID> {
     Page<Asset> findByOwnerAndKindOrderByCreatedAtDesc(Account owner, AssetKind kind, Pageable pageable);
     Optional<Asset> findTopByRelatedClipAndKindOrderByCreatedAtDesc(Clip clip, AssetKind kind);
     Optional<Asset> findTopByRelatedMediaAndKindOrderByCreatedAtDesc(Media media, AssetKind kind);
+    Optional<Asset> findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(Clip clip, AssetKind kind, String objectKey);
     Page<Asset> findByRelatedClipAndKindOrderByCreatedAtDesc(Clip clip, AssetKind kind, Pageable pageable);
     Page<Asset> findByRelatedMediaAndKindOrderByCreatedAtDesc(Media media, AssetKind kind, Pageable pageable);
     List<Asset> findByRelatedMedia(Media media);
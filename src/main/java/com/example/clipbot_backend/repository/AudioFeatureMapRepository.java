@@ -0,0 +1,14 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.AudioFeatureMap;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for persisted per-media audio feature maps.
+ */
+public interface AudioFeatureMapRepository extends JpaRepository<AudioFeatureMap, UUID> {
+    Optional<AudioFeatureMap> findByMediaId(UUID mediaId);
+}
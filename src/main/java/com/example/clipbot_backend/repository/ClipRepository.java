@@ -8,7 +8,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -38,6 +40,21 @@ public interface ClipRepository extends JpaRepository<Clip, UUID> {
            """)
     Optional<Clip> findByIdWithMedia(@Param("id") UUID id);
 
+    /**
+     * Batch variant of {@link #findByIdWithMedia(UUID)}.
+     *
+     * @param ids clip identifiers.
+     * @return clips including media and owner relations, in no particular order.
+     */
+    @Query("""
+           select c
+           from Clip c
+           join fetch c.media m
+           join fetch m.owner
+           where c.id in :ids
+           """)
+    List<Clip> findAllByIdWithMedia(@Param("ids") Collection<UUID> ids);
+
     /**
      * Returns clips for the given media ordered by descending recommendation score.
      *
@@ -91,4 +108,55 @@ public interface ClipRepository extends JpaRepository<Clip, UUID> {
      */
     List<Clip> findByMediaIn(Collection<Media> media);
 
+    /**
+     * Set-based upsert of recommended ranges against {@code ux_clip_media_range_profile} in one statement.
+     * New ranges are inserted as QUEUED; an existing clip only takes the new score when it improves on the stored
+     * one. Existing clips that are left alone are still returned, so every input row normally yields one result.
+     *
+     * @param mediaId     media identifier.
+     * @param profileHash render profile hash shared by all rows.
+     * @param metaJson    meta JSON for newly inserted clips.
+     * @param rowsJson    JSON array of {@code {"start_ms", "end_ms", "score"}} objects without duplicate ranges.
+     * @return one row per clip, with {@code created} set for inserts.
+     */
+    @Transactional
+    @Query(value = """
+            WITH input AS (
+                SELECT r.start_ms, r.end_ms, r.score
+                  FROM jsonb_to_recordset(CAST(:rowsJson AS jsonb)) AS r(start_ms bigint, end_ms bigint, score numeric)
+            ),
+            upserted AS (
+                INSERT INTO clip (id, media_id, start_ms, end_ms, status, meta, profile_hash, score, created_at, version)
+                SELECT gen_random_uuid(), :mediaId, i.start_ms, i.end_ms, 'QUEUED', CAST(:metaJson AS jsonb),
+                       :profileHash, i.score, now(), 0
+                  FROM input i
+                ON CONFLICT (media_id, start_ms, end_ms, profile_hash)
+                DO UPDATE SET score = EXCLUDED.score, version = clip.version + 1
+                 WHERE clip.score IS NULL OR clip.score < EXCLUDED.score
+                RETURNING id, start_ms, end_ms, status, score, (xmax = 0) AS created
+            )
+            SELECT u.id AS "id", u.start_ms AS "startMs", u.end_ms AS "endMs", u.status AS "status",
+                   u.score AS "score", u.created AS "created"
+              FROM upserted u
+            UNION ALL
+            SELECT c.id, c.start_ms, c.end_ms, c.status, c.score, false
+              FROM clip c
+              JOIN input i ON i.start_ms = c.start_ms AND i.end_ms = c.end_ms
+             WHERE c.media_id = :mediaId
+               AND c.profile_hash = :profileHash
+               AND NOT EXISTS (SELECT 1 FROM upserted u WHERE u.start_ms = c.start_ms AND u.end_ms = c.end_ms)
+            """, nativeQuery = true)
+    List<UpsertedClip> upsertRanges(@Param("mediaId") UUID mediaId,
+                                    @Param("profileHash") String profileHash,
+                                    @Param("metaJson") String metaJson,
+                                    @Param("rowsJson") String rowsJson);
+
+    interface UpsertedClip {
+        UUID getId();
+        long getStartMs();
+        long getEndMs();
+        String getStatus();
+        BigDecimal getScore();
+        Boolean getCreated();
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,6 +17,8 @@ import java.util.UUID;
 public interface JobRepository extends JpaRepository<Job, UUID> {
     long countByStatus(JobStatus status);
 
+    long countByTypeAndStatus(JobType type, JobStatus status);
+
     @Query(value = """
         SELECT id FROM job
         WHERE status = 'QUEUED'
@@ -94,6 +97,14 @@ public interface JobRepository extends JpaRepository<Job, UUID> {
     """)
     Optional<Job> findQueuedOrRunningByDedupKey(@Param("dedup") String dedupKey);
 
+    @Query("""
+       select j from Job j
+       where j.dedupKey in :dedups
+         and j.status in (com.example.clipbot_backend.util.JobStatus.QUEUED,
+                          com.example.clipbot_backend.util.JobStatus.RUNNING)
+    """)
+    List<Job> findQueuedOrRunningByDedupKeyIn(@Param("dedups") Collection<String> dedupKeys);
+
 
 
 }
@@ -0,0 +1,44 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.RecommendationSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for ranked recommendation snapshots.
+ */
+public interface RecommendationSnapshotRepository extends JpaRepository<RecommendationSnapshot, UUID> {
+    Optional<RecommendationSnapshot> findByMediaIdAndInputVersionAndProfileHash(UUID mediaId, String inputVersion, String profileHash);
+
+    /**
+     * Fingerprint of the recommendation input without loading it: latest transcript id and version, an md5 over the
+     * ordered segment bounds and the media duration.
+     *
+     * @param mediaId media identifier.
+     * @return version string, stable while transcript and segments are unchanged.
+     */
+    @Query(value = """
+            SELECT COALESCE((SELECT t.id || ':' || t.version
+                               FROM transcript t
+                              WHERE t.media_id = :mediaId
+                              ORDER BY t.created_at DESC
+                              LIMIT 1), '-')
+                   || '|' || COALESCE((SELECT md5(string_agg(s.start_ms || '-' || s.end_ms, ',' ORDER BY s.start_ms, s.end_ms))
+                                         FROM segment s
+                                        WHERE s.media_id = :mediaId), '-')
+                   || '|' || COALESCE((SELECT CAST(m.duration_ms AS text) FROM media m WHERE m.id = :mediaId), '-')
+            """, nativeQuery = true)
+    String inputVersion(@Param("mediaId") UUID mediaId);
+
+    /** Ruimt snapshots van eerdere invoerversies op; die worden nooit meer gelezen. */
+    @Modifying
+    @Transactional
+    @Query("delete from RecommendationSnapshot s where s.mediaId = :mediaId and s.inputVersion <> :inputVersion")
+    int deleteStale(@Param("mediaId") UUID mediaId, @Param("inputVersion") String inputVersion);
+}
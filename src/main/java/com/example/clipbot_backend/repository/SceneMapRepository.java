@@ -0,0 +1,14 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.SceneMap;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for persisted per-media scene cut maps.
+ */
+public interface SceneMapRepository extends JpaRepository<SceneMap, UUID> {
+    Optional<SceneMap> findByMediaId(UUID mediaId);
+}
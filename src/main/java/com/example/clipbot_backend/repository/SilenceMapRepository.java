@@ -0,0 +1,25 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.SilenceMap;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for persisted per-media silence maps.
+ */
+public interface SilenceMapRepository extends JpaRepository<SilenceMap, UUID> {
+    Optional<SilenceMap> findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(UUID mediaId, String objectKey, double noiseDb, double minSilenceSec);
+
+    /**
+     * Drops maps computed for an earlier raw object of the media.
+     *
+     * @param mediaId   media identifier.
+     * @param objectKey current raw object key.
+     * @return number of removed maps.
+     */
+    @Transactional
+    long deleteByMediaIdAndObjectKeyNot(UUID mediaId, String objectKey);
+}
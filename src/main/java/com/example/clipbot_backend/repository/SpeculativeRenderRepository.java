@@ -0,0 +1,50 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.SpeculativeRender;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for speculatively pre-rendered clean clips.
+ */
+public interface SpeculativeRenderRepository extends JpaRepository<SpeculativeRender, UUID> {
+    /**
+     * Finds the cached render for an exact range and render spec.
+     *
+     * @param mediaId media identifier.
+     * @param startMs range start in milliseconds.
+     * @param endMs   range end in milliseconds.
+     * @param specKey render spec key (dimensions + profile).
+     * @return optional cached render.
+     */
+    Optional<SpeculativeRender> findByMediaIdAndStartMsAndEndMsAndSpecKey(UUID mediaId, long startMs, long endMs, String specKey);
+
+    /**
+     * Claims an entry only if nobody claimed it yet; concurrent renders of the same range get 0 rows.
+     *
+     * @param id cache entry identifier.
+     * @return number of rows updated (0 or 1).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE speculative_render SET claimed_at = now() WHERE id = :id AND claimed_at IS NULL", nativeQuery = true)
+    int markClaimed(@Param("id") UUID id);
+
+    boolean existsByMediaIdAndStartMsAndEndMsAndSpecKey(UUID mediaId, long startMs, long endMs, String specKey);
+
+    /**
+     * Returns cache entries created before the cutoff, claimed or not.
+     *
+     * @param cutoff creation cutoff.
+     * @return expired entries.
+     */
+    List<SpeculativeRender> findByCreatedAtBefore(Instant cutoff);
+}
@@ -1,26 +1,29 @@
 package com.example.clipbot_backend.selector;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Selects the best windows for a media item based on heuristic scoring.
  */
 public interface GoodClipSelector {
     /**
-     * Selects the top {@code N} windows sorted by score in descending order.
+     * Scores and ranks all windows that pass the filters of {@code cfg}.
      *
      * @param windows windows for a single media item.
-     * @param topN    maximum number of results to return.
      * @param cfg     selector configuration to apply.
-     * @return scored windows ordered by score.
+     * @return ranking with the feature breakdown of every scored window.
      */
-    List<ScoredWindow> selectTop(List<Window> windows, int topN, SelectorConfig cfg);
+    Selection select(List<Window> windows, SelectorConfig cfg);
 
     /**
-     * Returns the feature explanation for the last invocation of {@link #selectTop}.
+     * Selects the top {@code N} windows sorted by score in descending order.
      *
-     * @return map keyed by "start-end" strings with feature breakdowns.
+     * @param windows windows for a single media item.
+     * @param topN    maximum number of results to return.
+     * @param cfg     selector configuration to apply.
+     * @return scored windows ordered by score.
      */
-    Map<String, String> explainLast();
+    default List<ScoredWindow> selectTop(List<Window> windows, int topN, SelectorConfig cfg) {
+        return select(windows, cfg).top(topN);
+    }
 }
@@ -18,12 +18,10 @@ import java.util.Set;
 @Component
 public class HeuristicGoodClipSelector implements GoodClipSelector {
     private static final Logger LOGGER = LoggerFactory.getLogger(HeuristicGoodClipSelector.class);
-    private volatile Map<String, String> lastExplanation = Map.of();
 
     @Override
-    public List<ScoredWindow> selectTop(List<Window> windows, int topN, SelectorConfig cfg) {
+    public Selection select(List<Window> windows, SelectorConfig cfg) {
         SelectorConfig effective = cfg == null ? SelectorConfig.defaults() : cfg;
-        int limit = Math.max(1, topN);
         List<ScoredWindow> scored = new ArrayList<>();
         Map<String, String> explanations = new LinkedHashMap<>();
 
@@ -70,18 +68,9 @@ public class HeuristicGoodClipSelector implements GoodClipSelector {
         }
 
         scored.sort(Comparator.comparingDouble(ScoredWindow::score).reversed());
-        if (scored.size() > limit) {
-            scored = new ArrayList<>(scored.subList(0, limit));
-        }
-        lastExplanation = explanations;
-        LOGGER.debug("HeuristicGoodClipSelector windows={} selected={} topScore={}",
+        LOGGER.debug("HeuristicGoodClipSelector windows={} scored={} topScore={}",
                 windows.size(), scored.size(), scored.isEmpty() ? "-" : String.format(Locale.ROOT, "%.3f", scored.getFirst().score()));
-        return scored;
-    }
-
-    @Override
-    public Map<String, String> explainLast() {
-        return lastExplanation;
+        return new Selection(scored, explanations);
     }
 
     private static long countUserMatches(Set<String> keywords, Set<String> boostKeywords) {
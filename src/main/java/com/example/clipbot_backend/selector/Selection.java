@@ -0,0 +1,37 @@
+package com.example.clipbot_backend.selector;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one selector run: every window that passed the filters, ranked, with its feature breakdown.
+ * Immutable and owned by the caller, so concurrent runs never see each other's explanations.
+ *
+ * @param ranked       scored windows ordered by score, best first.
+ * @param explanations feature breakdown per window, keyed by "start-end".
+ */
+public record Selection(List<ScoredWindow> ranked, Map<String, String> explanations) {
+
+    public static final Selection EMPTY = new Selection(List.of(), Map.of());
+
+    public Selection {
+        ranked = List.copyOf(ranked);
+        explanations = Map.copyOf(explanations);
+    }
+
+    /**
+     * @param topN maximum number of windows, at least one.
+     * @return the best {@code topN} windows.
+     */
+    public List<ScoredWindow> top(int topN) {
+        int limit = Math.max(1, topN);
+        return ranked.size() > limit ? ranked.subList(0, limit) : ranked;
+    }
+
+    /**
+     * @return breakdown of the window {@code [startMs, endMs)}, or {@code null} when it was filtered or unknown.
+     */
+    public String explain(long startMs, long endMs) {
+        return explanations.get(startMs + "-" + endMs);
+    }
+}
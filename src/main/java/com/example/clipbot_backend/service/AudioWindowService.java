@@ -1,5 +1,6 @@
 package com.example.clipbot_backend.service;
 
+import com.example.clipbot_backend.util.PcmAudio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,15 +16,30 @@ import java.util.Locale;
 public class AudioWindowService {
     private static final Logger log = LoggerFactory.getLogger(AudioWindowService.class);
     private final String ffmpeg; // injecteer via @Value of ctor
+    private final PcmAudioService pcmAudio;
 
-    public AudioWindowService(@Value("${ffmpeg.bin:ffmpeg}") String ffmpeg) {
+    public AudioWindowService(@Value("${ffmpeg.bin:ffmpeg}") String ffmpeg, PcmAudioService pcmAudio) {
         this.ffmpeg = (ffmpeg == null || ffmpeg.isBlank()) ? "ffmpeg" : ffmpeg;
+        this.pcmAudio = pcmAudio;
     }
     public Window sliceToTempWav(Path src, long startMs, long endMs, long padMs) {
         long safeStart = Math.max(0, startMs - padMs);
         long safeEnd   = Math.max(safeStart + 1, endMs + padMs);
         long duration  = safeEnd - safeStart;
 
+        // eerst uit de gedeelde PCM-extractie: byte-range kopie, geen extra decode
+        try {
+            PcmAudio pcm = pcmAudio.open(src);
+            Path out = Files.createTempFile("clipbot-win-", ".wav");
+            if (pcm.writeWav(out, safeStart, safeEnd) > 0) {
+                log.debug("sliceToTempWav(pcm): {} → {} ({} ms)", src.getFileName(), out.getFileName(), duration);
+                return new Window(out, safeStart);
+            }
+            Files.deleteIfExists(out);
+        } catch (Exception e) {
+            log.debug("sliceToTempWav: PCM unavailable for {}, using ffmpeg: {}", src.getFileName(), e.toString());
+        }
+
         try {
             Path out = Files.createTempFile("clipbot-win-", ".wav");
             Process p = new ProcessBuilder(
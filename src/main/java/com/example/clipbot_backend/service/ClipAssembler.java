@@ -3,8 +3,12 @@ package com.example.clipbot_backend.service;
 import com.example.clipbot_backend.dto.SentenceSpan;
 import com.example.clipbot_backend.dto.SilenceEvent;
 import com.example.clipbot_backend.util.HeuristicScorer;
+import com.example.clipbot_backend.util.SortedBoundaries;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClipAssembler {
 
@@ -21,7 +25,31 @@ public class ClipAssembler {
         }
     }
 
-    private final HeuristicScorer scorer = new HeuristicScorer();
+    // kleinere transcripten scannen sneller in de aanroepende thread dan met fork/join-overhead
+    private static final int PARALLEL_MIN_STARTS = 128;
+    private static final int STARTS_PER_TASK = 32;
+    private static final int POOL_PER_CANDIDATE = 32;
+    private static final int MIN_POOL = 256;
+    private static final int MAX_PRIORITY = 6;
+
+    private final HeuristicScorer scorer;
+    private final ForkJoinPool pool;
+
+    public ClipAssembler() {
+        this(new HeuristicScorer());
+    }
+
+    public ClipAssembler(HeuristicScorer scorer) {
+        this(scorer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool the window search is partitioned over for long transcripts.
+     */
+    public ClipAssembler(HeuristicScorer scorer, ForkJoinPool pool) {
+        this.scorer = scorer;
+        this.pool = pool;
+    }
 
     public List<Window> windows(List<SentenceSpan> sentences,
                                 List<SilenceEvent> silences,
@@ -29,56 +57,309 @@ public class ClipAssembler {
                                 double targetLenSec, double sigmaSec,
                                 int maxCandidates,
                                 HeuristicScorer.SpeakerContext speakerContext) {
+        return windows(sentences, silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec, maxCandidates,
+                speakerContext, HeuristicScorer.SceneContext.NONE);
+    }
 
-        List<Window> out = new ArrayList<>();
-        if (sentences.isEmpty()) return out;
+    /**
+     * Like {@link #windows(List, List, long, long, long, double, double, int, HeuristicScorer.SpeakerContext)}, but a
+     * bound without a silence in reach snaps to a scene cut within the scene context's range, and cut-aligned
+     * bounds score the scene bonus.
+     */
+    public List<Window> windows(List<SentenceSpan> sentences,
+                                List<SilenceEvent> silences,
+                                long minMs, long maxMs, long snapThreshMs,
+                                double targetLenSec, double sigmaSec,
+                                int maxCandidates,
+                                HeuristicScorer.SpeakerContext speakerContext,
+                                HeuristicScorer.SceneContext sceneContext) {
+        if (sentences.isEmpty()) return new ArrayList<>();
+        // tekstfeatures één keer per zin; daarna O(1) per (i, j)
+        return windows(sentences, prepare(sentences), silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec,
+                maxCandidates, speakerContext, sceneContext);
+    }
 
-        for (int i = 0; i <sentences.size(); i++) {
-            for (int j = i; j<sentences.size(); j++) {
-                long s = sentences.get(i).startMs(), e = sentences.get(j).endMs(), d = e - s;
-                if (d < minMs) continue;
-                if (d > maxMs) break;
+    /**
+     * Text features of the sentences under this assembler's vocabulary; reusable across {@code windows} calls
+     * on the same sentence list.
+     */
+    public HeuristicScorer.Features prepare(List<SentenceSpan> sentences) {
+        return scorer.prepare(sentences);
+    }
 
-                // Snap aan stilte
-                long sSnap = snapLeft(s, silences, snapThreshMs);
-                long eSnap = snapRight(e, silences, snapThreshMs);
-                if (sSnap>=0) s = sSnap;
-                if (eSnap>=0) e = eSnap;
+    /**
+     * Windows plus whether every start index was searched.
+     */
+    public record Assembly(List<Window> windows, boolean completed) {
+    }
 
-                var comp = scorer.scoreWindow(sentences.subList(i, j+1), targetLenSec, sigmaSec, speakerContext, s, e);
-                if (comp.overall() <= 0.0) continue;
+    /**
+     * Window enumeration on precomputed {@link #prepare features} of {@code sentences}.
+     */
+    public List<Window> windows(List<SentenceSpan> sentences,
+                                HeuristicScorer.Features features,
+                                List<SilenceEvent> silences,
+                                long minMs, long maxMs, long snapThreshMs,
+                                double targetLenSec, double sigmaSec,
+                                int maxCandidates,
+                                HeuristicScorer.SpeakerContext speakerContext,
+                                HeuristicScorer.SceneContext sceneContext) {
+        return windows(sentences, features, silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec,
+                maxCandidates, speakerContext, sceneContext, HeuristicScorer.EnergyContext.NONE);
+    }
 
-                out.add(new Window(i,j,s,e,comp.overall(), comp.toMeta()));
+    /**
+     * Window enumeration with the audio-energy term of {@code energyContext} added to each window score.
+     */
+    public List<Window> windows(List<SentenceSpan> sentences,
+                                HeuristicScorer.Features features,
+                                List<SilenceEvent> silences,
+                                long minMs, long maxMs, long snapThreshMs,
+                                double targetLenSec, double sigmaSec,
+                                int maxCandidates,
+                                HeuristicScorer.SpeakerContext speakerContext,
+                                HeuristicScorer.SceneContext sceneContext,
+                                HeuristicScorer.EnergyContext energyContext) {
+        return assemble(sentences, features, silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec,
+                maxCandidates, speakerContext, sceneContext, energyContext, false, 0L).windows();
+    }
+
+    /**
+     * Anytime variant: start indices are searched most promising first (hook nearby, clean sentence start,
+     * silence, speaker change or scene cut at the start) and the search stops once {@code deadlineNanos}
+     * ({@link System#nanoTime()} scale) has passed, returning the best windows found so far. The most promising
+     * start is always searched.
+     */
+    public Assembly windowsUntil(List<SentenceSpan> sentences,
+                                 HeuristicScorer.Features features,
+                                 List<SilenceEvent> silences,
+                                 long minMs, long maxMs, long snapThreshMs,
+                                 double targetLenSec, double sigmaSec,
+                                 int maxCandidates,
+                                 HeuristicScorer.SpeakerContext speakerContext,
+                                 HeuristicScorer.SceneContext sceneContext,
+                                 long deadlineNanos) {
+        return windowsUntil(sentences, features, silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec,
+                maxCandidates, speakerContext, sceneContext, HeuristicScorer.EnergyContext.NONE, deadlineNanos);
+    }
+
+    /**
+     * Anytime variant with the audio-energy term.
+     */
+    public Assembly windowsUntil(List<SentenceSpan> sentences,
+                                 HeuristicScorer.Features features,
+                                 List<SilenceEvent> silences,
+                                 long minMs, long maxMs, long snapThreshMs,
+                                 double targetLenSec, double sigmaSec,
+                                 int maxCandidates,
+                                 HeuristicScorer.SpeakerContext speakerContext,
+                                 HeuristicScorer.SceneContext sceneContext,
+                                 HeuristicScorer.EnergyContext energyContext,
+                                 long deadlineNanos) {
+        return assemble(sentences, features, silences, minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec,
+                maxCandidates, speakerContext, sceneContext, energyContext, true, deadlineNanos);
+    }
 
-                if (out.size() > maxCandidates * 10) break;
+    private Assembly assemble(List<SentenceSpan> sentences, HeuristicScorer.Features features, List<SilenceEvent> silences,
+                              long minMs, long maxMs, long snapThreshMs, double targetLenSec, double sigmaSec,
+                              int maxCandidates, HeuristicScorer.SpeakerContext speakerContext,
+                              HeuristicScorer.SceneContext sceneContext, HeuristicScorer.EnergyContext energyContext,
+                              boolean bounded, long deadlineNanos) {
+        if (sentences.isEmpty()) return new Assembly(new ArrayList<>(), true);
+
+        HeuristicScorer.SceneContext scene = sceneContext == null ? HeuristicScorer.SceneContext.NONE : sceneContext;
+        HeuristicScorer.EnergyContext energy = energyContext == null ? HeuristicScorer.EnergyContext.NONE : energyContext;
+        SortedBoundaries silenceEnds = silenceEnds(silences);
+        int[] order = bounded ? priorityOrder(sentences, features, silenceEnds, snapThreshMs, speakerContext, scene) : null;
+        Search search = new Search(scorer, sentences, features, silenceEnds, silenceStarts(silences),
+                minMs, maxMs, snapThreshMs, targetLenSec, sigmaSec, speakerContext, scene, energy,
+                Math.max(maxCandidates * POOL_PER_CANDIDATE, MIN_POOL),
+                order, bounded, deadlineNanos, new AtomicBoolean());
+        int n = sentences.size();
+        TopK top = n < PARALLEL_MIN_STARTS ? search.scan(0, n) : pool.invoke(new SearchTask(search, 0, n));
+        return new Assembly(selectNonOverlapping(top.descending(), maxCandidates), !search.cutShort().get());
+    }
+
+    /**
+     * Start indices ordered by a cheap promise score, highest first and by index within a score.
+     */
+    static int[] priorityOrder(List<SentenceSpan> sentences, HeuristicScorer.Features features,
+                               SortedBoundaries silenceEnds, long snapThreshMs,
+                               HeuristicScorer.SpeakerContext speakerContext, HeuristicScorer.SceneContext sceneContext) {
+        int n = sentences.size();
+        int[] priority = new int[n];
+        int[] bucketSize = new int[MAX_PRIORITY + 1];
+        for (int i = 0; i < n; i++) {
+            long start = sentences.get(i).startMs();
+            int p = 0;
+            if (features.hookNear(i)) p += 2;
+            if (features.startsNeat(i)) p++;
+            if (silenceEnds.nearestWithin(start, snapThreshMs) >= 0) p++;
+            if (speakerContext != null && speakerContext.enabled()) {
+                long d = speakerContext.distanceToBoundary(start);
+                if (d >= 0 && d <= snapThreshMs) p++;
             }
+            if (sceneContext.snap(start) >= 0) p++;
+            priority[i] = p;
+            bucketSize[p]++;
         }
+        // counting sort, hoogste prioriteit eerst, stabiel op index
+        int[] offset = new int[MAX_PRIORITY + 1];
+        for (int p = MAX_PRIORITY - 1; p >= 0; p--) offset[p] = offset[p + 1] + bucketSize[p + 1];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[offset[priority[i]]++] = i;
+        return order;
+    }
 
-        // sort & dedup
-        out.sort(Comparator.comparingDouble(w -> -w.score));
+    /**
+     * Greedy selection in score order: a window is kept when its sentence range does not overlap an already
+     * kept one. Kept ranges are disjoint, so the only candidate to check is the one starting at or before the
+     * window's end.
+     */
+    static List<Window> selectNonOverlapping(List<Window> ranked, int maxCandidates) {
         List<Window> dedup = new ArrayList<>();
-        boolean[] used = new boolean[sentences.size()];
-        for (var w : out) {
-            boolean overlap=false;
-            for (int k=w.startIdx;k<=w.endIdx;k++){ if (used[k]) { overlap=true; break; } }
-            if (!overlap) {
-                for (int k=w.startIdx;k<=w.endIdx;k++) used[k]=true;
-                dedup.add(w);
-                if (dedup.size()>=maxCandidates) break;
-            }
+        TreeMap<Integer, Integer> kept = new TreeMap<>();
+        for (var w : ranked) {
+            var before = kept.floorEntry(w.endIdx);
+            if (before != null && before.getValue() >= w.startIdx) continue;
+            kept.put(w.startIdx, w.endIdx);
+            dedup.add(w);
+            if (dedup.size() >= maxCandidates) break;
         }
         return dedup;
     }
 
-    private long snapLeft(long ms, List<SilenceEvent> silences, long thresh){
-        long best=-1,distBest=Long.MAX_VALUE;
-        for (var s: silences){ long dist=Math.abs(ms - s.endMs()); if (dist<=thresh && dist<distBest){distBest=dist; best=s.endMs();}}
-        return best;
+    /** Hoogste score eerst; bij gelijke score de vroegste (startIdx, endIdx), zoals de oude stabiele sortering. */
+    static final Comparator<Window> RANK = Comparator.<Window>comparingDouble(w -> -w.score)
+            .thenComparingInt(w -> w.startIdx)
+            .thenComparingInt(w -> w.endIdx);
+
+    /**
+     * Bounded best-{@code capacity} set of windows; the heap head is the worst kept window.
+     */
+    static final class TopK {
+        private final int capacity;
+        private final PriorityQueue<Window> heap;
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, RANK.reversed());
+        }
+
+        /** @return true when a window with this rank would be kept, so callers can skip building it. */
+        boolean admits(double score, int startIdx, int endIdx) {
+            if (heap.size() < capacity) return true;
+            Window worst = heap.peek();
+            if (score != worst.score) return score > worst.score;
+            return startIdx < worst.startIdx || (startIdx == worst.startIdx && endIdx < worst.endIdx);
+        }
+
+        void offer(Window w) {
+            heap.add(w);
+            if (heap.size() > capacity) heap.poll();
+        }
+
+        TopK merge(TopK other) {
+            TopK big = heap.size() >= other.heap.size() ? this : other;
+            TopK small = big == this ? other : this;
+            for (Window w : small.heap) {
+                if (big.admits(w.score, w.startIdx, w.endIdx)) big.offer(w);
+            }
+            return big;
+        }
+
+        List<Window> descending() {
+            List<Window> out = new ArrayList<>(heap);
+            out.sort(RANK);
+            return out;
+        }
+    }
+
+    /** Alles wat een scan over een blok startindices nodig heeft; alleen immutable of thread-safe onderdelen. */
+    private record Search(HeuristicScorer scorer, List<SentenceSpan> sentences, HeuristicScorer.Features features,
+                          SortedBoundaries silenceEnds, SortedBoundaries silenceStarts,
+                          long minMs, long maxMs, long snapThreshMs, double targetLenSec, double sigmaSec,
+                          HeuristicScorer.SpeakerContext speakerContext, HeuristicScorer.SceneContext sceneContext,
+                          HeuristicScorer.EnergyContext energyContext,
+                          int capacity, int[] order, boolean bounded, long deadlineNanos, AtomicBoolean cutShort) {
+
+        /** Scant de startposities {@code [fromPos, toPos)} in {@code order} (of op index zonder order). */
+        TopK scan(int fromPos, int toPos) {
+            TopK top = new TopK(capacity);
+            int n = sentences.size();
+            for (int p = fromPos; p < toPos; p++) {
+                if (bounded && p > 0 && (cutShort.get() || System.nanoTime() - deadlineNanos >= 0)) {
+                    cutShort.set(true);
+                    break;
+                }
+                int i = order == null ? p : order[p];
+                for (int j = i; j < n; j++) {
+                    long s = sentences.get(i).startMs(), e = sentences.get(j).endMs(), d = e - s;
+                    if (d < minMs) continue;
+                    if (d > maxMs) break;
+
+                    // Snap aan stilte
+                    long sSnap = silenceEnds.nearestWithin(s, snapThreshMs);
+                    long eSnap = silenceStarts.nearestWithin(e, snapThreshMs);
+                    // stilte gaat voor; anders een beeldovergang in de buurt
+                    if (sSnap < 0) sSnap = sceneContext.snap(s);
+                    if (eSnap < 0) eSnap = sceneContext.snap(e);
+                    if (sSnap >= 0) s = sSnap;
+                    if (eSnap >= 0) e = eSnap;
+
+                    var comp = scorer.scoreRange(features, i, j, targetLenSec, sigmaSec, speakerContext, sceneContext, s, e);
+                    if (comp.overall() <= 0.0) continue;
+                    double energyBonus = energyContext.bonus(s, e);
+                    double score = Math.min(1.0, comp.overall() + energyBonus);
+                    // meta-map pas bouwen als het window de heap haalt
+                    if (!top.admits(score, i, j)) continue;
+                    Map<String, Object> meta = comp.toMeta();
+                    if (energyContext.enabled()) {
+                        meta.put("overall", score);
+                        meta.put("energyBonus", energyBonus);
+                    }
+                    top.offer(new Window(i, j, s, e, score, meta));
+                }
+            }
+            return top;
+        }
     }
-    private long snapRight(long ms, List<SilenceEvent> silences, long thresh){
-        long best=-1,distBest=Long.MAX_VALUE;
-        for (var s: silences){ long dist=Math.abs(ms - s.startMs()); if (dist<=thresh && dist<distBest){distBest=dist; best=s.startMs();}}
-        return best;
+
+    /** Splitst op startpositie; elke helft levert een eigen top-K die daarna wordt samengevoegd. */
+    private static final class SearchTask extends RecursiveTask<TopK> {
+        private final Search search;
+        private final int from, to;
+
+        SearchTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= STARTS_PER_TASK) return search.scan(from, to);
+            int mid = (from + to) >>> 1;
+            // rechterhelft forken: deze thread werkt de vroegste (meest belovende) posities zelf af
+            SearchTask right = new SearchTask(search, mid, to);
+            right.fork();
+            TopK left = new SearchTask(search, from, mid).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    /** Start snapt naar het einde van een stilte. */
+    static SortedBoundaries silenceEnds(List<SilenceEvent> silences) {
+        long[] v = new long[silences.size()];
+        for (int k = 0; k < v.length; k++) v[k] = silences.get(k).endMs();
+        return SortedBoundaries.of(v);
+    }
+
+    /** Einde snapt naar het begin van een stilte. */
+    static SortedBoundaries silenceStarts(List<SilenceEvent> silences) {
+        long[] v = new long[silences.size()];
+        for (int k = 0; k < v.length; k++) v[k] = silences.get(k).startMs();
+        return SortedBoundaries.of(v);
     }
 
     public List<Window> windowsTextOnly(
@@ -93,6 +374,7 @@ public class ClipAssembler {
 
         // 1) Normalize input
         sentences.sort(Comparator.comparingLong(SentenceSpan::startMs));
+        HeuristicScorer.Features features = scorer.prepare(sentences);
 
         // Veiligheids-caps om n^2 te temperen
         final int MAX_POOL = Math.max(40, maxCandidates * 5); // was *10
@@ -112,8 +394,7 @@ public class ClipAssembler {
                 if (d > maxMs) break; // niet verder zoeken; j alleen maar groter
 
                 // 2) Score berekenen
-                var slice = sentences.subList(i, j + 1);
-                var comp = scorer.scoreWindow(slice, targetLenSec, sigmaSec, speakerContext, start, end);
+                var comp = scorer.scoreRange(features, i, j, targetLenSec, sigmaSec, speakerContext, start, end);
                 double score = Math.max(0.01, comp.overall());
                 if (score < 0.05) continue; // mini-threshold voorkomt ruis
 
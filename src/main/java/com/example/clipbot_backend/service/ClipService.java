@@ -25,8 +25,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -136,28 +138,12 @@ public class ClipService {
         Media media = clip.getMedia();
         var owner = media.getOwner();
 
-        // 1) Vraag entitlement op met de gewenste profielnaam (uit DEFAULT)
-        String requestedProfile = RenderSpec.DEFAULT.profile();
-        EntitlementService.Decision dec = entitlementService.checkCanRender(owner, requestedProfile);
-
+        // 1-2) Entitlement opvragen en de uiteindelijke RenderSpec bouwen
+        EntitlementService.Decision dec = entitlementService.checkCanRender(owner, RenderSpec.DEFAULT.profile());
         if (!dec.allow()) {
             throw new ResponseStatusException(HttpStatus.PAYMENT_REQUIRED, dec.reason());
         }
-
-        // 2) Bouw de uiteindelijke RenderSpec op basis van DEFAULT + beslissing
-        //    - profiel komt uit entitlement (kan bv. geforceerd 'youtube-720p' zijn)
-        //    - watermarkEnabled komt uit entitlement
-        RenderSpec base = RenderSpec.DEFAULT;
-        RenderSpec resolvedSpec = new RenderSpec(
-                base.width(),
-                base.height(),
-                base.fps(),
-                base.crf(),
-                base.preset(),
-                (dec.forcedProfile() == null || dec.forcedProfile().isBlank()) ? base.profile() : dec.forcedProfile(),
-                dec.watermark(),
-                base.watermarkPath()
-        );
+        RenderSpec resolvedSpec = resolveSpec(dec);
 
         String dedup = "clip:" + clipId;
 
@@ -168,13 +154,7 @@ public class ClipService {
         }
 
         // 4) Payload voor job
-        Map<String,Object> payload = new HashMap<>();
-        payload.put("clipId", clipId.toString());
-        payload.put("profile", resolvedSpec.profile());
-        payload.put("watermarkEnabled", resolvedSpec.watermarkEnabled());
-        if (Boolean.TRUE.equals(resolvedSpec.watermarkEnabled()) && resolvedSpec.watermarkPath() != null) {
-            payload.put("watermarkPath", resolvedSpec.watermarkPath());
-        }
+        Map<String,Object> payload = renderPayload(clipId, resolvedSpec);
         UUID mediaId = media != null ? media.getId() : null;
 
         // 5) Queue + quota burn
@@ -191,6 +171,91 @@ public class ClipService {
 
 
 
+    /**
+     * Batch variant of {@link #enqueueRender(JobService, UUID)} for clips of one media: clips are loaded in one
+     * query and all render jobs are inserted in one batch. Clips the owner is not entitled to render are skipped
+     * instead of failing the batch.
+     *
+     * @param clipIds clips to render, in priority order (quota goes to the first ones).
+     * @return render job id per enqueued clip.
+     */
+    @Transactional
+    public Map<UUID, UUID> enqueueRenders(JobService jobs, UUID mediaId, List<UUID> clipIds) {
+        Objects.requireNonNull(jobs, "jobService");
+        Objects.requireNonNull(mediaId, "mediaId");
+        if (clipIds == null || clipIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, Clip> byId = new HashMap<>();
+        for (Clip clip : clipRepo.findAllByIdWithMedia(clipIds)) {
+            byId.put(clip.getId(), clip);
+        }
+
+        Map<String, Map<String, Object>> payloads = new LinkedHashMap<>();
+        Map<String, UUID> clipByDedup = new HashMap<>();
+        List<Clip> requeued = new ArrayList<>();
+        for (UUID clipId : clipIds) {
+            Clip clip = byId.get(clipId);
+            if (clip == null || !mediaId.equals(clip.getMedia().getId())) {
+                log.warn("Render batch skipped clip={} reason=CLIP_NOT_IN_MEDIA media={}", clipId, mediaId);
+                continue;
+            }
+            var owner = clip.getMedia().getOwner();
+            // per clip beslissen: burnOneRender verhoogt het verbruik, dus de quota kan halverwege opraken
+            EntitlementService.Decision dec = entitlementService.checkCanRender(owner, RenderSpec.DEFAULT.profile());
+            if (!dec.allow()) {
+                log.warn("Render batch skipped clip={} reason={}", clipId, dec.reason());
+                continue;
+            }
+            if (clip.getStatus() != ClipStatus.QUEUED && clip.getStatus() != ClipStatus.RENDERING) {
+                clip.setStatus(ClipStatus.QUEUED);
+                requeued.add(clip);
+            }
+            String dedup = "clip:" + clipId;
+            payloads.put(dedup, renderPayload(clipId, resolveSpec(dec)));
+            clipByDedup.put(dedup, clipId);
+            entitlementService.burnOneRender(owner);
+        }
+        if (!requeued.isEmpty()) {
+            clipRepo.saveAll(requeued);
+        }
+
+        Map<UUID, UUID> jobIds = new LinkedHashMap<>();
+        jobs.enqueueUniqueBatch(mediaId, JobType.CLIP, payloads)
+                .forEach((dedup, jobId) -> jobIds.put(clipByDedup.get(dedup), jobId));
+        log.info("Render batch enqueued media={} requested={} enqueued={}", mediaId, clipIds.size(), jobIds.size());
+        return jobIds;
+    }
+
+    /**
+     * DEFAULT + entitlement-beslissing: het profiel kan geforceerd zijn (bv. 'youtube-720p'), watermark komt uit
+     * het plan.
+     */
+    private static RenderSpec resolveSpec(EntitlementService.Decision dec) {
+        RenderSpec base = RenderSpec.DEFAULT;
+        return new RenderSpec(
+                base.width(),
+                base.height(),
+                base.fps(),
+                base.crf(),
+                base.preset(),
+                (dec.forcedProfile() == null || dec.forcedProfile().isBlank()) ? base.profile() : dec.forcedProfile(),
+                dec.watermark(),
+                base.watermarkPath()
+        );
+    }
+
+    private static Map<String, Object> renderPayload(UUID clipId, RenderSpec spec) {
+        Map<String,Object> payload = new HashMap<>();
+        payload.put("clipId", clipId.toString());
+        payload.put("profile", spec.profile());
+        payload.put("watermarkEnabled", spec.watermarkEnabled());
+        if (Boolean.TRUE.equals(spec.watermarkEnabled()) && spec.watermarkPath() != null) {
+            payload.put("watermarkPath", spec.watermarkPath());
+        }
+        return payload;
+    }
+
     //save method
     public Clip save(Clip clip){
         return clipRepo.save(clip);
@@ -1,8 +1,11 @@
 package com.example.clipbot_backend.service;
 
+import com.example.clipbot_backend.dto.LoudnessProfile;
 import com.example.clipbot_backend.dto.RenderOptions;
 import com.example.clipbot_backend.dto.RenderResult;
+import com.example.clipbot_backend.dto.RenderSpec;
 import com.example.clipbot_backend.dto.SubtitleFiles;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
 import com.example.clipbot_backend.engine.FfmpegClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.model.*;
@@ -42,6 +45,8 @@ public class ClipWorkFlow {
     private final AccountRepository accountRepo;
     private final ProjectMediaRepository projectMediaRepository;
     private final ThumbnailService thumbnailService;
+    private final RenderProfileResolver renderProfileResolver;
+    private final SpeculativeRenderService speculativeRenders;
     private TransactionTemplate txReqNew;
     private static final Logger LOGGER = LoggerFactory.getLogger(ClipWorkFlow.class);
 
@@ -50,7 +55,7 @@ public class ClipWorkFlow {
                         StorageService storage,
                         ClipRenderEngine renderEngine,
                         AssetRepository assetRepo,
-                        SubtitleService subtitles, MediaRepository mediaRepo, AccountRepository accountRepo, ProjectMediaRepository projectMediaRepository, ThumbnailService thumbnailService, TransactionTemplate txReqNew) {
+                        SubtitleService subtitles, MediaRepository mediaRepo, AccountRepository accountRepo, ProjectMediaRepository projectMediaRepository, ThumbnailService thumbnailService, RenderProfileResolver renderProfileResolver, SpeculativeRenderService speculativeRenders, TransactionTemplate txReqNew) {
         this.clipRepo = clipRepo;
         this.transcriptRepo = transcriptRepo;
         this.storage = storage;
@@ -61,6 +66,8 @@ public class ClipWorkFlow {
         this.accountRepo = accountRepo;
         this.projectMediaRepository = projectMediaRepository;
         this.thumbnailService = thumbnailService;
+        this.renderProfileResolver = renderProfileResolver;
+        this.speculativeRenders = speculativeRenders;
         this.txReqNew = txReqNew;
     }
 
@@ -75,7 +82,8 @@ public class ClipWorkFlow {
     }
 
 
-    public void persistSuccess(IoData ioData, RenderResult res, @Nullable SubtitleFiles subs, @Nullable RenderResult clean) {
+    public void persistSuccess(IoData ioData, RenderResult res, @Nullable SubtitleFiles subs, @Nullable RenderResult clean,
+                               RenderProfileResolver.EncoderChoice encoder) {
         txReqNew.execute(status -> {
             var clipRef = clipRepo.getReferenceById(ioData.clipId);
             var mediaRef = mediaRepo.getReferenceById(ioData.mediaId);
@@ -121,6 +129,8 @@ public class ClipWorkFlow {
             }
 
             // deprecate: clip.setCaptionSrtKey(...)
+            clipRef.setRenderPreset(encoder.preset());
+            clipRef.setRenderCrf(encoder.crf());
             clipRef.setStatus(ClipStatus.READY);
             clipRepo.save(clipRef);
 
@@ -171,18 +181,49 @@ public class ClipWorkFlow {
 
         Map<String,Object> meta = new java.util.LinkedHashMap<>(io.meta() == null ? Map.of() : io.meta());
 
-        RenderOptions options = RenderOptions.withDefaults(meta, subs);
-        RenderResult res = renderEngine.render(srcPath, io.startMs(), io.endMs(), options);
-        RenderResult clean = null;
-        try {
-            clean = renderEngine.renderClean(srcPath, io.startMs(), io.endMs(), RenderOptions.withDefaults(Map.of(), null));
-        } catch (Exception e) {
-            LOGGER.warn("Clean render failed for clip {}: {}", clipId, e.toString());
+        // preset/CRF op basis van huidige CLIP-queue en gemeten encodesnelheid, binnen de plan-grenzen
+        long clipMs = io.endMs() - io.startMs();
+        RenderProfileResolver.EncoderChoice encoder = renderProfileResolver.chooseEncoder(io.planTier(), clipMs / 1000.0);
+        RenderSpec d = RenderSpec.DEFAULT;
+        RenderSpec spec = new RenderSpec(d.width(), d.height(), d.fps(), encoder.crf(), encoder.preset(), d.profile(),
+                d.watermarkEnabled(), d.watermarkPath());
+
+        // clean render = master in bron-aspect; profiel-renditions worden hier lazy uit afgeleid
+        RenderSpec master = RenderProfileResolver.masterSpec(io.containerInfo(), encoder.crf(), encoder.preset());
+        // eerst de speculatieve cache claimen: bij een hit is de ondertitelde render alleen nog een burn-in pass
+        // over de korte, al genormaliseerde master in plaats van een seek + decode van de volledige bron
+        RenderResult clean = speculativeRenders.claim(io.mediaId(), io.startMs(), io.endMs(), master).orElse(null);
+        Path cachedMaster = clean != null ? storage.resolveOut(clean.mp4Key()) : null;
+        boolean fromMaster = cachedMaster != null && Files.isRegularFile(cachedMaster);
+
+        RenderResult res;
+        if (fromMaster) {
+            Map<String, Object> burnMeta = new LinkedHashMap<>(meta);
+            burnMeta.remove(LoudnessProfile.META_KEY); // master is al genormaliseerd
+            burnMeta.put("sourceAudioOnly", false);    // master heeft altijd een videospoor
+            res = renderEngine.render(cachedMaster, 0L, clipMs, new RenderOptions(spec, burnMeta, subs));
+        } else {
+            res = renderEngine.render(srcPath, io.startMs(), io.endMs(), new RenderOptions(spec, meta, subs));
+        }
+        // alleen de x264-encode meten: thumbnails en upload vertekenen de snelheidsschatting
+        renderProfileResolver.recordEncode(encoder.preset(), spec.width(), spec.height(), clipMs, res.encodeMs());
+        LOGGER.info("Clip {} rendered preset={} crf={} queueDepth={} fromCachedMaster={}", clipId, encoder.preset(),
+                encoder.crf(), encoder.queueDepth(), fromMaster);
+        if (clean == null) {
+            try {
+                Map<String, Object> cleanMeta = new LinkedHashMap<>();
+                if (meta.containsKey(LoudnessProfile.META_KEY)) cleanMeta.put(LoudnessProfile.META_KEY, meta.get(LoudnessProfile.META_KEY));
+                if (meta.containsKey("sourceAudioOnly")) cleanMeta.put("sourceAudioOnly", meta.get("sourceAudioOnly"));
+                clean = renderEngine.renderClean(srcPath, io.startMs(), io.endMs(), new RenderOptions(master, cleanMeta, null));
+                renderProfileResolver.recordEncode(master.preset(), master.width(), master.height(), clipMs, clean.encodeMs());
+            } catch (Exception e) {
+                LOGGER.warn("Clean render failed for clip {}: {}", clipId, e.toString());
+            }
         }
         // validateOutputs(res, subs);
 
         try {
-            persistSuccess(io, res, subs, clean); // TX B
+            persistSuccess(io, res, subs, clean, encoder); // TX B
         } catch (Exception e) {
             persistFailure(clipId, e);         // TX C
             throw e;
@@ -220,8 +261,9 @@ public class ClipWorkFlow {
             }
         }
     }
-    private record IoData(UUID clipId, UUID mediaId, UUID ownerId,
-                          String objectKey, long startMs, long endMs, Map<String,Object> meta) {}
+    private record IoData(UUID clipId, UUID mediaId, UUID ownerId, PlanTier planTier,
+                          String objectKey, long startMs, long endMs, Map<String,Object> meta,
+                          @Nullable ContainerInfo containerInfo) {}
 
     @Transactional(readOnly = true)
     protected IoData loadIoData(UUID clipId) {
@@ -229,8 +271,14 @@ public class ClipWorkFlow {
                 .orElseThrow(() -> new IllegalStateException("CLIP_NOT_FOUND"));
         var m = clip.getMedia();// is gefetched, dus geen lazy-issue
         Map<String, Object> meta = clip.getMeta() == null ? Map.of() : clip.getMeta();
-        return new IoData(clip.getId(), m.getId(),m.getOwner().getId(),
-                m.getObjectKey(), clip.getStartMs(), clip.getEndMs(), meta);
+        LoudnessProfile loudness = m.getLoudnessProfile();
+        if (loudness != null || m.getContainerInfo() != null) {
+            meta = new LinkedHashMap<>(meta);
+            if (loudness != null) meta.put(LoudnessProfile.META_KEY, loudness.toMeta());
+            if (m.getContainerInfo() != null) meta.put("sourceAudioOnly", m.getContainerInfo().audioOnly());
+        }
+        return new IoData(clip.getId(), m.getId(),m.getOwner().getId(), m.getOwner().getPlanTier(),
+                m.getObjectKey(), clip.getStartMs(), clip.getEndMs(), meta, m.getContainerInfo());
     }
 
 }
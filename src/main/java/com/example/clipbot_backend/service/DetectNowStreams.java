@@ -0,0 +1,174 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.dto.SegmentDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Result channels of DetectNow jobs. The worker publishes segments as detection produces them; clients follow a
+ * channel over SSE. Events are buffered per job, so a subscriber that connects late still gets the full sequence,
+ * and finished channels are kept for {@code detect.now.streamRetention}. Nothing here touches the database.
+ * <p>
+ * Channels live in this JVM only. A DetectNow job is therefore created already claimed and runs on the node that
+ * opened its channel, and the stream request must reach that same node (single node, or sticky routing per job).
+ */
+@Component
+public class DetectNowStreams {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DetectNowStreams.class);
+
+    static final String EVENT_SEGMENT = "segment";
+    static final String EVENT_DONE = "done";
+    static final String EVENT_ERROR = "error";
+
+    private record Event(long seq, String name, Object data) {}
+
+    private static final class Channel {
+        final UUID mediaId;
+        final Set<String> subjects;
+        final long openedAt = System.currentTimeMillis();
+        final List<Event> events = new ArrayList<>();
+        final List<SseEmitter> emitters = new ArrayList<>();
+        long closedAt = -1;
+
+        Channel(UUID mediaId, Set<String> subjects) {
+            this.mediaId = mediaId;
+            this.subjects = subjects;
+        }
+
+        boolean closed() { return closedAt >= 0; }
+    }
+
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+    private final Duration emitterTimeout;
+    private final Duration retention;
+
+    public DetectNowStreams(@Value("${detect.now.streamTimeout:PT10M}") Duration emitterTimeout,
+                            @Value("${detect.now.streamRetention:PT5M}") Duration retention) {
+        this.emitterTimeout = emitterTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * Opens the channel of a job before its creation commits, so no early segment is lost.
+     *
+     * @param jobId    DETECT job that feeds the channel.
+     * @param mediaId  media the job runs on.
+     * @param subjects external subjects allowed to subscribe.
+     */
+    public void open(UUID jobId, UUID mediaId, Set<String> subjects) {
+        channels.put(jobId, new Channel(mediaId, Set.copyOf(subjects)));
+    }
+
+    public boolean isOpen(UUID jobId) {
+        Channel channel = channels.get(jobId);
+        return channel != null && !channel.closed();
+    }
+
+    /**
+     * Subscribes to a channel. Buffered events are replayed first; a finished channel replays and completes.
+     *
+     * @throws ResponseStatusException 404 for unknown or expired handles, 403 for foreign subjects.
+     */
+    public SseEmitter subscribe(UUID jobId, UUID mediaId, String subject) {
+        Channel channel = channels.get(jobId);
+        if (channel == null || !channel.mediaId.equals(mediaId))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "DETECT_STREAM_NOT_FOUND");
+        if (!channel.subjects.contains(subject))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "MEDIA_NOT_OWNED");
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        synchronized (channel) {
+            for (Event event : channel.events) {
+                if (!send(emitter, event)) return emitter;
+            }
+            if (channel.closed()) {
+                emitter.complete();
+                return emitter;
+            }
+            channel.emitters.add(emitter);
+        }
+        Runnable detach = () -> { synchronized (channel) { channel.emitters.remove(emitter); } };
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(e -> detach.run());
+        return emitter;
+    }
+
+    /** Publishes one segment; a no-op for jobs without channel (regular DETECT jobs). */
+    public void segment(UUID jobId, SegmentDTO segment) {
+        publish(jobId, EVENT_SEGMENT, segment, false);
+    }
+
+    /** Publishes the final summary and completes all subscribers. */
+    public void done(UUID jobId, Map<String, Object> summary) {
+        publish(jobId, EVENT_DONE, summary, true);
+    }
+
+    public void failed(UUID jobId, String message) {
+        publish(jobId, EVENT_ERROR, Map.of("error", Objects.requireNonNullElse(message, "unknown")), true);
+    }
+
+    /** Ruimt afgeronde kanalen na de retentie op, en open kanalen waarvan de job nooit klaar kwam. */
+    @Scheduled(fixedDelayString = "60000")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        channels.entrySet().removeIf(e -> {
+            Channel channel = e.getValue();
+            synchronized (channel) {
+                boolean expired = channel.closed()
+                        ? now - channel.closedAt > retention.toMillis()
+                        : now - channel.openedAt > emitterTimeout.toMillis() + retention.toMillis();
+                if (expired && !channel.closed()) List.copyOf(channel.emitters).forEach(SseEmitter::complete);
+                return expired;
+            }
+        });
+    }
+
+    private void publish(UUID jobId, String name, Object data, boolean last) {
+        Channel channel = channels.get(jobId);
+        if (channel == null) return;
+        synchronized (channel) {
+            if (channel.closed()) return;
+            Event event = new Event(channel.events.size(), name, data);
+            channel.events.add(event);
+            // kopie: complete()/completeWithError() kunnen de detach-callback op deze thread aanroepen
+            for (SseEmitter emitter : List.copyOf(channel.emitters)) {
+                if (!send(emitter, event)) channel.emitters.remove(emitter);
+            }
+            if (last) {
+                channel.closedAt = System.currentTimeMillis();
+                List<SseEmitter> open = List.copyOf(channel.emitters);
+                channel.emitters.clear();
+                open.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, Event event) {
+        try {
+            emitter.send(SseEmitter.event().id(String.valueOf(event.seq())).name(event.name()).data(event.data()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // client weg: detectie loopt door, alleen deze subscriber valt af
+            LOGGER.debug("DetectNow stream send failed event={} err={}", event.name(), e.toString());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
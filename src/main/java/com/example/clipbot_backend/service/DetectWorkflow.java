@@ -1,8 +1,10 @@
 package com.example.clipbot_backend.service;
 
 import com.example.clipbot_backend.dto.DetectionParams;
+import com.example.clipbot_backend.dto.DetectionResult;
 import com.example.clipbot_backend.dto.SegmentDTO;
 import com.example.clipbot_backend.dto.WordsParser;
+import com.example.clipbot_backend.dto.WordTimeline;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.engine.Interfaces.TranscriptionEngine;
 import com.example.clipbot_backend.dto.FwVerboseResponse;
@@ -26,12 +28,17 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 
 
 @Service
@@ -51,10 +58,16 @@ public class DetectWorkflow {
     private final RecommendationService recommendationService;
     private final ThumbnailService thumbnailService;
     private final ProjectMediaRepository projectMediaRepository;
+    private final SpeculativeRenderService speculativeRenders;
 
     private static final int DEFAULT_TOP_N = 6;
+    /**
+     * Payload-vlag (DetectNow): nooit transcriberen (zonder transcript leeg klaar), transcript op lang/provider,
+     * geen thumbnail/aanbevelingen/speculatieve renders, en de media staat daarna weer op READY.
+     */
+    static final String DETECT_NOW = "detectNow";
 
-    public DetectWorkflow(MediaRepository mediaRepo, TranscriptRepository transcriptRepo, SegmentRepository segmentRepo, StorageService storage, DetectionEngine detection, TranscriptService transcriptService, @Qualifier("gptDiarizeEngine") TranscriptionEngine gptDiarizeEngine, @Qualifier("fasterWhisperEngine") TranscriptionEngine fasterWhisperEngine, AudioWindowService audioWindowService, FasterWhisperClient fastWhisperClient, UrlDownloader urlDownloader, RecommendationService recommendationService, ThumbnailService thumbnailService, ProjectMediaRepository projectMediaRepository) {
+    public DetectWorkflow(MediaRepository mediaRepo, TranscriptRepository transcriptRepo, SegmentRepository segmentRepo, StorageService storage, DetectionEngine detection, TranscriptService transcriptService, @Qualifier("gptDiarizeEngine") TranscriptionEngine gptDiarizeEngine, @Qualifier("fasterWhisperEngine") TranscriptionEngine fasterWhisperEngine, AudioWindowService audioWindowService, FasterWhisperClient fastWhisperClient, UrlDownloader urlDownloader, RecommendationService recommendationService, ThumbnailService thumbnailService, ProjectMediaRepository projectMediaRepository, SpeculativeRenderService speculativeRenders) {
         this.mediaRepo = mediaRepo;
         this.transcriptRepo = transcriptRepo;
         this.segmentRepo = segmentRepo;
@@ -69,42 +82,76 @@ public class DetectWorkflow {
         this.recommendationService = recommendationService;
         this.thumbnailService = thumbnailService;
         this.projectMediaRepository = projectMediaRepository;
+        this.speculativeRenders = speculativeRenders;
     }
 
     public int run(UUID mediaId, Map<String,Object> payload) throws Exception {
+        return run(mediaId, payload, seg -> {}).segments().size();
+    }
+
+    /**
+     * Runs detection and hands every final (refined) segment to {@code onSegment} as soon as it is ready, before
+     * the batch is persisted. A payload {@code budgetMs} bounds the window search like DetectNow; the result then
+     * says whether the search completed; an incomplete result never replaces segments that are already persisted.
+     * With {@code detectNow} no transcription is started (media without a matching transcript yield an empty,
+     * completed result and are left untouched), the batch side effects are skipped and the media ends READY.
+     */
+    public DetectionResult run(UUID mediaId, Map<String,Object> payload, Consumer<SegmentDTO> onSegment) throws Exception {
         LOGGER.debug("DW.run ENTER mediaId={} payloadKeys={}", mediaId, payload==null?0:payload.size());
         long t0 = System.nanoTime();
+        boolean detectNow = payload != null && Boolean.TRUE.equals(payload.get(DETECT_NOW));
+        String lang = optStr(payload, "lang");
+        String provider = optStr(payload, "provider");
+        Transcript existing = null;
+        if (detectNow) {
+            existing = findExistingTranscript(mediaId, lang, provider);
+            if (existing == null) {
+                LOGGER.info("DETECT skipped media={} lang={} provider={}: no transcript and transcription not allowed", mediaId, lang, provider);
+                return new DetectionResult(List.of(), true);
+            }
+        }
         // TX A: kort
         Media media = markProcessing(mediaId);
         LOGGER.debug("DW.run markProcessing ok status={} objectKey={}", media.getStatus(), media.getObjectKey());
 
         try {
             // --- No TX: IO / transcript ---
-            String lang = optStr(payload, "lang");
-            String provider = optStr(payload, "provider");
             boolean isMulti = media.isMultiSpeakerEffective();
             LOGGER.info("DETECT selectEngine mediaId={} speakerMode={} isMultiSpeakerEffective={} jobProvider={}", media.getId(), media.getSpeakerMode(), isMulti, provider);
 
-            Transcript tr = resolveOrCreateTranscript(media, lang, provider, isMulti); // zonder TX
+            Transcript tr = detectNow ? existing : resolveOrCreateTranscript(media, lang, provider, isMulti); // zonder TX
             LOGGER.info("DETECT words={} media={}",
                     (tr!=null && tr.getWords()!=null && tr.getWords().has("items")) ? tr.getWords().get("items").size() : -1,
                     media.getId());
 
             Path srcPath = requireRaw(media);
-            safeExtractThumbnail(media.getId(), srcPath);
+            if (!detectNow) safeExtractThumbnail(media.getId(), srcPath);
             DetectionParams params = buildParams(payload).withSpeakerTurnsEnabled(isMulti);
             LOGGER.debug("DETECT params speakerTurnsEnabled={} media={}", params.speakerTurnsEnabled(), media.getId());
-            var detected = detection.detect(srcPath, tr, params);
-
-            var refined = refineWithWordBounds(srcPath, detected, tr);
+            long budgetMs = asLong(payload == null ? null : payload.get("budgetMs"), 0);
+            DetectionResult result = budgetMs > 0
+                    ? detection.detectWithin(srcPath, tr, params, Duration.ofMillis(budgetMs))
+                    : new DetectionResult(detection.detect(srcPath, tr, params), true);
 
-            // TX B: segments persist (REQUIRES_NEW)
-            persistSegments(media.getId(), refined);
+            var refined = refineWithWordBounds(srcPath, result.segments(), tr, onSegment);
 
-            triggerRecommendationsIfRequested(media.getId(), payload);
+            // TX B: segments persist (REQUIRES_NEW); een afgekapt resultaat overschrijft nooit bestaande segmenten
+            if (result.completed() || segmentRepo.countByMediaId(media.getId()) == 0) {
+                persistSegments(media.getId(), refined);
+            } else {
+                LOGGER.info("DETECT partial result not persisted media={} segments={}: existing segments kept", media.getId(), refined.size());
+            }
 
-            // TX C: media status blijft PROCESSING (render zet READY)
-            return refined.size();
+            if (detectNow) {
+                // TX C: DetectNow rendert niets, dus de media is meteen weer READY
+                markReady(media.getId());
+            } else {
+                triggerRecommendationsIfRequested(media.getId(), payload);
+                // top-K segmenten vooraf clean renderen zodra render-slots vrij zijn
+                speculativeRenders.offer(media.getId());
+                // TX C: media status blijft PROCESSING (render zet READY)
+            }
+            return new DetectionResult(refined, result.completed());
 
         } catch (Exception e) {
             // TX C: failed (REQUIRES_NEW)
@@ -122,6 +169,21 @@ public class DetectWorkflow {
         return media;
     }
 
+    @Transactional
+    protected void markReady(UUID mediaId) {
+        var media = mediaRepo.findById(mediaId).orElseThrow();
+        media.setStatus(MediaStatus.READY);
+        mediaRepo.save(media);
+    }
+
+    /** Bestaand transcript: exact op lang/provider als beide gevraagd zijn, anders het nieuwste. */
+    private Transcript findExistingTranscript(UUID mediaId, String lang, String provider) {
+        if (lang != null && provider != null) {
+            return transcriptRepo.findByMediaAndLangAndProvider(mediaRepo.getReferenceById(mediaId), lang, provider).orElse(null);
+        }
+        return transcriptRepo.findTopByMediaIdOrderByCreatedAtDesc(mediaId).orElse(null);
+    }
+
     protected Transcript resolveOrCreateTranscript(Media media, String lang, String provider, boolean isMultiSpeaker) throws Exception {
         LOGGER.debug("DW.resolveOrCreateTranscript media={} lang={} provider={} isMulti={}", media.getId(), lang, provider, isMultiSpeaker);
 
@@ -286,7 +348,8 @@ public class DetectWorkflow {
     ThumbnailService.ThumbnailRequest loadThumbnailRequest(UUID mediaId) {
         Media media = mediaRepo.findByIdWithOwner(mediaId).orElseThrow();
         List<UUID> projectIds = projectMediaRepository.findProjectIdsByMediaId(mediaId);
-        return new ThumbnailService.ThumbnailRequest(media.getId(), media.getOwner().getId(), projectIds, media.getDurationMs());
+        return new ThumbnailService.ThumbnailRequest(media.getId(), media.getOwner().getId(), projectIds, media.getDurationMs(),
+                media.getContainerInfo());
     }
 
     private Path preferredThumbnailSource(Path rawPath) {
@@ -379,21 +442,13 @@ public class DetectWorkflow {
     }
 
 
-    private SegmentDTO snapToWordBounds(SegmentDTO seg, FwVerboseResponse fw, long offsetMs) {
+    /** Schuift de grenzen naar de dichtstbijzijnde woordstart/-einde; valt terug op het origineel als dat een lege range geeft. */
+    private static SegmentDTO snapToWordBounds(SegmentDTO seg, WordTimeline words, long offsetMs) {
+        if (words.isEmpty()) return seg;
+
         long s = seg.startMs(), e = seg.endMs();
-        long bestS = s, bestE = e;
-
-        if (fw != null && fw.segments() != null) {
-            for (var fs : fw.segments()) {
-                if (fs.words() == null) continue;
-                for (var w : fs.words()) {
-                    long ws = Math.round((w.start() == null ? 0.0 : w.start()) * 1000) + offsetMs;
-                    long we = Math.round((w.end()   == null ? 0.0 : w.end())   * 1000) + offsetMs;
-                    if (Math.abs(ws - s) < Math.abs(bestS - s)) bestS = ws;
-                    if (Math.abs(we - e) < Math.abs(bestE - e)) bestE = we;
-                }
-            }
-        }
+        long bestS = words.nearestStart(s);
+        long bestE = words.nearestEnd(e);
         if (bestE <= bestS) { bestS = s; bestE = e; }
 
         Map<String,Object> meta = new LinkedHashMap<>(seg.meta()==null?Map.of():seg.meta());
@@ -403,69 +458,63 @@ public class DetectWorkflow {
     }
 
     // in DetectWorkflow
-    private List<SegmentDTO> refineWithWordBounds(Path srcPath, List<SegmentDTO> detected, Transcript transcript) {
-        if (detected == null || detected.isEmpty()) return detected;
+    private List<SegmentDTO> refineWithWordBounds(Path srcPath, List<SegmentDTO> detected, Transcript transcript,
+                                                  Consumer<SegmentDTO> onSegment) {
+        if (detected == null || detected.isEmpty()) return detected == null ? List.of() : detected;
 
-        List<WordsParser.WordAdapter> words = WordsParser.extract(transcript);
+        WordTimeline words = WordTimeline.of(transcript);
         if (!words.isEmpty()) {
             List<SegmentDTO> snapped = new ArrayList<>(detected.size());
             for (SegmentDTO seg : detected) {
-                snapped.add(snapToWordBounds(seg, words));
+                SegmentDTO s = snapToWordBounds(seg, words, 0L);
+                snapped.add(s);
+                onSegment.accept(s);
             }
             return snapped;
         }
 
-        final long PAD_MS = 300; // beetje context rond het segment
-        List<SegmentDTO> out = new ArrayList<>(detected.size());
-
-        for (SegmentDTO seg : detected) {
-            AudioWindowService.Window win = null;
-            try {
-                // ✂️ maak tijdelijke WAV rond het segment
-                win = audioWindowService.sliceToTempWav(srcPath, seg.startMs(), seg.endMs(), PAD_MS);
+        return refineWithAsr(srcPath, detected, onSegment);
+    }
 
-                // ⏱️ snelle woord-timestamps op het window
-                FwVerboseResponse fw = fastWhisperClient.transcribeFile(win.file(), true);
+    /**
+     * Refines segments against the ASR server, at most {@link FasterWhisperClient#refineConcurrency()} windows in
+     * flight. Output order matches the input; a segment whose window fails keeps its original bounds.
+     */
+    List<SegmentDTO> refineWithAsr(Path srcPath, List<SegmentDTO> detected) {
+        return refineWithAsr(srcPath, detected, seg -> {});
+    }
 
-                // 🎯 schuif grenzen naar dichtstbijzijnde woordranden
-                SegmentDTO refined = snapToWordBounds(seg, fw, win.offsetMs());
-                out.add(refined);
-            } catch (Exception e) {
-                // als refinement faalt, neem dan het originele segment
-                out.add(seg);
-            } finally {
-                if (win != null) {
-                    try { java.nio.file.Files.deleteIfExists(win.file()); } catch (Exception ignore) {}
-                }
-            }
-        }
+    /** As {@link #refineWithAsr(Path, List)}; {@code onSegment} sees each segment in output order as it is refined. */
+    List<SegmentDTO> refineWithAsr(Path srcPath, List<SegmentDTO> detected, Consumer<SegmentDTO> onSegment) {
+        final long PAD_MS = 300; // beetje context rond het segment
+        long t0 = System.nanoTime();
+        List<SegmentDTO> out = Flux.fromIterable(detected)
+                .flatMapSequential(seg -> refineWindow(srcPath, seg, PAD_MS), fastWhisperClient.refineConcurrency())
+                .doOnNext(onSegment)
+                .collectList()
+                .block();
+        LOGGER.info("DETECT asr-refine segments={} concurrency={} ms={}", detected.size(),
+                fastWhisperClient.refineConcurrency(), (System.nanoTime() - t0) / 1_000_000L);
         return out;
     }
 
-    private SegmentDTO snapToWordBounds(SegmentDTO seg, List<WordsParser.WordAdapter> words) {
-        if (words == null || words.isEmpty()) return seg;
-
-        long s = seg.startMs(), e = seg.endMs();
-        long bestS = s, bestE = e;
-
-        for (WordsParser.WordAdapter w : words) {
-            if (Math.abs(w.startMs - s) < Math.abs(bestS - s)) {
-                bestS = w.startMs;
-            }
-            if (Math.abs(w.endMs - e) < Math.abs(bestE - e)) {
-                bestE = w.endMs;
-            }
-        }
-
-        if (bestE <= bestS) {
-            bestS = s;
-            bestE = e;
-        }
-
-        Map<String,Object> meta = new LinkedHashMap<>(seg.meta()==null?Map.of():seg.meta());
-        meta.put("refined", true);
-        meta.put("offsetMs", 0L);
-        return new SegmentDTO(bestS, bestE, seg.score(), meta);
+    private Mono<SegmentDTO> refineWindow(Path srcPath, SegmentDTO seg, long padMs) {
+        return Mono.using(
+                        // ✂️ tijdelijke WAV rond het segment (uit de gedeelde PCM)
+                        () -> audioWindowService.sliceToTempWav(srcPath, seg.startMs(), seg.endMs(), padMs),
+                        // ⏱️ woord-timestamps op het window, 🎯 grenzen naar dichtstbijzijnde woordranden
+                        win -> fastWhisperClient.transcribeFileAsync(win.file(), true)
+                                .map(fw -> snapToWordBounds(seg, WordTimeline.of(fw, win.offsetMs()), win.offsetMs())),
+                        win -> {
+                            try { java.nio.file.Files.deleteIfExists(win.file()); } catch (Exception ignore) {}
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .defaultIfEmpty(seg)
+                // als refinement faalt, neem dan het originele segment
+                .onErrorResume(e -> {
+                    LOGGER.debug("DETECT asr-refine failed {}-{}: {}", seg.startMs(), seg.endMs(), e.toString());
+                    return Mono.just(seg);
+                });
     }
 
     private static long asLong(Object v, long def) {
@@ -1,44 +1,41 @@
 package com.example.clipbot_backend.service;
 
-import com.example.clipbot_backend.dto.DetectionParams;
-import com.example.clipbot_backend.dto.SegmentDTO;
-import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
+import com.example.clipbot_backend.model.Job;
 import com.example.clipbot_backend.model.Media;
-import com.example.clipbot_backend.model.Segment;
-import com.example.clipbot_backend.model.Transcript;
 import com.example.clipbot_backend.repository.MediaRepository;
 import com.example.clipbot_backend.repository.SegmentRepository;
-import com.example.clipbot_backend.repository.TranscriptRepository;
-import com.example.clipbot_backend.service.Interfaces.StorageService;
 import com.example.clipbot_backend.util.JobType;
-import com.example.clipbot_backend.util.MediaStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class DetectionService {
     private final JobService jobService;
     private final MediaRepository mediaRepo;
-    private final TranscriptRepository transcriptRepo;
     private final SegmentRepository segmentRepo;
-    private final StorageService storageService;
-    private final DetectionEngine detectionEngine;
+    private final WorkerService workerService;
+    private final DetectNowStreams detectNowStreams;
+    private final Duration detectNowBudget;
+    private final TransactionTemplate txReqNew;
 
-    public DetectionService(JobService jobService, MediaRepository mediaRepo, TranscriptRepository transcriptRepo, SegmentRepository segmentRepo, StorageService storageService, DetectionEngine detectionEngine) {
+    public DetectionService(JobService jobService, MediaRepository mediaRepo, SegmentRepository segmentRepo, WorkerService workerService, DetectNowStreams detectNowStreams,
+                            @Value("${detect.now.budget:PT5S}") Duration detectNowBudget, TransactionTemplate txReqNew) {
         this.jobService = jobService;
         this.mediaRepo = mediaRepo;
-        this.transcriptRepo = transcriptRepo;
         this.segmentRepo = segmentRepo;
-        this.storageService = storageService;
-        this.detectionEngine = detectionEngine;
+        this.workerService = workerService;
+        this.detectNowStreams = detectNowStreams;
+        this.detectNowBudget = detectNowBudget;
+        this.txReqNew = txReqNew;
     }
 
     public UUID enqueueDetect(UUID mediaId, String lang, String provider, Double sceneThreshold){
@@ -61,45 +58,39 @@ public class DetectionService {
         return jobService.enqueue(media.getId(), JobType.DETECT, payload);
     }
 
-    @Transactional
-    public List<SegmentDTO> runDetectNow(UUID mediaId, DetectNowOptions options) throws Exception {
-        Media media = mediaRepo.findById(mediaId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "MEDIA_NOT_FOUND"));
-        media.setStatus(MediaStatus.PROCESSING);
-        mediaRepo.saveAndFlush(media);
-
+    /**
+     * Starts an interactive detection as a DETECT job and returns its id as stream handle right away. The job is
+     * created already claimed (RUNNING) with its channel opened in the same transaction, then run on this node's
+     * worker pool: no poller can take it, and no early segment can be published before the channel exists.
+     * DetectNow never transcribes; without a transcript the job ends with an empty {@code done}. When the worker
+     * pool rejects the job, it is marked failed, the stream gets an {@code error} and the call fails with 503.
+     *
+     * @param subjects external subjects allowed to follow the stream.
+     */
+    public UUID startDetectNow(UUID mediaId, DetectNowOptions options, Set<String> subjects) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (options.lang() != null) payload.put("lang", options.lang());
+        if (options.provider() != null) payload.put("provider", options.provider());
+        if (options.maxCandidates() != null) payload.put("maxCandidates", options.maxCandidates());
+        if (options.sceneThreshold() != null) payload.put("sceneThreshold", options.sceneThreshold());
+        payload.put("budgetMs", detectNowBudget.toMillis());
+        payload.put(DetectWorkflow.DETECT_NOW, true);
+
+        Job job = txReqNew.execute(status -> {
+            Job created = jobService.enqueueClaimed(mediaId, JobType.DETECT, payload);
+            detectNowStreams.open(created.getId(), mediaId, subjects);
+            return created;
+        });
+        // na de commit: de worker schrijft markDone/markError in eigen transacties
         try {
-            Transcript transcript = resolveTranscript(media, options.lang(), options.provider());
-            if (transcript == null) return List.of();
-
-            Path srcPath = storageService.resolveRaw(media.getObjectKey());
-            if (srcPath == null || !Files.exists(srcPath))
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "RAW_NOT_FOUND");
-
-            DetectionParams params = buildParams(options);
-            var detected = detectionEngine.detect(srcPath, transcript, params);
-
-            segmentRepo.deleteByMedia(media);
-            if (!detected.isEmpty()) {
-                List<Segment> entities = new ArrayList<>(detected.size());
-                for (var s : detected) {
-                    Segment e = new Segment(media, s.startMs(), s.endMs());
-                    e.setScore(Optional.ofNullable(s.score()).orElse(BigDecimal.ZERO));
-                    e.setMeta(s.meta() == null ? Map.of() : s.meta());
-                    entities.add(e);
-                }
-                segmentRepo.saveAll(entities);
-            }
-
-            media.setStatus(MediaStatus.READY);
-            mediaRepo.save(media);
-
-            return detected;
-        } catch (Exception e) {
-            media.setStatus(MediaStatus.FAILED);
-            mediaRepo.save(media);
-            throw e;
+            workerService.runNow(job);
+        } catch (RejectedExecutionException e) {
+            // niemand ruimt een RUNNING job zonder worker op: zelf afsluiten
+            jobService.markError(job.getId(), "WORKER_QUEUE_FULL", Map.of());
+            detectNowStreams.failed(job.getId(), "WORKER_QUEUE_FULL");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "DETECT_NOW_BUSY");
         }
+        return job.getId();
     }
 
     public List<PersistedSegmentView> listSegments(UUID mediaId,int page, int size) {
@@ -112,28 +103,6 @@ public class DetectionService {
                 .toList();
     }
 
-    private Transcript resolveTranscript(Media media, String lang, String provider) {
-        if (lang != null && provider != null) {
-            return transcriptRepo.findByMediaAndLangAndProvider(media,lang,"openai").orElse(null);
-        }
-        return transcriptRepo.findTopByMediaOrderByCreatedAtDesc(media).orElse(null);
-    }
-
-    private DetectionParams buildParams(DetectNowOptions opts) {
-        var p = DetectionParams.defaults();
-        if (opts == null) return p;
-        if (opts.maxCandidates() != null) p = p.withMaxCandidates(opts.maxCandidates());
-        if (opts.sceneThreshold() != null) {
-            p = new DetectionParams(
-                    p.minDurationMs(), p.maxDurationMs(), p.maxCandidates(),
-                    p.silenceNoiseDb(), p.silenceMinDurSec(), p.snapThresholdMs(),
-                    p.targetLenSec(), p.lenSigmaSec(),
-                    opts.sceneThreshold(), p.snapSceneMs(), p.sceneAlignBonus(),
-                    p.speakerTurnsEnabled()
-            );
-        }
-        return p;
-    }
     public record DetectNowOptions(String lang, String provider, Integer maxCandidates, Double sceneThreshold) {}
     public record PersistedSegmentView(long startMs, long endMs, BigDecimal score, Map<String,Object> meta) {}
 }
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.nio.file.Path;
 import java.time.Duration;
@@ -23,15 +24,27 @@ public class FasterWhisperClient {
     private final String model; // alleen voor het form-veld
     private static final Logger log = LoggerFactory.getLogger(FasterWhisperClient.class);
     private final Duration timeout;
+    private final int refineConcurrency;
 
     public FasterWhisperClient(@Qualifier("fwWebClient") WebClient client, FwProperties props) {
         this.client = client;
         this.model = props.getModel(); // of null laten en server default gebruiken
         this.timeout = Duration.ofSeconds(props.getTimeoutSeconds());
+        this.refineConcurrency = Math.max(1, props.getRefineConcurrency());
     }
 
     public FwVerboseResponse transcribeFile(Path file, boolean wordTs) {
-        long t0 = System.currentTimeMillis();
+        return transcribeFileAsync(file, wordTs).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #transcribeFile(Path, boolean)} with the same per-request timeout.
+     *
+     * @param file   audio file to upload.
+     * @param wordTs whether to request word timestamps.
+     * @return response publisher.
+     */
+    public Mono<FwVerboseResponse> transcribeFileAsync(Path file, boolean wordTs) {
         var mb = new LinkedMultiValueMap<String, Object>();
         mb.add("file", new FileSystemResource(file));
         if (model != null && !model.isBlank()) {
@@ -54,8 +67,14 @@ public class FasterWhisperClient {
                 .bodyToMono(FwVerboseResponse.class)
                 .timeout(timeout)
                 .doOnSuccess(r -> log.debug("FW {} processed in {} ms",
-                        file.getFileName(), System.currentTimeMillis() - start))
-                .block();
+                        file.getFileName(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * @return how many window requests callers may have in flight at once against the ASR server.
+     */
+    public int refineConcurrency() {
+        return refineConcurrency;
     }
 }
 
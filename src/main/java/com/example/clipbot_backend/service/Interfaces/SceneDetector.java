@@ -0,0 +1,19 @@
+package com.example.clipbot_backend.service.Interfaces;
+
+import com.example.clipbot_backend.dto.SceneCut;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+public interface SceneDetector {
+    /**
+     * Detects scene changes of a media source. Cuts are reported down to the detector's analysis floor; callers
+     * filter by their own threshold, so one pass serves every threshold.
+     *
+     * @param mediaId   media the file belongs to (nullable).
+     * @param mediaPath raw media file.
+     * @return cuts in time order, empty for audio-only sources.
+     */
+    List<SceneCut> detect(UUID mediaId, Path mediaPath);
+}
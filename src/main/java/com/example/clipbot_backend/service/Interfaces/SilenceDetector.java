@@ -4,7 +4,22 @@ import com.example.clipbot_backend.dto.SilenceEvent;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.UUID;
 
 public interface SilenceDetector {
     List<SilenceEvent> detect(Path mediaPath, double noiseDb, double minSilenceSec);
+
+    /**
+     * Media-aware variant so implementations can reuse an earlier result for the same source; by default this
+     * simply detects on the file.
+     *
+     * @param mediaId       media the file belongs to (nullable).
+     * @param mediaPath     raw media file.
+     * @param noiseDb       noise threshold in dB.
+     * @param minSilenceSec minimum silence duration in seconds.
+     * @return detected silences.
+     */
+    default List<SilenceEvent> detect(UUID mediaId, Path mediaPath, double noiseDb, double minSilenceSec) {
+        return detect(mediaPath, noiseDb, minSilenceSec);
+    }
 }
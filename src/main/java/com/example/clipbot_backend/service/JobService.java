@@ -56,6 +56,55 @@ public class JobService {
                 });
     }
 
+    /**
+     * Batch variant of {@link #enqueueUnique}: one lookup for all dedup keys and one batched insert for the rest.
+     *
+     * @param payloads payload per dedup key.
+     * @return job id per dedup key, existing QUEUED/RUNNING jobs included.
+     */
+    @Transactional
+    public Map<String, UUID> enqueueUniqueBatch(@Nullable UUID mediaId, JobType type, Map<String, Map<String, Object>> payloads) {
+        if (payloads == null || payloads.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, UUID> ids = new LinkedHashMap<>();
+        for (Job existing : jobRepo.findQueuedOrRunningByDedupKeyIn(payloads.keySet())) {
+            ids.putIfAbsent(existing.getDedupKey(), existing.getId());
+        }
+        List<Job> created = new ArrayList<>();
+        payloads.forEach((dedupKey, payload) -> {
+            if (ids.containsKey(dedupKey)) return;
+            Job j = new Job(type);
+            j.setStatus(JobStatus.QUEUED);
+            j.setPayload(payload == null ? Map.of() : payload);
+            j.setDedupKey(dedupKey);
+            if (mediaId != null) { Media m = new Media(); m.setId(mediaId); j.setMedia(m); }
+            created.add(j);
+        });
+        for (Job j : jobRepo.saveAll(created)) {
+            ids.put(j.getDedupKey(), j.getId());
+        }
+        Map<String, UUID> ordered = new LinkedHashMap<>();
+        payloads.keySet().forEach(k -> ordered.put(k, ids.get(k)));
+        return ordered;
+    }
+
+    /**
+     * Creates a job that is claimed by this node from the start (RUNNING, first attempt), so no poller on any node
+     * picks it up. The caller runs it locally, e.g. via {@link WorkerService#runNow}.
+     *
+     * @return the created job.
+     */
+    @Transactional
+    public Job enqueueClaimed(@Nullable UUID mediaId, JobType type, @Nullable Map<String, Object> payload) {
+        Job j = new Job(type);
+        j.setStatus(JobStatus.RUNNING);
+        j.setAttempts(1);
+        j.setPayload(payload == null ? Map.of() : payload);
+        if (mediaId != null) { Media m = new Media(); m.setId(mediaId); j.setMedia(m); }
+        return jobRepo.save(j);
+    }
+
     @Transactional
     public List<Job> claimQueuedBatch(int maxBatchSize) {
         if (maxBatchSize <= 0) {
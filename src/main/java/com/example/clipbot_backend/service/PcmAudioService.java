@@ -0,0 +1,167 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.util.PcmAudio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Decodes a media source once to 16 kHz mono PCM and serves the memory-mapped result to silence detection,
+ * window slicing and ASR input preparation. Files are keyed by source path, size and modification time, so a
+ * changed raw file gets a fresh extraction.
+ */
+@Service
+public class PcmAudioService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PcmAudioService.class);
+
+    private final String ffmpegBin;
+    private final Path pcmDir;
+    private final Duration timeout;
+    private final Duration ttl;
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> extractionsInFlight = new ConcurrentHashMap<>();
+
+    public PcmAudioService(@Value("${ffmpeg.binary:ffmpeg}") String ffmpegBin,
+                           @Value("${audio.pcm.dir:./data/work/pcm}") Path pcmDir,
+                           @Value("${audio.pcm.timeout:PT20M}") Duration timeout,
+                           @Value("${audio.pcm.ttl:PT24H}") Duration ttl) {
+        this.ffmpegBin = (ffmpegBin == null || ffmpegBin.isBlank()) ? "ffmpeg" : ffmpegBin;
+        this.pcmDir = pcmDir.toAbsolutePath().normalize();
+        this.timeout = timeout;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the PCM of a source, extracting it with a single ffmpeg run when it is not on disk yet.
+     * Concurrent callers for the same source share one extraction.
+     *
+     * @param src raw media file.
+     * @return mapped PCM.
+     * @throws IOException when extraction or mapping fails.
+     */
+    public PcmAudio open(Path src) throws IOException {
+        String key = cacheKey(src);
+        Path pcm = pcmDir.resolve(key + ".pcm");
+        if (Files.isRegularFile(pcm)) {
+            touch(pcm);
+            return PcmAudio.map(pcm);
+        }
+
+        CompletableFuture<Path> flight = new CompletableFuture<>();
+        CompletableFuture<Path> running = extractionsInFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return PcmAudio.map(await(running));
+        }
+        try {
+            if (!Files.isRegularFile(pcm)) extract(src, pcm);
+            flight.complete(pcm);
+            return PcmAudio.map(pcm);
+        } catch (IOException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            extractionsInFlight.remove(key, flight);
+        }
+    }
+
+    /** Verwijdert PCM-bestanden die langer dan de TTL niet gebruikt zijn. */
+    @Scheduled(fixedDelayString = "${audio.pcm.cleanupInterval:PT1H}")
+    public void evictExpired() {
+        if (!Files.isDirectory(pcmDir)) return;
+        Instant cutoff = Instant.now().minus(ttl);
+        try (Stream<Path> files = Files.list(pcmDir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".pcm")).forEach(p -> {
+                try {
+                    if (Files.getLastModifiedTime(p).toInstant().isBefore(cutoff)) Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    LOGGER.debug("PCM evict skipped {}: {}", p.getFileName(), e.toString());
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("PCM evict failed dir={}: {}", pcmDir, e.toString());
+        }
+    }
+
+    static List<String> buildCommand(String ffmpegBin, Path src, Path out) {
+        return List.of(
+                ffmpegBin, "-hide_banner", "-loglevel", "error", "-nostdin", "-y",
+                "-i", src.toAbsolutePath().toString(),
+                "-vn", "-ac", "1", "-ar", String.valueOf(PcmAudio.SAMPLE_RATE),
+                "-f", "s16le", "-acodec", "pcm_s16le",
+                out.toAbsolutePath().toString()
+        );
+    }
+
+    static String cacheKey(Path src) throws IOException {
+        String fingerprint = src.toAbsolutePath().normalize() + "|" + Files.size(src) + "|" + Files.getLastModifiedTime(src).toMillis();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    private void extract(Path src, Path pcm) throws IOException {
+        Files.createDirectories(pcmDir);
+        Path tmp = Files.createTempFile(pcmDir, "extract-", ".part");
+        long t0 = System.nanoTime();
+        try {
+            Process p = new ProcessBuilder(buildCommand(ffmpegBin, src, tmp))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                throw new IOException("ffmpeg PCM extraction timed out");
+            }
+            if (p.exitValue() != 0) throw new IOException("ffmpeg PCM extraction failed with code " + p.exitValue());
+            // atomaire rename: andere nodes/threads zien nooit een half bestand
+            Files.move(tmp, pcm, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("PCM extracted {} → {} ({} bytes, {} ms)", src.getFileName(), pcm.getFileName(),
+                    Files.size(pcm), (System.nanoTime() - t0) / 1_000_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PCM extraction interrupted", e);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void touch(Path pcm) {
+        try {
+            Files.setLastModifiedTime(pcm, FileTime.from(Instant.now()));
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a time range of a media source as fragmented MP4 (or WebM for VP8/VP9/AV1 + Opus/Vorbis sources) by
+ * remuxing with {@code -c copy} straight into the response: no re-encode, no temp file and no job.
+ * ffmpeg is started and its first output read before the response is committed, so a failing remux surfaces as an
+ * error status instead of an empty 200; {@code preview.maxConcurrent} caps the number of running processes.
+ * A body that is not picked up within {@code preview.bodyStartTimeout} (the request failed or was dropped before
+ * streaming began) is abandoned: its ffmpeg process is killed and its slot freed.
+ */
+@Service
+public class PreviewService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreviewService.class);
+    static final MediaType VIDEO_MP4 = MediaType.parseMediaType("video/mp4");
+    static final MediaType VIDEO_WEBM = MediaType.parseMediaType("video/webm");
+    /** Codecs die WebM mag dragen (Matroska CodecID); al het andere gaat als fMP4. */
+    private static final Set<String> WEBM_VIDEO_CODECS = Set.of("V_VP8", "V_VP9", "V_AV1");
+    private static final Set<String> WEBM_AUDIO_CODECS = Set.of("A_OPUS", "A_VORBIS");
+    private static final int HEAD_BYTES = 64 * 1024;
+    private static final long FIRST_OUTPUT_TIMEOUT_MS = 10_000;
+
+    private final MediaRepository mediaRepo;
+    private final StorageService storage;
+    private final String ffmpegBin;
+    private final Duration maxDuration;
+    private final Semaphore permits;
+    private final Duration bodyStartTimeout;
+
+    /**
+     * Preview ready to be streamed.
+     *
+     * @param contentType container of the remuxed stream.
+     * @param startMs     actual start after snapping back to the previous keyframe.
+     * @param endMs       requested end.
+     * @param body        streaming body that runs ffmpeg while the client reads.
+     */
+    public record Preview(MediaType contentType, long startMs, long endMs, StreamingResponseBody body) {}
+
+    /**
+     * Gestart ffmpeg-proces met de al gelezen eerste output. {@code claimed} wordt gezet door de body of door de
+     * watchdog, wie het eerst komt; {@code finished} zorgt dat proces en permit precies één keer worden opgeruimd.
+     */
+    private record Started(Process process, InputStream in, byte[] head, int headLength, StringBuilder err, Thread errReader,
+                           AtomicBoolean claimed, AtomicBoolean finished) {}
+
+    public PreviewService(MediaRepository mediaRepo,
+                          StorageService storage,
+                          String ffmpegBin,
+                          Duration maxDuration,
+                          int maxConcurrent) {
+        this(mediaRepo, storage, ffmpegBin, maxDuration, maxConcurrent, Duration.ofSeconds(30));
+    }
+
+    @Autowired
+    public PreviewService(MediaRepository mediaRepo,
+                          StorageService storage,
+                          @Value("${ffmpeg.binary:ffmpeg}") String ffmpegBin,
+                          @Value("${preview.maxDuration:PT3M}") Duration maxDuration,
+                          @Value("${preview.maxConcurrent:4}") int maxConcurrent,
+                          @Value("${preview.bodyStartTimeout:PT30S}") Duration bodyStartTimeout) {
+        this.mediaRepo = mediaRepo;
+        this.storage = storage;
+        this.ffmpegBin = (ffmpegBin == null || ffmpegBin.isBlank()) ? "ffmpeg" : ffmpegBin;
+        this.maxDuration = maxDuration;
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+        this.bodyStartTimeout = bodyStartTimeout;
+    }
+
+    /**
+     * Prepares a remux preview for {@code [startMs, endMs)} of the media source.
+     *
+     * @param mediaId media identifier.
+     * @param startMs requested start in milliseconds.
+     * @param endMs   requested end in milliseconds.
+     * @return preview whose body streams the remuxed range.
+     * @throws ResponseStatusException 503 {@code PREVIEW_BUSY} when all preview slots are taken, 500
+     *                                 {@code PREVIEW_FAILED} when ffmpeg produces no output.
+     */
+    public Preview open(UUID mediaId, long startMs, long endMs) {
+        if (startMs < 0 || endMs <= startMs) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "INVALID_RANGE");
+        }
+        if (endMs - startMs > maxDuration.toMillis()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "PREVIEW_TOO_LONG");
+        }
+        Media media = mediaRepo.findById(mediaId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "MEDIA_NOT_FOUND"));
+        Path src = resolveSource(media);
+        ContainerInfo info = media.getContainerInfo();
+
+        long snappedMs = snapToKeyframe(info, startMs);
+        boolean webm = useWebm(info, src);
+        List<String> cmd = buildCommand(ffmpegBin, src, snappedMs, endMs, webm);
+        if (!permits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "PREVIEW_BUSY");
+        }
+        Started started;
+        try {
+            started = start(cmd, mediaId);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        // watchdog: draait de body nooit (request mislukt na open()), dan proces en permit alsnog vrijgeven
+        CompletableFuture.delayedExecutor(bodyStartTimeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (started.claimed().compareAndSet(false, true)) {
+                LOGGER.warn("Preview body not started within {} media={}; abandoning", bodyStartTimeout, mediaId);
+                finish(started);
+            }
+        });
+        StreamingResponseBody body = out -> {
+            if (!started.claimed().compareAndSet(false, true)) {
+                throw new IOException("Preview expired before streaming started");
+            }
+            stream(started, mediaId, out);
+        };
+        return new Preview(webm ? VIDEO_WEBM : VIDEO_MP4, snappedMs, endMs, body);
+    }
+
+    /** Stream copy kan alleen op keyframes beginnen; start daarom op het keyframe ervoor. */
+    static long snapToKeyframe(ContainerInfo info, long startMs) {
+        if (info == null) return startMs;
+        long kf = info.keyframeAtOrBefore(startMs * 1000L);
+        return kf >= 0 ? Math.min(startMs, kf / 1000L) : startMs;
+    }
+
+    static List<String> buildCommand(String ffmpegBin, Path src, long startMs, long endMs, boolean webm) {
+        List<String> cmd = new ArrayList<>(List.of(
+                ffmpegBin, "-hide_banner", "-loglevel", "error", "-nostdin",
+                "-ss", String.format(Locale.ROOT, "%.3f", startMs / 1000.0),
+                "-i", src.toAbsolutePath().toString(),
+                "-t", String.format(Locale.ROOT, "%.3f", (endMs - startMs) / 1000.0),
+                "-map", "0:v:0?", "-map", "0:a:0?",
+                "-c", "copy",
+                "-avoid_negative_ts", "make_zero"
+        ));
+        if (webm) {
+            cmd.addAll(List.of("-f", "webm"));
+        } else {
+            // fragmented MP4: moov vooraan, speelbaar terwijl het nog binnenkomt
+            cmd.addAll(List.of("-movflags", "frag_keyframe+empty_moov+default_base_moof", "-f", "mp4"));
+        }
+        cmd.add("pipe:1");
+        return cmd;
+    }
+
+    /**
+     * Starts ffmpeg and blocks until its first output (container header) or its exit, bounded by
+     * {@link #FIRST_OUTPUT_TIMEOUT_MS}; at this point no response byte has been written yet.
+     */
+    private Started start(List<String> cmd, UUID mediaId) {
+        Process p;
+        try {
+            p = new ProcessBuilder(cmd).start();
+        } catch (IOException e) {
+            LOGGER.warn("Preview ffmpeg start failed media={} err={}", mediaId, e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "PREVIEW_FAILED", e);
+        }
+        StringBuilder err = new StringBuilder();
+        Thread errReader = new Thread(() -> {
+            try (var br = new BufferedReader(new InputStreamReader(p.getErrorStream()))) {
+                br.lines().forEach(line -> err.append(line).append('\n'));
+            } catch (Exception ignore) {}
+        }, "preview-stderr");
+        errReader.setDaemon(true);
+        errReader.start();
+
+        AtomicBoolean gotOutput = new AtomicBoolean(false);
+        CompletableFuture.delayedExecutor(FIRST_OUTPUT_TIMEOUT_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!gotOutput.get()) p.destroyForcibly();
+        });
+        InputStream in = p.getInputStream();
+        byte[] head = new byte[HEAD_BYTES];
+        int n;
+        try {
+            n = in.read(head);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n <= 0) {
+            p.destroyForcibly();
+            joinQuietly(errReader);
+            LOGGER.warn("Preview ffmpeg produced no output media={} err={}", mediaId, err.toString().trim());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "PREVIEW_FAILED");
+        }
+        gotOutput.set(true);
+        return new Started(p, in, head, n, err, errReader, new AtomicBoolean(false), new AtomicBoolean(false));
+    }
+
+    private void stream(Started started, UUID mediaId, java.io.OutputStream out) throws IOException {
+        Process p = started.process();
+        long bytes = started.headLength();
+        try (InputStream in = started.in()) {
+            out.write(started.head(), 0, started.headLength());
+            bytes += in.transferTo(out);
+            out.flush();
+            if (!p.waitFor(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("Preview ffmpeg did not exit media={}", mediaId);
+            } else if (p.exitValue() != 0) {
+                joinQuietly(started.errReader());
+                LOGGER.warn("Preview ffmpeg exit={} media={} err={}", p.exitValue(), mediaId, started.err().toString().trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // client kan halverwege afhaken (IOException op out); ffmpeg dan direct stoppen
+            finish(started);
+            LOGGER.debug("Preview media={} streamed {} bytes", mediaId, bytes);
+        }
+    }
+
+    /** Stopt ffmpeg en geeft de permit vrij; idempotent tussen body en watchdog. */
+    private void finish(Started started) {
+        if (!started.finished().compareAndSet(false, true)) return;
+        Process p = started.process();
+        if (p.isAlive()) p.destroyForcibly();
+        try {
+            started.in().close();
+        } catch (IOException ignore) {}
+        permits.release();
+    }
+
+    private static void joinQuietly(Thread t) {
+        try {
+            t.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Path resolveSource(Media media) {
+        if (media.getObjectKey() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "RAW_NOT_AVAILABLE");
+        }
+        Path src = storage.resolveRaw(media.getObjectKey());
+        if (media.getObjectKey().toLowerCase(Locale.ROOT).endsWith(".m4a")) {
+            Path mp4Sibling = src.getParent().resolve("source.mp4");
+            if (Files.isRegularFile(mp4Sibling)) src = mp4Sibling;
+        }
+        if (!Files.isRegularFile(src)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "RAW_NOT_AVAILABLE");
+        }
+        return src;
+    }
+
+    /**
+     * WebM alleen als de gemapte streams WebM-codecs zijn (VP8/VP9/AV1 + Opus/Vorbis); H.264/AAC in Matroska
+     * kan niet als WebM gekopieerd worden en gaat als fMP4.
+     */
+    static boolean useWebm(ContainerInfo info, Path src) {
+        if (info != null && !info.streams().isEmpty()) {
+            if (!"webm".equals(info.container()) && !"matroska".equals(info.container())) return false;
+            ContainerInfo.StreamInfo video = info.firstVideo();
+            ContainerInfo.StreamInfo audio = info.streams().stream()
+                    .filter(ContainerInfo.StreamInfo::isAudio).findFirst().orElse(null);
+            return (video == null || codecIn(video, WEBM_VIDEO_CODECS)) && (audio == null || codecIn(audio, WEBM_AUDIO_CODECS));
+        }
+        // zonder codec-info: .webm draagt per definitie WebM-codecs, .mkv meestal H.264/AAC
+        return src.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".webm");
+    }
+
+    private static boolean codecIn(ContainerInfo.StreamInfo stream, Set<String> codecs) {
+        return stream.codec() != null && codecs.contains(stream.codec().toUpperCase(Locale.ROOT));
+    }
+}
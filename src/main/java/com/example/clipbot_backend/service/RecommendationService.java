@@ -1,11 +1,14 @@
 package com.example.clipbot_backend.service;
 
 import com.example.clipbot_backend.dto.ClipSummary;
+import com.example.clipbot_backend.dto.MultiRecommendationResult;
+import com.example.clipbot_backend.dto.RecommendationProfile;
 import com.example.clipbot_backend.dto.RecommendationResult;
 import jakarta.annotation.Nullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -25,6 +28,17 @@ public interface RecommendationService {
      */
     RecommendationResult computeRecommendations(UUID mediaId, int topN, @Nullable Map<String, Object> profile, boolean enqueueRender);
 
+    /**
+     * Computes recommendations for several target profiles in one pass. The transcript, segments and candidate
+     * windows are loaded and built once; only weighting and top-N selection run per profile.
+     *
+     * @param mediaId       media identifier.
+     * @param profiles      target profiles, at least one.
+     * @param enqueueRender whether render jobs need to be enqueued immediately.
+     * @return one result per profile, in request order.
+     */
+    MultiRecommendationResult computeRecommendations(UUID mediaId, List<RecommendationProfile> profiles, boolean enqueueRender);
+
     /**
      * Lists stored recommendations for a media item.
      *
@@ -1,24 +1,118 @@
 package com.example.clipbot_backend.service;
 
+import com.example.clipbot_backend.config.AdaptiveEncodeProperties;
 import com.example.clipbot_backend.config.BrandProperties;
+import com.example.clipbot_backend.config.WorkerExecutorProperties;
 import com.example.clipbot_backend.dto.RenderSpec;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.model.PlanTier;
+import com.example.clipbot_backend.model.RenderStats;
+import com.example.clipbot_backend.repository.JobRepository;
+import com.example.clipbot_backend.repository.RenderStatsRepository;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Resolves the effective render profile and watermark settings based on entitlements.
+ * Resolves the effective render profile and watermark settings based on entitlements, and picks the
+ * x264 preset/CRF for clip renders from current CLIP queue depth and measured encode speed.
  */
 @Component
 public class RenderProfileResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(RenderProfileResolver.class);
+
+    /** x264 presets van snel naar langzaam. */
+    static final List<String> PRESETS = List.of("ultrafast", "superfast", "veryfast", "faster", "fast", "medium", "slow");
+    /** Startwaarden (ms wall-time per output-seconde van een {@link #REFERENCE_PIXELS}-frame) zolang er nog geen metingen zijn. */
+    private static final Map<String, Double> PRIOR_MS_PER_SEC = Map.of(
+            "ultrafast", 150.0, "superfast", 200.0, "veryfast", 300.0, "faster", 450.0,
+            "fast", 600.0, "medium", 850.0, "slow", 1500.0);
+    /** Metingen zijn genormaliseerd naar {@link #REFERENCE_PIXELS}; eigen prefix zodat oude, gemengde gemiddelden niet meetellen. */
+    private static final String STATS_PREFIX = "x264px:";
+    private static final double EWMA_ALPHA = 0.2;
+    /** Elke CLIP-job encodeert twee keer: de ondertitelde clip en de clean master. */
+    private static final int ENCODES_PER_CLIP_JOB = 2;
+    /** Profielen die lazy uit de master worden afgeleid (zie FfmpegClipRenderEngine.applyProfile). */
+    public static final List<String> RENDITION_PROFILES = List.of("tiktok-9x16", "youtube-1080p", "youtube-720p");
+    public static final String MASTER_PROFILE = "master";
+    private static final int MASTER_LONG_SIDE = 1920;
+    private static final int MASTER_SHORT_SIDE = 1080;
+    /** Master krijgt iets lagere CRF: renditions her-encoden hem nog een keer. */
+    private static final int MASTER_CRF_BONUS = 2;
+    private static final int MASTER_MIN_CRF = 16;
+    /**
+     * Referentie-framegrootte van de snelheidsschatting: gemiddelde van de ondertitelde clip (RenderSpec.DEFAULT)
+     * en een master op maximale grootte, zodat één meting per preset beide encodes van een CLIP-job dekt.
+     */
+    private static final long REFERENCE_PIXELS =
+            ((long) RenderSpec.DEFAULT.width() * RenderSpec.DEFAULT.height() + (long) MASTER_LONG_SIDE * MASTER_SHORT_SIDE) / 2;
+
     private final BrandProperties brandProperties;
+    private final @Nullable AdaptiveEncodeProperties adaptive;
+    private final @Nullable JobRepository jobRepository;
+    private final @Nullable RenderStatsRepository renderStatsRepository;
+    private final int clipConcurrency;
+    private final Map<String, Double> msPerSecond = new ConcurrentHashMap<>();
 
     public RenderProfileResolver(BrandProperties brandProperties) {
+        this(brandProperties, null, null, null, null);
+    }
+
+    @Autowired
+    public RenderProfileResolver(BrandProperties brandProperties,
+                                 @Nullable AdaptiveEncodeProperties adaptive,
+                                 @Nullable JobRepository jobRepository,
+                                 @Nullable RenderStatsRepository renderStatsRepository,
+                                 @Nullable WorkerExecutorProperties workerProperties) {
         this.brandProperties = brandProperties;
+        this.adaptive = adaptive;
+        this.jobRepository = jobRepository;
+        this.renderStatsRepository = renderStatsRepository;
+        this.clipConcurrency = workerProperties != null ? Math.max(1, workerProperties.getClip().getMaxConcurrency()) : 1;
+    }
+
+    /**
+     * Chosen encoder settings for one clip render.
+     *
+     * @param preset           x264 preset.
+     * @param crf              x264 constant rate factor.
+     * @param queueDepth       QUEUED CLIP jobs at decision time.
+     * @param estimatedDrainSec estimated seconds to drain the queue with the chosen preset.
+     */
+    public record EncoderChoice(String preset, int crf, long queueDepth, double estimatedDrainSec) {}
+
+    /**
+     * Spec for the per-clip master: keeps the source aspect ratio (no pad) so every rendition profile can be
+     * derived from it with a scale/pad pass, capped at 1920 on the long and 1080 on the short side.
+     *
+     * @param info   probed container info of the source (nullable, falls back to 1920x1080).
+     * @param crf    CRF picked for the clip render; the master is encoded slightly better.
+     * @param preset x264 preset picked for the clip render.
+     * @return master render spec.
+     */
+    public static RenderSpec masterSpec(@Nullable ContainerInfo info, int crf, String preset) {
+        int w = MASTER_LONG_SIDE;
+        int h = MASTER_SHORT_SIDE;
+        ContainerInfo.StreamInfo video = info != null ? info.firstVideo() : null;
+        if (video != null && video.width() != null && video.height() != null && video.width() > 0 && video.height() > 0) {
+            int srcLong = Math.max(video.width(), video.height());
+            int srcShort = Math.min(video.width(), video.height());
+            double scale = Math.min(1.0, Math.min((double) MASTER_LONG_SIDE / srcLong, (double) MASTER_SHORT_SIDE / srcShort));
+            w = Math.max(144, (int) Math.round(video.width() * scale / 2.0) * 2);
+            h = Math.max(144, (int) Math.round(video.height() * scale / 2.0) * 2);
+        }
+        RenderSpec d = RenderSpec.DEFAULT;
+        return new RenderSpec(w, h, d.fps(), Math.max(MASTER_MIN_CRF, crf - MASTER_CRF_BONUS), preset, MASTER_PROFILE,
+                Boolean.FALSE, null);
     }
 
     /**
@@ -53,4 +147,92 @@ public class RenderProfileResolver {
         return resolved;
     }
 
+    /**
+     * Picks the slowest (best compressing) preset within the plan bounds that still drains the CLIP
+     * queue within the target time, and scales CRF from the plan's best to worst value with queue pressure.
+     *
+     * @param tier        plan tier of the clip owner (nullable, falls back to TRIAL bounds).
+     * @param clipSeconds duration of the clip to render, used as proxy for the average queued clip.
+     * @return encoder choice; {@link RenderSpec#DEFAULT} values when adaptive selection is disabled.
+     */
+    public EncoderChoice chooseEncoder(@Nullable PlanTier tier, double clipSeconds) {
+        if (adaptive == null || !adaptive.isEnabled() || jobRepository == null) {
+            return new EncoderChoice(RenderSpec.DEFAULT.preset(), RenderSpec.DEFAULT.crf(), 0, 0);
+        }
+        AdaptiveEncodeProperties.Bounds bounds = adaptive.boundsFor(tier);
+        int fastest = presetIndex(bounds.getFastestPreset(), 2);
+        int slowest = Math.max(fastest, presetIndex(bounds.getSlowestPreset(), 4));
+        long queueDepth = jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED);
+        double target = Math.max(1, adaptive.getTargetDrainSeconds());
+        double secs = Math.max(1.0, clipSeconds);
+
+        int chosen = fastest;
+        double drain = drainSeconds(PRESETS.get(fastest), queueDepth, secs);
+        for (int i = slowest; i >= fastest; i--) {
+            double d = drainSeconds(PRESETS.get(i), queueDepth, secs);
+            if (d <= target) {
+                chosen = i;
+                drain = d;
+                break;
+            }
+        }
+        double pressure = Math.min(1.0, drain / target);
+        int crf = bounds.getMinCrf() + (int) Math.round(pressure * (bounds.getMaxCrf() - bounds.getMinCrf()));
+        EncoderChoice choice = new EncoderChoice(PRESETS.get(chosen), crf, queueDepth, drain);
+        LOGGER.debug("RenderProfileResolver encoder tier={} queue={} preset={} crf={} drainSec={}",
+                tier, queueDepth, choice.preset(), crf, String.format(java.util.Locale.ROOT, "%.1f", drain));
+        return choice;
+    }
+
+    /**
+     * Feeds a finished encode back into the per-preset speed estimate (EWMA, persisted in {@code render_stats}).
+     * The sample is scaled by pixel count to a reference frame, so master (up to 1920x1080) and 1280x720 clip
+     * encodes share one estimate.
+     *
+     * @param preset   x264 preset used.
+     * @param width    output width of the encode.
+     * @param height   output height of the encode.
+     * @param outputMs duration of the rendered output.
+     * @param wallMs   wall-clock time of the ffmpeg encode alone; ignored when 0 (not measured).
+     */
+    public void recordEncode(String preset, int width, int height, long outputMs, long wallMs) {
+        if (preset == null || width <= 0 || height <= 0 || outputMs <= 0 || wallMs <= 0) return;
+        double sample = wallMs * 1000.0 / outputMs * REFERENCE_PIXELS / ((double) width * height);
+        double updated = msPerSecond.merge(preset, sample, (old, x) -> old + EWMA_ALPHA * (x - old));
+        if (renderStatsRepository == null) return;
+        try {
+            String kind = STATS_PREFIX + preset;
+            RenderStats stats = renderStatsRepository.findByKind(kind).orElseGet(() -> new RenderStats(kind, 0L, 0L));
+            stats.setAvgMs(Math.round(updated));
+            stats.setCount(stats.getCount() + 1);
+            renderStatsRepository.save(stats);
+        } catch (Exception e) {
+            LOGGER.warn("RenderProfileResolver could not persist encode stats preset={} err={}", preset, e.toString());
+        }
+    }
+
+    private double drainSeconds(String preset, long queueDepth, double clipSeconds) {
+        return (queueDepth + 1) * ENCODES_PER_CLIP_JOB * clipSeconds * msPerSecondFor(preset) / 1000.0 / clipConcurrency;
+    }
+
+    private double msPerSecondFor(String preset) {
+        Double known = msPerSecond.get(preset);
+        if (known != null) return known;
+        if (renderStatsRepository != null) {
+            try {
+                var stats = renderStatsRepository.findByKind(STATS_PREFIX + preset);
+                if (stats.isPresent() && stats.get().getAvgMs() > 0) {
+                    return msPerSecond.computeIfAbsent(preset, k -> (double) stats.get().getAvgMs());
+                }
+            } catch (Exception e) {
+                LOGGER.debug("RenderProfileResolver stats lookup failed preset={} err={}", preset, e.toString());
+            }
+        }
+        return PRIOR_MS_PER_SEC.getOrDefault(preset, 600.0);
+    }
+
+    private static int presetIndex(String preset, int fallback) {
+        int idx = preset != null ? PRESETS.indexOf(preset.toLowerCase(java.util.Locale.ROOT)) : -1;
+        return idx >= 0 ? idx : fallback;
+    }
 }
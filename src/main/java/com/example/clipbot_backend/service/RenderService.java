@@ -1,6 +1,7 @@
 package com.example.clipbot_backend.service;
 
 import com.example.clipbot_backend.dto.RenderSpec;
+import com.example.clipbot_backend.dto.LoudnessProfile;
 import com.example.clipbot_backend.dto.RenderResult;
 import com.example.clipbot_backend.dto.render.SubtitleStyle;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
@@ -14,6 +15,8 @@ import com.example.clipbot_backend.util.JobType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +29,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class RenderService {
@@ -37,6 +48,11 @@ public class RenderService {
     private final StorageService storageService;
     private final ClipRenderEngine renderEngine;
     private final ObjectMapper objectMapper;
+    /** Single-flight per rendition key: gelijktijdige requests wachten op één transcode. */
+    private final ConcurrentHashMap<String, CompletableFuture<Asset>> renditionsInFlight = new ConcurrentHashMap<>();
+    /** Transcodes draaien buiten de request-thread; het aantal permits begrenst gelijktijdige ffmpeg-processen. */
+    private final Semaphore renditionPermits;
+    private final ExecutorService renditionExecutor;
 
     public RenderService(ClipRepository clipRepo,
                          AssetRepository assetRepo,
@@ -44,12 +60,31 @@ public class RenderService {
                          StorageService storageService,
                          ClipRenderEngine renderEngine,
                          ObjectMapper objectMapper) {
+        this(clipRepo, assetRepo, jobService, storageService, renderEngine, objectMapper, 2);
+    }
+
+    @Autowired
+    public RenderService(ClipRepository clipRepo,
+                         AssetRepository assetRepo,
+                         JobService jobService,
+                         StorageService storageService,
+                         ClipRenderEngine renderEngine,
+                         ObjectMapper objectMapper,
+                         @Value("${render.rendition.maxConcurrent:2}") int maxConcurrentRenditions) {
         this.clipRepo = clipRepo;
         this.assetRepo = assetRepo;
         this.jobService = jobService;
         this.storageService = storageService;
         this.renderEngine = renderEngine;
         this.objectMapper = objectMapper;
+        int slots = Math.max(1, maxConcurrentRenditions);
+        this.renditionPermits = new Semaphore(slots);
+        AtomicInteger seq = new AtomicInteger();
+        this.renditionExecutor = Executors.newFixedThreadPool(slots, r -> {
+            Thread t = new Thread(r, "rendition-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public UUID enqueueExportWithStyle(UUID clipId, SubtitleStyle style, String profile) {
@@ -94,7 +129,9 @@ public class RenderService {
                     RenderSpec.DEFAULT.crf(), RenderSpec.DEFAULT.preset(), profile, Boolean.FALSE, null)
                     : RenderSpec.DEFAULT;
 
-            RenderResult result = renderEngine.renderStyled(inputPath, subtitlePath, startMs, endMs, spec, style);
+            // de clean master is al genormaliseerd; alleen vanaf de raw bron de gemeten loudness toepassen
+            LoudnessProfile loudness = cleanPath.isPresent() || clip.getMedia() == null ? null : clip.getMedia().getLoudnessProfile();
+            RenderResult result = renderEngine.renderStyled(inputPath, subtitlePath, startMs, endMs, spec, style, loudness);
             persistExportAsset(clip, result);
             jobService.markDone(job.getId(), Map.of("mp4Key", result.mp4Key()));
         } catch (Exception e) {
@@ -103,6 +140,111 @@ public class RenderService {
         }
     }
 
+    /**
+     * Returns the rendition of a clip for the given profile once it exists; otherwise starts deriving it from the
+     * clip's clean master in the background. Concurrent requests for the same clip/profile share one transcode.
+     *
+     * @param clipId  clip identifier.
+     * @param profile one of {@link RenderProfileResolver#RENDITION_PROFILES}.
+     * @return persisted rendition asset, or empty while it is being transcoded or no transcode slot is free.
+     */
+    public Optional<Asset> requestRendition(UUID clipId, String profile) {
+        Objects.requireNonNull(clipId, "clipId");
+        if (profile == null || !RenderProfileResolver.RENDITION_PROFILES.contains(profile)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "UNKNOWN_PROFILE");
+        }
+        Clip clip = clipRepo.findByIdWithMedia(clipId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "CLIP_NOT_FOUND"));
+        String key = renditionKey(clipId, profile);
+        Optional<Asset> cached = findRendition(clip, key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        CompletableFuture<Asset> running = renditionsInFlight.get(key);
+        if (running != null) {
+            return pollRendition(key, running);
+        }
+
+        Path master = resolveCleanPath(clip)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "MASTER_NOT_AVAILABLE"));
+        if (!renditionPermits.tryAcquire()) {
+            // alle slots bezet: client probeert het na Retry-After opnieuw
+            return Optional.empty();
+        }
+        CompletableFuture<Asset> flight = new CompletableFuture<>();
+        running = renditionsInFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            renditionPermits.release();
+            return pollRendition(key, running);
+        }
+        try {
+            renditionExecutor.execute(() -> runRendition(clip, profile, key, master, flight));
+        } catch (RejectedExecutionException e) {
+            renditionPermits.release();
+            renditionsInFlight.remove(key, flight);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "RENDITION_UNAVAILABLE", e);
+        }
+        return Optional.empty();
+    }
+
+    static String renditionKey(UUID clipId, String profile) {
+        return "clips/renditions/" + clipId + "/" + profile + ".mp4";
+    }
+
+    private Optional<Asset> findRendition(Clip clip, String key) {
+        return assetRepo.findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_RENDITION, key)
+                .filter(asset -> storageService.existsInOut(asset.getObjectKey()));
+    }
+
+    private void runRendition(Clip clip, String profile, String key, Path master, CompletableFuture<Asset> flight) {
+        try {
+            // vorige flight kan net klaar zijn tussen lookup en putIfAbsent
+            Asset asset = findRendition(clip, key).orElseGet(() -> transcodeRendition(clip, profile, key, master));
+            flight.complete(asset);
+            renditionsInFlight.remove(key, flight);
+        } catch (RuntimeException e) {
+            // mislukte flight blijft staan tot de volgende poll de fout ophaalt; daarna mag een nieuwe poging
+            flight.completeExceptionally(e);
+        } finally {
+            renditionPermits.release();
+        }
+    }
+
+    private Optional<Asset> pollRendition(String key, CompletableFuture<Asset> flight) {
+        if (!flight.isDone()) {
+            return Optional.empty();
+        }
+        if (flight.isCompletedExceptionally()) {
+            renditionsInFlight.remove(key, flight);
+        }
+        return Optional.of(awaitRendition(flight));
+    }
+
+    private Asset transcodeRendition(Clip clip, String profile, String key, Path master) {
+        RenderSpec spec = new RenderSpec(null, null, null, null, null, profile, Boolean.FALSE, null);
+        try {
+            RenderResult result = renderEngine.renderRendition(master, spec, key);
+            Asset asset = new Asset(clip.getMedia().getOwner(), AssetKind.CLIP_MP4_RENDITION, result.mp4Key(), result.mp4Size());
+            asset.setRelatedClip(clip);
+            asset.setRelatedMedia(clip.getMedia());
+            return assetRepo.save(asset);
+        } catch (Exception e) {
+            LOGGER.error("Rendition failed clip={} profile={} reason={}", clip.getId(), profile, e.toString(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "RENDITION_FAILED", e);
+        }
+    }
+
+    private static Asset awaitRendition(CompletableFuture<Asset> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "RENDITION_FAILED", e.getCause());
+        }
+    }
+
     private void ensureSubtitlesAvailable(Clip clip) {
         boolean hasSubs = assetRepo.findTopByRelatedClipAndKindOrderByCreatedAtDesc(clip, AssetKind.SUB_VTT).isPresent()
                 || assetRepo.findTopByRelatedClipAndKindOrderByCreatedAtDesc(clip, AssetKind.SUB_SRT).isPresent();
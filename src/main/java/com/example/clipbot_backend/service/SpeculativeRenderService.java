@@ -0,0 +1,397 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.config.SpeculativeRenderProperties;
+import com.example.clipbot_backend.dto.LoudnessProfile;
+import com.example.clipbot_backend.dto.RenderOptions;
+import com.example.clipbot_backend.dto.RenderResult;
+import com.example.clipbot_backend.dto.RenderSpec;
+import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.PlanTier;
+import com.example.clipbot_backend.model.RenderStats;
+import com.example.clipbot_backend.model.Segment;
+import com.example.clipbot_backend.model.SpeculativeRender;
+import com.example.clipbot_backend.repository.JobRepository;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.RenderStatsRepository;
+import com.example.clipbot_backend.repository.SpeculativeRenderRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-renders clean versions of the top-scored segments of freshly detected media while no clip render is
+ * queued or running, so a later explicit render of the same range can reuse the output.
+ * Tracks the hit rate (explicit clean renders served from cache) and the share of speculative render time
+ * that was never claimed.
+ * <p>
+ * The ffmpeg child process runs at normal OS priority; the low Java thread priority only affects the thread that
+ * waits on it. Instead, a running speculative encode is cancelled (and its ffmpeg process killed) on the first
+ * tick that sees a render job queued or running. A segment whose render fails is retried with exponential backoff
+ * and skipped after {@value #MAX_FAILED_ATTEMPTS} failures.
+ */
+@Service
+public class SpeculativeRenderService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpeculativeRenderService.class);
+    static final String STATS_HIT = "speculative:hit";
+    static final String STATS_MISS = "speculative:miss";
+    static final String STATS_RENDER = "speculative:render";
+    static final String STATS_WASTED = "speculative:wasted";
+    /** Job-types die een render-slot gebruiken; zolang er één queued of running is, wacht speculatief renderen. */
+    private static final List<JobType> RENDER_JOB_TYPES = List.of(JobType.CLIP, JobType.RENDER_CLEAN, JobType.EXPORT);
+    static final int MAX_FAILED_ATTEMPTS = 3;
+    /** Wachttijd na de eerste mislukte render van een segment; verdubbelt per volgende poging. */
+    private static final long FAILURE_BACKOFF_MS = 60_000L;
+
+    /** Mislukte renders van één segment en het vroegste moment voor een nieuwe poging. */
+    private record Failure(int attempts, long retryAtMs) {}
+
+    /**
+     * Snapshot of the speculative render counters since start-up.
+     *
+     * @param hits        explicit clean renders served from cache.
+     * @param misses      explicit clean renders that had to encode.
+     * @param renderedMs  total encode time spent on speculative renders.
+     * @param wastedMs    encode time of speculative renders that expired unclaimed.
+     */
+    public record Stats(long hits, long misses, long renderedMs, long wastedMs) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public double wastedShare() {
+            return renderedMs == 0 ? 0.0 : (double) wastedMs / renderedMs;
+        }
+    }
+
+    private final SpeculativeRenderProperties properties;
+    private final SpeculativeRenderRepository cacheRepo;
+    private final MediaRepository mediaRepo;
+    private final SegmentService segmentService;
+    private final JobRepository jobRepository;
+    private final RenderStatsRepository renderStatsRepository;
+    private final RenderProfileResolver renderProfileResolver;
+    private final ClipRenderEngine renderEngine;
+    private final StorageService storage;
+
+    private final ConcurrentLinkedDeque<UUID> pending = new ConcurrentLinkedDeque<>();
+    private final Set<UUID> pendingSet = ConcurrentHashMap.newKeySet();
+    /** Per media: mislukte renders per segment-id. */
+    private final Map<UUID, Map<UUID, Failure>> failures = new ConcurrentHashMap<>();
+    private Future<?> inFlight;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "speculative-render");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renderedMs = new AtomicLong();
+    private final AtomicLong wastedMs = new AtomicLong();
+
+    public SpeculativeRenderService(SpeculativeRenderProperties properties,
+                                    SpeculativeRenderRepository cacheRepo,
+                                    MediaRepository mediaRepo,
+                                    SegmentService segmentService,
+                                    JobRepository jobRepository,
+                                    RenderStatsRepository renderStatsRepository,
+                                    RenderProfileResolver renderProfileResolver,
+                                    ClipRenderEngine renderEngine,
+                                    StorageService storage) {
+        this.properties = properties;
+        this.cacheRepo = cacheRepo;
+        this.mediaRepo = mediaRepo;
+        this.segmentService = segmentService;
+        this.jobRepository = jobRepository;
+        this.renderStatsRepository = renderStatsRepository;
+        this.renderProfileResolver = renderProfileResolver;
+        this.renderEngine = renderEngine;
+        this.storage = storage;
+    }
+
+    /**
+     * Queues a media whose segments were just persisted as a candidate for speculative rendering.
+     *
+     * @param mediaId media identifier.
+     */
+    public void offer(UUID mediaId) {
+        if (!properties.isEnabled() || mediaId == null) return;
+        if (!pendingSet.add(mediaId)) return;
+        pending.addLast(mediaId);
+        while (pending.size() > Math.max(1, properties.getMaxPendingMedia())) {
+            UUID dropped = pending.pollFirst();
+            if (dropped != null) {
+                pendingSet.remove(dropped);
+                failures.remove(dropped);
+            }
+        }
+    }
+
+    /**
+     * Renders at most one speculative clip per tick, and only while render slots are idle. A speculative render
+     * that is still running when a render job shows up is cancelled.
+     * Runs on a dedicated single thread so the shared scheduler (worker poll) is never blocked.
+     */
+    @Scheduled(fixedDelayString = "${render.speculative.pollMs:5000}")
+    public synchronized void tick() {
+        if (!properties.isEnabled()) return;
+        if (inFlight != null && !inFlight.isDone()) {
+            // een echte render heeft voorrang: interrupt laat de engine het ffmpeg-proces killen
+            if (!renderSlotsIdle() && inFlight.cancel(true)) {
+                LOGGER.info("Speculative render cancelled: render job waiting");
+            }
+            return;
+        }
+        if (pending.isEmpty() || !renderSlotsIdle()) return;
+        inFlight = executor.submit(() -> {
+            try {
+                renderNext();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.warn("Speculative render failed: {}", e.toString());
+            }
+        });
+    }
+
+    /**
+     * Takes over a cached clean render for the exact range, if one exists. Every call counts as a hit or a miss.
+     *
+     * @param mediaId media identifier.
+     * @param startMs range start in milliseconds.
+     * @param endMs   range end in milliseconds.
+     * @param spec    render spec of the explicit render.
+     * @return cached render result when available.
+     */
+    public Optional<RenderResult> claim(UUID mediaId, long startMs, long endMs, RenderSpec spec) {
+        if (!properties.isEnabled()) return Optional.empty();
+        try {
+            var hit = cacheRepo.findByMediaIdAndStartMsAndEndMsAndSpecKey(mediaId, startMs, endMs, specKey(spec))
+                    .filter(e -> e.getClaimedAt() == null)
+                    .filter(e -> storage.existsInOut(e.getObjectKey()));
+            if (hit.isEmpty()) {
+                misses.incrementAndGet();
+                bumpStats(STATS_MISS, 0L);
+                return Optional.empty();
+            }
+            SpeculativeRender entry = hit.get();
+            if (cacheRepo.markClaimed(entry.getId()) == 0) {
+                // parallelle render van dezelfde range was ons voor
+                misses.incrementAndGet();
+                bumpStats(STATS_MISS, 0L);
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            bumpStats(STATS_HIT, entry.getRenderMs());
+            LOGGER.info("Speculative render hit media={} range={}-{} savedMs={}", mediaId, startMs, endMs, entry.getRenderMs());
+            return Optional.of(new RenderResult(entry.getObjectKey(), entry.getSizeBytes(), null, 0L));
+        } catch (Exception e) {
+            LOGGER.warn("Speculative cache lookup failed media={} err={}", mediaId, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Deletes renders older than the TTL. Unclaimed ones lose their output and count as wasted render time.
+     */
+    @Scheduled(fixedDelayString = "${render.speculative.evictMs:600000}")
+    public void evictExpired() {
+        if (!properties.isEnabled()) return;
+        List<SpeculativeRender> expired = cacheRepo.findByCreatedAtBefore(Instant.now().minus(properties.getTtl()));
+        for (SpeculativeRender entry : expired) {
+            if (entry.getClaimedAt() == null) {
+                try {
+                    storage.deleteOut(entry.getObjectKey());
+                } catch (Exception e) {
+                    LOGGER.debug("Speculative evict delete failed key={} err={}", entry.getObjectKey(), e.toString());
+                }
+                wastedMs.addAndGet(entry.getRenderMs());
+                bumpStats(STATS_WASTED, entry.getRenderMs());
+            }
+            cacheRepo.delete(entry);
+        }
+        if (!expired.isEmpty()) {
+            Stats s = stats();
+            LOGGER.info("Speculative renders evicted={} hitRate={} wastedShare={}", expired.size(),
+                    String.format(Locale.ROOT, "%.2f", s.hitRate()), String.format(Locale.ROOT, "%.2f", s.wastedShare()));
+        }
+    }
+
+    /**
+     * Returns the counters since start-up; the persisted totals live in {@code render_stats}.
+     *
+     * @return current counters.
+     */
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), renderedMs.get(), wastedMs.get());
+    }
+
+    boolean renderSlotsIdle() {
+        for (JobType type : RENDER_JOB_TYPES) {
+            if (jobRepository.countByTypeAndStatus(type, JobStatus.QUEUED) > 0
+                    || jobRepository.countByTypeAndStatus(type, JobStatus.RUNNING) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void renderNext() throws Exception {
+        UUID mediaId = pending.peekFirst();
+        if (mediaId == null) return;
+
+        Media media = mediaRepo.findByIdWithOwner(mediaId).orElse(null);
+        Segment next = null;
+        RenderSpec spec = null;
+        boolean backingOff = false;
+        if (media != null) {
+            PlanTier tier = media.getOwner().getPlanTier();
+            Map<UUID, Failure> failed = failures.getOrDefault(mediaId, Map.of());
+            long now = System.currentTimeMillis();
+            for (Segment s : segmentService.topByScore(mediaId, Math.max(1, properties.getTopK()))) {
+                Failure f = failed.get(s.getId());
+                if (f != null && f.attempts() >= MAX_FAILED_ATTEMPTS) continue;
+                if (f != null && now < f.retryAtMs()) {
+                    backingOff = true;
+                    continue;
+                }
+                RenderSpec candidate = specFor(tier, media, s.getEndMs() - s.getStartMs());
+                if (!cacheRepo.existsByMediaIdAndStartMsAndEndMsAndSpecKey(mediaId, s.getStartMs(), s.getEndMs(), specKey(candidate))) {
+                    next = s;
+                    spec = candidate;
+                    break;
+                }
+            }
+        }
+        if (next == null) {
+            // alle top-K klaar of opgegeven (of media weg): volgende media; in backoff achteraan aansluiten
+            if (backingOff) moveToBack(mediaId);
+            else drop(mediaId);
+            return;
+        }
+
+        Path src = resolveSource(media);
+        if (src == null) {
+            drop(mediaId);
+            return;
+        }
+        // laatste check vlak voor de encode: een echte render heeft altijd voorrang
+        if (!renderSlotsIdle()) return;
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        LoudnessProfile loudness = media.getLoudnessProfile();
+        if (loudness != null) meta.put(LoudnessProfile.META_KEY, loudness.toMeta());
+        if (media.getContainerInfo() != null) meta.put("sourceAudioOnly", media.getContainerInfo().audioOnly());
+
+        long t0 = System.nanoTime();
+        RenderResult res;
+        try {
+            res = renderEngine.renderClean(src, next.getStartMs(), next.getEndMs(), new RenderOptions(spec, meta, null));
+        } catch (Exception e) {
+            // afgebroken voor een echte render is geen fout van het segment
+            if (!(e instanceof InterruptedException) && !Thread.currentThread().isInterrupted()) {
+                recordFailure(mediaId, next.getId());
+                moveToBack(mediaId);
+            }
+            throw e;
+        }
+        long wallMs = (System.nanoTime() - t0) / 1_000_000;
+        renderProfileResolver.recordEncode(spec.preset(), spec.width(), spec.height(),
+                next.getEndMs() - next.getStartMs(), res.encodeMs());
+
+        try {
+            cacheRepo.save(new SpeculativeRender(mediaId, next.getStartMs(), next.getEndMs(), specKey(spec),
+                    res.mp4Key(), res.mp4Size(), wallMs));
+        } catch (DataIntegrityViolationException e) {
+            // parallel al gecachet (andere node); eigen output opruimen
+            storage.deleteOut(res.mp4Key());
+            return;
+        }
+        renderedMs.addAndGet(wallMs);
+        bumpStats(STATS_RENDER, wallMs);
+        LOGGER.info("Speculative render media={} range={}-{} preset={} wallMs={}", mediaId, next.getStartMs(), next.getEndMs(), spec.preset(), wallMs);
+    }
+
+    private void recordFailure(UUID mediaId, UUID segmentId) {
+        failures.computeIfAbsent(mediaId, k -> new ConcurrentHashMap<>()).compute(segmentId, (k, f) -> {
+            int attempts = f == null ? 1 : f.attempts() + 1;
+            return new Failure(attempts, System.currentTimeMillis() + (FAILURE_BACKOFF_MS << (attempts - 1)));
+        });
+    }
+
+    private void moveToBack(UUID mediaId) {
+        if (pending.remove(mediaId)) pending.addLast(mediaId);
+    }
+
+    private void drop(UUID mediaId) {
+        pending.remove(mediaId);
+        pendingSet.remove(mediaId);
+        failures.remove(mediaId);
+    }
+
+    private RenderSpec specFor(PlanTier tier, Media media, long clipMs) {
+        // lege queue => resolver kiest de traagste (zuinigste) preset binnen het plan
+        var encoder = renderProfileResolver.chooseEncoder(tier, clipMs / 1000.0);
+        return RenderProfileResolver.masterSpec(media.getContainerInfo(), encoder.crf(), encoder.preset());
+    }
+
+    /**
+     * Cache key for a render spec. Preset and CRF are deliberately left out: a speculative render was made
+     * with an idle queue and is therefore at least as good as what a busy explicit render would pick.
+     */
+    static String specKey(RenderSpec spec) {
+        RenderSpec s = spec != null ? spec : RenderSpec.DEFAULT;
+        String profile = s.profile() != null ? s.profile() : RenderSpec.DEFAULT.profile();
+        Integer w = s.width() != null ? s.width() : RenderSpec.DEFAULT.width();
+        Integer h = s.height() != null ? s.height() : RenderSpec.DEFAULT.height();
+        return w + "x" + h + ":" + profile;
+    }
+
+    private Path resolveSource(Media media) {
+        if (media.getObjectKey() == null) return null;
+        Path src = storage.resolveRaw(media.getObjectKey());
+        if (media.getObjectKey().toLowerCase(Locale.ROOT).endsWith(".m4a")) {
+            Path mp4Sibling = src.getParent().resolve("source.mp4");
+            if (Files.isRegularFile(mp4Sibling)) src = mp4Sibling;
+        }
+        return Files.isRegularFile(src) ? src : null;
+    }
+
+    private void bumpStats(String kind, long ms) {
+        try {
+            RenderStats stats = renderStatsRepository.findByKind(kind).orElseGet(() -> new RenderStats(kind, 0L, 0L));
+            long count = stats.getCount() + 1;
+            // avgMs als lopend gemiddelde; totaal = avgMs * count
+            stats.setAvgMs(stats.getAvgMs() + (ms - stats.getAvgMs()) / count);
+            stats.setCount(count);
+            renderStatsRepository.save(stats);
+        } catch (Exception e) {
+            LOGGER.debug("Speculative stats persist failed kind={} err={}", kind, e.toString());
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.clipbot_backend.service;
 
 import com.example.clipbot_backend.dto.SubtitleFiles;
-import com.example.clipbot_backend.dto.WordsParser;
+import com.example.clipbot_backend.dto.WordTimeline;
 import com.example.clipbot_backend.model.Transcript;
 import com.example.clipbot_backend.service.Interfaces.StorageService;
 import com.example.clipbot_backend.service.Interfaces.SubtitleService;
+import com.example.clipbot_backend.util.TokenScan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -36,7 +37,7 @@ public class SubtitleServiceImpl implements SubtitleService {
             return null;
         }
 
-        List<WordsParser.WordAdapter> words = WordsParser.extract(transcript);
+        WordTimeline words = WordTimeline.of(transcript);
         if (words.isEmpty()) {
             LOGGER.debug("No words available for transcript {} – skipping subtitles", transcript.getId());
             return null;
@@ -75,19 +76,21 @@ public class SubtitleServiceImpl implements SubtitleService {
         }
     }
 
-    private static List<Cue> buildCues(List<WordsParser.WordAdapter> words, long clipStart, long clipEnd) {
+    private static List<Cue> buildCues(WordTimeline words, long clipStart, long clipEnd) {
         List<Cue> cues = new ArrayList<>();
         StringBuilder text = new StringBuilder();
         long cueStart = -1L;
         long cueEnd = -1L;
         long lastWordEnd = -1L;
 
-        for (WordsParser.WordAdapter word : words) {
-            long wordStart = Math.max(word.startMs, clipStart);
-            long wordEnd = Math.min(word.endMs, clipEnd);
-            if (wordEnd <= clipStart || wordStart >= clipEnd) {
+        int last = words.firstStartingAtOrAfter(clipEnd);
+        for (int i = words.firstEndingAfter(clipStart); i < last; i++) {
+            if (!words.overlaps(i, clipStart, clipEnd)) {
                 continue;
             }
+            long wordStart = Math.max(words.startMs(i), clipStart);
+            long wordEnd = Math.min(words.endMs(i), clipEnd);
+            String wordText = words.text(i);
 
             if (cueStart < 0) {
                 cueStart = wordStart;
@@ -96,10 +99,10 @@ public class SubtitleServiceImpl implements SubtitleService {
             if (text.length() > 0) {
                 text.append(' ');
             }
-            text.append(word.text);
+            text.append(wordText);
             cueEnd = Math.max(wordEnd, cueEnd);
 
-            boolean boundary = word.text != null && word.text.matches(".*[.!?]$");
+            boolean boundary = words.isSentenceFinal(i);
             boolean gap = lastWordEnd > 0 && (wordStart - lastWordEnd) > MAX_GAP_MS;
 
             if (boundary || gap) {
@@ -157,7 +160,7 @@ public class SubtitleServiceImpl implements SubtitleService {
             return "";
         }
 
-        String normalized = text.replaceAll("\\s+", " ").trim();
+        String normalized = TokenScan.collapseWhitespace(text);
         if (normalized.isEmpty() || normalized.length() <= MAX_LINE_CHARS) {
             return normalized;
         }
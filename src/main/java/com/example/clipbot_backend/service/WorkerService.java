@@ -2,6 +2,8 @@ package com.example.clipbot_backend.service;
 
 import com.example.clipbot_backend.config.WorkerExecutorProperties;
 import com.example.clipbot_backend.dto.*;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.engine.FfmpegLoudnessAnalyzer;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.engine.Interfaces.TranscriptionEngine;
@@ -13,6 +15,7 @@ import com.example.clipbot_backend.service.thumbnail.ThumbnailService;
 import com.example.clipbot_backend.service.IngestCleanupService;
 import com.example.clipbot_backend.util.AssetKind;
 import com.example.clipbot_backend.util.ClipStatus;
+import com.example.clipbot_backend.util.ContainerProbe;
 import com.example.clipbot_backend.util.JobType;
 import com.example.clipbot_backend.util.MediaStatus;
 import org.springframework.transaction.annotation.Transactional;
@@ -67,8 +70,11 @@ public class WorkerService {
     private final StorageService storage;
     private final SubtitleService subtitles;
     private final RenderService renderService;
+    private final FfmpegLoudnessAnalyzer loudnessAnalyzer;
+    private final SpeculativeRenderService speculativeRenders;
+    private final DetectNowStreams detectNowStreams;
 
-    public WorkerService(JobService jobService, TranscriptService transcriptService, MediaRepository mediaRepo, TranscriptRepository transcriptRepo, SegmentRepository segmentRepo, ClipRepository clipRepo, AssetRepository assetRepo, ProjectMediaRepository projectMediaRepository, UrlDownloader urlDownloader, FasterWhisperClient fastWhisperClient, AudioWindowService audioWindowService, DetectWorkflow detectWorkflow, ClipWorkFlow clipWorkFlow, ClipService clipService, ThumbnailService thumbnailService, IngestCleanupService ingestCleanupService, DetectionEngine detection, ClipRenderEngine renderEngine, StorageService storage, SubtitleService subtitles, RenderService renderService, @Qualifier("gptDiarizeEngine")TranscriptionEngine gptDiarizeEngine, @Qualifier("fasterWhisperEngine")TranscriptionEngine fasterWhisperEngine, @Qualifier("workerTaskExecutor") Executor workerExecutor, WorkerExecutorProperties workerProperties) {
+    public WorkerService(JobService jobService, TranscriptService transcriptService, MediaRepository mediaRepo, TranscriptRepository transcriptRepo, SegmentRepository segmentRepo, ClipRepository clipRepo, AssetRepository assetRepo, ProjectMediaRepository projectMediaRepository, UrlDownloader urlDownloader, FasterWhisperClient fastWhisperClient, AudioWindowService audioWindowService, DetectWorkflow detectWorkflow, ClipWorkFlow clipWorkFlow, ClipService clipService, ThumbnailService thumbnailService, IngestCleanupService ingestCleanupService, DetectionEngine detection, ClipRenderEngine renderEngine, StorageService storage, SubtitleService subtitles, RenderService renderService, @Qualifier("gptDiarizeEngine")TranscriptionEngine gptDiarizeEngine, @Qualifier("fasterWhisperEngine")TranscriptionEngine fasterWhisperEngine, @Qualifier("workerTaskExecutor") Executor workerExecutor, WorkerExecutorProperties workerProperties, FfmpegLoudnessAnalyzer loudnessAnalyzer, SpeculativeRenderService speculativeRenders, DetectNowStreams detectNowStreams) {
         this.jobService = jobService;
         this.transcriptService = transcriptService;
         this.mediaRepo = mediaRepo;
@@ -94,6 +100,9 @@ public class WorkerService {
         this.fasterWhisperEngine = fasterWhisperEngine;
         this.workerExecutor = workerExecutor;
         this.workerProperties = workerProperties;
+        this.loudnessAnalyzer = loudnessAnalyzer;
+        this.speculativeRenders = speculativeRenders;
+        this.detectNowStreams = detectNowStreams;
         this.clipSemaphore = new Semaphore(Math.max(1, workerProperties.getClip().getMaxConcurrency()));
         this.transcribeSemaphore = new Semaphore(Math.max(1, workerProperties.getTranscribe().getMaxConcurrency()));
         this.detectSemaphore = new Semaphore(Math.max(1, workerProperties.getDetect().getMaxConcurrency()));
@@ -111,6 +120,22 @@ public class WorkerService {
         jobs.forEach(this::submitJob);
     }
 
+    /**
+     * Fast path for interactive jobs: runs a job this node already claimed (see {@link JobService#enqueueClaimed})
+     * on the worker pool instead of waiting for the next poll. It does not queue behind the per-type semaphore:
+     * interactive jobs are bounded by their own time budget and by the worker pool.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when the worker pool and its queue are full.
+     */
+    public void runNow(Job job) {
+        workerExecutor.execute(() -> {
+            long t0 = System.nanoTime();
+            LOGGER.info("JOB START (now) jobId={} type={} media={}", job.getId(), job.getType(), mediaId(job));
+            boolean ok = runJob(job);
+            LOGGER.info("JOB {} (now) jobId={} type={} media={} in={}ms", ok ? "DONE" : "FAILED", job.getId(), job.getType(), mediaId(job), (System.nanoTime() - t0) / 1_000_000);
+        });
+    }
+
     private void submitJob(Job job) {
         workerExecutor.execute(() -> runJobWithSemaphore(job));
     }
@@ -230,9 +255,11 @@ public class WorkerService {
             }
         }
         rawReady = rawPath != null && Files.exists(rawPath);
-        ThumbnailService.ThumbnailRequest thumbRequest = buildThumbnailRequest(media.getId());
         Path preferred = preferredThumbnailSource(rawPath);
+        tryProbeContainer(media, preferred);
+        ThumbnailService.ThumbnailRequest thumbRequest = buildThumbnailRequest(media.getId());
         tryExtractThumbnail(thumbRequest, preferred);
+        tryMeasureLoudness(media, rawPath);
 
         long t0 = System.nanoTime();
 
@@ -312,12 +339,17 @@ public class WorkerService {
         }
         try {
             LOGGER.debug("detectWorkflow.start id={}", job.getId());
-            int count = detectWorkflow.run(mediaId, job.getPayload());
-            jobService.markDone(job.getId(), Map.of("segmentCount", count));
+            // segmenten gaan direct naar een eventuele DetectNow-stream; zonder kanaal is dit een no-op
+            DetectionResult result = detectWorkflow.run(mediaId, job.getPayload(),
+                    seg -> detectNowStreams.segment(job.getId(), seg));
+            Map<String, Object> summary = Map.of("segmentCount", result.segments().size(), "completed", result.completed());
+            jobService.markDone(job.getId(), summary);
+            detectNowStreams.done(job.getId(), summary);
             return true;
         } catch (Exception e) {
             LOGGER.error("DETECT {} failed: {}", job.getId(), e.toString(), e);
             jobService.markError(job.getId(), e.getMessage(), Map.of("stack", stackTop(e)));
+            detectNowStreams.failed(job.getId(), e.getMessage());
             return false;
         }
     }
@@ -377,6 +409,36 @@ public class WorkerService {
         }
     }
 
+    /** Leest de container-header eenmalig in-JVM, zodat render/detect niet opnieuw hoeven te proben. */
+    private void tryProbeContainer(Media media, Path source) {
+        if (source == null || media.getContainerInfo() != null) {
+            return;
+        }
+        ContainerInfo info = ContainerProbe.tryProbe(source);
+        if (info == null) {
+            LOGGER.debug("Container probe gave no result media={} path={}", media.getId(), source);
+            return;
+        }
+        media.setContainerInfo(info);
+        if ((media.getDurationMs() == null || media.getDurationMs() <= 0) && info.durationMs() > 0) {
+            media.setDurationMs(info.durationMs());
+        }
+        mediaRepo.save(media);
+    }
+
+    /** Eenmalige R128 meting per media; clips hergebruiken deze voor single-pass loudnorm. */
+    private void tryMeasureLoudness(Media media, Path rawPath) {
+        if (rawPath == null || media.getLoudnessProfile() != null) {
+            return;
+        }
+        try {
+            media.setLoudnessProfile(loudnessAnalyzer.measure(rawPath));
+            mediaRepo.save(media);
+        } catch (Exception ex) {
+            LOGGER.warn("Loudness measurement skipped media={} err={}", media.getId(), ex.toString());
+        }
+    }
+
     private Path preferredThumbnailSource(Path rawPath) {
         if (rawPath == null) {
             return null;
@@ -398,7 +460,8 @@ public class WorkerService {
         if (projectIds == null) {
             projectIds = List.of();
         }
-        return new ThumbnailService.ThumbnailRequest(media.getId(), media.getOwner().getId(), projectIds, media.getDurationMs());
+        return new ThumbnailService.ThumbnailRequest(media.getId(), media.getOwner().getId(), projectIds, media.getDurationMs(),
+                media.getContainerInfo());
     }
 
     private String stackTop(Throwable ex) {
@@ -422,8 +485,17 @@ public class WorkerService {
                     srcPath = mp4Sibling;
                 }
             }
-            RenderOptions options = RenderOptions.withDefaults(Map.of(), null);
-            RenderResult res = renderEngine.renderClean(srcPath, clip.getStartMs(), clip.getEndMs(), options);
+            RenderSpec master = RenderProfileResolver.masterSpec(media.getContainerInfo(), RenderSpec.DEFAULT.crf(), RenderSpec.DEFAULT.preset());
+            // zelfde meta als de master in ClipWorkFlow en de speculatieve render: renditions erven de normalisatie
+            Map<String, Object> meta = new LinkedHashMap<>();
+            LoudnessProfile loudness = media.getLoudnessProfile();
+            if (loudness != null) meta.put(LoudnessProfile.META_KEY, loudness.toMeta());
+            if (media.getContainerInfo() != null) meta.put("sourceAudioOnly", media.getContainerInfo().audioOnly());
+            RenderOptions options = new RenderOptions(master, meta, null);
+            RenderResult res = speculativeRenders.claim(media.getId(), clip.getStartMs(), clip.getEndMs(), options.spec()).orElse(null);
+            if (res == null) {
+                res = renderEngine.renderClean(srcPath, clip.getStartMs(), clip.getEndMs(), options);
+            }
 
             Asset clean = new Asset(media.getOwner(), AssetKind.CLIP_MP4_CLEAN, res.mp4Key(), res.mp4Size());
             clean.setRelatedClip(clip);
@@ -503,30 +575,6 @@ public class WorkerService {
             LOGGER.info("CLIP {} ready (mp4Key={})", clipId, res.mp4Key());
 
     }
-    private SegmentDTO snapToWordBounds(SegmentDTO seg, FwVerboseResponse fw, long offsetMs) {
-        long s = seg.startMs();
-        long e = seg.endMs();
-        long bestS = s, bestE = e;
-
-        if (fw != null && fw.segments() != null) {
-            for (var fs : fw.segments()) {
-                if (fs.words() == null) continue;
-                for (var w : fs.words()) {
-                    long ws = Math.round((w.start() == null ? 0.0 : w.start()) * 1000) + offsetMs;
-                    long we = Math.round((w.end()   == null ? 0.0 : w.end())   * 1000) + offsetMs;
-
-                    if (Math.abs(ws - s) < Math.abs(bestS - s)) bestS = ws;
-                    if (Math.abs(we - e) < Math.abs(bestE - e)) bestE = we;
-                }
-            }
-        }
-        if (bestE <= bestS) { bestS = s; bestE = e; }
-
-        Map<String,Object> meta = new LinkedHashMap<>(seg.meta()==null?Map.of():seg.meta());
-        meta.put("refined", true);
-        meta.put("offsetMs", offsetMs);
-        return new SegmentDTO(bestS, bestE, seg.score(), meta);
-    }
 
 
 }
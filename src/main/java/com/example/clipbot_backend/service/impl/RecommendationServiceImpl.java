@@ -1,32 +1,38 @@
 package com.example.clipbot_backend.service.impl;
 
 import com.example.clipbot_backend.dto.ClipSummary;
+import com.example.clipbot_backend.dto.MultiRecommendationResult;
+import com.example.clipbot_backend.dto.RecommendationProfile;
 import com.example.clipbot_backend.dto.RecommendationResult;
 import com.example.clipbot_backend.dto.SubtitleFiles;
-import com.example.clipbot_backend.dto.WordsParser;
+import com.example.clipbot_backend.dto.WordTimeline;
 import com.example.clipbot_backend.model.*;
 import com.example.clipbot_backend.repository.ClipRepository;
 import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.RecommendationSnapshotRepository;
 import com.example.clipbot_backend.repository.SegmentRepository;
 import com.example.clipbot_backend.repository.TranscriptRepository;
 import com.example.clipbot_backend.selector.GoodClipSelector;
 import com.example.clipbot_backend.selector.ScoredWindow;
+import com.example.clipbot_backend.selector.Selection;
 import com.example.clipbot_backend.selector.SelectorConfig;
 import com.example.clipbot_backend.selector.Window;
 import com.example.clipbot_backend.service.*;
 import com.example.clipbot_backend.service.Interfaces.SubtitleService;
 import com.example.clipbot_backend.util.ClipStatus;
+import com.example.clipbot_backend.util.TokenScan;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -59,6 +65,9 @@ public class RecommendationServiceImpl implements RecommendationService {
     private static final long MAX_WINDOW_MS = 35_000L;
     private static final double DEFAULT_CONFIDENCE = 0.85;
     private static final double MAX_WORDS_PER_SECOND = 4.5;
+    private static final int MIN_KEYWORD_LENGTH = 4;
+    /** Verhogen wanneer vensteropbouw of scoring verandert, zodat oude snapshots niet meer matchen. */
+    private static final String SNAPSHOT_FORMAT = "v1";
 
     private final MediaRepository mediaRepo;
     private final ClipService clipService;
@@ -70,6 +79,7 @@ public class RecommendationServiceImpl implements RecommendationService {
     private final GoodClipSelector goodClipSelector;
     private final ObjectMapper objectMapper;
     private final TransactionTemplate txTemplate;
+    private final RecommendationSnapshotRepository snapshotRepo;
 
     public RecommendationServiceImpl(MediaRepository mediaRepo, ClipService clipService,
                                      ClipRepository clipRepo,
@@ -79,7 +89,8 @@ public class RecommendationServiceImpl implements RecommendationService {
                                      JobService jobService,
                                      GoodClipSelector goodClipSelector,
                                      ObjectMapper objectMapper,
-                                     TransactionTemplate txTemplate) {
+                                     TransactionTemplate txTemplate,
+                                     RecommendationSnapshotRepository snapshotRepo) {
         this.mediaRepo = mediaRepo;
         this.clipService = clipService;
         this.clipRepo = clipRepo;
@@ -90,6 +101,7 @@ public class RecommendationServiceImpl implements RecommendationService {
         this.goodClipSelector = goodClipSelector;
         this.objectMapper = objectMapper;
         this.txTemplate = txTemplate;
+        this.snapshotRepo = snapshotRepo;
     }
 
     /**
@@ -98,72 +110,85 @@ public class RecommendationServiceImpl implements RecommendationService {
     @Override
     public RecommendationResult computeRecommendations(UUID mediaId, int topN, @Nullable Map<String, Object> profile, boolean enqueueRender) {
         Objects.requireNonNull(mediaId, "mediaId");
-        int limit = Math.max(1, Math.min(12, topN > 0 ? topN : DEFAULT_TOP_N));
-        Map<String, Object> effectiveProfile = profile == null ? Map.of() : profile;
+        MultiRecommendationResult.ProfileResult result = computeRecommendations(mediaId,
+                List.of(RecommendationProfile.of(topN, profile)), enqueueRender).profiles().getFirst();
+        return new RecommendationResult(mediaId, result.count(), result.clips());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MultiRecommendationResult computeRecommendations(UUID mediaId, List<RecommendationProfile> profiles, boolean enqueueRender) {
+        Objects.requireNonNull(mediaId, "mediaId");
+        if (profiles == null || profiles.isEmpty()) {
+            throw new IllegalArgumentException("PROFILES_REQUIRED");
+        }
         long started = System.nanoTime();
-        Media mediaEntity = mediaRepo.findById(mediaId).orElseThrow(() -> new IllegalArgumentException("MEDIA_NOT_FOUND"));
-        RecommendationInput input = loadInput(mediaId);
-        SelectorConfig baseCfg = SelectorConfig.defaults();
-        Set<String> keywordPool = deriveKeywords(input.words(), effectiveProfile);
-        Set<String> normalizedBoost = normalizeKeywords(keywordPool);
-        SelectorConfig selectorConfig = new SelectorConfig(
-                baseCfg.targetDurationSec(),
-                baseCfg.minSpeechDensity(),
-                baseCfg.maxSilencePenalty(),
-                normalizedBoost,
-                baseCfg.weights()
-        );
+        mediaRepo.findById(mediaId).orElseThrow(() -> new IllegalArgumentException("MEDIA_NOT_FOUND"));
+        List<Map<String, Object>> effectiveProfiles = profiles.stream().map(RecommendationServiceImpl::effectiveProfile).toList();
+        List<String> profileHashes = effectiveProfiles.stream().map(this::computeProfileHash).toList();
+        List<RecommendationSnapshot> snapshots = snapshots(mediaId, profiles, profileHashes);
+
+        List<MultiRecommendationResult.ProfileResult> results = new ArrayList<>(profiles.size());
+        List<UpsertOutcome> toRender = new ArrayList<>();
+        for (int i = 0; i < profiles.size(); i++) {
+            RecommendationProfile profile = profiles.get(i);
+            String profileHash = profileHashes.get(i);
+            RecommendationSnapshot snapshot = snapshots.get(i);
+            int limit = Math.max(1, Math.min(12, profile.topN() != null && profile.topN() > 0 ? profile.topN() : DEFAULT_TOP_N));
+            List<RecommendationSnapshot.Entry> ranked = snapshot.getWindows();
+            List<RecommendationSnapshot.Entry> selected = ranked.size() > limit ? ranked.subList(0, limit) : ranked;
+            LOGGER.info("RecommendationService start media={} profile={} snapshot={} scored={} topN={} selected={} topScores={}",
+                    mediaId,
+                    profile.name(),
+                    snapshot.getId(),
+                    ranked.size(),
+                    limit,
+                    selected.size(),
+                    selected.stream().map(e -> String.format(Locale.ROOT, "%.3f", e.score())).collect(Collectors.joining(",")));
+
+            List<ClipSummary> summaries = new ArrayList<>();
+            for (UpsertOutcome outcome : upsertClips(mediaId, profileHash, selected, effectiveProfiles.get(i))) {
+                summaries.add(new ClipSummary(
+                        outcome.clipId(), outcome.startMs(), outcome.endMs(),
+                        outcome.score(), outcome.status().name(), profileHash));
+                if (enqueueRender && outcome.created()) {
+                    toRender.add(outcome);
+                } else if (enqueueRender) {
+                    LOGGER.info("RecommendationService render skipped clip={} reason=existing", outcome.clipId());
+                }
+            }
+            results.add(new MultiRecommendationResult.ProfileResult(profile.name(), profileHash, summaries.size(), summaries));
+        }
 
-        List<Window> windows = buildWindows(input.media(), input.segments(), input.words(), selectorConfig);
-        List<ScoredWindow> scored = goodClipSelector.selectTop(windows, limit, selectorConfig);
-        LOGGER.info("RecommendationService start media={} windows={} topN={} selected={} topScores={}",
-                mediaId,
-                windows.size(),
-                limit,
-                scored.size(),
-                scored.stream().map(sw -> String.format(Locale.ROOT, "%.3f", sw.score())).collect(Collectors.joining(",")));
-
-        List<ClipSummary> summaries = new ArrayList<>();
-        Transcript transcript = input.transcript();
-        String profileHash = computeProfileHash(effectiveProfile);
-
-
-        for (ScoredWindow scoredWindow : scored) {
-            Window window = scoredWindow.window();
-            UpsertOutcome outcome = upsertClip(mediaId, profileHash, scoredWindow.score(), window, effectiveProfile);
-            summaries.add(new ClipSummary(
-                    outcome.clipId(), window.startMs(), window.endMs(),
-                    outcome.score(), outcome.status().name(), profileHash));
-
-            if (enqueueRender && outcome.created()) {
-                // (optioneel) subtitles voorbereiden als je die graag vooraf opslaat
-                if (transcript != null) {
-                    SubtitleFiles subs = subtitleService.buildSubtitles(transcript, window.startMs(), window.endMs());
+        if (!toRender.isEmpty()) {
+            // (optioneel) subtitles voorbereiden als je die graag vooraf opslaat; transcript pas nu laden
+            Transcript transcript = transcriptRepo.findTopByMediaIdOrderByCreatedAtDesc(mediaId).orElse(null);
+            if (transcript != null) {
+                for (UpsertOutcome outcome : toRender) {
+                    SubtitleFiles subs = subtitleService.buildSubtitles(transcript, outcome.startMs(), outcome.endMs());
                     if (subs != null) {
                         LOGGER.info("RecommendationService subtitles built clip={} srtKey={} vttKey={}",
                                 outcome.clipId(), subs.srtKey(), subs.vttKey());
                     }
                 }
-
-                try {
-                    // ✅ Laat ClipService alles doen: entitlement, profile-forcing, watermark, usage-burn, enqueue
-                    clipService.enqueueRender(jobService, outcome.clipId());
-                    LOGGER.info("RecommendationService render enqueued clip={} (via ClipService)", outcome.clipId());
-                } catch (ResponseStatusException ex) {
-                    // bv. PAYMENT_REQUIRED / quota; log en ga door met andere clips
-                    LOGGER.warn("RecommendationService enqueue skipped clip={} reason={} status={}",
-                            outcome.clipId(), ex.getReason(), ex.getStatusCode());
-                } catch (Exception ex) {
-                    LOGGER.error("RecommendationService enqueue failed clip={}", outcome.clipId(), ex);
-                }
-            } else if (enqueueRender) {
-                LOGGER.info("RecommendationService render skipped clip={} reason=existing", outcome.clipId());
+            }
+            List<UUID> clipIds = toRender.stream().map(UpsertOutcome::clipId).toList();
+            try {
+                // ✅ Laat ClipService alles doen: entitlement, profile-forcing, watermark, usage-burn, enqueue (in één batch)
+                Map<UUID, UUID> jobs = clipService.enqueueRenders(jobService, mediaId, clipIds);
+                LOGGER.info("RecommendationService render enqueued media={} clips={} jobs={} (via ClipService)",
+                        mediaId, clipIds.size(), jobs.size());
+            } catch (Exception ex) {
+                LOGGER.error("RecommendationService enqueue failed media={} clips={}", mediaId, clipIds, ex);
             }
         }
 
         long durationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
-        LOGGER.info("RecommendationService done media={} clips={} durMs={}", mediaId, summaries.size(), durationMs);
-        return new RecommendationResult(mediaId, summaries.size(), summaries);
+        LOGGER.info("RecommendationService done media={} profiles={} clips={} durMs={}", mediaId, profiles.size(),
+                results.stream().mapToInt(MultiRecommendationResult.ProfileResult::count).sum(), durationMs);
+        return new MultiRecommendationResult(mediaId, results);
     }
 
     /**
@@ -186,59 +211,214 @@ public class RecommendationServiceImpl implements RecommendationService {
     @Override
     public Map<String, String> explain(UUID mediaId, long startMs, long endMs) {
         Objects.requireNonNull(mediaId, "mediaId");
+        RecommendationSnapshot snapshot = snapshots(mediaId, List.of(RecommendationProfile.of(0, Map.of())),
+                List.of(computeProfileHash(Map.of()))).getFirst();
+        return snapshot.getWindows().stream()
+                .filter(entry -> entry.startMs() == startMs && entry.endMs() == endMs)
+                .findFirst()
+                .map(entry -> Map.of(startMs + "-" + endMs, entry.explain()))
+                .orElse(Map.of());
+    }
+
+    /**
+     * Returns the ranking per profile for the current input, computing and storing the missing ones. The input
+     * version is read before the input itself, so a transcript or segment change during the computation lands
+     * under a newer key instead of being masked by these snapshots.
+     *
+     * @return one snapshot per profile, in profile order.
+     */
+    private List<RecommendationSnapshot> snapshots(UUID mediaId, List<RecommendationProfile> profiles, List<String> profileHashes) {
+        String inputVersion = SNAPSHOT_FORMAT + "|" + snapshotRepo.inputVersion(mediaId);
+        Map<String, RecommendationSnapshot> byHash = new HashMap<>();
+        Map<String, RecommendationProfile> missing = new LinkedHashMap<>();
+        for (int i = 0; i < profiles.size(); i++) {
+            String profileHash = profileHashes.get(i);
+            if (byHash.containsKey(profileHash) || missing.containsKey(profileHash)) {
+                continue;
+            }
+            RecommendationProfile profile = profiles.get(i);
+            snapshotRepo.findByMediaIdAndInputVersionAndProfileHash(mediaId, inputVersion, profileHash)
+                    .ifPresentOrElse(found -> byHash.put(profileHash, found), () -> missing.put(profileHash, profile));
+        }
+        if (!missing.isEmpty()) {
+            byHash.putAll(computeSnapshots(mediaId, inputVersion, missing));
+        }
+        return profileHashes.stream().map(byHash::get).toList();
+    }
+
+    /**
+     * Builds the rankings of several profiles from one load of the input. Transcript keywords and candidate
+     * windows are shared: windows are built once per target duration, matching the union of all keyword pools,
+     * and each profile only narrows the matches to its own pool before weighting and ranking.
+     */
+    private Map<String, RecommendationSnapshot> computeSnapshots(UUID mediaId, String inputVersion, Map<String, RecommendationProfile> profiles) {
+        long started = System.nanoTime();
         RecommendationInput input = loadInput(mediaId);
+        Set<String> transcriptKeywords = transcriptKeywords(input.words());
+        Map<String, SelectorConfig> configs = new LinkedHashMap<>();
+        Set<String> keywordUnion = new HashSet<>();
+        profiles.forEach((profileHash, profile) -> {
+            SelectorConfig cfg = selectorConfig(profile, transcriptKeywords);
+            configs.put(profileHash, cfg);
+            keywordUnion.addAll(cfg.boostKeywords());
+        });
+        Map<Integer, List<Window>> candidatesByTarget = new HashMap<>();
+        long sharedNanos = System.nanoTime() - started;
+
+        Map<String, RecommendationSnapshot> result = new HashMap<>();
+        configs.forEach((profileHash, cfg) -> {
+            long profileStarted = System.nanoTime();
+            List<Window> candidates = candidatesByTarget.computeIfAbsent(cfg.targetDurationSec(), target ->
+                    buildWindows(input.media(), input.segments(), input.words(),
+                            new SelectorConfig(target, cfg.minSpeechDensity(), cfg.maxSilencePenalty(), keywordUnion, cfg.weights())));
+            List<Window> windows = keywordUnion.size() == cfg.boostKeywords().size()
+                    ? candidates
+                    : narrowKeywords(candidates, cfg.boostKeywords());
+            Selection selection = goodClipSelector.select(windows, cfg);
+            List<RecommendationSnapshot.Entry> entries = new ArrayList<>(selection.ranked().size());
+            for (ScoredWindow sw : selection.ranked()) {
+                Window w = sw.window();
+                entries.add(new RecommendationSnapshot.Entry(w.startMs(), w.endMs(), w.speechDensity(), w.avgConfidence(),
+                        w.textEnergy(), w.silencePenalty(), w.keywords(), sw.score(), selection.explain(w.startMs(), w.endMs())));
+            }
+            long computeMs = Duration.ofNanos(sharedNanos + System.nanoTime() - profileStarted).toMillis();
+            LOGGER.info("RecommendationService snapshot computed media={} profileHash={} windows={} scored={} durMs={}",
+                    mediaId, profileHash, windows.size(), entries.size(), computeMs);
+            result.put(profileHash, store(new RecommendationSnapshot(mediaId, inputVersion, profileHash, entries, computeMs)));
+        });
+        return result;
+    }
+
+    private RecommendationSnapshot store(RecommendationSnapshot snapshot) {
+        try {
+            return txTemplate.execute(status -> {
+                snapshotRepo.deleteStale(snapshot.getMediaId(), snapshot.getInputVersion());
+                return snapshotRepo.saveAndFlush(snapshot);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // gelijktijdig door een ander request opgeslagen: dat resultaat is identiek
+            return snapshotRepo.findByMediaIdAndInputVersionAndProfileHash(snapshot.getMediaId(), snapshot.getInputVersion(), snapshot.getProfileHash())
+                    .orElse(snapshot);
+        }
+    }
+
+    /** Zelfde vensters met alleen de trefwoorden uit {@code pool}; gelijk aan bouwen met die pool zelf. */
+    private static List<Window> narrowKeywords(List<Window> windows, Set<String> pool) {
+        List<Window> narrowed = new ArrayList<>(windows.size());
+        for (Window w : windows) {
+            if (pool.containsAll(w.keywords())) {
+                narrowed.add(w);
+                continue;
+            }
+            Set<String> kept = w.keywords().stream().filter(pool::contains).collect(Collectors.toUnmodifiableSet());
+            narrowed.add(new Window(w.startMs(), w.endMs(), w.speechDensity(), w.avgConfidence(), w.textEnergy(), w.silencePenalty(), kept));
+        }
+        return narrowed;
+    }
+
+    /**
+     * Selector settings of a profile on top of {@link SelectorConfig#defaults()}. The target duration is clamped to
+     * what the window bounds allow.
+     */
+    private static SelectorConfig selectorConfig(RecommendationProfile profile, Set<String> transcriptKeywords) {
         SelectorConfig baseCfg = SelectorConfig.defaults();
-        Set<String> keywordPool = deriveKeywords(input.words(), Map.of());
+        Set<String> keywordPool = new HashSet<>(transcriptKeywords);
+        extractProfileKeywords(profile.profile(), keywordPool);
         Set<String> normalizedBoost = normalizeKeywords(keywordPool);
-        SelectorConfig selectorConfig = new SelectorConfig(
-                baseCfg.targetDurationSec(),
-                baseCfg.minSpeechDensity(),
-                baseCfg.maxSilencePenalty(),
+        Map<String, Double> weights = baseCfg.weights();
+        if (profile.weights() != null && !profile.weights().isEmpty()) {
+            Map<String, Double> merged = new HashMap<>(weights);
+            profile.weights().forEach((key, value) -> {
+                if (key != null && value != null) {
+                    merged.put(key, value);
+                }
+            });
+            weights = Map.copyOf(merged);
+        }
+        int target = profile.targetDurationSec() == null
+                ? baseCfg.targetDurationSec()
+                : (int) clamp(profile.targetDurationSec(), MIN_WINDOW_MS / 1000 - 5, MAX_WINDOW_MS / 1000 + 5);
+        return new SelectorConfig(
+                target,
+                profile.minSpeechDensity() == null ? baseCfg.minSpeechDensity() : profile.minSpeechDensity(),
+                profile.maxSilencePenalty() == null ? baseCfg.maxSilencePenalty() : profile.maxSilencePenalty(),
                 normalizedBoost,
-                baseCfg.weights()
+                weights
         );
-        List<Window> windows = buildWindows(input.media(), input.segments(), input.words(), selectorConfig);
-        if (windows.isEmpty()) {
-            return Map.of();
+    }
+
+    /**
+     * Profile map that is hashed and stored as clip meta. Selector overrides are part of it, so profiles that only
+     * differ in weighting keep separate clips and snapshots; without overrides it is the render profile as is.
+     */
+    private static Map<String, Object> effectiveProfile(RecommendationProfile profile) {
+        Map<String, Object> render = profile.profile() == null ? Map.of() : profile.profile();
+        if (!profile.hasSelectorOverrides()) {
+            return render;
         }
-        goodClipSelector.selectTop(windows, windows.size(), selectorConfig);
-        String key = startMs + "-" + endMs;
-        return goodClipSelector.explainLast().entrySet().stream()
-                .filter(entry -> entry.getKey().equals(key))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, Object> selector = new LinkedHashMap<>();
+        if (profile.targetDurationSec() != null) selector.put("targetDurationSec", profile.targetDurationSec());
+        if (profile.minSpeechDensity() != null) selector.put("minSpeechDensity", profile.minSpeechDensity());
+        if (profile.maxSilencePenalty() != null) selector.put("maxSilencePenalty", profile.maxSilencePenalty());
+        if (profile.weights() != null && !profile.weights().isEmpty()) selector.put("weights", profile.weights());
+        Map<String, Object> effective = new LinkedHashMap<>(render);
+        effective.put("selector", selector);
+        return effective;
     }
 
+    /**
+     * Upserts all selected windows with one {@code INSERT … ON CONFLICT} in a single transaction. Ranges the
+     * statement did not return (inserted concurrently after its snapshot) are looked up individually.
+     *
+     * @return one outcome per selected window, in selection order.
+     */
+    private List<UpsertOutcome> upsertClips(UUID mediaId, String profileHash, List<RecommendationSnapshot.Entry> selected, Map<String, Object> profile) {
+        if (selected.isEmpty()) {
+            return List.of();
+        }
+        // ON CONFLICT mag een rij maar één keer raken per statement: dubbele ranges vooraf samenvoegen
+        Map<String, BigDecimal> scores = new LinkedHashMap<>();
+        Map<String, RecommendationSnapshot.Entry> windows = new LinkedHashMap<>();
+        for (RecommendationSnapshot.Entry entry : selected) {
+            String key = entry.startMs() + ":" + entry.endMs();
+            BigDecimal score = BigDecimal.valueOf(entry.score()).setScale(3, RoundingMode.HALF_UP);
+            scores.merge(key, score, BigDecimal::max);
+            windows.putIfAbsent(key, entry);
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(windows.size());
+        windows.forEach((key, window) -> rows.add(Map.of(
+                "start_ms", window.startMs(), "end_ms", window.endMs(), "score", scores.get(key))));
+        String rowsJson;
+        String metaJson;
+        try {
+            rowsJson = objectMapper.writeValueAsString(rows);
+            metaJson = objectMapper.writeValueAsString(buildMeta(profile));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serialize clip upsert rows failed", e);
+        }
 
-    private UpsertOutcome upsertClip(UUID mediaId, String profileHash, double score, Window window, Map<String, Object> profile) {
         return txTemplate.execute(status -> {
-            Clip existing = clipRepo.findByMediaIdAndStartMsAndEndMsAndProfileHash(mediaId, window.startMs(), window.endMs(), profileHash)
-                    .orElse(null);
-            BigDecimal newScore = BigDecimal.valueOf(score).setScale(3, RoundingMode.HALF_UP);
-            if (existing != null) {
-                BigDecimal oldScore = existing.getScore();
-                if (oldScore == null || oldScore.compareTo(newScore) < 0) {
-                    existing.setScore(newScore);
-                    clipRepo.save(existing);
-                    LOGGER.info("RecommendationService upsert clip start={} end={} profileHash={} status=existing score improved {}->{} clipId={}",
-                            window.startMs(), window.endMs(), profileHash, oldScore, newScore, existing.getId());
-                }
-                if (oldScore != null && oldScore.compareTo(newScore) >= 0) {
-                    LOGGER.info("RecommendationService upsert clip start={} end={} profileHash={} status=existing kept existing score (old>=new) clipId={}",
-                            window.startMs(), window.endMs(), profileHash, existing.getId());
-                }
-                return new UpsertOutcome(existing.getId(), existing.getStatus(), newScore, false);
+            Map<String, ClipRepository.UpsertedClip> byRange = new HashMap<>();
+            for (ClipRepository.UpsertedClip row : clipRepo.upsertRanges(mediaId, profileHash, metaJson, rowsJson)) {
+                byRange.put(row.getStartMs() + ":" + row.getEndMs(), row);
             }
-
-            Media mediaRef = mediaRepo.getReferenceById(mediaId);
-            Clip clip = new Clip(mediaRef, window.startMs(), window.endMs());
-            clip.setStatus(ClipStatus.QUEUED);
-            clip.setProfileHash(profileHash);
-            clip.setScore(newScore);
-            clip.setMeta(buildMeta(profile));
-            Clip saved = clipRepo.save(clip);
-            LOGGER.info("RecommendationService upsert clip start={} end={} profileHash={} status=created score={} clipId={}",
-                    window.startMs(), window.endMs(), profileHash, newScore, saved.getId());
-            return new UpsertOutcome(saved.getId(), saved.getStatus(), newScore, true);
+            List<UpsertOutcome> outcomes = new ArrayList<>(windows.size());
+            windows.forEach((key, window) -> {
+                BigDecimal newScore = scores.get(key);
+                ClipRepository.UpsertedClip row = byRange.get(key);
+                if (row == null) {
+                    Clip existing = clipRepo.findByMediaIdAndStartMsAndEndMsAndProfileHash(mediaId, window.startMs(), window.endMs(), profileHash)
+                            .orElseThrow(() -> new IllegalStateException("CLIP_UPSERT_LOST " + key));
+                    outcomes.add(new UpsertOutcome(existing.getId(), window.startMs(), window.endMs(), existing.getStatus(), newScore, false));
+                    return;
+                }
+                boolean created = Boolean.TRUE.equals(row.getCreated());
+                LOGGER.info("RecommendationService upsert clip start={} end={} profileHash={} status={} score={} stored={} clipId={}",
+                        window.startMs(), window.endMs(), profileHash, created ? "created" : "existing", newScore, row.getScore(), row.getId());
+                outcomes.add(new UpsertOutcome(row.getId(), window.startMs(), window.endMs(),
+                        ClipStatus.valueOf(row.getStatus()), newScore, created));
+            });
+            return outcomes;
         });
     }
 
@@ -251,19 +431,18 @@ public class RecommendationServiceImpl implements RecommendationService {
         return meta;
     }
 
-    private static Set<String> deriveKeywords(List<WordsParser.WordAdapter> words, Map<String, Object> profile) {
-        if ((words == null || words.isEmpty()) && (profile == null || profile.get("keywords") == null)) {
+    /** De acht meest voorkomende woorden (minstens {@value #MIN_KEYWORD_LENGTH} tekens) uit het transcript. */
+    private static Set<String> transcriptKeywords(WordTimeline words) {
+        if (words == null || words.isEmpty()) {
             return Set.of();
         }
         Map<String, Integer> counts = new HashMap<>();
-        if (words != null) {
-            for (WordsParser.WordAdapter word : words) {
-                String cleaned = normalizeWord(word.text);
-                if (cleaned.isEmpty()) {
-                    continue;
-                }
-                counts.merge(cleaned, 1, Integer::sum);
+        for (int i = 0; i < words.size(); i++) {
+            String cleaned = words.normalized(i);
+            if (cleaned.length() < MIN_KEYWORD_LENGTH) {
+                continue;
             }
+            counts.merge(cleaned, 1, Integer::sum);
         }
         List<Map.Entry<String, Integer>> sorted = counts.entrySet().stream()
                 .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
@@ -271,7 +450,6 @@ public class RecommendationServiceImpl implements RecommendationService {
                 .toList();
         Set<String> result = new HashSet<>();
         sorted.forEach(entry -> result.add(entry.getKey()));
-        extractProfileKeywords(profile, result);
         return Set.copyOf(result);
     }
 
@@ -308,22 +486,24 @@ public class RecommendationServiceImpl implements RecommendationService {
         }
     }
 
-    private List<Window> buildWindows(MediaSnapshot media, List<SegmentSnapshot> segments, List<WordsParser.WordAdapter> words, SelectorConfig config) {
+    private List<Window> buildWindows(MediaSnapshot media, List<SegmentSnapshot> segments, WordTimeline words, SelectorConfig config) {
         long targetMs = config.targetDurationSec() * 1000L;
         long minMs = Math.max(MIN_WINDOW_MS, targetMs - 5_000L);
         long maxMs = Math.min(MAX_WINDOW_MS, targetMs + 5_000L);
         long duration = media.durationMs() != null && media.durationMs() > 0 ? media.durationMs() : estimateDuration(segments, words, maxMs);
         List<Window> windows = new ArrayList<>();
-        Set<String> keywordPool = config.boostKeywords() == null ? Set.of() : config.boostKeywords();
+        WordTimeline timeline = words == null ? WordTimeline.EMPTY : words;
+        // één keer indexeren; elk venster is daarna O(log n) in plaats van een loop over zijn woorden
+        WordTimeline.KeywordIndex keywordIndex = timeline.keywordIndex(config.boostKeywords(), MIN_KEYWORD_LENGTH);
 
         if (segments != null && !segments.isEmpty()) {
             for (SegmentSnapshot snapshot : segments) {
-                windows.addAll(fromSegment(snapshot, minMs, maxMs, duration, words, keywordPool));
+                windows.addAll(fromSegment(snapshot, minMs, maxMs, duration, timeline, keywordIndex));
             }
         }
 
         if (windows.isEmpty()) {
-            windows.addAll(slidingWindows(duration, minMs, maxMs, words, keywordPool));
+            windows.addAll(slidingWindows(duration, minMs, maxMs, timeline, keywordIndex));
         }
 
         Map<String, Window> deduped = new LinkedHashMap<>();
@@ -334,27 +514,27 @@ public class RecommendationServiceImpl implements RecommendationService {
         return new ArrayList<>(deduped.values());
     }
 
-    private List<Window> fromSegment(SegmentSnapshot segment, long minMs, long maxMs, long duration, List<WordsParser.WordAdapter> words, Set<String> keywordPool) {
+    private List<Window> fromSegment(SegmentSnapshot segment, long minMs, long maxMs, long duration, WordTimeline words, WordTimeline.KeywordIndex keywordIndex) {
         List<Window> result = new ArrayList<>();
         long span = Math.max(segment.endMs() - segment.startMs(), minMs);
         long windowLength = clamp(span, minMs, maxMs);
         long start = Math.max(0, segment.startMs() - (windowLength - span) / 2);
         long end = Math.min(duration, start + windowLength);
-        result.add(buildWindow(start, end, words, keywordPool));
+        result.add(buildWindow(start, end, words, keywordIndex));
         if (span > maxMs) {
             long step = Math.max(minMs, maxMs - 5_000L);
             for (long offset = segment.startMs(); offset < segment.endMs(); offset += step) {
                 long nextStart = Math.min(offset, Math.max(0, duration - minMs));
                 long nextEnd = Math.min(duration, nextStart + windowLength);
                 if (nextEnd - nextStart >= minMs) {
-                    result.add(buildWindow(nextStart, nextEnd, words, keywordPool));
+                    result.add(buildWindow(nextStart, nextEnd, words, keywordIndex));
                 }
             }
         }
         return result;
     }
 
-    private List<Window> slidingWindows(long duration, long minMs, long maxMs, List<WordsParser.WordAdapter> words, Set<String> keywordPool) {
+    private List<Window> slidingWindows(long duration, long minMs, long maxMs, WordTimeline words, WordTimeline.KeywordIndex keywordIndex) {
         if (duration <= 0) {
             return List.of();
         }
@@ -363,45 +543,20 @@ public class RecommendationServiceImpl implements RecommendationService {
         for (long start = 0; start < duration; start += step) {
             long end = Math.min(duration, start + maxMs);
             if (end - start >= minMs) {
-                windows.add(buildWindow(start, end, words, keywordPool));
+                windows.add(buildWindow(start, end, words, keywordIndex));
             }
         }
         return windows;
     }
 
-    private Window buildWindow(long start, long end, List<WordsParser.WordAdapter> words, Set<String> keywordPool) {
+    private Window buildWindow(long start, long end, WordTimeline words, WordTimeline.KeywordIndex keywordIndex) {
         long duration = Math.max(1, end - start);
-        double speechMs = 0.0;
-        double sumConfidence = 0.0;
-        int wordCount = 0;
-        int excitedCount = 0;
-        int uppercaseCount = 0;
-        Set<String> matchedKeywords = new HashSet<>();
-
-        if (words != null) {
-            for (WordsParser.WordAdapter word : words) {
-                long overlapStart = Math.max(start, word.startMs);
-                long overlapEnd = Math.min(end, word.endMs);
-                if (overlapEnd <= overlapStart) {
-                    continue;
-                }
-                speechMs += overlapEnd - overlapStart;
-                double confidence = word.confidence == null ? DEFAULT_CONFIDENCE : word.confidence;
-                sumConfidence += confidence;
-                wordCount++;
-                String text = word.text == null ? "" : word.text;
-                if (text.matches(".*[!?].*")) {
-                    excitedCount++;
-                }
-                if (text.chars().anyMatch(Character::isUpperCase)) {
-                    uppercaseCount++;
-                }
-                String normalized = normalizeWord(text);
-                if (!normalized.isEmpty() && keywordPool.contains(normalized)) {
-                    matchedKeywords.add(normalized);
-                }
-            }
-        }
+        double speechMs = words.speechMs(start, end);
+        double sumConfidence = words.confidenceSum(start, end, DEFAULT_CONFIDENCE);
+        int wordCount = words.spokenCount(start, end);
+        int excitedCount = words.excitedCount(start, end);
+        int uppercaseCount = words.uppercaseCount(start, end);
+        Set<String> matchedKeywords = keywordIndex.matches(start, end);
 
         double speechDensity = clampDouble(speechMs / duration);
         double avgConfidence = wordCount == 0 ? 0.0 : clampDouble(sumConfidence / wordCount);
@@ -411,7 +566,7 @@ public class RecommendationServiceImpl implements RecommendationService {
         return new Window(start, end, speechDensity, avgConfidence, energy, silencePenalty, Set.copyOf(matchedKeywords));
     }
 
-    private static long estimateDuration(List<SegmentSnapshot> segments, List<WordsParser.WordAdapter> words, long fallback) {
+    private static long estimateDuration(List<SegmentSnapshot> segments, WordTimeline words, long fallback) {
         long max = fallback;
         if (segments != null) {
             for (SegmentSnapshot snapshot : segments) {
@@ -419,9 +574,7 @@ public class RecommendationServiceImpl implements RecommendationService {
             }
         }
         if (words != null) {
-            for (WordsParser.WordAdapter word : words) {
-                max = Math.max(max, word.endMs);
-            }
+            max = Math.max(max, words.maxEndMs());
         }
         return max;
     }
@@ -447,8 +600,8 @@ public class RecommendationServiceImpl implements RecommendationService {
         if (text == null) {
             return "";
         }
-        String normalized = text.replaceAll("[^a-zA-Z0-9]", "").toLowerCase(Locale.ROOT);
-        return normalized.length() < 4 ? "" : normalized;
+        String normalized = TokenScan.normalizeAlnum(text);
+        return normalized.length() < MIN_KEYWORD_LENGTH ? "" : normalized;
     }
 
     private String computeProfileHash(Map<String, Object> profile) {
@@ -505,7 +658,7 @@ public class RecommendationServiceImpl implements RecommendationService {
         if (transcript != null && transcript.getMedia() != null) {
             transcript.getMedia().getId();
         }
-        List<WordsParser.WordAdapter> words = WordsParser.extract(transcript);
+        WordTimeline words = WordTimeline.of(transcript);
         MediaSnapshot mediaSnapshot = new MediaSnapshot(media.getId(), media.getDurationMs());
         return new RecommendationInput(mediaSnapshot, transcript, segments, words);
     }
@@ -513,7 +666,7 @@ public class RecommendationServiceImpl implements RecommendationService {
     private record RecommendationInput(MediaSnapshot media,
                                        Transcript transcript,
                                        List<SegmentSnapshot> segments,
-                                       List<WordsParser.WordAdapter> words) {
+                                       WordTimeline words) {
     }
 
     private record MediaSnapshot(UUID id, Long durationMs) {
@@ -522,6 +675,6 @@ public class RecommendationServiceImpl implements RecommendationService {
     private record SegmentSnapshot(long startMs, long endMs) {
     }
 
-    private record UpsertOutcome(UUID clipId, ClipStatus status, BigDecimal score, boolean created) {
+    private record UpsertOutcome(UUID clipId, long startMs, long endMs, ClipStatus status, BigDecimal score, boolean created) {
     }
 }
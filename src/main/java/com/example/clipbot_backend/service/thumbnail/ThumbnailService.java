@@ -1,5 +1,6 @@
 package com.example.clipbot_backend.service.thumbnail;
 
+import com.example.clipbot_backend.dto.media.ContainerInfo;
 import com.example.clipbot_backend.model.Account;
 import com.example.clipbot_backend.model.Asset;
 import com.example.clipbot_backend.model.Media;
@@ -11,6 +12,7 @@ import com.example.clipbot_backend.repository.ProjectMediaRepository;
 import com.example.clipbot_backend.repository.ProjectRepository;
 import com.example.clipbot_backend.service.Interfaces.StorageService;
 import com.example.clipbot_backend.util.AssetKind;
+import com.example.clipbot_backend.util.ContainerProbe;
 import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -115,7 +117,7 @@ public class ThumbnailService {
             LOGGER.debug("Thumbnail extract skipped; file missing mediaId={} path={}", request.mediaId(), localSource);
             return;
         }
-        if (!looksLikeVideo(localSource)) {
+        if (!looksLikeVideo(request.containerInfo(), localSource)) {
             LOGGER.debug("Thumbnail extract skipped; non-video source mediaId={} path={}", request.mediaId(), localSource);
             return;
         }
@@ -171,7 +173,12 @@ public class ThumbnailService {
         }
     }
 
-    private boolean looksLikeVideo(Path source) {
+    /** Gebruikt de bij ingest opgeslagen container-info; alleen media van voor de probe wordt hier nog geprobed. */
+    private boolean looksLikeVideo(ContainerInfo persisted, Path source) {
+        ContainerInfo info = persisted != null ? persisted : ContainerProbe.tryProbe(source);
+        if (info != null && !info.streams().isEmpty()) {
+            return info.hasVideo();
+        }
         String name = source.getFileName().toString().toLowerCase(java.util.Locale.ROOT);
         return name.endsWith(".mp4") || name.endsWith(".mov") || name.endsWith(".mkv") || name.endsWith(".webm") || name.endsWith(".m4v");
     }
@@ -220,6 +227,13 @@ public class ThumbnailService {
 
     /**
      * Immutable DTO for thumbnail extraction without lazy entity dependencies.
+     *
+     * @param containerInfo persisted container header of the source passed to
+     *                      {@link #extractFromLocalMedia(ThumbnailRequest, Path)}, or {@code null} if never probed.
      */
-    public record ThumbnailRequest(UUID mediaId, UUID ownerId, List<UUID> projectIds, Long durationMs) { }
+    public record ThumbnailRequest(UUID mediaId, UUID ownerId, List<UUID> projectIds, Long durationMs, ContainerInfo containerInfo) {
+        public ThumbnailRequest(UUID mediaId, UUID ownerId, List<UUID> projectIds, Long durationMs) {
+            this(mediaId, ownerId, projectIds, durationMs, null);
+        }
+    }
 }
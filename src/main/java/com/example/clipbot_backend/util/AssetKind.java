@@ -13,7 +13,9 @@ public enum AssetKind {
     THUMBNAIL,
     SUB_SRT,
     SUB_VTT,
-    CLIP_MP4_CLEAN;
+    CLIP_MP4_CLEAN,
+    /** Profile rendition derived lazily from the clean master ({@code clips/renditions/<clipId>/<profile>.mp4}). */
+    CLIP_MP4_RENDITION;
 
     /**
      * Allows tolerant, case-insensitive deserialization from JSON to prevent 400 errors on valid input.
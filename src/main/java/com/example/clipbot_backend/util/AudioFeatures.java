@@ -0,0 +1,270 @@
+package com.example.clipbot_backend.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Per-100 ms audio-energy features of 16 kHz PCM: short-time RMS, spectral flux and onset count, with prefix sums
+ * so any time range is summarized in O(1). Built in one streaming pass by an {@link Extractor} and stored compactly
+ * with {@link #toBytes()} (5 bytes per frame).
+ */
+public final class AudioFeatures {
+    public static final int FRAME_MS = 100;
+    static final int FRAME_SAMPLES = PcmAudio.SAMPLE_RATE * FRAME_MS / 1000;
+    static final int FFT_SIZE = 512;
+    /** Vier hops per frame: 25 ms stap, 32 ms venster. */
+    static final int HOP = FRAME_SAMPLES / 4;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int BYTES_PER_FRAME = 5;
+
+    public static final AudioFeatures EMPTY = new AudioFeatures(new float[0], new float[0], new byte[0]);
+
+    private final int frames;
+    private final float[] rms;
+    private final float[] flux;
+    private final byte[] onsets;
+    private final double[] rmsPrefix;
+    private final double[] fluxPrefix;
+    private final double[] onsetPrefix;
+
+    private AudioFeatures(float[] rms, float[] flux, byte[] onsets) {
+        this.frames = rms.length;
+        this.rms = rms;
+        this.flux = flux;
+        this.onsets = onsets;
+        this.rmsPrefix = new double[frames + 1];
+        this.fluxPrefix = new double[frames + 1];
+        this.onsetPrefix = new double[frames + 1];
+        for (int k = 0; k < frames; k++) {
+            rmsPrefix[k + 1] = rmsPrefix[k] + rms[k];
+            fluxPrefix[k + 1] = fluxPrefix[k] + flux[k];
+            onsetPrefix[k + 1] = onsetPrefix[k] + onsets[k];
+        }
+    }
+
+    /** One pass over {@code samples} (16 kHz mono s16). */
+    public static AudioFeatures extract(ShortBuffer samples) {
+        Extractor x = new Extractor();
+        for (int i = samples.position(), n = samples.limit(); i < n; i++) x.accept(samples.get(i));
+        return x.finish();
+    }
+
+    public int frameCount() { return frames; }
+    public boolean isEmpty() { return frames == 0; }
+
+    /** RMS of frame {@code k} relative to full scale, in [0, 1]. */
+    public float rms(int k) { return rms[k]; }
+    /** Half-wave rectified spectral flux of frame {@code k}, averaged over its hops. */
+    public float flux(int k) { return flux[k]; }
+    /** Onsets detected within frame {@code k} (0-4). */
+    public int onsets(int k) { return onsets[k]; }
+
+    public double meanRms(long startMs, long endMs) { return mean(rmsPrefix, startMs, endMs); }
+    public double meanFlux(long startMs, long endMs) { return mean(fluxPrefix, startMs, endMs); }
+
+    /** @return onsets per second in {@code [startMs, endMs)}. */
+    public double onsetRate(long startMs, long endMs) {
+        return mean(onsetPrefix, startMs, endMs) * (1000.0 / FRAME_MS);
+    }
+
+    /**
+     * Excitement of a range relative to the whole recording, in [0, 1): 0.5 is average. Each term maps the ratio
+     * {@code r} of range mean to global mean through {@code r / (1 + r)}; loudness weighs 0.5, flux 0.3 and onset
+     * density 0.2.
+     */
+    public double excitement(long startMs, long endMs) {
+        if (frames == 0) return 0.5;
+        return 0.5 * relative(meanRms(startMs, endMs), rmsPrefix[frames] / frames)
+                + 0.3 * relative(meanFlux(startMs, endMs), fluxPrefix[frames] / frames)
+                + 0.2 * relative(mean(onsetPrefix, startMs, endMs), onsetPrefix[frames] / frames);
+    }
+
+    private static double relative(double value, double global) {
+        double r = global <= 0 ? 1.0 : value / global;
+        return r / (1.0 + r);
+    }
+
+    private double mean(double[] prefix, long startMs, long endMs) {
+        int a = (int) Math.max(0, Math.min(frames, startMs / FRAME_MS));
+        int b = (int) Math.max(a, Math.min(frames, (endMs + FRAME_MS - 1) / FRAME_MS));
+        return b == a ? 0 : (prefix[b] - prefix[a]) / (b - a);
+    }
+
+    /**
+     * Compact form: a 12-byte header (format, frame length, frame count) and per frame RMS and flux as IEEE
+     * half floats plus the onset count.
+     */
+    public byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + frames * BYTES_PER_FRAME).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(FORMAT).putInt(FRAME_MS).putInt(frames);
+        for (int k = 0; k < frames; k++) {
+            out.putShort(Float.floatToFloat16(rms[k])).putShort(Float.floatToFloat16(flux[k])).put(onsets[k]);
+        }
+        return out.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException for another format or frame length.
+     */
+    public static AudioFeatures fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int format = in.getInt();
+        int frameMs = in.getInt();
+        int n = in.getInt();
+        if (format != FORMAT || frameMs != FRAME_MS || in.remaining() < n * BYTES_PER_FRAME)
+            throw new IllegalArgumentException("Unsupported audio feature blob format=" + format + " frameMs=" + frameMs);
+        float[] rms = new float[n];
+        float[] flux = new float[n];
+        byte[] onsets = new byte[n];
+        for (int k = 0; k < n; k++) {
+            rms[k] = Float.float16ToFloat(in.getShort());
+            flux[k] = Float.float16ToFloat(in.getShort());
+            onsets[k] = in.get();
+        }
+        return new AudioFeatures(rms, flux, onsets);
+    }
+
+    /**
+     * Streaming extractor: feed samples in order with {@link #accept(short)}, then call {@link #finish()}. Memory
+     * is bounded by the feature arrays; a trailing partial frame is kept when it holds at least half a frame.
+     */
+    public static final class Extractor {
+        private static final int ONSET_HISTORY = 8;
+        private static final double ONSET_RATIO = 1.5;
+        private static final double ONSET_FLOOR = 0.02;
+
+        private final double[] window = hann(FFT_SIZE);
+        private final double[] ring = new double[FFT_SIZE];
+        private final double[] re = new double[FFT_SIZE];
+        private final double[] im = new double[FFT_SIZE];
+        private double[] magnitude = new double[FFT_SIZE / 2 + 1];
+        private double[] previous = new double[FFT_SIZE / 2 + 1];
+        private final double[] fluxHistory = new double[ONSET_HISTORY];
+
+        private float[] rms = new float[1024];
+        private float[] flux = new float[1024];
+        private byte[] onsets = new byte[1024];
+        private int frames;
+
+        private long samples;
+        private int ringPos;
+        private double sumSquares;
+        private int frameFill;
+        private double frameFlux;
+        private int frameHops;
+        private int frameOnsets;
+        private long hops;
+        private double lastFlux;
+
+        public void accept(short sample) {
+            double x = sample / 32768.0;
+            ring[ringPos] = x;
+            ringPos = (ringPos + 1) & (FFT_SIZE - 1);
+            samples++;
+            sumSquares += x * x;
+            frameFill++;
+            if (samples % HOP == 0) hop();
+            if (frameFill == FRAME_SAMPLES) closeFrame();
+        }
+
+        public AudioFeatures finish() {
+            if (frameFill >= FRAME_SAMPLES / 2) closeFrame();
+            int n = frames;
+            frames = 0;
+            return new AudioFeatures(Arrays.copyOf(rms, n), Arrays.copyOf(flux, n),
+                    Arrays.copyOf(onsets, n));
+        }
+
+        private void hop() {
+            // venster eindigt bij de huidige sample; de eerste hops vullen met stilte aan
+            for (int k = 0; k < FFT_SIZE; k++) {
+                re[k] = ring[(ringPos + k) & (FFT_SIZE - 1)] * window[k];
+                im[k] = 0;
+            }
+            fft(re, im);
+            double f = 0;
+            for (int k = 0; k < magnitude.length; k++) {
+                magnitude[k] = Math.hypot(re[k], im[k]);
+                double d = magnitude[k] - previous[k];
+                if (d > 0) f += d;
+            }
+            double[] swap = previous;
+            previous = magnitude;
+            magnitude = swap;
+            f /= magnitude.length;
+
+            // onset: flux stijgt en ligt ruim boven het recente gemiddelde
+            double recent = 0;
+            int count = (int) Math.min(hops, ONSET_HISTORY);
+            for (int k = 0; k < count; k++) recent += fluxHistory[k];
+            recent = count == 0 ? 0 : recent / count;
+            if (hops > 0 && f > lastFlux && f > ONSET_RATIO * recent + ONSET_FLOOR) frameOnsets++;
+            fluxHistory[(int) (hops % ONSET_HISTORY)] = f;
+            lastFlux = f;
+            hops++;
+
+            frameFlux += f;
+            frameHops++;
+        }
+
+        private void closeFrame() {
+            if (frames == rms.length) {
+                int grow = rms.length * 2;
+                rms = Arrays.copyOf(rms, grow);
+                flux = Arrays.copyOf(flux, grow);
+                onsets = Arrays.copyOf(onsets, grow);
+            }
+            rms[frames] = (float) Math.sqrt(sumSquares / Math.max(1, frameFill));
+            flux[frames] = frameHops == 0 ? 0f : (float) (frameFlux / frameHops);
+            onsets[frames] = (byte) frameOnsets;
+            frames++;
+            sumSquares = 0;
+            frameFill = 0;
+            frameFlux = 0;
+            frameHops = 0;
+            frameOnsets = 0;
+        }
+
+        private static double[] hann(int n) {
+            double[] w = new double[n];
+            for (int k = 0; k < n; k++) w[k] = 0.5 - 0.5 * Math.cos(2 * Math.PI * k / (n - 1));
+            return w;
+        }
+    }
+
+    /** In-place iteratieve radix-2 FFT; lengte is een macht van twee. */
+    static void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = -2 * Math.PI / len;
+            double wr = Math.cos(angle), wi = Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                double cr = 1, ci = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k, b = a + len / 2;
+                    double xr = re[b] * cr - im[b] * ci;
+                    double xi = re[b] * ci + im[b] * cr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                    double nr = cr * wr - ci * wi;
+                    ci = cr * wi + ci * wr;
+                    cr = nr;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package com.example.clipbot_backend.util;
+
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.dto.media.ContainerInfo.StreamInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Leest container-headers (MP4/M4A/MOV via moov/mvhd/stss/ctts/elst, WebM/Matroska via EBML) zonder
+ * ffprobe/ffmpeg te starten. Alleen de header-boxen worden gelezen; mdat en Cluster-inhoud niet. Voor Matroska
+ * wordt wel elke top-level element-header van het Segment (dus ook elke Cluster-header) gelezen om bij Cues achter
+ * de Clusters te komen als er geen SeekHead is.
+ */
+public final class ContainerProbe {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerProbe.class);
+
+    private static final int MAX_HEADER_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_KEYFRAMES = 500_000;
+    private static final Set<String> MP4_TOP_LEVEL = Set.of("ftyp", "moov", "mdat", "free", "skip", "wide", "pnot", "styp");
+
+    private ContainerProbe() {}
+
+    /**
+     * @return header-info, of {@code null} als het formaat niet herkend wordt
+     * @throws IOException bij leesfouten of een corrupte header
+     */
+    public static ContainerInfo probe(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = read(ch, 0, 8);
+            if (head.limit() < 8) return null;
+            if (head.getInt(0) == EBML_HEADER) return parseMatroska(ch);
+            if (MP4_TOP_LEVEL.contains(fourcc(head, 4))) return parseMp4(ch);
+            return null;
+        }
+    }
+
+    /** Best-effort variant voor call-sites met een eigen fallback: {@code null} bij elke fout. */
+    public static ContainerInfo tryProbe(Path file) {
+        if (file == null) return null;
+        try {
+            return probe(file);
+        } catch (Exception e) {
+            LOGGER.debug("container probe failed path={} err={}", file, e.toString());
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------ MP4 / ISO-BMFF
+
+    private static ContainerInfo parseMp4(FileChannel ch) throws IOException {
+        long fileSize = ch.size();
+        long pos = 0;
+        String brand = null;
+        ByteBuffer moov = null;
+        while (pos + 8 <= fileSize) {
+            ByteBuffer h = read(ch, pos, 16);
+            long boxSize = h.getInt(0) & 0xFFFFFFFFL;
+            String type = fourcc(h, 4);
+            int hdr = 8;
+            if (boxSize == 1) {
+                if (h.limit() < 16) break;
+                boxSize = h.getLong(8);
+                hdr = 16;
+            } else if (boxSize == 0) {
+                boxSize = fileSize - pos;
+            }
+            if (boxSize < hdr) throw new IOException("corrupt box '" + type + "' at " + pos);
+            if ("ftyp".equals(type)) {
+                brand = fourcc(read(ch, pos + hdr, 4), 0);
+            } else if ("moov".equals(type)) {
+                if (boxSize - hdr > MAX_HEADER_BYTES) throw new IOException("moov too large: " + boxSize);
+                moov = read(ch, pos + hdr, (int) (boxSize - hdr));
+                break;
+            }
+            pos += boxSize;
+        }
+        if (moov == null) return null;
+
+        long movieTimescale = 0, movieDuration = 0;
+        List<Mp4Track> tracks = new ArrayList<>();
+        for (Box b : children(moov, 0, moov.limit())) {
+            if ("mvhd".equals(b.type)) {
+                int v = moov.get(b.start);
+                if (v == 1) {
+                    movieTimescale = u32(moov, b.start + 20);
+                    movieDuration = moov.getLong(b.start + 24);
+                } else {
+                    movieTimescale = u32(moov, b.start + 12);
+                    movieDuration = u32(moov, b.start + 16);
+                    if (movieDuration == 0xFFFFFFFFL) movieDuration = 0;
+                }
+            } else if ("trak".equals(b.type)) {
+                tracks.add(parseTrak(moov, b));
+            }
+        }
+
+        long durationUs = movieTimescale > 0 ? movieDuration * 1_000_000L / movieTimescale : 0;
+        List<StreamInfo> streams = new ArrayList<>(tracks.size());
+        List<Long> keyframes = null;
+        for (Mp4Track t : tracks) {
+            streams.add(t.stream());
+            if (durationUs == 0 && t.timescale > 0) durationUs = Math.max(durationUs, t.duration * 1_000_000L / t.timescale);
+            if (keyframes == null && "video".equals(t.type)) keyframes = t.keyframesUs(movieTimescale);
+        }
+        String container = switch (brand == null ? "" : brand.trim()) {
+            case "M4A", "M4B" -> "m4a";
+            case "qt" -> "mov";
+            default -> "mp4";
+        };
+        return new ContainerInfo(container, durationUs, streams, keyframes);
+    }
+
+    private static Mp4Track parseTrak(ByteBuffer buf, Box trak) throws IOException {
+        Mp4Track t = new Mp4Track();
+        for (Box b : children(buf, trak.start, trak.end)) {
+            if ("tkhd".equals(b.type) && b.end - b.start >= 8) {
+                t.tkhdWidth = buf.getInt(b.end - 8) >>> 16;
+                t.tkhdHeight = buf.getInt(b.end - 4) >>> 16;
+            } else if ("edts".equals(b.type)) {
+                Box elst = child(buf, b, "elst");
+                if (elst != null) parseElst(buf, elst, t);
+            } else if ("mdia".equals(b.type)) {
+                for (Box m : children(buf, b.start, b.end)) {
+                    switch (m.type) {
+                        case "mdhd" -> {
+                            if (buf.get(m.start) == 1) {
+                                t.timescale = u32(buf, m.start + 20);
+                                t.duration = buf.getLong(m.start + 24);
+                            } else {
+                                t.timescale = u32(buf, m.start + 12);
+                                t.duration = u32(buf, m.start + 16);
+                            }
+                        }
+                        case "hdlr" -> t.type = switch (fourcc(buf, m.start + 8)) {
+                            case "vide" -> "video";
+                            case "soun" -> "audio";
+                            default -> "other";
+                        };
+                        case "minf" -> {
+                            Box stbl = child(buf, m, "stbl");
+                            if (stbl != null) parseStbl(buf, stbl, t);
+                        }
+                        default -> { }
+                    }
+                }
+            }
+        }
+        return t;
+    }
+
+    private static void parseStbl(ByteBuffer buf, Box stbl, Mp4Track t) throws IOException {
+        for (Box b : children(buf, stbl.start, stbl.end)) {
+            switch (b.type) {
+                case "stsd" -> {
+                    int entry = b.start + 8;
+                    if (entry + 8 > b.end) break;
+                    t.codec = fourcc(buf, entry + 4).trim();
+                    int body = entry + 8 + 8; // sample entry header + reserved/data_reference_index
+                    if ("video".equals(t.type) && body + 20 <= b.end) {
+                        t.width = u16(buf, body + 16);
+                        t.height = u16(buf, body + 18);
+                    } else if ("audio".equals(t.type) && body + 20 <= b.end) {
+                        t.channels = u16(buf, body + 8);
+                        t.sampleRate = (int) (u32(buf, body + 16) >>> 16);
+                    }
+                }
+                case "stts" -> {
+                    int n = entryCount(buf, b, 8);
+                    t.sttsCounts = new long[n];
+                    t.sttsDeltas = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        t.sttsCounts[i] = u32(buf, b.start + 8 + i * 8);
+                        t.sttsDeltas[i] = u32(buf, b.start + 12 + i * 8);
+                    }
+                }
+                case "ctts" -> {
+                    // versie 0 is formeel unsigned, maar encoders schrijven er ook negatieve offsets in
+                    int n = entryCount(buf, b, 8);
+                    t.cttsCounts = new long[n];
+                    t.cttsOffsets = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        t.cttsCounts[i] = u32(buf, b.start + 8 + i * 8);
+                        t.cttsOffsets[i] = buf.getInt(b.start + 12 + i * 8);
+                    }
+                }
+                case "stss" -> {
+                    int n = entryCount(buf, b, 4);
+                    t.syncSamples = new long[n];
+                    for (int i = 0; i < n; i++) t.syncSamples[i] = u32(buf, b.start + 8 + i * 4);
+                }
+                default -> { }
+            }
+        }
+    }
+
+    /** entry_count van een full box met vaste entries, gecontroleerd tegen de box-grootte. */
+    private static int entryCount(ByteBuffer buf, Box b, int entrySize) throws IOException {
+        if (b.start + 8 > b.end) throw new IOException("truncated '" + b.type + "' box");
+        long n = u32(buf, b.start + 4);
+        if (n > (b.end - b.start - 8) / entrySize) {
+            throw new IOException("corrupt '" + b.type + "' entry count " + n + " for " + (b.end - b.start) + " bytes");
+        }
+        return (int) n;
+    }
+
+    /** Eerste edit: lege edits schuiven de track op, de eerste media-edit bepaalt waar de presentatie begint. */
+    private static void parseElst(ByteBuffer buf, Box elst, Mp4Track t) {
+        int version = buf.get(elst.start);
+        int n = (int) u32(buf, elst.start + 4);
+        int entry = elst.start + 8;
+        int size = version == 1 ? 20 : 12;
+        for (int i = 0; i < n && entry + size <= elst.end; i++, entry += size) {
+            long segmentDuration = version == 1 ? buf.getLong(entry) : u32(buf, entry);
+            long mediaTime = version == 1 ? buf.getLong(entry + 8) : buf.getInt(entry + 4);
+            if (mediaTime == -1) {
+                t.emptyEditMovieTicks += segmentDuration;
+                continue;
+            }
+            t.editMediaTime = mediaTime;
+            return;
+        }
+    }
+
+    private static final class Mp4Track {
+        String type = "other";
+        String codec;
+        long timescale, duration;
+        Integer width, height, sampleRate, channels;
+        int tkhdWidth, tkhdHeight;
+        long[] sttsCounts = new long[0], sttsDeltas = new long[0];
+        long[] syncSamples; // null = alle samples zijn sync samples
+        long[] cttsCounts = new long[0], cttsOffsets = new long[0];
+        long emptyEditMovieTicks, editMediaTime;
+
+        StreamInfo stream() {
+            if ("video".equals(type)) {
+                // tkhd bevat de weergavegrootte (incl. pixel aspect); stsd de gecodeerde grootte
+                Integer w = tkhdWidth > 0 ? Integer.valueOf(tkhdWidth) : width;
+                Integer h = tkhdHeight > 0 ? Integer.valueOf(tkhdHeight) : height;
+                return new StreamInfo(type, codec, w, h, null, null);
+            }
+            if ("audio".equals(type)) return new StreamInfo(type, codec, null, null, sampleRate, channels);
+            return new StreamInfo(type, codec, null, null, null, null);
+        }
+
+        /**
+         * Presentatietijden van de sync samples (stss): decode-tijd uit de cumulatieve stts-tabel, plus de
+         * ctts-offset van dat sample, verschoven met de edit list. Zo komen ze overeen met de tijdlijn waarop
+         * ffmpeg {@code -ss} zoekt; een keyframe vóór het begin van de edit valt op 0.
+         */
+        List<Long> keyframesUs(long movieTimescale) {
+            if (timescale <= 0) return List.of();
+            int max = Math.min(MAX_KEYFRAMES, syncSamples != null ? syncSamples.length : totalSamples());
+            long[] samples = new long[max];
+            long[] ticks = new long[max];
+            int k = 0, next = 0;
+            long sample = 1, dts = 0;
+            for (int e = 0; e < sttsCounts.length && k < max; e++) {
+                long end = sample + sttsCounts[e];
+                while (k < max) {
+                    long target = syncSamples != null ? (next < syncSamples.length ? syncSamples[next] : Long.MAX_VALUE) : sample;
+                    if (target >= end) break;
+                    samples[k] = target;
+                    ticks[k++] = dts + (target - sample) * sttsDeltas[e];
+                    if (syncSamples != null) next++; else { sample++; dts += sttsDeltas[e]; }
+                }
+                if (syncSamples != null || sample < end) {
+                    dts += (end - sample) * sttsDeltas[e];
+                    sample = end;
+                }
+            }
+
+            long shift = -editMediaTime;
+            if (movieTimescale > 0) shift += emptyEditMovieTicks * timescale / movieTimescale;
+            long[] out = new long[k];
+            int run = 0;
+            long runEnd = cttsCounts.length > 0 ? 1 + cttsCounts[0] : Long.MAX_VALUE;
+            for (int i = 0; i < k; i++) {
+                // sync samples zijn oplopend, dus de ctts-tabel hoeft maar één keer doorlopen te worden
+                while (run + 1 < cttsCounts.length && samples[i] >= runEnd) runEnd += cttsCounts[++run];
+                long offset = run < cttsOffsets.length && samples[i] < runEnd ? cttsOffsets[run] : 0;
+                out[i] = Math.max(0, ticks[i] + offset + shift) * 1_000_000L / timescale;
+            }
+            return Arrays.stream(out).sorted().distinct().boxed().toList();
+        }
+
+        private int totalSamples() {
+            long n = 0;
+            for (long c : sttsCounts) n += c;
+            return (int) Math.min(Integer.MAX_VALUE, n);
+        }
+    }
+
+    private record Box(String type, int start, int end) {}
+
+    private static List<Box> children(ByteBuffer buf, int from, int to) {
+        List<Box> out = new ArrayList<>();
+        int pos = from;
+        while (pos + 8 <= to) {
+            long size = u32(buf, pos);
+            String type = fourcc(buf, pos + 4);
+            int hdr = 8;
+            if (size == 1) {
+                size = buf.getLong(pos + 8);
+                hdr = 16;
+            } else if (size == 0) {
+                size = to - pos;
+            }
+            if (size < hdr || pos + size > to) break;
+            out.add(new Box(type, pos + hdr, (int) (pos + size)));
+            pos += (int) size;
+        }
+        return out;
+    }
+
+    private static Box child(ByteBuffer buf, Box parent, String type) {
+        for (Box b : children(buf, parent.start, parent.end)) if (type.equals(b.type)) return b;
+        return null;
+    }
+
+    // ------------------------------------------------------------------ WebM / Matroska (EBML)
+
+    private static final int EBML_HEADER = 0x1A45DFA3;
+    private static final int EBML_DOCTYPE = 0x4282;
+    private static final int SEGMENT = 0x18538067;
+    private static final int SEEK_HEAD = 0x114D9B74, SEEK = 0x4DBB, SEEK_ID = 0x53AB, SEEK_POSITION = 0x53AC;
+    private static final int INFO = 0x1549A966, TIMECODE_SCALE = 0x2AD7B1, DURATION = 0x4489;
+    private static final int TRACKS = 0x1654AE6B, TRACK_ENTRY = 0xAE, TRACK_NUMBER = 0xD7, TRACK_TYPE = 0x83, CODEC_ID = 0x86;
+    private static final int VIDEO = 0xE0, PIXEL_WIDTH = 0xB0, PIXEL_HEIGHT = 0xBA;
+    private static final int AUDIO = 0xE1, SAMPLING_FREQUENCY = 0xB5, CHANNELS = 0x9F;
+    private static final int CUES = 0x1C53BB6B, CUE_POINT = 0xBB, CUE_TIME = 0xB3, CUE_TRACK_POSITIONS = 0xB7, CUE_TRACK = 0xF7;
+
+    private record Element(int id, long dataStart, long size) {
+        long end() { return dataStart + size; }
+    }
+
+    private static ContainerInfo parseMatroska(FileChannel ch) throws IOException {
+        long fileSize = ch.size();
+        Element ebml = readElement(ch, 0);
+        String docType = "matroska";
+        ByteBuffer header = readData(ch, ebml);
+        for (Element e : elements(header, 0, header.limit())) {
+            if (e.id == EBML_DOCTYPE) docType = string(header, e);
+        }
+
+        Element segment = readElement(ch, ebml.end());
+        if (segment.id != SEGMENT) return null;
+        long segStart = segment.dataStart;
+        long segEnd = segment.size < 0 ? fileSize : Math.min(fileSize, segment.end());
+
+        long timecodeScale = 1_000_000L;
+        double duration = 0;
+        List<MkvTrack> tracks = new ArrayList<>();
+        List<long[]> cues = null;
+        long cuesPos = -1;
+
+        long pos = segStart;
+        while (pos < segEnd) {
+            Element e = readElement(ch, pos);
+            if (e.id == INFO) {
+                ByteBuffer b = readData(ch, e);
+                for (Element c : elements(b, 0, b.limit())) {
+                    if (c.id == TIMECODE_SCALE) timecodeScale = uint(b, c);
+                    else if (c.id == DURATION) duration = floatValue(b, c);
+                }
+            } else if (e.id == TRACKS) {
+                ByteBuffer b = readData(ch, e);
+                for (Element c : elements(b, 0, b.limit())) {
+                    if (c.id == TRACK_ENTRY) tracks.add(parseTrackEntry(b, c));
+                }
+            } else if (e.id == CUES) {
+                cues = parseCues(readData(ch, e));
+            } else if (e.id == SEEK_HEAD) {
+                cuesPos = seekPosition(readData(ch, e), CUES, segStart);
+            }
+            if (e.size < 0) break; // live/streaming element zonder lengte: verder lopen kan niet
+            pos = e.end();
+        }
+        if (cues == null && cuesPos > 0 && cuesPos < fileSize) {
+            Element e = readElement(ch, cuesPos);
+            if (e.id == CUES && e.size > 0) cues = parseCues(readData(ch, e));
+        }
+
+        List<StreamInfo> streams = new ArrayList<>(tracks.size());
+        long videoTrack = -1;
+        for (MkvTrack t : tracks) {
+            streams.add(t.stream());
+            if (videoTrack < 0 && t.type == 1) videoTrack = t.number;
+        }
+        List<Long> keyframes = List.of();
+        if (cues != null && videoTrack >= 0) {
+            final long vt = videoTrack;
+            final long scale = timecodeScale;
+            // CueTime is al een presentatietijd (Block-timestamp), geen decode-tijd
+            keyframes = cues.stream()
+                    .filter(c -> c[1] == vt || c[1] < 0)
+                    .mapToLong(c -> c[0] * scale / 1000L)
+                    .sorted().distinct().limit(MAX_KEYFRAMES).boxed().toList();
+        }
+        long durationUs = (long) (duration * timecodeScale / 1000.0);
+        return new ContainerInfo("webm".equals(docType) ? "webm" : "matroska", durationUs, streams, keyframes);
+    }
+
+    private static final class MkvTrack {
+        long number = -1, type;
+        String codec;
+        Integer width, height, sampleRate, channels;
+
+        StreamInfo stream() {
+            return switch ((int) type) {
+                case 1 -> new StreamInfo("video", codec, width, height, null, null);
+                case 2 -> new StreamInfo("audio", codec, null, null, sampleRate, channels != null ? channels : 1);
+                default -> new StreamInfo("other", codec, null, null, null, null);
+            };
+        }
+    }
+
+    private static MkvTrack parseTrackEntry(ByteBuffer b, Element entry) {
+        MkvTrack t = new MkvTrack();
+        for (Element c : elements(b, (int) entry.dataStart, (int) entry.end())) {
+            switch (c.id) {
+                case TRACK_NUMBER -> t.number = uint(b, c);
+                case TRACK_TYPE -> t.type = uint(b, c);
+                case CODEC_ID -> t.codec = string(b, c);
+                case VIDEO -> {
+                    for (Element v : elements(b, (int) c.dataStart, (int) c.end())) {
+                        if (v.id == PIXEL_WIDTH) t.width = (int) uint(b, v);
+                        else if (v.id == PIXEL_HEIGHT) t.height = (int) uint(b, v);
+                    }
+                }
+                case AUDIO -> {
+                    for (Element a : elements(b, (int) c.dataStart, (int) c.end())) {
+                        if (a.id == SAMPLING_FREQUENCY) t.sampleRate = (int) Math.round(floatValue(b, a));
+                        else if (a.id == CHANNELS) t.channels = (int) uint(b, a);
+                    }
+                }
+                default -> { }
+            }
+        }
+        return t;
+    }
+
+    /** @return paren {cueTime, cueTrack} ({@code cueTrack = -1} als onbekend) */
+    private static List<long[]> parseCues(ByteBuffer b) {
+        List<long[]> out = new ArrayList<>();
+        for (Element point : elements(b, 0, b.limit())) {
+            if (point.id != CUE_POINT) continue;
+            long time = -1;
+            List<Long> trackNumbers = new ArrayList<>();
+            for (Element c : elements(b, (int) point.dataStart, (int) point.end())) {
+                if (c.id == CUE_TIME) {
+                    time = uint(b, c);
+                } else if (c.id == CUE_TRACK_POSITIONS) {
+                    for (Element p : elements(b, (int) c.dataStart, (int) c.end())) {
+                        if (p.id == CUE_TRACK) trackNumbers.add(uint(b, p));
+                    }
+                }
+            }
+            if (time < 0) continue;
+            if (trackNumbers.isEmpty()) out.add(new long[]{time, -1});
+            for (Long tn : trackNumbers) out.add(new long[]{time, tn});
+        }
+        return out;
+    }
+
+    private static long seekPosition(ByteBuffer b, int targetId, long segStart) {
+        for (Element seek : elements(b, 0, b.limit())) {
+            if (seek.id != SEEK) continue;
+            long id = -1, position = -1;
+            for (Element c : elements(b, (int) seek.dataStart, (int) seek.end())) {
+                if (c.id == SEEK_ID) id = uint(b, c);
+                else if (c.id == SEEK_POSITION) position = uint(b, c);
+            }
+            if (id == targetId && position >= 0) return segStart + position;
+        }
+        return -1;
+    }
+
+    private static Element readElement(FileChannel ch, long pos) throws IOException {
+        ByteBuffer h = read(ch, pos, 12);
+        if (h.limit() == 0) throw new IOException("EBML element beyond EOF at " + pos);
+        int idLen = vintLength(h.get(0));
+        if (idLen > 4 || h.limit() < idLen + 1) throw new IOException("invalid EBML id at " + pos);
+        int id = 0;
+        for (int i = 0; i < idLen; i++) id = (id << 8) | (h.get(i) & 0xFF);
+        int sizeLen = vintLength(h.get(idLen));
+        if (sizeLen > 8 || h.limit() < idLen + sizeLen) throw new IOException("invalid EBML size at " + pos);
+        long size = vintValue(h, idLen, sizeLen);
+        return new Element(id, pos + idLen + sizeLen, size);
+    }
+
+    private static ByteBuffer readData(FileChannel ch, Element e) throws IOException {
+        if (e.size < 0 || e.size > MAX_HEADER_BYTES) throw new IOException("EBML element too large: 0x" + Integer.toHexString(e.id));
+        return read(ch, e.dataStart, (int) e.size);
+    }
+
+    private static List<Element> elements(ByteBuffer b, int from, int to) {
+        List<Element> out = new ArrayList<>();
+        int pos = from;
+        while (pos < to) {
+            int idLen = vintLength(b.get(pos));
+            if (idLen > 4 || pos + idLen >= to) break;
+            int id = 0;
+            for (int i = 0; i < idLen; i++) id = (id << 8) | (b.get(pos + i) & 0xFF);
+            int sizeLen = vintLength(b.get(pos + idLen));
+            if (sizeLen > 8 || pos + idLen + sizeLen > to) break;
+            long size = vintValue(b, pos + idLen, sizeLen);
+            long dataStart = pos + idLen + sizeLen;
+            if (size < 0 || dataStart + size > to) break;
+            out.add(new Element(id, dataStart, size));
+            pos = (int) (dataStart + size);
+        }
+        return out;
+    }
+
+    private static int vintLength(byte first) {
+        int v = first & 0xFF;
+        return v == 0 ? 9 : Integer.numberOfLeadingZeros(v) - 23;
+    }
+
+    /** Waarde zonder marker-bit; {@code -1} voor de "onbekende lengte" (alle bits 1). */
+    private static long vintValue(ByteBuffer b, int pos, int len) {
+        long value = (b.get(pos) & 0xFF) & (0xFF >> len);
+        boolean allOnes = value == (0xFF >> len);
+        for (int i = 1; i < len; i++) {
+            int next = b.get(pos + i) & 0xFF;
+            allOnes &= next == 0xFF;
+            value = (value << 8) | next;
+        }
+        return allOnes ? -1 : value;
+    }
+
+    private static long uint(ByteBuffer b, Element e) {
+        long v = 0;
+        for (int i = 0; i < e.size && i < 8; i++) v = (v << 8) | (b.get((int) e.dataStart + i) & 0xFF);
+        return v;
+    }
+
+    private static double floatValue(ByteBuffer b, Element e) {
+        if (e.size == 4) return b.getFloat((int) e.dataStart);
+        if (e.size == 8) return b.getDouble((int) e.dataStart);
+        return 0;
+    }
+
+    private static String string(ByteBuffer b, Element e) {
+        byte[] bytes = new byte[(int) e.size];
+        b.get((int) e.dataStart, bytes);
+        int len = bytes.length;
+        while (len > 0 && bytes[len - 1] == 0) len--;
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------------ io helpers
+
+    private static ByteBuffer read(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n < 0) break;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static String fourcc(ByteBuffer b, int pos) {
+        if (pos + 4 > b.limit()) return "";
+        byte[] bytes = new byte[4];
+        b.get(pos, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long u32(ByteBuffer b, int pos) {
+        return b.getInt(pos) & 0xFFFFFFFFL;
+    }
+
+    private static int u16(ByteBuffer b, int pos) {
+        return b.getShort(pos) & 0xFFFF;
+    }
+}
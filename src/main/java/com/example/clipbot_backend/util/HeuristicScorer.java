@@ -1,12 +1,15 @@
 package com.example.clipbot_backend.util;
 
+import com.example.clipbot_backend.dto.SceneCut;
 import com.example.clipbot_backend.dto.SentenceSpan;
 import com.example.clipbot_backend.dto.SpeakerTurn;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,7 +23,8 @@ public class HeuristicScorer {
             double speakerBoundaryBonus,
             double speakerTurnBonus,
             double speakerMidPenalty,
-            boolean speakerHeuristicsApplied
+            boolean speakerHeuristicsApplied,
+            double sceneAlignBonus
     ) {
         public Map<String, Object> toMeta() {
             Map<String, Object> m = new LinkedHashMap<>();
@@ -33,18 +37,11 @@ public class HeuristicScorer {
             m.put("speakerTurnBonus", speakerTurnBonus);
             m.put("speakerMidPenalty", speakerMidPenalty);
             m.put("speakerHeuristicsApplied", speakerHeuristicsApplied);
+            m.put("sceneAlignBonus", sceneAlignBonus);
             return m;
         }
     }
 
-    // licht uitgebreid
-    private static final Set<String> HOOK = Set.of(
-            "here's","listen","crazy","secret","tip","watch","big","why","how","mistake","best","warning","truth"
-    );
-    private static final Set<String> PAYOFF = Set.of(
-            "so","therefore","that's why","result","in short","ultimately","the key is","summary","bottom line"
-    );
-
     // minimale bodem zodat niks volledig afvalt
     private static final double LEN_FLOOR = 0.15;   // min score voor lengte
     private static final double MIN_SIGMA = 6.0;    // voorkom te scherpe bel
@@ -56,29 +53,86 @@ public class HeuristicScorer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HeuristicScorer.class);
 
+    private final ScoringVocabulary vocabulary;
+
+    public HeuristicScorer() {
+        this(ScoringVocabulary.ENGLISH);
+    }
+
+    /**
+     * @param vocabulary hook/payoff vocabulary for the transcript language.
+     */
+    public HeuristicScorer(ScoringVocabulary vocabulary) {
+        this.vocabulary = vocabulary != null ? vocabulary : ScoringVocabulary.ENGLISH;
+    }
+
     public Result scoreWindow(List<SentenceSpan> sents, double targetLenSec, double sigmaSec, SpeakerContext speakerContext, long startMsOverride, long endMsOverride) {
         if (sents == null || sents.isEmpty()) {
-            return new Result(0, 0, false, false, 0, 0, 0, 0, false);
+            return new Result(0, 0, false, false, 0, 0, 0, 0, false, 0);
         }
 
-        long startMs = startMsOverride;
-        long endMs   = endMsOverride;
-        double lenSec = Math.max(0.001, (endMs - startMs) / 1000.0);
-
-        // 1) Lengte-score – tolerant
-        double sigma = Math.max(MIN_SIGMA, sigmaSec <= 0 ? MIN_SIGMA : sigmaSec);
-        double lenScore = cauchy(lenSec, targetLenSec, sigma); // toleranter dan gaussian
-        lenScore = Math.max(LEN_FLOOR, lenScore);              // geef bodem
-
         // 2) Tekst features
         String all = sents.stream().map(SentenceSpan::text).collect(java.util.stream.Collectors.joining(" ")).toLowerCase();
-        boolean hasHook   = containsAnyWord(all, HOOK);
-        boolean hasPayoff = containsAnyWord(all, PAYOFF);
+        List<String> tokens = KeywordMatcher.tokenize(all);
+        boolean hasHook   = vocabulary.hook().containsAny(tokens);
+        boolean hasPayoff = vocabulary.payoff().containsAny(tokens);
 
         // 3) Boundary bonus (netjes begin/eind)
         String trimmed = all.trim();
         boolean endsNeat = trimmed.endsWith(".") || trimmed.endsWith("!") || trimmed.endsWith("?");
         boolean startsNeat = Character.isLetterOrDigit(trimmed.isEmpty() ? ' ' : trimmed.charAt(0));
+
+        return combine(startMsOverride, endMsOverride, targetLenSec, sigmaSec, speakerContext, SceneContext.NONE,
+                hasHook, hasPayoff, startsNeat, endsNeat);
+    }
+
+    /**
+     * Precomputes the text features of all sentences once, so {@link #scoreRange} can score any
+     * window {@code [from, to]} in O(1) instead of re-joining and rescanning its text.
+     *
+     * @param sentences sentences in the order windows are enumerated.
+     * @return per-sentence feature arrays.
+     */
+    public Features prepare(List<SentenceSpan> sentences) {
+        return new Features(sentences == null ? List.of() : sentences, vocabulary);
+    }
+
+    /**
+     * Same result as {@link #scoreWindow} on {@code sentences.subList(from, to + 1)}, using precomputed features.
+     */
+    public Result scoreRange(Features f, int from, int to, double targetLenSec, double sigmaSec,
+                             SpeakerContext speakerContext, long startMsOverride, long endMsOverride) {
+        return scoreRange(f, from, to, targetLenSec, sigmaSec, speakerContext, SceneContext.NONE, startMsOverride, endMsOverride);
+    }
+
+    /**
+     * {@link #scoreRange(Features, int, int, double, double, SpeakerContext, long, long)} plus a bonus for window
+     * bounds that land on a scene cut.
+     */
+    public Result scoreRange(Features f, int from, int to, double targetLenSec, double sigmaSec,
+                             SpeakerContext speakerContext, SceneContext sceneContext, long startMsOverride, long endMsOverride) {
+        if (from < 0 || to < from || to >= f.size) {
+            return new Result(0, 0, false, false, 0, 0, 0, 0, false, 0);
+        }
+        boolean hasHook = f.hookEndFrom[from] <= to;
+        boolean hasPayoff = f.payoffEndFrom[from] <= to;
+        int first = f.nextNonBlank[from];
+        int last = f.prevNonBlank[to];
+        boolean startsNeat = first <= to && f.startNeat[first];
+        boolean endsNeat = last >= from && f.endNeat[last];
+        return combine(startMsOverride, endMsOverride, targetLenSec, sigmaSec, speakerContext, sceneContext,
+                hasHook, hasPayoff, startsNeat, endsNeat);
+    }
+
+    private Result combine(long startMs, long endMs, double targetLenSec, double sigmaSec, SpeakerContext speakerContext,
+                           SceneContext sceneContext, boolean hasHook, boolean hasPayoff, boolean startsNeat, boolean endsNeat) {
+        double lenSec = Math.max(0.001, (endMs - startMs) / 1000.0);
+
+        // 1) Lengte-score – tolerant
+        double sigma = Math.max(MIN_SIGMA, sigmaSec <= 0 ? MIN_SIGMA : sigmaSec);
+        double lenScore = cauchy(lenSec, targetLenSec, sigma); // toleranter dan gaussian
+        lenScore = Math.max(LEN_FLOOR, lenScore);              // geef bodem
+
         double boundaryBonus = BASE_BOUNDARY + (endsNeat ? 0.06 : 0) + (startsNeat ? 0.04 : 0);
 
         // 3b) Speaker-aware heuristieken (alleen wanneer aangezet)
@@ -110,6 +164,9 @@ public class HeuristicScorer {
             }
         }
 
+        // 3c) Beeldovergang op de grens: knip valt samen met een scene cut
+        double sceneAlignBonus = sceneContext == null ? 0 : sceneContext.alignBonus(startMs, endMs);
+
         // 4) Combineer – geef inhoudelijke termen wel gewicht, maar niet allesbepalend
         double base = 0.6 * lenScore
                 + (hasHook ? 0.12 : 0)
@@ -117,7 +174,7 @@ public class HeuristicScorer {
                 + boundaryBonus;
 
         double speakerDelta = speakerBoundaryBonus + speakerTurnBonus - speakerMidPenalty;
-        double overall = base + speakerDelta;
+        double overall = base + speakerDelta + sceneAlignBonus;
 
         // zachte clamp en bodem: we willen nooit exact 0
         overall = Math.max(0.05, Math.min(1.0, overall));
@@ -126,32 +183,229 @@ public class HeuristicScorer {
                     startMs, endMs, speakerBoundaryBonus, speakerMidPenalty, speakerTurnBonus, speakerApplied);
         }
         return new Result(overall, lenScore, hasHook, hasPayoff, boundaryBonus,
-                speakerBoundaryBonus, speakerTurnBonus, speakerMidPenalty, speakerApplied);
+                speakerBoundaryBonus, speakerTurnBonus, speakerMidPenalty, speakerApplied, sceneAlignBonus);
     }
 
-    public record SpeakerContext(List<SpeakerTurn> turns, boolean enabled) {
+    /**
+     * Per-sentence text features over the token stream of the whole transcript.
+     * Keyword hits are stored as suffix minima of the sentence in which a match ends: a window {@code [i, j]}
+     * contains a hit iff the earliest-ending match starting in sentence {@code i} or later ends by sentence
+     * {@code j}. That also covers multi-word keys spanning a sentence boundary, like the joined-text scan.
+     */
+    public static final class Features {
+        final int size;
+        final int[] hookEndFrom;
+        final int[] payoffEndFrom;
+        final int[] nextNonBlank;
+        final int[] prevNonBlank;
+        final boolean[] startNeat;
+        final boolean[] endNeat;
+
+        Features(List<SentenceSpan> sentences, ScoringVocabulary vocabulary) {
+            int n = sentences.size();
+            this.size = n;
+            this.startNeat = new boolean[n];
+            this.endNeat = new boolean[n];
+            this.nextNonBlank = new int[n + 1];
+            this.prevNonBlank = new int[n];
+
+            List<String> tokens = new ArrayList<>();
+            int[] tokenSentence = new int[16];
+            for (int k = 0; k < n; k++) {
+                String text = String.valueOf(sentences.get(k).text());
+                List<String> sentenceTokens = KeywordMatcher.tokenize(text);
+                if (tokens.size() + sentenceTokens.size() > tokenSentence.length) {
+                    tokenSentence = Arrays.copyOf(tokenSentence, Math.max(tokenSentence.length * 2, tokens.size() + sentenceTokens.size()));
+                }
+                for (String t : sentenceTokens) {
+                    tokenSentence[tokens.size()] = k;
+                    tokens.add(t);
+                }
+                String trimmed = text.trim();
+                if (!trimmed.isEmpty()) {
+                    startNeat[k] = Character.isLetterOrDigit(trimmed.charAt(0));
+                    endNeat[k] = trimmed.endsWith(".") || trimmed.endsWith("!") || trimmed.endsWith("?");
+                }
+                // trim() van de hele window-tekst valt terug op de eerste/laatste niet-lege zin
+                prevNonBlank[k] = trimmed.isEmpty() ? (k > 0 ? prevNonBlank[k - 1] : -1) : k;
+            }
+            nextNonBlank[n] = n;
+            for (int k = n - 1; k >= 0; k--) {
+                nextNonBlank[k] = prevNonBlank[k] == k ? k : nextNonBlank[k + 1];
+            }
+            this.hookEndFrom = matchEndsFrom(tokens, tokenSentence, n, vocabulary.hook());
+            this.payoffEndFrom = matchEndsFrom(tokens, tokenSentence, n, vocabulary.payoff());
+        }
+
+        private static int[] matchEndsFrom(List<String> tokens, int[] tokenSentence, int n, KeywordMatcher matcher) {
+            int[] bestEnd = new int[n + 1];
+            Arrays.fill(bestEnd, Integer.MAX_VALUE);
+            if (!matcher.isEmpty()) {
+                for (int p = 0; p < tokens.size(); p++) {
+                    int len = matcher.matchLengthAt(tokens, p);
+                    if (len == 0) continue;
+                    int startSentence = tokenSentence[p];
+                    int endSentence = tokenSentence[p + len - 1];
+                    if (endSentence < bestEnd[startSentence]) bestEnd[startSentence] = endSentence;
+                }
+            }
+            for (int k = n - 1; k >= 0; k--) {
+                bestEnd[k] = Math.min(bestEnd[k], bestEnd[k + 1]);
+            }
+            return bestEnd;
+        }
+
+        public int size() { return size; }
+
+        /** @return whether a hook phrase starts in sentence {@code i} and ends by the next one. */
+        public boolean hookNear(int i) { return hookEndFrom[i] <= i + 1; }
+
+        /** @return whether sentence {@code i} starts with a letter or digit. */
+        public boolean startsNeat(int i) { return startNeat[i]; }
+    }
+
+    public record SpeakerContext(List<SpeakerTurn> turns, boolean enabled, TurnIndex index) {
+        public SpeakerContext(List<SpeakerTurn> turns, boolean enabled) {
+            this(turns, enabled, TurnIndex.of(turns));
+        }
+
         public boolean hasTurns() { return turns != null && !turns.isEmpty(); }
 
         public long distanceToBoundary(long timestampMs) {
             if (!hasTurns()) return -1;
-            long best = Long.MAX_VALUE;
-            for (int i = 1; i < turns.size(); i++) {
-                if (!turns.get(i).speaker().equals(turns.get(i - 1).speaker())) {
-                    long boundary = turns.get(i).startMs();
-                    long dist = Math.abs(timestampMs - boundary);
-                    if (dist < best) best = dist;
-                }
-            }
-            return best == Long.MAX_VALUE ? -1 : best;
+            return index.boundaries().distanceToNearest(timestampMs);
         }
 
         public int countTurnsWithin(long startMs, long endMs) {
             if (!hasTurns()) return 0;
+            return index.countTurnsWithin(turns, startMs, endMs);
+        }
+    }
+
+    /**
+     * Scene cuts above the detect threshold. Each window bound within {@code alignMs} of a cut earns half of
+     * {@code bonus}, decaying linearly with the distance.
+     */
+    public record SceneContext(SortedBoundaries cuts, long alignMs, double bonus) {
+        public static final SceneContext NONE = new SceneContext(SortedBoundaries.EMPTY, 0, 0);
+
+        public static SceneContext of(List<SceneCut> cuts, double threshold, long alignMs, double bonus) {
+            if (cuts == null || cuts.isEmpty()) return NONE;
+            long[] v = new long[cuts.size()];
+            int n = 0;
+            for (SceneCut c : cuts) {
+                if (c.score() >= threshold) v[n++] = c.ms();
+            }
+            return n == 0 ? NONE : new SceneContext(SortedBoundaries.of(Arrays.copyOf(v, n)), alignMs, bonus);
+        }
+
+        public boolean hasCuts() { return !cuts.isEmpty(); }
+
+        /** @return nearest cut within {@code alignMs} of {@code ms}, or -1. */
+        public long snap(long ms) {
+            return hasCuts() ? cuts.nearestWithin(ms, alignMs) : -1;
+        }
+
+        double alignBonus(long startMs, long endMs) {
+            if (!hasCuts() || alignMs <= 0 || bonus <= 0) return 0;
+            return edgeBonus(startMs) + edgeBonus(endMs);
+        }
+
+        private double edgeBonus(long ms) {
+            long d = cuts.distanceToNearest(ms);
+            return d < 0 || d > alignMs ? 0 : 0.5 * bonus * (1.0 - d / (double) alignMs);
+        }
+    }
+
+    /**
+     * Audio-energy term for window scoring: windows louder and busier than the recording's average earn up to
+     * {@code weight}, average or quieter windows earn nothing. O(1) per window via the feature prefix sums.
+     */
+    public record EnergyContext(AudioFeatures features, double weight) {
+        public static final EnergyContext NONE = new EnergyContext(AudioFeatures.EMPTY, 0);
+
+        public boolean enabled() { return weight > 0 && !features.isEmpty(); }
+
+        public double bonus(long startMs, long endMs) {
+            if (!enabled()) return 0;
+            return weight * Math.max(0, 2 * features.excitement(startMs, endMs) - 1);
+        }
+    }
+
+    /**
+     * Speaker turns as primitive arrays: sorted speaker-change boundaries for nearest lookups and a prefix count
+     * of speaker changes for turns-within-range.
+     */
+    public static final class TurnIndex {
+        private static final TurnIndex EMPTY = new TurnIndex(SortedBoundaries.EMPTY, new long[0], new long[0], new int[1], true);
+
+        private final SortedBoundaries boundaries;
+        private final long[] starts;
+        private final long[] ends;
+        /** changes[k] = aantal sprekerwissels tussen opeenvolgende turns t/m index k-1. */
+        private final int[] changes;
+        /** Gesorteerd en zonder overlap: de turns binnen een range vormen dan één aaneengesloten blok. */
+        private final boolean contiguous;
+
+        private TurnIndex(SortedBoundaries boundaries, long[] starts, long[] ends, int[] changes, boolean contiguous) {
+            this.boundaries = boundaries;
+            this.starts = starts;
+            this.ends = ends;
+            this.changes = changes;
+            this.contiguous = contiguous;
+        }
+
+        public static TurnIndex of(List<SpeakerTurn> turns) {
+            if (turns == null || turns.isEmpty()) return EMPTY;
+            int n = turns.size();
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            int[] changes = new int[n + 1];
+            long[] boundaryValues = new long[n];
+            int boundaryCount = 0;
+            boolean contiguous = true;
+            for (int k = 0; k < n; k++) {
+                SpeakerTurn t = turns.get(k);
+                starts[k] = t.startMs();
+                ends[k] = t.endMs();
+                boolean change = k > 0 && !Objects.equals(t.speaker(), turns.get(k - 1).speaker());
+                changes[k + 1] = changes[k] + (change ? 1 : 0);
+                if (change) boundaryValues[boundaryCount++] = t.startMs();
+                if (ends[k] < starts[k] || (k > 0 && starts[k] < ends[k - 1])) contiguous = false;
+            }
+            return new TurnIndex(SortedBoundaries.of(Arrays.copyOf(boundaryValues, boundaryCount)), starts, ends, changes, contiguous);
+        }
+
+        public SortedBoundaries boundaries() {
+            return boundaries;
+        }
+
+        int countTurnsWithin(List<SpeakerTurn> turns, long startMs, long endMs) {
+            if (!contiguous) return countLinear(turns, startMs, endMs);
+            int n = starts.length;
+            // eerste turn die na startMs eindigt (eindes zijn oplopend zonder overlap)
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] > startMs) hi = mid; else lo = mid + 1;
+            }
+            int first = lo;
+            // eerste turn die op of na endMs begint
+            lo = first; hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < endMs) lo = mid + 1; else hi = mid;
+            }
+            int last = lo;
+            return last - first <= 1 ? 0 : changes[last] - changes[first + 1];
+        }
+
+        private static int countLinear(List<SpeakerTurn> turns, long startMs, long endMs) {
             int turnsCount = 0;
             SpeakerTurn prev = null;
             for (SpeakerTurn t : turns) {
                 if (t.endMs() <= startMs || t.startMs() >= endMs) continue;
-                if (prev != null && !prev.speaker().equals(t.speaker())) {
+                if (prev != null && !Objects.equals(prev.speaker(), t.speaker())) {
                     turnsCount++;
                 }
                 prev = t;
@@ -165,15 +419,4 @@ public class HeuristicScorer {
         double d = (x - mu) / sigma;
         return 1.0 / (1.0 + d * d);
     }
-
-    // match op woordgrenzen, zodat "how" ≠ "show"
-    private static boolean containsAnyWord(String t, Set<String> keys) {
-        for (String k : keys) {
-            String pat = "\\b" + java.util.regex.Pattern.quote(k) + "\\b";
-            if (java.util.regex.Pattern.compile(pat).matcher(t).find()) return true;
-        }
-        return false;
-    }
 }
-
-
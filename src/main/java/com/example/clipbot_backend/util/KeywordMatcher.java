@@ -0,0 +1,126 @@
+package com.example.clipbot_backend.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyword/phrase matcher over normalized tokens, compiled once from a vocabulary.
+ * Single-word keys are a hash lookup per token; multi-word keys are indexed by their first token and
+ * matched against the following tokens, so "the key is" also matches across punctuation ("the key, is").
+ * A token with a clitic suffix also matches a key without it ("how's" matches "how"), as a word-boundary regex did.
+ */
+public final class KeywordMatcher {
+    /** Clitics die van een token af mogen voor de lookup; {@code n't} niet: "isn't" is geen "is". */
+    private static final String[] CLITICS = {"'s", "'re", "'ll", "'ve", "'d", "'m"};
+
+    /** Per eerste token: de kortste frase eerst (geeft het vroegste match-einde). */
+    private final Map<String, List<String[]>> byFirstToken;
+
+    private KeywordMatcher(Map<String, List<String[]>> byFirstToken) {
+        this.byFirstToken = byFirstToken;
+    }
+
+    /**
+     * Compiles a vocabulary; keys are tokenized with {@link #tokenize(String)}, blank keys are ignored.
+     *
+     * @param keys words or phrases.
+     * @return compiled matcher.
+     */
+    public static KeywordMatcher of(Collection<String> keys) {
+        Map<String, List<String[]>> index = new HashMap<>();
+        if (keys != null) {
+            for (String key : keys) {
+                List<String> tokens = tokenize(key);
+                if (tokens.isEmpty()) continue;
+                index.computeIfAbsent(tokens.get(0), k -> new ArrayList<>()).add(tokens.toArray(String[]::new));
+            }
+        }
+        index.values().forEach(list -> list.sort((a, b) -> Integer.compare(a.length, b.length)));
+        return new KeywordMatcher(index);
+    }
+
+    /**
+     * Splits text into lowercase tokens: runs of letters/digits, keeping inner apostrophes ({@code here's}).
+     *
+     * @param text input text (nullable).
+     * @return tokens in order.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        StringBuilder sb = new StringBuilder();
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            } else if ((c == '\'' || c == '’') && sb.length() > 0 && i + 1 < n && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                sb.append('\'');
+            } else if (sb.length() > 0) {
+                out.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) out.add(sb.toString());
+        return out;
+    }
+
+    /**
+     * Returns the length (in tokens) of the shortest key starting at {@code pos}, or {@code 0} when none matches.
+     *
+     * @param tokens token stream.
+     * @param pos    start position.
+     * @return match length or {@code 0}.
+     */
+    public int matchLengthAt(List<String> tokens, int pos) {
+        String first = tokens.get(pos);
+        List<String[]> candidates = byFirstToken.get(first);
+        if (candidates == null) {
+            String stem = stripClitic(first);
+            if (stem == first) return 0;
+            candidates = byFirstToken.get(stem);
+            if (candidates == null) return 0;
+        }
+        for (String[] phrase : candidates) {
+            if (pos + phrase.length > tokens.size()) continue;
+            boolean ok = true;
+            for (int k = 1; k < phrase.length && ok; k++) {
+                String token = tokens.get(pos + k);
+                ok = phrase[k].equals(token) || phrase[k].equals(stripClitic(token));
+            }
+            if (ok) return phrase.length;
+        }
+        return 0;
+    }
+
+    /**
+     * @param token lowercase token from {@link #tokenize(String)}.
+     * @return the token without a trailing clitic ({@code how's -> how}), or the same instance when it has none.
+     */
+    static String stripClitic(String token) {
+        for (String clitic : CLITICS) {
+            if (token.length() > clitic.length() && token.endsWith(clitic)) {
+                return token.substring(0, token.length() - clitic.length());
+            }
+        }
+        return token;
+    }
+
+    /**
+     * @param tokens token stream.
+     * @return whether any key occurs in the stream.
+     */
+    public boolean containsAny(List<String> tokens) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (matchLengthAt(tokens, i) > 0) return true;
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return byFirstToken.isEmpty();
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.clipbot_backend.util;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped 16 kHz mono signed 16-bit little-endian PCM of one media source.
+ * Slices are views on the mapping and WAV windows are written with a channel transfer, so serving a range
+ * never decodes the source again.
+ */
+public final class PcmAudio {
+    public static final int SAMPLE_RATE = 16_000;
+    public static final int BYTES_PER_SAMPLE = 2;
+    private static final int WAV_HEADER_BYTES = 44;
+
+    private final Path file;
+    private final ShortBuffer samples;
+
+    private PcmAudio(Path file, ShortBuffer samples) {
+        this.file = file;
+        this.samples = samples;
+    }
+
+    /**
+     * Maps a raw PCM file read-only.
+     *
+     * @param pcmFile s16le mono 16 kHz file.
+     * @return mapped audio.
+     * @throws IOException when the file cannot be mapped (also for files over 2 GiB, ~18 h of audio).
+     */
+    public static PcmAudio map(Path pcmFile) throws IOException {
+        try (FileChannel ch = FileChannel.open(pcmFile, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("PCM too large to map: " + size + " bytes");
+            ByteBuffer bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, size & ~1L).order(ByteOrder.LITTLE_ENDIAN);
+            return new PcmAudio(pcmFile, bytes.asShortBuffer());
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public int sampleCount() {
+        return samples.limit();
+    }
+
+    public long durationMs() {
+        return sampleCount() * 1000L / SAMPLE_RATE;
+    }
+
+    /** @return sample index for a timestamp, clamped to the audio. */
+    public int sampleAt(long ms) {
+        if (ms <= 0) return 0;
+        if (ms > durationMs()) return sampleCount();
+        return (int) Math.min(ms * SAMPLE_RATE / 1000L, sampleCount());
+    }
+
+    /**
+     * Zero-copy view of the samples in {@code [startMs, endMs)}.
+     *
+     * @param startMs range start.
+     * @param endMs   range end.
+     * @return read-only sample view.
+     */
+    public ShortBuffer slice(long startMs, long endMs) {
+        int from = sampleAt(startMs);
+        int to = Math.max(from, sampleAt(endMs));
+        return samples.slice(from, to - from);
+    }
+
+    /**
+     * Writes {@code [startMs, endMs)} as a 16 kHz mono WAV file.
+     *
+     * @param out     target file (overwritten).
+     * @param startMs range start.
+     * @param endMs   range end.
+     * @return number of samples written.
+     * @throws IOException on write failure.
+     */
+    public int writeWav(Path out, long startMs, long endMs) throws IOException {
+        int from = sampleAt(startMs);
+        int to = Math.max(from, sampleAt(endMs));
+        int dataBytes = (to - from) * BYTES_PER_SAMPLE;
+        try (FileChannel src = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = wavHeader(dataBytes);
+            while (header.hasRemaining()) dst.write(header);
+            long pos = (long) from * BYTES_PER_SAMPLE;
+            long remaining = dataBytes;
+            while (remaining > 0) {
+                long n = src.transferTo(pos, remaining, dst);
+                if (n <= 0) break;
+                pos += n;
+                remaining -= n;
+            }
+        }
+        return to - from;
+    }
+
+    /**
+     * Silence detection with ffmpeg {@code silencedetect} semantics: a sample is silent when its amplitude is
+     * below {@code noiseDb} (dBFS), and a run of silent samples of at least {@code minSilenceSec} is one silence.
+     * A run that lasts until the end of the audio is closed at the end.
+     *
+     * @param noiseDb       noise threshold in dB (negative).
+     * @param minSilenceSec minimum silence duration in seconds.
+     * @return silences in time order.
+     */
+    public List<SilenceEvent> detectSilences(double noiseDb, double minSilenceSec) {
+        return scan(noiseDb, minSilenceSec, null);
+    }
+
+    /** Silences and audio-energy features from one pass over the samples. */
+    public record Analysis(List<SilenceEvent> silences, AudioFeatures features) {
+    }
+
+    /**
+     * {@link #detectSilences} and {@link AudioFeatures#extract} in a single pass, for callers that need both.
+     */
+    public Analysis analyze(double noiseDb, double minSilenceSec) {
+        AudioFeatures.Extractor features = new AudioFeatures.Extractor();
+        List<SilenceEvent> silences = scan(noiseDb, minSilenceSec, features);
+        return new Analysis(silences, features.finish());
+    }
+
+    /** @return audio-energy features of the whole recording. */
+    public AudioFeatures features() {
+        return AudioFeatures.extract(samples);
+    }
+
+    private List<SilenceEvent> scan(double noiseDb, double minSilenceSec, AudioFeatures.Extractor features) {
+        double threshold = Math.pow(10.0, noiseDb / 20.0) * 32768.0;
+        long minSamples = Math.max(1L, Math.round(minSilenceSec * SAMPLE_RATE));
+        List<SilenceEvent> out = new ArrayList<>();
+        int n = sampleCount();
+        int runStart = -1;
+        for (int i = 0; i < n; i++) {
+            short sample = samples.get(i);
+            if (features != null) features.accept(sample);
+            boolean silent = Math.abs(sample) < threshold;
+            if (silent) {
+                if (runStart < 0) runStart = i;
+            } else if (runStart >= 0) {
+                addIfLongEnough(out, runStart, i, minSamples);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) addIfLongEnough(out, runStart, n, minSamples);
+        return out;
+    }
+
+    private static void addIfLongEnough(List<SilenceEvent> out, int from, int to, long minSamples) {
+        if (to - from < minSamples) return;
+        long s = from * 1000L / SAMPLE_RATE;
+        long e = to * 1000L / SAMPLE_RATE;
+        if (e > s) out.add(new SilenceEvent(s, e));
+    }
+
+    static ByteBuffer wavHeader(int dataBytes) {
+        ByteBuffer h = ByteBuffer.allocate(WAV_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(36 + dataBytes).put(new byte[]{'W', 'A', 'V', 'E'});
+        h.put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) 1)                              // PCM
+                .putShort((short) 1)                              // mono
+                .putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * BYTES_PER_SAMPLE)           // byte rate
+                .putShort((short) BYTES_PER_SAMPLE)               // block align
+                .putShort((short) 16);                            // bits per sample
+        h.put(new byte[]{'d', 'a', 't', 'a'}).putInt(dataBytes);
+        return h.flip();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.clipbot_backend.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hook/payoff vocabularies used by {@link HeuristicScorer}, compiled once per language.
+ *
+ * @param hook   words/phrases that signal a strong opening.
+ * @param payoff words/phrases that signal a conclusion.
+ */
+public record ScoringVocabulary(KeywordMatcher hook, KeywordMatcher payoff) {
+
+    public static final ScoringVocabulary ENGLISH = of(
+            List.of("here's", "listen", "crazy", "secret", "tip", "watch", "big", "why", "how", "mistake", "best", "warning", "truth"),
+            List.of("so", "therefore", "that's why", "result", "in short", "ultimately", "the key is", "summary", "bottom line"));
+
+    public static final ScoringVocabulary DUTCH = of(
+            List.of("luister", "gek", "geheim", "tip", "kijk", "waarom", "hoe", "fout", "beste", "waarschuwing", "waarheid"),
+            List.of("dus", "daarom", "resultaat", "kortom", "uiteindelijk", "de sleutel is", "samengevat", "conclusie"));
+
+    private static final Map<String, ScoringVocabulary> BUILT_IN = Map.of("en", ENGLISH, "nl", DUTCH);
+
+    public static ScoringVocabulary of(Collection<String> hook, Collection<String> payoff) {
+        return new ScoringVocabulary(KeywordMatcher.of(hook), KeywordMatcher.of(payoff));
+    }
+
+    /**
+     * Built-in vocabulary for a transcript language tag ({@code en}, {@code en-US}, {@code nl_NL}); English otherwise.
+     *
+     * @param lang language tag (nullable).
+     * @return vocabulary, never {@code null}.
+     */
+    public static ScoringVocabulary builtIn(String lang) {
+        return BUILT_IN.getOrDefault(primaryLanguage(lang), ENGLISH);
+    }
+
+    /** {@code en-US} / {@code EN_us} → {@code en}; leeg of null → {@code en}. */
+    public static String primaryLanguage(String lang) {
+        if (lang == null || lang.isBlank()) return "en";
+        String l = lang.trim().toLowerCase(Locale.ROOT);
+        int cut = l.indexOf('-');
+        if (cut < 0) cut = l.indexOf('_');
+        return cut > 0 ? l.substring(0, cut) : l;
+    }
+}
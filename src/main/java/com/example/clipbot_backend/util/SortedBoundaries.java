@@ -0,0 +1,92 @@
+package com.example.clipbot_backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Boundary timestamps in a sorted primitive array with binary-search nearest-neighbour lookup.
+ * Ties resolve to the boundary that came first in the input, which is what a linear
+ * "strictly closer wins" scan over the input returns.
+ */
+public final class SortedBoundaries {
+    public static final SortedBoundaries EMPTY = new SortedBoundaries(new long[0], new int[0]);
+
+    private final long[] values;
+    /** Laagste input-positie per waarde, voor tie-breaks gelijk aan een lineaire scan. */
+    private final int[] firstIndex;
+
+    private SortedBoundaries(long[] values, int[] firstIndex) {
+        this.values = values;
+        this.firstIndex = firstIndex;
+    }
+
+    /**
+     * @param boundaries timestamps in input order (any order, duplicates allowed).
+     * @return index over the distinct values.
+     */
+    public static SortedBoundaries of(long[] boundaries) {
+        int n = boundaries.length;
+        if (n == 0) return EMPTY;
+        // posities sorteren op waarde, bij gelijke waarde op input-positie
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Long.compare(boundaries[a], boundaries[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        long[] values = new long[n];
+        int[] first = new int[n];
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            long v = boundaries[order[k]];
+            if (m > 0 && values[m - 1] == v) continue;
+            values[m] = v;
+            first[m] = order[k];
+            m++;
+        }
+        return new SortedBoundaries(Arrays.copyOf(values, m), Arrays.copyOf(first, m));
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @param ms        timestamp.
+     * @param maxDistMs maximum distance (inclusive).
+     * @return nearest boundary within {@code maxDistMs}, or {@code -1} when there is none.
+     */
+    public long nearestWithin(long ms, long maxDistMs) {
+        int k = nearestIndex(ms);
+        if (k < 0) return -1L;
+        return Math.abs(ms - values[k]) <= maxDistMs ? values[k] : -1L;
+    }
+
+    /**
+     * @param ms timestamp.
+     * @return distance to the nearest boundary, or {@code -1} when empty.
+     */
+    public long distanceToNearest(long ms) {
+        int k = nearestIndex(ms);
+        return k < 0 ? -1L : Math.abs(ms - values[k]);
+    }
+
+    private int nearestIndex(long ms) {
+        int n = values.length;
+        if (n == 0) return -1;
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < ms) lo = mid + 1; else hi = mid;
+        }
+        if (lo == 0) return 0;
+        if (lo == n) return n - 1;
+        long dBefore = ms - values[lo - 1];
+        long dAfter = values[lo] - ms;
+        if (dBefore != dAfter) return dBefore < dAfter ? lo - 1 : lo;
+        return firstIndex[lo - 1] < firstIndex[lo] ? lo - 1 : lo;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.clipbot_backend.util;
+
+/**
+ * Char-scanning replacements for the per-word regexes on transcript hot paths. Nothing here compiles a pattern,
+ * and the string-returning helpers hand back their input when it is already in the requested form.
+ */
+public final class TokenScan {
+    /** Word ends with {@code .}, {@code !} or {@code ?}. */
+    public static final int SENTENCE_FINAL = 1;
+    /** Word contains {@code !} or {@code ?}. */
+    public static final int EXCITED = 1 << 1;
+    /** Word contains an uppercase letter. */
+    public static final int UPPERCASE = 1 << 2;
+
+    private TokenScan() {}
+
+    /**
+     * @param text word text (nullable).
+     * @return bit set of {@link #SENTENCE_FINAL}, {@link #EXCITED} and {@link #UPPERCASE}.
+     */
+    public static int flags(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        int flags = isSentenceFinal(text) ? SENTENCE_FINAL : 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '!' || c == '?') flags |= EXCITED;
+            else if (Character.isUpperCase(c)) flags |= UPPERCASE;
+        }
+        return flags;
+    }
+
+    /** Zelfde als {@code matches(".*[.!?]$")} voor tekst zonder regeleinden. */
+    public static boolean isSentenceFinal(CharSequence text) {
+        if (text == null || text.isEmpty()) return false;
+        char last = text.charAt(text.length() - 1);
+        return last == '.' || last == '!' || last == '?';
+    }
+
+    /**
+     * Keeps ASCII letters and digits, lowercased; equivalent to
+     * {@code replaceAll("[^a-zA-Z0-9]", "").toLowerCase(Locale.ROOT)}.
+     *
+     * @param text input (nullable).
+     * @return normalized form, {@code ""} for null.
+     */
+    public static String normalizeAlnum(String text) {
+        if (text == null) return "";
+        int n = text.length();
+        int i = 0;
+        while (i < n && isLowerAlnum(text.charAt(i))) i++;
+        if (i == n) return text;
+        StringBuilder sb = new StringBuilder(n).append(text, 0, i);
+        for (; i < n; i++) {
+            char c = text.charAt(i);
+            if (isLowerAlnum(c)) sb.append(c);
+            else if (c >= 'A' && c <= 'Z') sb.append((char) (c + ('a' - 'A')));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collapses whitespace runs to one space and trims; equivalent to {@code replaceAll("\\s+", " ").trim()} for
+     * text without other control characters.
+     *
+     * @param text input (non-null).
+     * @return collapsed text.
+     */
+    public static String collapseWhitespace(String text) {
+        int n = text.length();
+        boolean clean = n == 0 || (!isRegexSpace(text.charAt(0)) && !isRegexSpace(text.charAt(n - 1)));
+        for (int i = 0; clean && i < n; i++) {
+            char c = text.charAt(i);
+            if (isRegexSpace(c) && (c != ' ' || isRegexSpace(text.charAt(i + 1)))) clean = false;
+        }
+        if (clean) return text;
+        StringBuilder sb = new StringBuilder(n);
+        boolean pendingSpace = false;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (isRegexSpace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isLowerAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    /** {@code \s} zonder UNICODE_CHARACTER_CLASS: [ \t\n\x0B\f\r]. */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -24,7 +24,7 @@ public final class TranscriptUtil {
             String t = getText.apply(w);
             if (t != null && !t.isBlank()) {
                 sb.append(t).append(" ");
-                if (t.matches(".*[.!?]$") && buf.size() >= 4) {
+                if (TokenScan.isSentenceFinal(t) && buf.size() >= 4) {
                     out.add(toSpan(buf, sb, getStartMs, getEndMs));
                     buf.clear();
                     sb.setLength(0);
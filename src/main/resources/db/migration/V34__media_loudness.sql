@@ -0,0 +1,6 @@
+-- EBU R128 meting per media (eenmalig bij ingest), hergebruikt voor single-pass loudnorm per clip
+ALTER TABLE media ADD COLUMN IF NOT EXISTS loudness_integrated DOUBLE PRECISION;
+ALTER TABLE media ADD COLUMN IF NOT EXISTS loudness_range DOUBLE PRECISION;
+ALTER TABLE media ADD COLUMN IF NOT EXISTS loudness_true_peak DOUBLE PRECISION;
+ALTER TABLE media ADD COLUMN IF NOT EXISTS loudness_threshold DOUBLE PRECISION;
+ALTER TABLE media ADD COLUMN IF NOT EXISTS loudness_offset DOUBLE PRECISION;
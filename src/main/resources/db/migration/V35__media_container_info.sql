@@ -0,0 +1,2 @@
+-- Container-header info (streams, codecs, afmetingen, keyframe-index) per media, eenmalig bij ingest gelezen
+ALTER TABLE media ADD COLUMN IF NOT EXISTS container_info JSONB;
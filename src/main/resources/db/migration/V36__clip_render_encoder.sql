@@ -0,0 +1,3 @@
+-- Gekozen x264 preset/CRF per clip-render (queue-afhankelijk), voor audit van grootte/kwaliteit
+ALTER TABLE clip ADD COLUMN IF NOT EXISTS render_preset VARCHAR(16);
+ALTER TABLE clip ADD COLUMN IF NOT EXISTS render_crf INTEGER;
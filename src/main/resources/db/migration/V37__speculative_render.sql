@@ -0,0 +1,15 @@
+-- Cache voor speculatief vooraf gerenderde clean clips (top-K segmenten, alleen bij lege render-slots)
+CREATE TABLE IF NOT EXISTS speculative_render (
+    id          UUID PRIMARY KEY,
+    media_id    UUID        NOT NULL REFERENCES media(id) ON DELETE CASCADE,
+    start_ms    BIGINT      NOT NULL,
+    end_ms      BIGINT      NOT NULL,
+    spec_key    TEXT        NOT NULL,
+    object_key  TEXT        NOT NULL,
+    size_bytes  BIGINT      NOT NULL,
+    render_ms   BIGINT      NOT NULL,
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    claimed_at  TIMESTAMPTZ,
+    CONSTRAINT ux_speculative_render_range UNIQUE (media_id, start_ms, end_ms, spec_key)
+);
+CREATE INDEX IF NOT EXISTS idx_speculative_render_created ON speculative_render (created_at);
@@ -0,0 +1,14 @@
+-- Persistente stilte-kaart per media: hergebruikt over detect-runs en nodes zolang raw-bestand en drempels gelijk zijn
+CREATE TABLE IF NOT EXISTS silence_map (
+    id               UUID PRIMARY KEY,
+    media_id         UUID             NOT NULL REFERENCES media(id) ON DELETE CASCADE,
+    object_key       TEXT             NOT NULL,
+    noise_db         DOUBLE PRECISION NOT NULL,
+    min_silence_sec  DOUBLE PRECISION NOT NULL,
+    source_size      BIGINT           NOT NULL,
+    source_mtime_ms  BIGINT           NOT NULL,
+    events           JSONB            NOT NULL,
+    detect_ms        BIGINT           NOT NULL,
+    created_at       TIMESTAMPTZ      NOT NULL DEFAULT now(),
+    CONSTRAINT ux_silence_map_key UNIQUE (media_id, object_key, noise_db, min_silence_sec)
+);
@@ -0,0 +1,13 @@
+-- Persistente scene-cut-kaart per media: één lage-resolutie ffmpeg-pass, hergebruikt zolang het raw-bestand gelijk is
+CREATE TABLE IF NOT EXISTS scene_map (
+    id               UUID PRIMARY KEY,
+    media_id         UUID             NOT NULL REFERENCES media(id) ON DELETE CASCADE,
+    object_key       TEXT             NOT NULL,
+    min_score        DOUBLE PRECISION NOT NULL,
+    source_size      BIGINT           NOT NULL,
+    source_mtime_ms  BIGINT           NOT NULL,
+    cuts             JSONB            NOT NULL,
+    detect_ms        BIGINT           NOT NULL,
+    created_at       TIMESTAMPTZ      NOT NULL DEFAULT now(),
+    CONSTRAINT ux_scene_map_media UNIQUE (media_id)
+);
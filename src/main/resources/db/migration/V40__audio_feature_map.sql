@@ -0,0 +1,14 @@
+-- Audio-energiekenmerken per media (RMS, spectral flux, onsets per 100 ms), berekend in de stilte-pass op de PCM
+CREATE TABLE IF NOT EXISTS audio_feature_map (
+    id               UUID PRIMARY KEY,
+    media_id         UUID        NOT NULL REFERENCES media(id) ON DELETE CASCADE,
+    object_key       TEXT        NOT NULL,
+    source_size      BIGINT      NOT NULL,
+    source_mtime_ms  BIGINT      NOT NULL,
+    frame_ms         INTEGER     NOT NULL,
+    frame_count      INTEGER     NOT NULL,
+    features         BYTEA       NOT NULL,
+    extract_ms       BIGINT      NOT NULL,
+    created_at       TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT ux_audio_feature_map_media UNIQUE (media_id)
+);
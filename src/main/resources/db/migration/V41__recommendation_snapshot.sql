@@ -0,0 +1,11 @@
+-- Gerangschikte vensters per aanbeveling (media + invoerversie + profiel-hash); explain en herhaalde reads lezen hieruit
+CREATE TABLE IF NOT EXISTS recommendation_snapshot (
+    id             UUID PRIMARY KEY,
+    media_id       UUID        NOT NULL REFERENCES media(id) ON DELETE CASCADE,
+    input_version  TEXT        NOT NULL,
+    profile_hash   TEXT        NOT NULL,
+    windows        JSONB       NOT NULL,
+    compute_ms     BIGINT      NOT NULL,
+    created_at     TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT ux_recommendation_snapshot_key UNIQUE (media_id, input_version, profile_hash)
+);
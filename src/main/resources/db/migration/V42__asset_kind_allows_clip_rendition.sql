@@ -0,0 +1,7 @@
+-- asset_kind_check uitbreiden met CLIP_MP4_RENDITION (profiel-renditions afgeleid van de clean master)
+ALTER TABLE asset DROP CONSTRAINT IF EXISTS asset_kind_check;
+ALTER TABLE asset
+    ADD CONSTRAINT asset_kind_check
+        CHECK (kind IN ('MEDIA_RAW','MP4','WEBM','THUMBNAIL','SUB_SRT','SUB_VTT','CLIP_MP4_CLEAN','CLIP_MP4_RENDITION'))
+    NOT VALID;
+ALTER TABLE asset VALIDATE CONSTRAINT asset_kind_check;
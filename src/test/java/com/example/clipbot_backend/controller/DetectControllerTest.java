@@ -1,31 +1,42 @@
 package com.example.clipbot_backend.controller;
 
+import com.example.clipbot_backend.dto.SegmentDTO;
 import com.example.clipbot_backend.model.Account;
 import com.example.clipbot_backend.model.Media;
 import com.example.clipbot_backend.repository.MediaRepository;
 import com.example.clipbot_backend.service.AccountService;
+import com.example.clipbot_backend.service.DetectNowStreams;
 import com.example.clipbot_backend.service.DetectionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.math.BigDecimal;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = DetectController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(DetectNowStreams.class)
 class DetectControllerTest {
 
     @Autowired
@@ -40,6 +51,9 @@ class DetectControllerTest {
     @MockitoBean
     private MediaRepository mediaRepository;
 
+    @Autowired
+    private DetectNowStreams detectNowStreams;
+
     @Test
     void enqueueUsesOwnerFetchJoinToAuthorize() throws Exception {
         UUID mediaId = UUID.randomUUID();
@@ -88,4 +102,60 @@ class DetectControllerTest {
 
         verify(mediaRepository).findByIdWithOwner(mediaId);
     }
+
+    @Test
+    void runNowReturnsStreamHandleImmediately() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        String ownerSubject = "demo-user-1";
+
+        Account owner = new Account();
+        owner.setExternalSubject(ownerSubject);
+        Media media = new Media();
+        media.setId(mediaId);
+        media.setOwner(owner);
+
+        when(mediaRepository.findByIdWithOwner(mediaId)).thenReturn(Optional.of(media));
+        when(detectionService.startDetectNow(eq(mediaId), any(), eq(Set.of(ownerSubject)))).thenReturn(jobId);
+
+        mockMvc.perform(post("/v1/media/" + mediaId + "/detect/now")
+                        .param("ownerExternalSubject", ownerSubject)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"maxCandidates\":4}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(jobId.toString()))
+                .andExpect(jsonPath("$.events").value("/v1/media/" + mediaId + "/detect/now/" + jobId + "/events"));
+    }
+
+    @Test
+    void eventsReplaysBufferedSegmentsForLateSubscriber() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        detectNowStreams.open(jobId, mediaId, Set.of("demo-user-1"));
+        detectNowStreams.segment(jobId, new SegmentDTO(1_000L, 21_000L, BigDecimal.ONE, Map.of()));
+        detectNowStreams.done(jobId, Map.of("segmentCount", 1, "completed", true));
+
+        MvcResult result = mockMvc.perform(get("/v1/media/" + mediaId + "/detect/now/" + jobId + "/events")
+                        .param("ownerExternalSubject", "demo-user-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("event:segment").contains("\"startMs\":1000").contains("event:done");
+        assertThat(body.indexOf("event:segment")).isLessThan(body.indexOf("event:done"));
+    }
+
+    @Test
+    void eventsRejectsUnknownHandleAndForeignSubject() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        detectNowStreams.open(jobId, mediaId, Set.of("demo-user-1"));
+
+        mockMvc.perform(get("/v1/media/" + mediaId + "/detect/now/" + UUID.randomUUID() + "/events")
+                        .param("ownerExternalSubject", "demo-user-1"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/media/" + mediaId + "/detect/now/" + jobId + "/events")
+                        .param("ownerExternalSubject", "other-user"))
+                .andExpect(status().isForbidden());
+    }
 }
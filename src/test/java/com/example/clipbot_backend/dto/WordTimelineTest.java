@@ -0,0 +1,160 @@
+package com.example.clipbot_backend.dto;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class WordTimelineTest {
+    private static final String[] VOCABULARY = {"Hello!", "world", "what?", "Clip", "energy", "so", "WOW", "okay."};
+    private static final Set<String> KEYWORDS = Set.of("hello", "energy", "world", "wow", "okay");
+
+    @Test
+    void rangeQueriesMatchLinearScanForDisjointWords() {
+        assertMatchesLinearScan(randomWords(new Random(7), 400, false));
+    }
+
+    @Test
+    void rangeQueriesMatchLinearScanForOverlappingWords() {
+        assertMatchesLinearScan(randomWords(new Random(11), 400, true));
+    }
+
+    /**
+     * Regressiebewaking voor vensterstatistieken: 50k bereiken over een transcript van drie uur, gemiddeld een
+     * kwart ervan breed. Een loop over de woorden per bereik zijn zo'n 4·10^8 woordbezoeken; met prefix-sommen
+     * blijft dit ruim onder de grens. Wandklok-test, dus alleen in het perf-profiel ({@code mvn test -Pperf}).
+     */
+    @Test
+    @Tag("perf")
+    void windowStatsOverThreeHourTranscriptStayLogarithmic() {
+        List<WordsParser.WordAdapter> words = randomWords(new Random(5), 3 * 3600 * 3, false);
+        WordTimeline tl = WordTimeline.of(words);
+        WordTimeline.KeywordIndex keywords = tl.keywordIndex(KEYWORDS, 4);
+        long horizon = tl.maxEndMs();
+        Random rnd = new Random(9);
+
+        long checksum = assertTimeoutPreemptively(Duration.ofSeconds(3), () -> {
+            long sum = 0;
+            for (int q = 0; q < 50_000; q++) {
+                long from = rnd.nextLong(horizon / 2);
+                long to = from + 20_000 + rnd.nextLong(horizon / 2);
+                sum += tl.speechMs(from, to) + tl.spokenCount(from, to) + tl.excitedCount(from, to)
+                        + tl.uppercaseCount(from, to) + keywords.matches(from, to).size()
+                        + (long) tl.confidenceSum(from, to, 0.85);
+            }
+            return sum;
+        });
+
+        assertThat(checksum).isPositive();
+    }
+
+    @Test
+    void keywordIndexIgnoresShortAndSilentWords() {
+        WordTimeline tl = WordTimeline.of(List.of(
+                new WordsParser.WordAdapter("Clip", 0, 400, 0.9),
+                new WordsParser.WordAdapter("energy!", 400, 400, 0.9),
+                new WordsParser.WordAdapter("Energy!", 1_000, 1_500, 0.9)));
+        WordTimeline.KeywordIndex index = tl.keywordIndex(Set.of("clip", "energy"), 5);
+
+        assertThat(index.matches(0, 900)).isEmpty();
+        assertThat(index.matches(0, 1_001)).containsExactly("energy");
+        assertThat(tl.keywordIndex(null, 4).matches(0, 2_000)).isEmpty();
+        assertThat(tl.excitedCount(0, 2_000)).isEqualTo(1);
+        assertThat(tl.uppercaseCount(0, 2_000)).isEqualTo(2);
+    }
+
+    @Test
+    void nearestBoundsPreferEarlierWordOnTie() {
+        WordTimeline tl = WordTimeline.of(List.of(
+                new WordsParser.WordAdapter("a", 1_000, 1_400, 0.9),
+                new WordsParser.WordAdapter("b", 2_000, 2_600, null),
+                new WordsParser.WordAdapter("c", 3_000, 3_500, 0.7)));
+
+        assertThat(tl.nearestStart(1_500)).isEqualTo(1_000);
+        assertThat(tl.nearestStart(2_400)).isEqualTo(2_000);
+        assertThat(tl.nearestStart(9_000)).isEqualTo(3_000);
+        assertThat(tl.nearestEnd(2_000)).isEqualTo(1_400);
+        assertThat(tl.nearestEnd(0)).isEqualTo(1_400);
+        assertThat(WordTimeline.EMPTY.nearestStart(10)).isEqualTo(-1);
+    }
+
+    @Test
+    void internsRepeatedText() {
+        WordTimeline tl = WordTimeline.of(List.of(
+                new WordsParser.WordAdapter(new String("so"), 0, 100, null),
+                new WordsParser.WordAdapter(new String("so"), 100, 200, null)));
+
+        assertThat(tl.text(0)).isSameAs(tl.text(1));
+        assertThat(Float.isNaN(tl.confidence(0))).isTrue();
+        assertThat(tl.maxEndMs()).isEqualTo(200);
+    }
+
+    private static void assertMatchesLinearScan(List<WordsParser.WordAdapter> words) {
+        WordTimeline tl = WordTimeline.of(words);
+        WordTimeline.KeywordIndex keywords = tl.keywordIndex(KEYWORDS, 4);
+        Random rnd = new Random(3);
+        long horizon = words.get(words.size() - 1).endMs + 1_000;
+        for (int q = 0; q < 500; q++) {
+            long from = rnd.nextLong(horizon);
+            long to = from + 1 + rnd.nextLong(20_000);
+
+            long speech = 0;
+            int count = 0;
+            double conf = 0;
+            int excited = 0;
+            int uppercase = 0;
+            Set<String> matched = new HashSet<>();
+            List<Integer> overlapping = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                WordsParser.WordAdapter w = words.get(i);
+                long overlap = Math.min(to, w.endMs) - Math.max(from, w.startMs);
+                if (overlap > 0) {
+                    speech += overlap;
+                    count++;
+                    conf += w.confidence == null ? 0.85 : w.confidence.floatValue();
+                    if (w.text.contains("!") || w.text.contains("?")) excited++;
+                    if (!w.text.equals(w.text.toLowerCase())) uppercase++;
+                    String normalized = w.text.replaceAll("[^a-zA-Z0-9]", "").toLowerCase();
+                    if (normalized.length() >= 4 && KEYWORDS.contains(normalized)) matched.add(normalized);
+                }
+                if (w.endMs > from && w.startMs < to) overlapping.add(i);
+            }
+
+            assertThat(tl.speechMs(from, to)).isEqualTo(speech);
+            assertThat(tl.spokenCount(from, to)).isEqualTo(count);
+            assertThat(tl.confidenceSum(from, to, 0.85)).isCloseTo(conf, within(1e-6));
+            assertThat(tl.excitedCount(from, to)).isEqualTo(excited);
+            assertThat(tl.uppercaseCount(from, to)).isEqualTo(uppercase);
+            assertThat(keywords.matches(from, to)).isEqualTo(matched);
+
+            List<Integer> viaIndex = new ArrayList<>();
+            for (int i = tl.firstEndingAfter(from); i < tl.firstStartingAtOrAfter(to); i++) {
+                if (tl.overlaps(i, from, to)) viaIndex.add(i);
+            }
+            assertThat(viaIndex).isEqualTo(overlapping);
+        }
+    }
+
+    private static List<WordsParser.WordAdapter> randomWords(Random rnd, int n, boolean overlapping) {
+        List<WordsParser.WordAdapter> out = new ArrayList<>(n);
+        long t = 0;
+        for (int i = 0; i < n; i++) {
+            long start = overlapping ? Math.max(0, t - rnd.nextInt(300)) : t + rnd.nextInt(400);
+            long len = rnd.nextInt(10) == 0 ? 0 : 50 + rnd.nextInt(600);
+            Double conf = rnd.nextInt(5) == 0 ? null : rnd.nextDouble();
+            out.add(new WordsParser.WordAdapter(VOCABULARY[rnd.nextInt(VOCABULARY.length)], start, start + len, conf));
+            t = Math.max(t, start + len);
+        }
+        out.sort((a, b) -> Long.compare(a.startMs, b.startMs));
+        return out;
+    }
+}
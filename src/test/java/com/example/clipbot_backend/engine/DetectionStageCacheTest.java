@@ -0,0 +1,166 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.dto.DetectionParams;
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.Transcript;
+import com.example.clipbot_backend.service.Interfaces.SceneDetector;
+import com.example.clipbot_backend.service.Interfaces.SilenceDetector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DetectionStageCacheTest {
+
+    @Mock private SilenceDetector silenceDetector;
+    @TempDir Path tmp;
+
+    private final DetectionStageCache stages = new DetectionStageCache(4);
+    private final UUID mediaId = UUID.randomUUID();
+    private DetectionEngineImpl engine;
+    private Transcript transcript;
+    private Path raw;
+
+    @BeforeEach
+    void setup() throws Exception {
+        raw = Files.writeString(tmp.resolve("source.mp4"), "not really a video");
+        when(silenceDetector.detect(any(UUID.class), any(Path.class), anyDouble(), anyDouble()))
+                .thenReturn(List.of(new SilenceEvent(19_800L, 20_300L)));
+        engine = new DetectionEngineImpl(silenceDetector, null, Map.of(), stages);
+
+        Media media = new Media(null, "media/raw/source.mp4");
+        ReflectionTestUtils.setField(media, "id", mediaId);
+        transcript = new Transcript(media, "en", "test");
+        ReflectionTestUtils.setField(transcript, "id", UUID.randomUUID());
+        ObjectMapper om = new ObjectMapper();
+        ObjectNode words = om.createObjectNode();
+        ArrayNode items = words.putArray("items");
+        for (int k = 0; k < 60; k++) {
+            items.addObject().put("text", k % 6 == 5 ? "end." : "word").put("startMs", k * 1_000L)
+                    .put("endMs", k * 1_000L + 800).put("confidence", 0.9);
+        }
+        transcript.setWords(words);
+    }
+
+    @Test
+    void windowParameterChangesReuseParsedStagesAndSilences() {
+        var first = engine.detect(raw, transcript, DetectionParams.defaults());
+        long missesAfterFirst = stages.misses();
+
+        var retuned = engine.detect(raw, transcript, new DetectionParams(5_000, 20_000, 3, 0, 0, 0, 12, 0, 0, 0, 0, false));
+
+        assertThat(first).isNotEmpty();
+        assertThat(retuned).isNotEmpty().allSatisfy(s -> assertThat(s.endMs() - s.startMs()).isLessThanOrEqualTo(20_000));
+        assertThat(stages.misses()).isEqualTo(missesAfterFirst);
+        assertThat(stages.hits()).isEqualTo(2);
+        verify(silenceDetector, times(1)).detect(any(UUID.class), any(Path.class), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void newTranscriptVersionOrSilenceThresholdIsRecomputed() {
+        engine.detect(raw, transcript, DetectionParams.defaults());
+        transcript.setVersion(transcript.getVersion() + 1);
+        var stricter = new DetectionParams(0, 0, 0, -40.0, 0.8, 0, 0, 0, 0, 0, 0, false);
+
+        engine.detect(raw, transcript, stricter);
+
+        assertThat(stages.misses()).isEqualTo(4);
+        verify(silenceDetector, times(2)).detect(any(UUID.class), any(Path.class), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void concurrentMissesForTheSameSilenceKeyShareOneDetectRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Supplier<List<SilenceEvent>> slowDetect = () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new SilenceEvent(1_000L, 1_500L));
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<SilenceEvent>> leader = pool.submit(() -> stages.silences(mediaId, raw, -35, 0.3, slowDetect));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<List<SilenceEvent>> follower = pool.submit(() -> stages.silences(mediaId, raw, -35, 0.3, slowDetect));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).containsExactly(new SilenceEvent(1_000L, 1_500L));
+            assertThat(follower.get(5, TimeUnit.SECONDS)).containsExactly(new SilenceEvent(1_000L, 1_500L));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(runs).hasValue(1);
+        assertThat(stages.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void longSceneRunsOfOtherMediaDoNotStarveSilenceStages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SceneDetector hangingScenes = (id, path) -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        };
+        DetectionEngineImpl bounded = new DetectionEngineImpl(silenceDetector, hangingScenes, Map.of(), stages);
+        try {
+            // meer media dan stage-threads, elk met een scene-pass die blijft hangen
+            for (int k = 0; k < 5; k++) {
+                Media media = new Media(null, "media/raw/source.mp4");
+                ReflectionTestUtils.setField(media, "id", UUID.randomUUID());
+                Transcript other = new Transcript(media, "en", "test");
+                ReflectionTestUtils.setField(other, "id", UUID.randomUUID());
+                other.setWords(transcript.getWords());
+
+                var result = bounded.detectWithin(raw, other, DetectionParams.defaults(), Duration.ofMillis(400));
+
+                assertThat(result.completed()).isFalse();
+                verify(silenceDetector).detect(eq(media.getId()), any(Path.class), anyDouble(), anyDouble());
+            }
+        } finally {
+            release.countDown();
+            bounded.close();
+        }
+    }
+}
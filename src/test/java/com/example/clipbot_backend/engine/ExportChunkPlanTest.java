@@ -0,0 +1,38 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ExportChunkPlanTest {
+
+    @Test
+    void chunksAreGopAlignedContiguousAndCoverTheWholeRange() {
+        long dur = 15 * 60_000L + 1_234L;
+
+        List<ExportChunkPlan.Chunk> chunks = ExportChunkPlan.plan(dur, 61_000L, 2_000L);
+
+        long expectedOffset = 0;
+        for (ExportChunkPlan.Chunk c : chunks) {
+            assertThat(c.offsetMs()).isEqualTo(expectedOffset);
+            assertThat(c.offsetMs() % 2_000L).isZero();
+            expectedOffset += c.durationMs();
+        }
+        assertThat(expectedOffset).isEqualTo(dur);
+        assertThat(chunks.get(0).durationMs()).isEqualTo(60_000L);
+    }
+
+    @Test
+    void shortTailIsMergedIntoPreviousChunk() {
+        List<ExportChunkPlan.Chunk> chunks = ExportChunkPlan.plan(130_000L, 60_000L, 2_000L);
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(1).durationMs()).isEqualTo(70_000L);
+    }
+
+    @Test
+    void rangeShorterThanOneChunkStaysSingle() {
+        assertThat(ExportChunkPlan.plan(45_000L, 60_000L, 2_000L)).hasSize(1);
+    }
+}
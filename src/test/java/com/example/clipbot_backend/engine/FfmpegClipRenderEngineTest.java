@@ -0,0 +1,91 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.example.clipbot_backend.dto.LoudnessProfile;
+import com.example.clipbot_backend.dto.RenderSpec;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class FfmpegClipRenderEngineTest {
+
+    @Mock private StorageService storageService;
+    @TempDir Path tmp;
+
+    @Test
+    void failedChunkedAudioPassFailsTheExport() throws Exception {
+        // video-chunks en concat slagen (laatste argument = output), de audio-pass (-vn) faalt
+        String ffmpeg = fakeFfmpeg("""
+                for a; do out="$a"; case "$a" in -vn) echo "no audio encoder" >&2; exit 1;; esac; done
+                : > "$out"
+                """);
+        Path source = Files.write(tmp.resolve("source.mp4"), new byte[]{1});
+        Path srt = Files.writeString(tmp.resolve("subs.srt"), "1\n00:00:00,000 --> 00:00:01,000\nhi\n");
+        var engine = new FfmpegClipRenderEngine(storageService, ffmpeg, tmp.resolve("work"), Duration.ofSeconds(10), null,
+                2, Duration.ofSeconds(10), Duration.ofSeconds(4));
+
+        assertThatThrownBy(() -> engine.renderStyled(source, srt, 0L, 20_000L, RenderSpec.DEFAULT, null))
+                .hasMessageContaining("export-audio");
+        verify(storageService, never()).uploadToOut(any(Path.class), anyString());
+    }
+
+    @Test
+    void chunkedExportAppliesTheLoudnessProfileToTheAudioPass() throws Exception {
+        // schrijft de args van de audio-pass (-vn) weg; elke aanroep maakt zijn output aan
+        Path argsLog = tmp.resolve("audio-args.txt");
+        String ffmpeg = fakeFfmpeg("""
+                for a; do out="$a"; done
+                case " $* " in *" -vn "*) echo "$*" > "%s";; esac
+                : > "$out"
+                """.formatted(argsLog));
+        Path source = Files.write(tmp.resolve("source.mp4"), new byte[]{1});
+        Path srt = Files.writeString(tmp.resolve("subs.srt"), "1\n00:00:00,000 --> 00:00:01,000\nhi\n");
+        var engine = new FfmpegClipRenderEngine(storageService, ffmpeg, tmp.resolve("work"), Duration.ofSeconds(10), null,
+                2, Duration.ofSeconds(10), Duration.ofSeconds(4));
+
+        engine.renderStyled(source, srt, 0L, 20_000L, RenderSpec.DEFAULT, null,
+                new LoudnessProfile(-23.5, 6.0, -2.0, -34.0, 0.5));
+
+        assertThat(Files.readString(argsLog)).contains("-af loudnorm=I=").contains("measured_I=-23.50");
+    }
+
+    @Test
+    void closeShutsDownTheChunkPool() throws Exception {
+        String ffmpeg = fakeFfmpeg("""
+                for a; do out="$a"; done
+                : > "$out"
+                """);
+        Path source = Files.write(tmp.resolve("source.mp4"), new byte[]{1});
+        Path srt = Files.writeString(tmp.resolve("subs.srt"), "1\n00:00:00,000 --> 00:00:01,000\nhi\n");
+        var engine = new FfmpegClipRenderEngine(storageService, ffmpeg, tmp.resolve("work"), Duration.ofSeconds(10), null,
+                2, Duration.ofSeconds(10), Duration.ofSeconds(4));
+        engine.renderStyled(source, srt, 0L, 20_000L, RenderSpec.DEFAULT, null);
+
+        engine.close();
+
+        assertThatThrownBy(() -> engine.renderStyled(source, srt, 0L, 20_000L, RenderSpec.DEFAULT, null))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private String fakeFfmpeg(String body) throws Exception {
+        Path script = tmp.resolve("ffmpeg-" + UUID.randomUUID() + ".sh");
+        Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+        script.toFile().setExecutable(true);
+        return script.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.LoudnessProfile;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FfmpegLoudnessAnalyzerTest {
+
+    private final FfmpegLoudnessAnalyzer analyzer = new FfmpegLoudnessAnalyzer("ffmpeg", Duration.ofSeconds(5));
+
+    @Test
+    void parsesTrailingJsonBlockAndBuildsLinearFilter() {
+        String stderr = """
+                Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'source.m4a':
+                [Parsed_loudnorm_0 @ 0x55d] \s
+                {
+                	"input_i" : "-23.41",
+                	"input_tp" : "-4.02",
+                	"input_lra" : "6.70",
+                	"input_thresh" : "-33.80",
+                	"output_i" : "-16.02",
+                	"output_tp" : "-1.50",
+                	"output_lra" : "5.10",
+                	"output_thresh" : "-26.40",
+                	"normalization_type" : "dynamic",
+                	"target_offset" : "0.02"
+                }
+                """;
+
+        LoudnessProfile p = analyzer.parse(stderr);
+
+        assertThat(p.integratedLufs()).isEqualTo(-23.41);
+        assertThat(p.truePeakDb()).isEqualTo(-4.02);
+        assertThat(p.lra()).isEqualTo(6.70);
+        assertThat(p.thresholdLufs()).isEqualTo(-33.80);
+        assertThat(LoudnormFilter.forProfile(p))
+                .contains("measured_I=-23.41")
+                .contains("measured_TP=-4.02")
+                .contains("linear=true");
+        assertThat(LoudnessProfile.fromMeta(Map.of(LoudnessProfile.META_KEY, p.toMeta()))).isEqualTo(p);
+    }
+
+    @Test
+    void silentSourceYieldsNoFilter() {
+        String stderr = "{ \"input_i\" : \"-inf\", \"input_tp\" : \"-inf\", \"input_lra\" : \"0.00\", "
+                + "\"input_thresh\" : \"-70.00\", \"target_offset\" : \"inf\" }";
+
+        assertThat(LoudnormFilter.forProfile(analyzer.parse(stderr))).isNull();
+    }
+}
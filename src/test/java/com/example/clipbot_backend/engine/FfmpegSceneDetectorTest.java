@@ -0,0 +1,52 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FfmpegSceneDetectorTest {
+
+    @Test
+    void parsesMetadataPrintOutput() {
+        List<String> stderr = List.of(
+                "Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'source.mp4':",
+                "  Stream #0:0[0x1](und): Video: h264 (High), yuv420p, 1920x1080, 30 fps",
+                "[Parsed_metadata_3 @ 0x55d0c8a2b400] frame:0    pts:11     pts_time:2.75",
+                "[Parsed_metadata_3 @ 0x55d0c8a2b400] lavfi.scene_score=0.512034",
+                "[Parsed_metadata_3 @ 0x55d0c8a2b400] frame:1    pts:57     pts_time:14.25",
+                "[Parsed_metadata_3 @ 0x55d0c8a2b400] lavfi.scene_score=0.231200",
+                "frame=    2 fps=0.0 q=-0.0 Lsize=N/A time=00:01:00.00 bitrate=N/A speed= 310x");
+
+        assertThat(FfmpegSceneDetector.parse(stderr))
+                .containsExactly(new SceneCut(2_750L, 0.512034), new SceneCut(14_250L, 0.2312));
+    }
+
+    @Test
+    void analysesDecimatedLowResolutionVideoOnly() {
+        List<String> cmd = FfmpegSceneDetector.buildCommand("ffmpeg", Path.of("/tmp/source.mp4"), 4, 160, 0.2);
+
+        assertThat(cmd).containsSubsequence("-map", "0:v:0", "-an");
+        assertThat(cmd).contains("fps=4,scale=160:-2,select='gt(scene,0.200)',metadata=print");
+    }
+
+    @Test
+    void hangingFfmpegIsKilledAtTheTimeout(@TempDir Path tmp) throws Exception {
+        Path ffmpeg = tmp.resolve("ffmpeg.sh");
+        Files.writeString(ffmpeg, "#!/bin/sh\nexec sleep 30\n");
+        ffmpeg.toFile().setExecutable(true);
+        var detector = new FfmpegSceneDetector(ffmpeg.toString(), 4, 160, 0.2, Duration.ofMillis(300));
+
+        long t0 = System.nanoTime();
+        assertThatThrownBy(() -> detector.detect(UUID.randomUUID(), tmp.resolve("source.mp4")))
+                .hasMessageContaining("timed out");
+        assertThat(Duration.ofNanos(System.nanoTime() - t0)).isLessThan(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.clipbot_backend.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.SilenceMap;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.SilenceMapRepository;
+import com.example.clipbot_backend.util.AudioFeatures;
+import com.example.clipbot_backend.util.PcmAudio;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PersistentSilenceDetectorTest {
+
+    @Mock private PcmSilenceDetector delegate;
+    @Mock private SilenceMapRepository silenceMaps;
+    @Mock private MediaRepository mediaRepo;
+    @Mock private AudioFeatureStore audioFeatures;
+    @TempDir Path tmp;
+
+    private final UUID mediaId = UUID.randomUUID();
+    private Path raw;
+    private PersistentSilenceDetector detector;
+
+    @BeforeEach
+    void setup() throws Exception {
+        raw = Files.writeString(tmp.resolve("source.mp4"), "not really a video");
+        Media media = new Media(null, "media/raw/source.mp4");
+        when(mediaRepo.findById(mediaId)).thenReturn(Optional.of(media));
+        detector = new PersistentSilenceDetector(delegate, silenceMaps, mediaRepo);
+    }
+
+    @Test
+    void reusesStoredMapWhenSourceUnchanged() throws Exception {
+        SilenceMap map = new SilenceMap(mediaId, "media/raw/source.mp4", -35.0, 0.5);
+        map.update(List.of(new SilenceEvent(1_000L, 1_600L)), Files.size(raw), Files.getLastModifiedTime(raw).toMillis(), 42_000);
+        when(silenceMaps.findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(mediaId, "media/raw/source.mp4", -35.0, 0.5))
+                .thenReturn(Optional.of(map));
+
+        List<SilenceEvent> events = detector.detect(mediaId, raw, -35.0, 0.5);
+
+        assertThat(events).containsExactly(new SilenceEvent(1_000L, 1_600L));
+        verify(delegate, never()).detect(any(Path.class), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void redetectsAndRefreshesWhenRawFileChanged() throws Exception {
+        SilenceMap map = new SilenceMap(mediaId, "media/raw/source.mp4", -35.0, 0.5);
+        map.update(List.of(new SilenceEvent(1_000L, 1_600L)), Files.size(raw) + 1, 0L, 42_000);
+        when(silenceMaps.findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(mediaId, "media/raw/source.mp4", -35.0, 0.5))
+                .thenReturn(Optional.of(map));
+        when(delegate.detect(raw, -35.0, 0.5)).thenReturn(List.of(new SilenceEvent(2_000L, 2_500L)));
+
+        List<SilenceEvent> events = detector.detect(mediaId, raw, -35.0, 0.5);
+
+        assertThat(events).containsExactly(new SilenceEvent(2_000L, 2_500L));
+        assertThat(map.getEvents()).containsExactly(new SilenceEvent(2_000L, 2_500L));
+        assertThat(map.getSourceSize()).isEqualTo(Files.size(raw));
+        verify(silenceMaps).save(map);
+        verify(silenceMaps).deleteByMediaIdAndObjectKeyNot(mediaId, "media/raw/source.mp4");
+    }
+
+    @Test
+    void storesNewMapOnMiss() {
+        when(silenceMaps.findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(any(), any(), anyDouble(), anyDouble()))
+                .thenReturn(Optional.empty());
+        when(delegate.detect(raw, -30.0, 0.8)).thenReturn(List.of(new SilenceEvent(0L, 900L)));
+
+        detector.detect(mediaId, raw, -30.0, 0.8);
+
+        ArgumentCaptor<SilenceMap> saved = ArgumentCaptor.forClass(SilenceMap.class);
+        verify(silenceMaps).save(saved.capture());
+        assertThat(saved.getValue().getObjectKey()).isEqualTo("media/raw/source.mp4");
+        assertThat(saved.getValue().getNoiseDb()).isEqualTo(-30.0);
+        assertThat(saved.getValue().getMinSilenceSec()).isEqualTo(0.8);
+        assertThat(saved.getValue().getEvents()).hasSize(1);
+    }
+
+    @Test
+    void withoutMediaFallsBackToPlainDetection() {
+        when(delegate.detect(raw, -35.0, 0.5)).thenReturn(List.of());
+
+        assertThat(detector.detect((UUID) null, raw, -35.0, 0.5)).isEmpty();
+        verify(silenceMaps, never()).save(any());
+    }
+
+    @Test
+    void missExtractsAudioFeaturesInTheSameScan() throws Exception {
+        detector = new PersistentSilenceDetector(delegate, silenceMaps, mediaRepo, audioFeatures);
+        AudioFeatures features = AudioFeatures.extract(ShortBuffer.allocate(16_000));
+        when(silenceMaps.findByMediaIdAndObjectKeyAndNoiseDbAndMinSilenceSec(any(), any(), anyDouble(), anyDouble()))
+                .thenReturn(Optional.empty());
+        when(audioFeatures.isCurrent(eq(mediaId), eq("media/raw/source.mp4"), anyLong(), anyLong())).thenReturn(false);
+        when(delegate.analyze(raw, -35.0, 0.5))
+                .thenReturn(new PcmAudio.Analysis(List.of(new SilenceEvent(0L, 1_000L)), features));
+
+        List<SilenceEvent> events = detector.detect(mediaId, raw, -35.0, 0.5);
+
+        assertThat(events).containsExactly(new SilenceEvent(0L, 1_000L));
+        verify(audioFeatures).store(eq(mediaId), eq("media/raw/source.mp4"), eq(features),
+                eq(Files.size(raw)), eq(Files.getLastModifiedTime(raw).toMillis()), anyLong());
+        verify(delegate, never()).detect(any(Path.class), anyDouble(), anyDouble());
+    }
+}
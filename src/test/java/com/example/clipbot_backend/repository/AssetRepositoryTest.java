@@ -0,0 +1,51 @@
+package com.example.clipbot_backend.repository;
+
+import com.example.clipbot_backend.model.Account;
+import com.example.clipbot_backend.model.Asset;
+import com.example.clipbot_backend.model.Clip;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.util.AssetKind;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class AssetRepositoryTest {
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private ClipRepository clipRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void saveClipRenditionPassesAssetKindCheck() {
+        Account owner = accountRepository.save(new Account("ext-" + UUID.randomUUID(), "Owner"));
+        Media media = mediaRepository.saveAndFlush(new Media(owner, "obj.mp4"));
+        Clip clip = new Clip(media, 1_000, 5_000);
+        clip.setProfileHash("hash-A");
+        clipRepository.saveAndFlush(clip);
+
+        String key = "clips/renditions/" + clip.getId() + "/youtube-1080p.mp4";
+        Asset rendition = new Asset(owner, AssetKind.CLIP_MP4_RENDITION, key, 42);
+        rendition.setRelatedClip(clip);
+        rendition.setRelatedMedia(media);
+        assetRepository.saveAndFlush(rendition);
+
+        assertThat(assetRepository.findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_RENDITION, key))
+                .isPresent()
+                .get()
+                .extracting(Asset::getSizeBytes)
+                .isEqualTo(42L);
+    }
+}
@@ -29,8 +29,22 @@ class HeuristicGoodClipSelectorTest {
         assertThat(result.get(2).window()).isEqualTo(w4);
         assertThat(result.stream().map(ScoredWindow::window)).doesNotContain(w3);
 
-        Map<String, String> explain = selector.explainLast();
+        Map<String, String> explain = selector.select(List.of(w1, w2, w3, w4), cfg).explanations();
         assertThat(explain).containsKey("5000-25000");
         assertThat(explain.get("5000-25000")).contains("kw=2");
     }
+
+    @Test
+    void selectionsDoNotShareExplanations() {
+        Window a = new Window(0, 20_000, 0.60, 0.80, 0.50, 0.20, Set.of());
+        Window b = new Window(40_000, 60_000, 0.70, 0.80, 0.50, 0.20, Set.of());
+
+        Selection first = selector.select(List.of(a), SelectorConfig.defaults());
+        Selection second = selector.select(List.of(b), SelectorConfig.defaults());
+
+        assertThat(first.explanations()).containsOnlyKeys("0-20000");
+        assertThat(second.explanations()).containsOnlyKeys("40000-60000");
+        assertThat(first.explain(0, 20_000)).isNotBlank();
+        assertThat(second.top(5)).extracting(ScoredWindow::window).containsExactly(b);
+    }
 }
@@ -0,0 +1,127 @@
+package com.example.clipbot_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.SentenceSpan;
+import com.example.clipbot_backend.util.HeuristicScorer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ClipAssemblerTest {
+
+    private static final String[] FRAGMENTS = {
+            "so this is how it went.", "and then", "nothing special here.", "Bottom line: it works.",
+            "Here's the secret.", "we kept going", "a mistake?", "ultimately it paid off."
+    };
+
+    private final HeuristicScorer scorer = new HeuristicScorer();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelSearchMatchesExhaustiveSequentialSelection() {
+        List<SentenceSpan> sentences = sentences(new Random(11), 600);
+
+        var windows = new ClipAssembler(scorer, pool).windows(sentences, List.of(), 10_000, 30_000, 0, 20, 8, 120, null);
+
+        assertThat(windows).extracting(w -> w.startIdx + ":" + w.endIdx + "@" + w.score)
+                .containsExactlyElementsOf(reference(sentences, 10_000, 30_000, 120).stream()
+                        .map(w -> w.startIdx + ":" + w.endIdx + "@" + w.score).toList());
+    }
+
+    @Test
+    void searchesTheWholeMediaInsteadOfTruncating() {
+        List<SentenceSpan> sentences = new ArrayList<>();
+        for (int k = 0; k < 1_000; k++) {
+            String text = k == 990 ? "Here's the secret." : k == 994 ? "Bottom line: it works." : "and then";
+            sentences.add(new SentenceSpan(k * 3_000L, k * 3_000L + 2_800L, text));
+        }
+
+        var windows = new ClipAssembler(scorer, pool).windows(sentences, List.of(), 10_000, 30_000, 0, 15, 8, 3, null);
+
+        assertThat(windows).hasSize(3);
+        assertThat(windows.get(0).startIdx).isEqualTo(990);
+        assertThat(windows.get(0).scoreComponents).containsEntry("hasHook", true).containsEntry("hasPayoff", true);
+    }
+
+    @Test
+    void anytimeSearchWithAmpleBudgetEqualsFullSearch() {
+        List<SentenceSpan> sentences = sentences(new Random(5), 400);
+        var assembler = new ClipAssembler(scorer, pool);
+        var features = assembler.prepare(sentences);
+
+        var full = assembler.windows(sentences, features, List.of(), 10_000, 30_000, 0, 20, 8, 8, null, null);
+        var anytime = assembler.windowsUntil(sentences, features, List.of(), 10_000, 30_000, 0, 20, 8, 8, null, null,
+                System.nanoTime() + 60_000_000_000L);
+
+        assertThat(anytime.completed()).isTrue();
+        assertThat(anytime.windows()).extracting(w -> w.startIdx + ":" + w.endIdx)
+                .containsExactlyElementsOf(full.stream().map(w -> w.startIdx + ":" + w.endIdx).toList());
+    }
+
+    @Test
+    void expiredDeadlineStillSearchesMostPromisingStart() {
+        List<SentenceSpan> sentences = new ArrayList<>();
+        for (int k = 0; k < 300; k++) {
+            String text = k == 250 ? "Here's the secret." : "and then";
+            sentences.add(new SentenceSpan(k * 3_000L, k * 3_000L + 2_800L, text));
+        }
+        var assembler = new ClipAssembler(scorer, pool);
+
+        var result = assembler.windowsUntil(sentences, assembler.prepare(sentences), List.of(), 10_000, 30_000, 0, 15, 8, 3,
+                null, null, System.nanoTime() - 1);
+
+        assertThat(result.completed()).isFalse();
+        assertThat(result.windows()).isNotEmpty();
+        // hookNear kijkt één zin vooruit: de start vlak voor de hook-zin komt als eerste aan de beurt
+        assertThat(result.windows()).allSatisfy(w -> assertThat(w.startIdx).isEqualTo(249));
+        assertThat(result.windows().get(0).scoreComponents).containsEntry("hasHook", true);
+    }
+
+    /** Alle windows scoren, stabiel sorteren en met een used[]-array ontdubbelen: het oude algoritme zonder afkapping. */
+    private List<ClipAssembler.Window> reference(List<SentenceSpan> sentences, long minMs, long maxMs, int maxCandidates) {
+        var features = scorer.prepare(sentences);
+        List<ClipAssembler.Window> all = new ArrayList<>();
+        for (int i = 0; i < sentences.size(); i++) {
+            for (int j = i; j < sentences.size(); j++) {
+                long s = sentences.get(i).startMs(), e = sentences.get(j).endMs();
+                if (e - s < minMs) continue;
+                if (e - s > maxMs) break;
+                var comp = scorer.scoreRange(features, i, j, 20, 8, null, s, e);
+                all.add(new ClipAssembler.Window(i, j, s, e, comp.overall(), comp.toMeta()));
+            }
+        }
+        all.sort(Comparator.comparingDouble(w -> -w.score));
+        List<ClipAssembler.Window> dedup = new ArrayList<>();
+        boolean[] used = new boolean[sentences.size()];
+        for (var w : all) {
+            boolean overlap = false;
+            for (int k = w.startIdx; k <= w.endIdx; k++) if (used[k]) { overlap = true; break; }
+            if (overlap) continue;
+            for (int k = w.startIdx; k <= w.endIdx; k++) used[k] = true;
+            dedup.add(w);
+            if (dedup.size() >= maxCandidates) break;
+        }
+        return dedup;
+    }
+
+    private static List<SentenceSpan> sentences(Random rnd, int n) {
+        List<SentenceSpan> out = new ArrayList<>();
+        long t = 0;
+        for (int k = 0; k < n; k++) {
+            long len = 1_500 + rnd.nextInt(4_000);
+            out.add(new SentenceSpan(t, t + len, FRAGMENTS[rnd.nextInt(FRAGMENTS.length)]));
+            t += len + rnd.nextInt(400);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.dto.RenderOptions;
+import com.example.clipbot_backend.dto.RenderResult;
+import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
+import com.example.clipbot_backend.model.Account;
+import com.example.clipbot_backend.model.Clip;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.repository.AccountRepository;
+import com.example.clipbot_backend.repository.AssetRepository;
+import com.example.clipbot_backend.repository.ClipRepository;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.ProjectMediaRepository;
+import com.example.clipbot_backend.repository.TranscriptRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.service.Interfaces.SubtitleService;
+import com.example.clipbot_backend.service.thumbnail.ThumbnailService;
+import com.example.clipbot_backend.util.ClipStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ClipWorkFlowTest {
+
+    @Mock private ClipRepository clipRepo;
+    @Mock private TranscriptRepository transcriptRepo;
+    @Mock private StorageService storage;
+    @Mock private ClipRenderEngine renderEngine;
+    @Mock private AssetRepository assetRepo;
+    @Mock private SubtitleService subtitles;
+    @Mock private MediaRepository mediaRepo;
+    @Mock private AccountRepository accountRepo;
+    @Mock private ProjectMediaRepository projectMediaRepository;
+    @Mock private ThumbnailService thumbnailService;
+    @Mock private RenderProfileResolver renderProfileResolver;
+    @Mock private SpeculativeRenderService speculativeRenders;
+
+    @TempDir
+    Path tmp;
+
+    private ClipWorkFlow workFlow;
+    private Clip clip;
+    private Path source;
+
+    @BeforeEach
+    void setup() throws Exception {
+        workFlow = new ClipWorkFlow(clipRepo, transcriptRepo, storage, renderEngine, assetRepo, subtitles, mediaRepo,
+                accountRepo, projectMediaRepository, thumbnailService, renderProfileResolver, speculativeRenders,
+                new TransactionTemplate(new PseudoTransactionManager()));
+
+        Account owner = new Account("ext-1", "Owner");
+        ReflectionTestUtils.setField(owner, "id", UUID.randomUUID());
+        Media media = new Media(owner, "media/source.mp4");
+        media.setId(UUID.randomUUID());
+        clip = new Clip(media, 60_000, 90_000);
+        ReflectionTestUtils.setField(clip, "id", UUID.randomUUID());
+        source = Files.write(tmp.resolve("source.mp4"), new byte[]{1});
+
+        when(clipRepo.findById(clip.getId())).thenReturn(Optional.of(clip));
+        when(clipRepo.findByIdWithMedia(clip.getId())).thenReturn(Optional.of(clip));
+        when(clipRepo.getReferenceById(clip.getId())).thenReturn(clip);
+        when(transcriptRepo.findTopByMediaIdOrderByCreatedAtDesc(media.getId())).thenReturn(Optional.empty());
+        when(storage.resolveRaw("media/source.mp4")).thenReturn(source);
+        when(renderProfileResolver.chooseEncoder(any(), anyDouble()))
+                .thenReturn(new RenderProfileResolver.EncoderChoice("fast", 23, 0, 0));
+    }
+
+    @Test
+    void cachedMasterIsClaimedFirstAndSubtitledRenderBurnsInOnIt() throws Exception {
+        Path master = Files.write(tmp.resolve("master.mp4"), new byte[]{1});
+        when(speculativeRenders.claim(eq(clip.getMedia().getId()), eq(60_000L), eq(90_000L), any()))
+                .thenReturn(Optional.of(new RenderResult("clips/spec.mp4", 10, null, 0)));
+        when(storage.resolveOut("clips/spec.mp4")).thenReturn(master);
+        when(renderEngine.render(eq(master), eq(0L), eq(30_000L), any())).thenReturn(new RenderResult("clips/sub.mp4", 20, null, 0));
+
+        workFlow.run(clip.getId());
+
+        ArgumentCaptor<RenderOptions> options = ArgumentCaptor.forClass(RenderOptions.class);
+        verify(renderEngine).render(eq(master), eq(0L), eq(30_000L), options.capture());
+        verify(renderEngine, never()).render(eq(source), anyLong(), anyLong(), any());
+        verify(renderEngine, never()).renderClean(any(), anyLong(), anyLong(), any());
+        assertThat(options.getValue().meta()).containsEntry("sourceAudioOnly", false);
+    }
+
+    @Test
+    void cacheMissRendersFromSourceAndEncodesTheMaster() throws Exception {
+        when(speculativeRenders.claim(any(), anyLong(), anyLong(), any())).thenReturn(Optional.empty());
+        when(renderEngine.render(eq(source), eq(60_000L), eq(90_000L), any()))
+                .thenReturn(new RenderResult("clips/sub.mp4", 20, "clips/thumb.jpg", 5, 1_200));
+        when(renderEngine.renderClean(eq(source), eq(60_000L), eq(90_000L), any()))
+                .thenReturn(new RenderResult("clips/clean.mp4", 30, null, 0, 1_500));
+
+        workFlow.run(clip.getId());
+
+        verify(renderEngine).render(eq(source), eq(60_000L), eq(90_000L), any());
+        verify(renderEngine).renderClean(eq(source), eq(60_000L), eq(90_000L), any());
+        // snelheidsschatting krijgt alleen de encode-tijd, per encode met de eigen output-resolutie
+        verify(renderProfileResolver).recordEncode("fast", 1280, 720, 30_000L, 1_200L);
+        verify(renderProfileResolver).recordEncode("fast", 1920, 1080, 30_000L, 1_500L);
+        assertThat(clip.getStatus()).isEqualTo(ClipStatus.READY);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.clipbot_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.dto.FwVerboseResponse;
+import com.example.clipbot_backend.dto.SegmentDTO;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DetectWorkflowAsrRefineTest {
+
+    @Mock private AudioWindowService audioWindowService;
+    @Mock private FasterWhisperClient fastWhisperClient;
+    @TempDir Path tmp;
+
+    private DetectWorkflow workflow;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws Exception {
+        workflow = new DetectWorkflow(null, null, null, null, null, null, null, null,
+                audioWindowService, fastWhisperClient, null, null, null, null, null);
+        when(fastWhisperClient.refineConcurrency()).thenReturn(3);
+        when(audioWindowService.sliceToTempWav(any(), anyLong(), anyLong(), anyLong())).thenAnswer(inv -> {
+            long start = inv.getArgument(1);
+            Path wav = Files.createTempFile(tmp, "win-" + start + "-", ".wav");
+            return new AudioWindowService.Window(wav, Math.max(0, start - 300));
+        });
+        when(fastWhisperClient.transcribeFileAsync(any(), anyBoolean())).thenAnswer(inv -> {
+            Path wav = inv.getArgument(0);
+            long start = Long.parseLong(wav.getFileName().toString().split("-")[1]);
+            if (start == 20_000) {
+                return Mono.error(new IllegalStateException("ASR 500"));
+            }
+            // latere segmenten sneller klaar: volgorde moet toch behouden blijven
+            long delayMs = 120 - start / 1_000;
+            return Mono.delay(Duration.ofMillis(delayMs))
+                    .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .doFinally(s -> inFlight.decrementAndGet())
+                    .map(x -> response(start));
+        });
+    }
+
+    @Test
+    void refinesConcurrentlyInInputOrderAndKeepsFailedSegments() {
+        List<SegmentDTO> detected = new ArrayList<>();
+        for (int k = 0; k < 8; k++) {
+            detected.add(new SegmentDTO(k * 10_000L, k * 10_000L + 5_000L, null, Map.of()));
+        }
+
+        List<SegmentDTO> refined = workflow.refineWithAsr(tmp.resolve("source.mp4"), detected);
+
+        assertThat(refined).hasSize(8);
+        for (int k = 0; k < 8; k++) {
+            SegmentDTO seg = refined.get(k);
+            if (k == 2) {
+                assertThat(seg).isSameAs(detected.get(k));
+            } else {
+                assertThat(seg.startMs()).isEqualTo(k * 10_000L + 100);
+                assertThat(seg.endMs()).isEqualTo(k * 10_000L + 4_900);
+                assertThat(seg.meta()).containsEntry("refined", true);
+            }
+        }
+        assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(3);
+        try (var files = Files.list(tmp)) {
+            assertThat(files.filter(p -> p.getFileName().toString().startsWith("win-"))).isEmpty();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** Woorden op +0,1 s en tot -0,1 s binnen het segment, in window-tijd (segmentstart minus window-offset). */
+    private static FwVerboseResponse response(long segStart) {
+        double base = (segStart - Math.max(0, segStart - 300)) / 1000.0;
+        var words = List.of(
+                new FwVerboseResponse.SegWord("hello", base + 0.1, base + 1.0, 0.9),
+                new FwVerboseResponse.SegWord("there", base + 1.2, base + 4.9, 0.9));
+        var seg = new FwVerboseResponse.Seg(base, base + 5.0, "hello there", words);
+        return new FwVerboseResponse(null, null, null, "hello there", null, List.of(seg));
+    }
+}
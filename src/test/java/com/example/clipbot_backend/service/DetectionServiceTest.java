@@ -0,0 +1,152 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.dto.DetectionResult;
+import com.example.clipbot_backend.dto.SegmentDTO;
+import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
+import com.example.clipbot_backend.model.Job;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.Transcript;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.SegmentRepository;
+import com.example.clipbot_backend.repository.TranscriptRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.service.thumbnail.ThumbnailService;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
+import com.example.clipbot_backend.util.MediaStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DetectionServiceTest {
+
+    @Mock private JobService jobService;
+    @Mock private MediaRepository mediaRepo;
+    @Mock private SegmentRepository segmentRepo;
+    @Mock private WorkerService workerService;
+    @Mock private DetectNowStreams detectNowStreams;
+    @Mock private TranscriptRepository transcriptRepo;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void detectNowOpensChannelBeforeCommitAndRunsClaimedJobLocally() {
+        DetectionService service = new DetectionService(jobService, mediaRepo, segmentRepo, workerService, detectNowStreams,
+                Duration.ofSeconds(5), new TransactionTemplate(new PseudoTransactionManager()));
+        UUID mediaId = UUID.randomUUID();
+        Job job = new Job(JobType.DETECT);
+        job.setId(UUID.randomUUID());
+        job.setStatus(JobStatus.RUNNING);
+        when(jobService.enqueueClaimed(eq(mediaId), eq(JobType.DETECT), anyMap())).thenReturn(job);
+
+        UUID handle = service.startDetectNow(mediaId, new DetectionService.DetectNowOptions("nl", null, 3, null), Set.of("sub"));
+
+        assertThat(handle).isEqualTo(job.getId());
+        InOrder order = inOrder(jobService, detectNowStreams, workerService);
+        ArgumentCaptor<Map<String, Object>> payload = ArgumentCaptor.forClass(Map.class);
+        order.verify(jobService).enqueueClaimed(eq(mediaId), eq(JobType.DETECT), payload.capture());
+        order.verify(detectNowStreams).open(job.getId(), mediaId, Set.of("sub"));
+        order.verify(workerService).runNow(job);
+        verify(jobService, never()).enqueue(any(), any(), any());
+        assertThat(payload.getValue()).containsEntry(DetectWorkflow.DETECT_NOW, true).containsEntry("budgetMs", 5_000L);
+    }
+
+    @Test
+    void detectNowWithoutTranscriptEndsEmptyWithoutTranscribing() throws Exception {
+        DetectWorkflow workflow = new DetectWorkflow(mediaRepo, transcriptRepo, null, null, null, null, null, null,
+                null, null, null, null, null, null, null);
+        UUID mediaId = UUID.randomUUID();
+        when(transcriptRepo.findTopByMediaIdOrderByCreatedAtDesc(mediaId)).thenReturn(Optional.empty());
+
+        DetectionResult result = workflow.run(mediaId, Map.of(DetectWorkflow.DETECT_NOW, true), seg -> {});
+
+        assertThat(result.segments()).isEmpty();
+        assertThat(result.completed()).isTrue();
+        verify(mediaRepo, never()).findById(any());
+    }
+
+    @Test
+    void rejectedDetectNowFailsJobAndStreamInsteadOfStayingRunning() {
+        DetectionService service = new DetectionService(jobService, mediaRepo, segmentRepo, workerService, detectNowStreams,
+                Duration.ofSeconds(5), new TransactionTemplate(new PseudoTransactionManager()));
+        UUID mediaId = UUID.randomUUID();
+        Job job = new Job(JobType.DETECT);
+        job.setId(UUID.randomUUID());
+        when(jobService.enqueueClaimed(eq(mediaId), eq(JobType.DETECT), anyMap())).thenReturn(job);
+        doThrow(new TaskRejectedException("queue full")).when(workerService).runNow(job);
+
+        assertThatThrownBy(() -> service.startDetectNow(mediaId, new DetectionService.DetectNowOptions(null, null, null, null), Set.of("sub")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        verify(jobService).markError(eq(job.getId()), eq("WORKER_QUEUE_FULL"), anyMap());
+        verify(detectNowStreams).failed(job.getId(), "WORKER_QUEUE_FULL");
+    }
+
+    @Test
+    void detectNowUsesRequestedTranscriptKeepsCompleteSegmentsAndEndsReady(@TempDir Path tmp) throws Exception {
+        DetectionEngine engine = mock(DetectionEngine.class);
+        StorageService storage = mock(StorageService.class);
+        ThumbnailService thumbnails = mock(ThumbnailService.class);
+        SpeculativeRenderService speculative = mock(SpeculativeRenderService.class);
+        DetectWorkflow workflow = new DetectWorkflow(mediaRepo, transcriptRepo, segmentRepo, storage, engine, null, null, null,
+                null, null, null, null, thumbnails, null, speculative);
+        Media media = new Media(null, "media/raw/source.mp4");
+        UUID mediaId = UUID.randomUUID();
+        media.setId(mediaId);
+        Transcript transcript = new Transcript(media, "nl", "openai");
+        ObjectNode words = new ObjectMapper().createObjectNode();
+        words.putArray("items").addObject().put("text", "hallo").put("startMs", 0).put("endMs", 30_000);
+        transcript.setWords(words);
+        when(mediaRepo.getReferenceById(mediaId)).thenReturn(media);
+        when(mediaRepo.findById(mediaId)).thenReturn(Optional.of(media));
+        when(transcriptRepo.findByMediaAndLangAndProvider(media, "nl", "openai")).thenReturn(Optional.of(transcript));
+        when(storage.resolveRaw("media/raw/source.mp4")).thenReturn(Files.write(tmp.resolve("source.mp4"), new byte[]{1}));
+        when(engine.detectWithin(any(), eq(transcript), any(), any()))
+                .thenReturn(new DetectionResult(List.of(new SegmentDTO(0, 30_000, BigDecimal.ONE, Map.of())), false));
+        when(segmentRepo.countByMediaId(mediaId)).thenReturn(4L);
+
+        DetectionResult result = workflow.run(mediaId,
+                Map.of(DetectWorkflow.DETECT_NOW, true, "lang", "nl", "provider", "openai", "budgetMs", 5_000L), seg -> {});
+
+        assertThat(result.completed()).isFalse();
+        assertThat(result.segments()).hasSize(1);
+        verify(transcriptRepo, never()).findTopByMediaIdOrderByCreatedAtDesc(any());
+        verify(segmentRepo, never()).deleteByMedia(any());
+        verify(segmentRepo, never()).saveAll(any());
+        verify(thumbnails, never()).extractFromLocalMedia(any(), any());
+        verify(speculative, never()).offer(any());
+        assertThat(media.getStatus()).isEqualTo(MediaStatus.READY);
+    }
+}
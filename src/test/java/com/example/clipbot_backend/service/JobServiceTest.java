@@ -0,0 +1,68 @@
+package com.example.clipbot_backend.service;
+
+import com.example.clipbot_backend.model.Job;
+import com.example.clipbot_backend.repository.JobRepository;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobServiceTest {
+
+    @Mock
+    private JobRepository jobRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enqueueUniqueBatchReusesRunningJobsAndInsertsTheRestOnce() {
+        JobService service = new JobService(jobRepository, new ObjectMapper());
+        UUID mediaId = UUID.randomUUID();
+        Job running = new Job(JobType.CLIP);
+        running.setId(UUID.randomUUID());
+        running.setStatus(JobStatus.RUNNING);
+        running.setDedupKey("clip:b");
+        when(jobRepository.findQueuedOrRunningByDedupKeyIn(anyCollection())).thenReturn(List.of(running));
+        when(jobRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Job> jobs = invocation.getArgument(0);
+            jobs.forEach(j -> j.setId(UUID.randomUUID()));
+            return jobs;
+        });
+
+        Map<String, Map<String, Object>> payloads = new LinkedHashMap<>();
+        payloads.put("clip:a", Map.of("clipId", "a"));
+        payloads.put("clip:b", Map.of("clipId", "b"));
+        payloads.put("clip:c", Map.of("clipId", "c"));
+        Map<String, UUID> ids = service.enqueueUniqueBatch(mediaId, JobType.CLIP, payloads);
+
+        ArgumentCaptor<List<Job>> saved = ArgumentCaptor.forClass(List.class);
+        verify(jobRepository, times(1)).saveAll(saved.capture());
+        verify(jobRepository, never()).save(any());
+        assertThat(saved.getValue()).extracting(Job::getDedupKey).containsExactly("clip:a", "clip:c");
+        assertThat(saved.getValue()).allSatisfy(j -> {
+            assertThat(j.getStatus()).isEqualTo(JobStatus.QUEUED);
+            assertThat(j.getMedia().getId()).isEqualTo(mediaId);
+        });
+        assertThat(ids.keySet()).containsExactly("clip:a", "clip:b", "clip:c");
+        assertThat(ids.get("clip:b")).isEqualTo(running.getId());
+        assertThat(ids.values()).doesNotContainNull().doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.clipbot_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+@ExtendWith(MockitoExtension.class)
+class PreviewServiceTest {
+
+    @Mock private MediaRepository mediaRepository;
+    @Mock private StorageService storageService;
+
+    @TempDir Path tmp;
+
+    private PreviewService previewService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // nep-ffmpeg: schrijft een "header" naar stdout en stopt
+        previewService = new PreviewService(mediaRepository, storageService, fakeFfmpeg("printf 'ftyp-fragment'"),
+                Duration.ofMinutes(3), 1);
+    }
+
+    @Test
+    void openSnapsStartToPreviousKeyframeAndPicksFragmentedMp4() throws Exception {
+        UUID mediaId = mediaWithKeyframes();
+
+        PreviewService.Preview preview = previewService.open(mediaId, 5_300, 35_000);
+
+        assertThat(preview.startMs()).isEqualTo(4_000);
+        assertThat(preview.endMs()).isEqualTo(35_000);
+        assertThat(preview.contentType()).isEqualTo(PreviewService.VIDEO_MP4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        preview.body().writeTo(out);
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("ftyp-fragment");
+    }
+
+    @Test
+    void failingRemuxIsReportedBeforeTheResponseAndFreesItsSlot() throws Exception {
+        previewService = new PreviewService(mediaRepository, storageService,
+                fakeFfmpeg("echo 'Invalid data found' >&2; exit 1"), Duration.ofMinutes(3), 1);
+        UUID mediaId = mediaWithKeyframes();
+
+        for (int i = 0; i < 2; i++) {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> previewService.open(mediaId, 0, 10_000));
+            assertThat(ex.getReason()).isEqualTo("PREVIEW_FAILED");
+        }
+    }
+
+    @Test
+    void concurrentPreviewsAreCappedUntilTheBodyFinishes() throws Exception {
+        UUID mediaId = mediaWithKeyframes();
+
+        PreviewService.Preview first = previewService.open(mediaId, 0, 10_000);
+        ResponseStatusException busy = assertThrows(ResponseStatusException.class, () -> previewService.open(mediaId, 0, 10_000));
+        assertThat(busy.getReason()).isEqualTo("PREVIEW_BUSY");
+
+        first.body().writeTo(new ByteArrayOutputStream());
+        PreviewService.Preview next = previewService.open(mediaId, 0, 10_000);
+        next.body().writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void bodyThatNeverRunsIsAbandonedAndFreesItsSlot() throws Exception {
+        previewService = new PreviewService(mediaRepository, storageService, fakeFfmpeg("printf 'ftyp-fragment'"),
+                Duration.ofMinutes(3), 1, Duration.ofMillis(200));
+        UUID mediaId = mediaWithKeyframes();
+
+        PreviewService.Preview dropped = previewService.open(mediaId, 0, 10_000);
+        Thread.sleep(600);
+
+        PreviewService.Preview next = previewService.open(mediaId, 0, 10_000);
+        assertThrows(IOException.class, () -> dropped.body().writeTo(new ByteArrayOutputStream()));
+        next.body().writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void webmOnlyForWebmCodecs() {
+        var vp9 = new ContainerInfo("webm", 0, List.of(
+                new ContainerInfo.StreamInfo("video", "V_VP9", 1920, 1080, null, null),
+                new ContainerInfo.StreamInfo("audio", "A_OPUS", null, null, 48_000, 2)), null);
+        var h264 = new ContainerInfo("matroska", 0, List.of(
+                new ContainerInfo.StreamInfo("video", "V_MPEG4/ISO/AVC", 1920, 1080, null, null),
+                new ContainerInfo.StreamInfo("audio", "A_AAC", null, null, 48_000, 2)), null);
+
+        assertThat(PreviewService.useWebm(vp9, Path.of("/tmp/in.webm"))).isTrue();
+        assertThat(PreviewService.useWebm(h264, Path.of("/tmp/in.mkv"))).isFalse();
+        assertThat(PreviewService.useWebm(null, Path.of("/tmp/in.mkv"))).isFalse();
+        assertThat(PreviewService.useWebm(null, Path.of("/tmp/in.webm"))).isTrue();
+    }
+
+    @Test
+    void commandRemuxesWithoutReencodeIntoPipe() {
+        List<String> cmd = PreviewService.buildCommand("ffmpeg", Path.of("/tmp/in.mp4"), 4_000, 35_000, false);
+
+        assertThat(String.join(" ", cmd))
+                .contains("-ss 4.000")
+                .contains("-t 31.000")
+                .contains("-c copy")
+                .contains("-movflags frag_keyframe+empty_moov+default_base_moof -f mp4")
+                .endsWith("pipe:1");
+        assertThat(cmd).doesNotContain("libx264");
+    }
+
+    @Test
+    void rejectsInvalidAndOverlongRanges() {
+        UUID mediaId = UUID.randomUUID();
+
+        assertThrows(ResponseStatusException.class, () -> previewService.open(mediaId, 10_000, 5_000));
+        assertThrows(ResponseStatusException.class, () -> previewService.open(mediaId, 0, 4 * 60_000));
+    }
+
+    @Test
+    void snapWithoutKeyframeIndexKeepsRequestedStart() {
+        assertThat(PreviewService.snapToKeyframe(null, 1_234)).isEqualTo(1_234);
+    }
+
+    private UUID mediaWithKeyframes() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        Path src = Files.write(tmp.resolve("source.mp4"), new byte[]{1});
+        Media media = new Media();
+        media.setId(mediaId);
+        media.setObjectKey("media/source.mp4");
+        media.setContainerInfo(new ContainerInfo("mp4", 600_000_000L,
+                List.of(new ContainerInfo.StreamInfo("video", "avc1", 1920, 1080, null, null)),
+                List.of(0L, 2_000_000L, 4_000_000L, 6_000_000L)));
+        when(mediaRepository.findById(mediaId)).thenReturn(Optional.of(media));
+        when(storageService.resolveRaw("media/source.mp4")).thenReturn(src);
+        return mediaId;
+    }
+
+    private String fakeFfmpeg(String body) throws Exception {
+        Path script = tmp.resolve("ffmpeg-" + UUID.randomUUID() + ".sh");
+        Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+        script.toFile().setExecutable(true);
+        return script.toString();
+    }
+}
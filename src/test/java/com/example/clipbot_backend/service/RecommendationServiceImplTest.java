@@ -1,16 +1,21 @@
 package com.example.clipbot_backend.service;
 
+import com.example.clipbot_backend.dto.MultiRecommendationResult;
+import com.example.clipbot_backend.dto.RecommendationProfile;
 import com.example.clipbot_backend.dto.RecommendationResult;
 import com.example.clipbot_backend.dto.SubtitleFiles;
 import com.example.clipbot_backend.model.Account;
 import com.example.clipbot_backend.model.Clip;
 import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.RecommendationSnapshot;
 import com.example.clipbot_backend.model.Segment;
 import com.example.clipbot_backend.model.Transcript;
 import com.example.clipbot_backend.repository.ClipRepository;
 import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.RecommendationSnapshotRepository;
 import com.example.clipbot_backend.repository.SegmentRepository;
 import com.example.clipbot_backend.repository.TranscriptRepository;
+import com.example.clipbot_backend.selector.GoodClipSelector;
 import com.example.clipbot_backend.selector.HeuristicGoodClipSelector;
 import com.example.clipbot_backend.service.Interfaces.SubtitleService;
 import com.example.clipbot_backend.service.impl.RecommendationServiceImpl;
@@ -35,6 +40,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -46,6 +52,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -142,4 +149,81 @@ class RecommendationServiceImplTest {
         verify(subtitleService, times(1)).buildSubtitles(any(), anyLong(), anyLong());
         verifyNoMoreInteractions(jobService);
     }
+
+    @Test
+    void explainIsServedFromSnapshotWithoutRecomputing() {
+        UUID mediaId = UUID.randomUUID();
+        RecommendationSnapshotRepository snapshotRepository = org.mockito.Mockito.mock(RecommendationSnapshotRepository.class);
+        GoodClipSelector selector = org.mockito.Mockito.mock(GoodClipSelector.class);
+        RecommendationServiceImpl local = new RecommendationServiceImpl(mediaRepository, null, clipRepository, segmentRepository,
+                transcriptRepository, subtitleService, jobService, selector, objectMapper,
+                new TransactionTemplate(new PseudoTransactionManager()), snapshotRepository);
+        RecommendationSnapshot snapshot = new RecommendationSnapshot(mediaId, "v1|t:1|2:3:4|60000", "", List.of(
+                new RecommendationSnapshot.Entry(0, 25_000, 0.8, 0.9, 0.5, 0.2, Set.of("launch"), 0.61, "S=0.80 -> 0.610"),
+                new RecommendationSnapshot.Entry(5_000, 30_000, 0.7, 0.9, 0.4, 0.3, Set.of(), 0.55, "S=0.70 -> 0.550")), 12);
+        when(snapshotRepository.inputVersion(mediaId)).thenReturn("t:1|2:3:4|60000");
+        when(snapshotRepository.findByMediaIdAndInputVersionAndProfileHash(mediaId, "v1|t:1|2:3:4|60000", ""))
+                .thenReturn(Optional.of(snapshot));
+
+        Map<String, String> hit = local.explain(mediaId, 5_000, 30_000);
+        Map<String, String> miss = local.explain(mediaId, 1_000, 30_000);
+
+        assertThat(hit).containsExactly(Map.entry("5000-30000", "S=0.70 -> 0.550"));
+        assertThat(miss).isEmpty();
+        verifyNoInteractions(transcriptRepository, segmentRepository, selector);
+    }
+
+    @Test
+    void multiProfileComputeLoadsInputOnceAndRanksPerProfile() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        Media media = new Media();
+        media.setId(mediaId);
+        media.setDurationMs(40_000L);
+        when(mediaRepository.findById(mediaId)).thenReturn(Optional.of(media));
+        when(segmentRepository.findByMedia(eq(media), eq(Pageable.unpaged())))
+                .thenReturn(new PageImpl<>(List.of(new Segment(media, 0L, 40_000L))));
+        StringBuilder items = new StringBuilder();
+        for (long t = 0; t < 40_000; t += 500) {
+            if (items.length() > 0) items.append(',');
+            String text = t % 4_000 == 0 ? "launch!" : "word";
+            items.append("{\"text\":\"").append(text).append("\",\"startMs\":").append(t)
+                    .append(",\"endMs\":").append(t + 450).append(",\"confidence\":0.9}");
+        }
+        Transcript transcript = new Transcript();
+        transcript.setMedia(media);
+        transcript.setWords(objectMapper.readTree("{\"items\":[" + items + "]}"));
+        when(transcriptRepository.findTopByMediaIdOrderByCreatedAtDesc(mediaId)).thenReturn(Optional.of(transcript));
+
+        RecommendationSnapshotRepository snapshotRepository = org.mockito.Mockito.mock(RecommendationSnapshotRepository.class);
+        when(snapshotRepository.inputVersion(mediaId)).thenReturn("t:1|1:0:40000|40000");
+        when(snapshotRepository.findByMediaIdAndInputVersionAndProfileHash(any(), anyString(), anyString())).thenReturn(Optional.empty());
+        when(snapshotRepository.saveAndFlush(any(RecommendationSnapshot.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(clipRepository.upsertRanges(eq(mediaId), anyString(), anyString(), anyString())).thenReturn(List.of());
+        when(clipRepository.findByMediaIdAndStartMsAndEndMsAndProfileHash(eq(mediaId), anyLong(), anyLong(), anyString()))
+                .thenAnswer(invocation -> {
+                    Clip clip = new Clip(media, invocation.getArgument(1), invocation.getArgument(2));
+                    ReflectionTestUtils.setField(clip, "id", UUID.randomUUID());
+                    return Optional.of(clip);
+                });
+        GoodClipSelector selector = org.mockito.Mockito.spy(new HeuristicGoodClipSelector());
+        RecommendationServiceImpl local = new RecommendationServiceImpl(mediaRepository, null, clipRepository, segmentRepository,
+                transcriptRepository, subtitleService, jobService, selector, objectMapper,
+                new TransactionTemplate(new PseudoTransactionManager()), snapshotRepository);
+
+        MultiRecommendationResult result = local.computeRecommendations(mediaId, List.of(
+                new RecommendationProfile("default", 2, null, null, null, null, Map.of()),
+                new RecommendationProfile("short", 3, 15, null, null, Map.of("keyword", 0.5), Map.of("keywords", "launch"))), false);
+
+        assertThat(result.profiles()).extracting(MultiRecommendationResult.ProfileResult::name).containsExactly("default", "short");
+        assertThat(result.profiles().get(0).clips()).hasSize(2);
+        assertThat(result.profiles().get(1).clips()).hasSize(3)
+                .allSatisfy(clip -> assertThat(clip.endMs() - clip.startMs()).isLessThanOrEqualTo(20_000));
+        assertThat(result.profiles().get(0).profileHash()).isEmpty();
+        assertThat(result.profiles().get(1).profileHash()).isNotEmpty();
+        verify(transcriptRepository, times(1)).findTopByMediaIdOrderByCreatedAtDesc(mediaId);
+        verify(segmentRepository, times(1)).findByMedia(eq(media), eq(Pageable.unpaged()));
+        verify(selector, times(2)).select(any(), any());
+        verify(snapshotRepository, times(2)).saveAndFlush(any(RecommendationSnapshot.class));
+        verifyNoInteractions(jobService);
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.clipbot_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.config.AdaptiveEncodeProperties;
+import com.example.clipbot_backend.config.BrandProperties;
+import com.example.clipbot_backend.config.WorkerExecutorProperties;
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import com.example.clipbot_backend.model.PlanTier;
+import com.example.clipbot_backend.repository.JobRepository;
+import com.example.clipbot_backend.repository.RenderStatsRepository;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RenderProfileResolverTest {
+
+    @Mock private JobRepository jobRepository;
+    @Mock private RenderStatsRepository renderStatsRepository;
+
+    private RenderProfileResolver resolver;
+
+    @BeforeEach
+    void setup() {
+        when(renderStatsRepository.findByKind(anyString())).thenReturn(Optional.empty());
+        resolver = new RenderProfileResolver(new BrandProperties(), new AdaptiveEncodeProperties(),
+                jobRepository, renderStatsRepository, new WorkerExecutorProperties());
+    }
+
+    @Test
+    void idleQueueUsesSlowestPresetAndBestCrfOfPlan() {
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(0L);
+
+        var choice = resolver.chooseEncoder(PlanTier.PRO, 30);
+
+        assertThat(choice.preset()).isEqualTo("slow");
+        assertThat(choice.crf()).isBetween(19, 21);
+    }
+
+    @Test
+    void deepQueueFallsBackToFastestPresetAndWorstCrfWithinBounds() {
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(2_000L);
+
+        var choice = resolver.chooseEncoder(PlanTier.TRIAL, 30);
+
+        assertThat(choice.preset()).isEqualTo("veryfast");
+        assertThat(choice.crf()).isEqualTo(28);
+        assertThat(choice.queueDepth()).isEqualTo(2_000L);
+    }
+
+    @Test
+    void measuredSpeedShiftsThePresetChoice() {
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(3L);
+        assertThat(resolver.chooseEncoder(PlanTier.STARTER, 30).preset()).isEqualTo("medium");
+
+        // medium blijkt op deze machine veel trager dan de aanname
+        for (int i = 0; i < 30; i++) {
+            resolver.recordEncode("medium", 1280, 720, 30_000L, 90_000L);
+        }
+
+        assertThat(resolver.chooseEncoder(PlanTier.STARTER, 30).preset()).isEqualTo("fast");
+    }
+
+    @Test
+    void drainEstimateCountsSubtitledAndMasterEncodePerClipJob() {
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(0L);
+
+        var choice = resolver.chooseEncoder(PlanTier.PRO, 30);
+
+        // 1 job x 2 encodes x 30 s x 1500 ms/s (prior "slow") over 2 clip-slots
+        assertThat(choice.estimatedDrainSec()).isEqualTo(45.0);
+    }
+
+    @Test
+    void encodeSamplesAreNormalizedByPixelCount() {
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(0L);
+
+        // zelfde snelheid per pixel: 1080p-master duurt 2.25x zo lang als de 720p-clip
+        for (int i = 0; i < 30; i++) {
+            resolver.recordEncode("slow", 1920, 1080, 30_000L, 90_000L);
+            resolver.recordEncode("slow", 1280, 720, 30_000L, 40_000L);
+        }
+
+        // beide komen uit op 2166.7 ms/s per referentie-frame: 1 job x 2 encodes x 30 s over 2 clip-slots
+        assertThat(resolver.chooseEncoder(PlanTier.PRO, 30).estimatedDrainSec()).isCloseTo(65.0, within(0.01));
+    }
+
+    @Test
+    void masterSpecKeepsSourceAspectWithinCaps() {
+        var portrait = new ContainerInfo("mp4", 0, List.of(new ContainerInfo.StreamInfo("video", "avc1", 2160, 3840, null, null)), null);
+        var landscape = new ContainerInfo("mp4", 0, List.of(new ContainerInfo.StreamInfo("video", "avc1", 1280, 720, null, null)), null);
+
+        var vertical = RenderProfileResolver.masterSpec(portrait, 23, "fast");
+        var small = RenderProfileResolver.masterSpec(landscape, 23, "fast");
+        var unknown = RenderProfileResolver.masterSpec(null, 17, "fast");
+
+        assertThat(vertical.width()).isEqualTo(1080);
+        assertThat(vertical.height()).isEqualTo(1920);
+        assertThat(vertical.crf()).isEqualTo(21);
+        assertThat(small.width()).isEqualTo(1280);
+        assertThat(small.height()).isEqualTo(720);
+        assertThat(unknown.width()).isEqualTo(1920);
+        assertThat(unknown.crf()).isEqualTo(16);
+    }
+}
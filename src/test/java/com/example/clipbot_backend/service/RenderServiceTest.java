@@ -1,5 +1,6 @@
 package com.example.clipbot_backend.service;
 
+import com.example.clipbot_backend.dto.RenderResult;
 import com.example.clipbot_backend.dto.render.SubtitleStyle;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.model.Account;
@@ -15,19 +16,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -80,6 +90,97 @@ class RenderServiceTest {
         assertThat(payloadCaptor.getValue()).containsKeys("clipId", "subtitleStyle");
     }
 
+    @Test
+    void requestRenditionReturnsCachedAssetWithoutTranscoding() throws Exception {
+        Clip clip = sampleClip();
+        String key = RenderService.renditionKey(clip.getId(), "tiktok-9x16");
+        Asset cached = new Asset(clip.getMedia().getOwner(), AssetKind.CLIP_MP4_RENDITION, key, 100);
+        when(clipRepository.findByIdWithMedia(clip.getId())).thenReturn(Optional.of(clip));
+        when(assetRepository.findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_RENDITION, key))
+                .thenReturn(Optional.of(cached));
+        when(storageService.existsInOut(key)).thenReturn(true);
+
+        Optional<Asset> result = renderService.requestRendition(clip.getId(), "tiktok-9x16");
+
+        assertThat(result).containsSame(cached);
+        verify(renderEngine, never()).renderRendition(any(), any(), any());
+    }
+
+    @Test
+    void requestRenditionRejectsUnknownProfile() {
+        assertThrows(ResponseStatusException.class, () -> renderService.requestRendition(UUID.randomUUID(), "square-4k"));
+    }
+
+    @Test
+    void concurrentRenditionRequestsShareOneBackgroundTranscode(@TempDir Path tmp) throws Exception {
+        Clip clip = sampleClip();
+        String key = RenderService.renditionKey(clip.getId(), "youtube-1080p");
+        Path master = Files.write(tmp.resolve("master.mp4"), new byte[]{1});
+        Asset masterAsset = new Asset(clip.getMedia().getOwner(), AssetKind.CLIP_MP4_CLEAN, "clips/master.mp4", 1);
+        when(clipRepository.findByIdWithMedia(clip.getId())).thenReturn(Optional.of(clip));
+        when(assetRepository.findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_RENDITION, key))
+                .thenReturn(Optional.empty());
+        when(assetRepository.findTopByRelatedClipAndKindOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_CLEAN)).thenReturn(Optional.of(masterAsset));
+        when(storageService.resolveOut("clips/master.mp4")).thenReturn(master);
+        when(assetRepository.save(any(Asset.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger transcodes = new AtomicInteger();
+        when(renderEngine.renderRendition(eq(master), any(), eq(key))).thenAnswer(inv -> {
+            transcodes.incrementAndGet();
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new RenderResult(key, 42, null, 0);
+        });
+
+        assertThat(renderService.requestRendition(clip.getId(), "youtube-1080p")).isEmpty();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(renderService.requestRendition(clip.getId(), "youtube-1080p")).isEmpty();
+        release.countDown();
+
+        ArgumentCaptor<Asset> saved = ArgumentCaptor.forClass(Asset.class);
+        verify(assetRepository, timeout(5_000)).save(saved.capture());
+        assertThat(saved.getValue().getKind()).isEqualTo(AssetKind.CLIP_MP4_RENDITION);
+        assertThat(saved.getValue().getObjectKey()).isEqualTo(key);
+        assertThat(saved.getValue().getSizeBytes()).isEqualTo(42L);
+        assertThat(transcodes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void renditionRequestsBeyondCapacityDoNotStartTranscodes(@TempDir Path tmp) throws Exception {
+        renderService = new RenderService(clipRepository, assetRepository, jobService, storageService, renderEngine, new ObjectMapper(), 1);
+        Clip first = sampleClip();
+        Clip second = sampleClip();
+        Path master = Files.write(tmp.resolve("master.mp4"), new byte[]{1});
+        Asset masterAsset = new Asset(first.getMedia().getOwner(), AssetKind.CLIP_MP4_CLEAN, "clips/master.mp4", 1);
+        for (Clip clip : new Clip[]{first, second}) {
+            when(clipRepository.findByIdWithMedia(clip.getId())).thenReturn(Optional.of(clip));
+            when(assetRepository.findTopByRelatedClipAndKindOrderByCreatedAtDesc(clip, AssetKind.CLIP_MP4_CLEAN)).thenReturn(Optional.of(masterAsset));
+        }
+        when(assetRepository.findTopByRelatedClipAndKindAndObjectKeyOrderByCreatedAtDesc(any(), eq(AssetKind.CLIP_MP4_RENDITION), any()))
+                .thenReturn(Optional.empty());
+        when(storageService.resolveOut("clips/master.mp4")).thenReturn(master);
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(renderEngine.renderRendition(eq(master), any(), any())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("ffmpeg failed");
+        });
+
+        try {
+            assertThat(renderService.requestRendition(first.getId(), "youtube-1080p")).isEmpty();
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(renderService.requestRendition(second.getId(), "youtube-1080p")).isEmpty();
+        } finally {
+            release.countDown();
+        }
+        verify(renderEngine, timeout(5_000).times(1)).renderRendition(any(), any(), any());
+        verify(assetRepository, never()).save(any(Asset.class));
+    }
+
     private Clip sampleClip() {
         Account owner = new Account();
         owner.setExternalSubject("user-1");
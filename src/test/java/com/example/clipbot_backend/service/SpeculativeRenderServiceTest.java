@@ -0,0 +1,198 @@
+package com.example.clipbot_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.clipbot_backend.config.SpeculativeRenderProperties;
+import com.example.clipbot_backend.dto.RenderSpec;
+import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
+import com.example.clipbot_backend.model.Account;
+import com.example.clipbot_backend.model.Media;
+import com.example.clipbot_backend.model.Segment;
+import com.example.clipbot_backend.model.SpeculativeRender;
+import com.example.clipbot_backend.repository.JobRepository;
+import com.example.clipbot_backend.repository.MediaRepository;
+import com.example.clipbot_backend.repository.RenderStatsRepository;
+import com.example.clipbot_backend.repository.SpeculativeRenderRepository;
+import com.example.clipbot_backend.service.Interfaces.StorageService;
+import com.example.clipbot_backend.util.JobStatus;
+import com.example.clipbot_backend.util.JobType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SpeculativeRenderServiceTest {
+
+    @Mock private SpeculativeRenderRepository cacheRepo;
+    @Mock private MediaRepository mediaRepo;
+    @Mock private SegmentService segmentService;
+    @Mock private JobRepository jobRepository;
+    @Mock private RenderStatsRepository renderStatsRepository;
+    @Mock private RenderProfileResolver renderProfileResolver;
+    @Mock private ClipRenderEngine renderEngine;
+    @Mock private StorageService storage;
+    @TempDir Path tmp;
+
+    private SpeculativeRenderProperties properties;
+    private SpeculativeRenderService service;
+
+    @BeforeEach
+    void setup() {
+        properties = new SpeculativeRenderProperties();
+        properties.setTtl(Duration.ofHours(1));
+        when(renderStatsRepository.findByKind(anyString())).thenReturn(Optional.empty());
+        service = new SpeculativeRenderService(properties, cacheRepo, mediaRepo, segmentService, jobRepository,
+                renderStatsRepository, renderProfileResolver, renderEngine, storage);
+    }
+
+    @Test
+    void claimServesCachedRenderOnceAndCountsHitRate() {
+        UUID mediaId = UUID.randomUUID();
+        String key = SpeculativeRenderService.specKey(RenderSpec.DEFAULT);
+        var entry = new SpeculativeRender(mediaId, 1_000, 31_000, key, "clips/spec.mp4", 4_096, 12_000);
+        ReflectionTestUtils.setField(entry, "id", UUID.randomUUID());
+        when(cacheRepo.findByMediaIdAndStartMsAndEndMsAndSpecKey(mediaId, 1_000, 31_000, key)).thenReturn(Optional.of(entry));
+        when(storage.existsInOut("clips/spec.mp4")).thenReturn(true);
+        // tweede claim verliest de conditionele update (claimed_at al gezet)
+        when(cacheRepo.markClaimed(entry.getId())).thenReturn(1, 0);
+
+        var first = service.claim(mediaId, 1_000, 31_000, RenderSpec.DEFAULT);
+        var second = service.claim(mediaId, 1_000, 31_000, RenderSpec.DEFAULT);
+
+        assertThat(first).isPresent();
+        assertThat(first.get().mp4Key()).isEqualTo("clips/spec.mp4");
+        assertThat(first.get().mp4Size()).isEqualTo(4_096);
+        assertThat(second).isEmpty();
+        assertThat(service.stats().hits()).isEqualTo(1);
+        assertThat(service.stats().misses()).isEqualTo(1);
+        assertThat(service.stats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void specKeyIgnoresPresetAndCrf() {
+        RenderSpec d = RenderSpec.DEFAULT;
+        RenderSpec slow = new RenderSpec(d.width(), d.height(), d.fps(), 19, "slow", d.profile(), false, null);
+
+        assertThat(SpeculativeRenderService.specKey(slow)).isEqualTo(SpeculativeRenderService.specKey(d));
+    }
+
+    @Test
+    void evictionDeletesUnclaimedOutputAndCountsItAsWasted() {
+        UUID mediaId = UUID.randomUUID();
+        var unclaimed = new SpeculativeRender(mediaId, 0, 20_000, "k", "clips/a.mp4", 1, 3_000);
+        var claimed = new SpeculativeRender(mediaId, 20_000, 40_000, "k", "clips/b.mp4", 1, 5_000);
+        claimed.setClaimedAt(Instant.now());
+        when(cacheRepo.findByCreatedAtBefore(any())).thenReturn(List.of(unclaimed, claimed));
+
+        service.evictExpired();
+
+        verify(storage).deleteOut("clips/a.mp4");
+        verify(storage, never()).deleteOut("clips/b.mp4");
+        verify(cacheRepo).delete(unclaimed);
+        verify(cacheRepo).delete(claimed);
+        assertThat(service.stats().wastedMs()).isEqualTo(3_000);
+    }
+
+    @Test
+    void doesNotRenderWhileClipJobsAreQueued() throws Exception {
+        when(jobRepository.countByTypeAndStatus(eq(JobType.CLIP), eq(JobStatus.QUEUED))).thenReturn(1L);
+        service.offer(UUID.randomUUID());
+
+        assertThat(service.renderSlotsIdle()).isFalse();
+        service.tick();
+
+        verify(renderEngine, never()).renderClean(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void renderSlotsAreBusyWhileAnyRenderJobTypeIsQueuedOrRunning() {
+        assertThat(service.renderSlotsIdle()).isTrue();
+
+        when(jobRepository.countByTypeAndStatus(JobType.RENDER_CLEAN, JobStatus.RUNNING)).thenReturn(1L);
+        assertThat(service.renderSlotsIdle()).isFalse();
+
+        when(jobRepository.countByTypeAndStatus(JobType.RENDER_CLEAN, JobStatus.RUNNING)).thenReturn(0L);
+        when(jobRepository.countByTypeAndStatus(JobType.EXPORT, JobStatus.QUEUED)).thenReturn(2L);
+        assertThat(service.renderSlotsIdle()).isFalse();
+    }
+
+    @Test
+    void failedSegmentBacksOffInsteadOfReencodingEveryTick() throws Exception {
+        UUID mediaId = pendingMediaWithOneSegment();
+        when(renderEngine.renderClean(any(), anyLong(), anyLong(), any())).thenThrow(new RuntimeException("ffmpeg failed"));
+
+        assertThatThrownBy(() -> service.renderNext()).hasMessage("ffmpeg failed");
+        service.renderNext();
+        service.renderNext();
+
+        verify(renderEngine, times(1)).renderClean(any(), anyLong(), anyLong(), any());
+        // in backoff: de media blijft in de wachtrij voor een latere poging
+        verify(segmentService, times(3)).topByScore(eq(mediaId), anyInt());
+    }
+
+    @Test
+    void runningSpeculativeRenderIsCancelledWhenARenderJobArrives() throws Exception {
+        pendingMediaWithOneSegment();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(renderEngine.renderClean(any(), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        });
+
+        service.tick();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        when(jobRepository.countByTypeAndStatus(JobType.CLIP, JobStatus.QUEUED)).thenReturn(1L);
+        service.tick();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private UUID pendingMediaWithOneSegment() throws Exception {
+        Account owner = new Account("ext-1", "Owner");
+        Media media = new Media(owner, "media/source.mp4");
+        media.setId(UUID.randomUUID());
+        Segment segment = new Segment(media, 0L, 30_000L);
+        ReflectionTestUtils.setField(segment, "id", UUID.randomUUID());
+        when(mediaRepo.findByIdWithOwner(media.getId())).thenReturn(Optional.of(media));
+        when(segmentService.topByScore(eq(media.getId()), anyInt())).thenReturn(List.of(segment));
+        when(renderProfileResolver.chooseEncoder(any(), anyDouble()))
+                .thenReturn(new RenderProfileResolver.EncoderChoice("slow", 20, 0, 0));
+        when(storage.resolveRaw("media/source.mp4")).thenReturn(Files.write(tmp.resolve("source.mp4"), new byte[]{1}));
+        service.offer(media.getId());
+        return media.getId();
+    }
+}
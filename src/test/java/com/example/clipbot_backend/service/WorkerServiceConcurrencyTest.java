@@ -10,6 +10,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.clipbot_backend.config.WorkerExecutorProperties;
+import com.example.clipbot_backend.engine.FfmpegLoudnessAnalyzer;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.engine.Interfaces.TranscriptionEngine;
@@ -64,6 +65,9 @@ class WorkerServiceConcurrencyTest {
     @Mock private RenderService renderService;
     @Mock private TranscriptionEngine gptEngine;
     @Mock private TranscriptionEngine fasterEngine;
+    @Mock private FfmpegLoudnessAnalyzer loudnessAnalyzer;
+    @Mock private SpeculativeRenderService speculativeRenders;
+    @Mock private DetectNowStreams detectNowStreams;
 
     private ExecutorService executor;
 
@@ -107,7 +111,8 @@ class WorkerServiceConcurrencyTest {
                 gptEngine,
                 fasterEngine,
                 executor,
-                props);
+                props,
+                loudnessAnalyzer, speculativeRenders, detectNowStreams);
 
         Job job1 = clipJob();
         Job job2 = clipJob();
@@ -10,6 +10,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.clipbot_backend.engine.FfmpegLoudnessAnalyzer;
 import com.example.clipbot_backend.engine.Interfaces.ClipRenderEngine;
 import com.example.clipbot_backend.engine.Interfaces.DetectionEngine;
 import com.example.clipbot_backend.engine.Interfaces.TranscriptionEngine;
@@ -96,6 +97,12 @@ class WorkerServiceTranscriptionSelectionTest {
     private ThumbnailService thumbnailService;
     @Mock
     private IngestCleanupService ingestCleanupService;
+    @Mock
+    private FfmpegLoudnessAnalyzer loudnessAnalyzer;
+    @Mock
+    private SpeculativeRenderService speculativeRenders;
+    @Mock
+    private DetectNowStreams detectNowStreams;
 
     private WorkerService workerService;
     private Path tempMedia;
@@ -106,7 +113,7 @@ class WorkerServiceTranscriptionSelectionTest {
         workerService = new WorkerService(jobService, transcriptService, mediaRepository, transcriptRepository, segmentRepository,
                 clipRepository, assetRepository, projectMediaRepository, urlDownloader, fastWhisperClient, audioWindowService, detectWorkflow,
                 clipWorkFlow, clipService, thumbnailService, ingestCleanupService, detectionEngine, clipRenderEngine, storageService, subtitleService, renderService,
-                gptEngine, fasterEngine, Runnable::run, workerProps);
+                gptEngine, fasterEngine, Runnable::run, workerProps, loudnessAnalyzer, speculativeRenders, detectNowStreams);
         tempMedia = Files.createTempFile("media", ".mp4");
         Files.write(tempMedia, new byte[]{1, 2, 3});
     }
@@ -1,5 +1,6 @@
 package com.example.clipbot_backend.service.thumbnail;
 
+import com.example.clipbot_backend.dto.media.ContainerInfo;
 import com.example.clipbot_backend.model.Account;
 import com.example.clipbot_backend.model.Media;
 import com.example.clipbot_backend.model.Project;
@@ -26,6 +27,8 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 
@@ -109,4 +112,21 @@ class ThumbnailServiceExtractionTest {
         assertThat(projectsCaptor.getValue()).hasSize(1);
         assertThat(projectsCaptor.getValue().get(0).getThumbnailUrl()).isEqualTo(expectedThumbKey);
     }
+
+    @Test
+    void persistedAudioOnlyContainerInfoSkipsExtractionWithoutProbing() throws Exception {
+        UUID mediaId = UUID.randomUUID();
+        Path rawPath = storageService.resolveRaw("ext/yt/audio/source.mp4");
+        Files.createDirectories(rawPath.getParent());
+        Files.write(rawPath, new byte[]{1, 2, 3});
+        // bestaande thumb zou direct gepersisteerd worden als de bron als video gold
+        storageService.uploadToOut(Files.write(tmp.resolve("thumb.jpg"), new byte[]{1}), String.format("media/thumbs/%s.jpg", mediaId));
+        ContainerInfo audioOnly = new ContainerInfo("mp4", 2_000_000L,
+                List.of(new ContainerInfo.StreamInfo("audio", "mp4a", null, null, 48000, 2)), List.of());
+
+        thumbnailService.extractFromLocalMedia(
+                new ThumbnailService.ThumbnailRequest(mediaId, UUID.randomUUID(), List.of(), 2000L, audioOnly), rawPath);
+
+        verify(assetRepository, never()).save(any());
+    }
 }
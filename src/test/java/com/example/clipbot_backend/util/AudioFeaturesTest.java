@@ -0,0 +1,86 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.nio.ShortBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class AudioFeaturesTest {
+
+    /** 4 s zacht geruis, 2 s luide toon met tikken om de 250 ms, 4 s zacht geruis. */
+    private static ShortBuffer fixture() {
+        int n = 10 * PcmAudio.SAMPLE_RATE;
+        short[] pcm = new short[n];
+        Random rnd = new Random(7);
+        for (int i = 0; i < n; i++) {
+            double ms = i * 1000.0 / PcmAudio.SAMPLE_RATE;
+            double v = rnd.nextGaussian() * 200;
+            if (ms >= 4_000 && ms < 6_000) {
+                v += 9_000 * Math.sin(2 * Math.PI * 300 * i / PcmAudio.SAMPLE_RATE);
+                if ((long) ms % 250 < 5) v += rnd.nextGaussian() * 12_000;
+            }
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+        }
+        return ShortBuffer.wrap(pcm);
+    }
+
+    @Test
+    void loudBusyRangeScoresAboveQuietRange() {
+        AudioFeatures f = AudioFeatures.extract(fixture());
+
+        assertThat(f.frameCount()).isEqualTo(100);
+        assertThat(f.meanRms(4_000, 6_000)).isGreaterThan(10 * f.meanRms(0, 4_000));
+        assertThat(f.meanFlux(4_000, 6_000)).isGreaterThan(f.meanFlux(0, 4_000));
+        assertThat(f.onsetRate(4_000, 6_000)).isGreaterThan(f.onsetRate(0, 4_000));
+        assertThat(f.excitement(4_000, 6_000)).isGreaterThan(0.5);
+        assertThat(f.excitement(0, 4_000)).isLessThan(0.5);
+
+        var energy = new HeuristicScorer.EnergyContext(f, 0.1);
+        assertThat(energy.bonus(4_000, 6_000)).isGreaterThan(0.0).isLessThan(0.1);
+        assertThat(energy.bonus(0, 4_000)).isZero();
+        assertThat(HeuristicScorer.EnergyContext.NONE.bonus(4_000, 6_000)).isZero();
+    }
+
+    @Test
+    void compactFormRoundTripsWithinHalfPrecision() {
+        AudioFeatures f = AudioFeatures.extract(fixture());
+
+        byte[] bytes = f.toBytes();
+        AudioFeatures back = AudioFeatures.fromBytes(bytes);
+
+        assertThat(bytes).hasSize(12 + 5 * 100);
+        assertThat(back.frameCount()).isEqualTo(f.frameCount());
+        for (int k = 0; k < f.frameCount(); k++) {
+            assertThat(back.rms(k)).isCloseTo(f.rms(k), within(f.rms(k) * 1e-3f + 1e-6f));
+            assertThat(back.onsets(k)).isEqualTo(f.onsets(k));
+        }
+        assertThat(back.excitement(4_000, 6_000)).isCloseTo(f.excitement(4_000, 6_000), within(1e-3));
+    }
+
+    @Test
+    void fftFindsSineBin() {
+        double[] re = new double[AudioFeatures.FFT_SIZE];
+        double[] im = new double[AudioFeatures.FFT_SIZE];
+        for (int i = 0; i < re.length; i++) re[i] = Math.sin(2 * Math.PI * 20 * i / re.length);
+
+        AudioFeatures.fft(re, im);
+
+        int peak = 0;
+        for (int k = 1; k <= re.length / 2; k++) {
+            if (Math.hypot(re[k], im[k]) > Math.hypot(re[peak], im[peak])) peak = k;
+        }
+        assertThat(peak).isEqualTo(20);
+        assertThat(Math.hypot(re[20], im[20])).isCloseTo(re.length / 2.0, within(1e-6));
+    }
+
+    @Test
+    void emptyAudioIsNeutral() {
+        AudioFeatures f = AudioFeatures.extract(ShortBuffer.allocate(0));
+
+        assertThat(f.isEmpty()).isTrue();
+        assertThat(f.excitement(0, 10_000)).isEqualTo(0.5);
+        assertThat(new HeuristicScorer.EnergyContext(f, 0.1).enabled()).isFalse();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.clipbot_backend.dto.media.ContainerInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContainerProbeTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void readsMp4DurationStreamsAndKeyframesFromMoov() throws Exception {
+        byte[] video = box("trak",
+                box("tkhd", fullBox(0), new byte[72], u32(1280 << 16), u32(720 << 16)),
+                box("mdia",
+                        box("mdhd", fullBox(0), u32(0), u32(0), u32(30), u32(300), new byte[4]),
+                        box("hdlr", fullBox(0), u32(0), ascii("vide"), new byte[12]),
+                        box("minf", box("stbl",
+                                box("stsd", fullBox(0), u32(1),
+                                        box("avc1", new byte[8], new byte[16], u16(1280), u16(720), new byte[50])),
+                                box("stts", fullBox(0), u32(1), u32(300), u32(1)),
+                                box("stss", fullBox(0), u32(3), u32(1), u32(61), u32(121))))));
+        byte[] audio = box("trak",
+                box("tkhd", fullBox(0), new byte[80]),
+                box("mdia",
+                        box("mdhd", fullBox(0), u32(0), u32(0), u32(48000), u32(480000), new byte[4]),
+                        box("hdlr", fullBox(0), u32(0), ascii("soun"), new byte[12]),
+                        box("minf", box("stbl",
+                                box("stsd", fullBox(0), u32(1),
+                                        box("mp4a", new byte[8], new byte[8], u16(2), u16(16), new byte[4], u32(48000 << 16)))))));
+        Path file = write("sample.mp4",
+                box("ftyp", ascii("isom"), u32(512), ascii("isom")),
+                box("mdat", new byte[1024]),
+                box("moov",
+                        box("mvhd", fullBox(0), u32(0), u32(0), u32(1000), u32(10_000), new byte[80]),
+                        video, audio));
+
+        ContainerInfo info = ContainerProbe.probe(file);
+
+        assertThat(info.container()).isEqualTo("mp4");
+        assertThat(info.durationMs()).isEqualTo(10_000L);
+        assertThat(info.hasVideo()).isTrue();
+        assertThat(info.audioOnly()).isFalse();
+        assertThat(info.firstVideo().codec()).isEqualTo("avc1");
+        assertThat(info.firstVideo().width()).isEqualTo(1280);
+        assertThat(info.firstVideo().height()).isEqualTo(720);
+        assertThat(info.streams().get(1).sampleRate()).isEqualTo(48000);
+        assertThat(info.streams().get(1).channels()).isEqualTo(2);
+        assertThat(info.keyframesUs()).containsExactly(0L, 2_000_000L, 4_000_000L);
+        assertThat(info.keyframeAtOrBefore(3_000_000L)).isEqualTo(2_000_000L);
+    }
+
+    @Test
+    void mp4KeyframesArePresentationTimesAfterCompositionOffsetsAndEditList() throws Exception {
+        byte[] video = box("trak",
+                box("tkhd", fullBox(0), new byte[72], u32(1280 << 16), u32(720 << 16)),
+                // 500 ms lege edit, daarna vanaf media-tijd 2 (de B-frame-vertraging)
+                box("edts", box("elst", fullBox(0), u32(2), u32(500), u32(-1), u32(1 << 16),
+                        u32(10_000), u32(2), u32(1 << 16))),
+                box("mdia",
+                        box("mdhd", fullBox(0), u32(0), u32(0), u32(30), u32(300), new byte[4]),
+                        box("hdlr", fullBox(0), u32(0), ascii("vide"), new byte[12]),
+                        box("minf", box("stbl",
+                                box("stsd", fullBox(0), u32(1),
+                                        box("avc1", new byte[8], new byte[16], u16(1280), u16(720), new byte[50])),
+                                box("stts", fullBox(0), u32(1), u32(300), u32(1)),
+                                box("ctts", fullBox(0), u32(2), u32(60), u32(2), u32(240), u32(5)),
+                                box("stss", fullBox(0), u32(3), u32(1), u32(61), u32(121))))));
+        Path file = write("edited.mp4",
+                box("ftyp", ascii("isom"), u32(512), ascii("isom")),
+                box("moov",
+                        box("mvhd", fullBox(0), u32(0), u32(0), u32(1000), u32(10_500), new byte[80]),
+                        video));
+
+        ContainerInfo info = ContainerProbe.probe(file);
+
+        assertThat(info.keyframesUs()).containsExactly(500_000L, 2_600_000L, 4_600_000L);
+        assertThat(info).isEqualTo(ContainerProbe.probe(file));
+    }
+
+    @Test
+    void corruptSampleTableCountIsAnIOExceptionNotAnIndexError() throws Exception {
+        // stss claimt een miljoen entries in een box van 16 bytes
+        Path file = write("corrupt.mp4",
+                box("ftyp", ascii("isom"), u32(512), ascii("isom")),
+                box("moov",
+                        box("mvhd", fullBox(0), u32(0), u32(0), u32(1000), u32(10_000), new byte[80]),
+                        box("trak", box("mdia",
+                                box("hdlr", fullBox(0), u32(0), ascii("vide"), new byte[12]),
+                                box("minf", box("stbl", box("stss", fullBox(0), u32(1_000_000), u32(1))))))));
+
+        assertThatThrownBy(() -> ContainerProbe.probe(file)).isInstanceOf(IOException.class).hasMessageContaining("stss");
+        assertThat(ContainerProbe.tryProbe(file)).isNull();
+    }
+
+    @Test
+    void readsWebmInfoTracksAndCues() throws Exception {
+        byte[] tracks = ebml(0x1654AE6B,
+                ebml(0xAE, ebml(0xD7, 1), ebml(0x83, 1), ebml(0x86, ascii("V_VP9")),
+                        ebml(0xE0, ebml(0xB0, 640), ebml(0xBA, 360))),
+                ebml(0xAE, ebml(0xD7, 2), ebml(0x83, 2), ebml(0x86, ascii("A_OPUS")),
+                        ebml(0xE1, ebml(0xB5, ByteBuffer.allocate(4).putFloat(48000f).array()), ebml(0x9F, 2))));
+        byte[] cues = ebml(0x1C53BB6B,
+                ebml(0xBB, ebml(0xB3, 0), ebml(0xB7, ebml(0xF7, 1))),
+                ebml(0xBB, ebml(0xB3, 5000), ebml(0xB7, ebml(0xF7, 1))));
+        Path file = write("sample.webm",
+                ebml(0x1A45DFA3, ebml(0x4282, ascii("webm"))),
+                ebml(0x18538067,
+                        ebml(0x1549A966, ebml(0x2AD7B1, 1_000_000), ebml(0x4489, ByteBuffer.allocate(8).putDouble(12_000.0).array())),
+                        tracks,
+                        ebml(0x1F43B675, new byte[256]),
+                        cues));
+
+        ContainerInfo info = ContainerProbe.probe(file);
+
+        assertThat(info.container()).isEqualTo("webm");
+        assertThat(info.durationMs()).isEqualTo(12_000L);
+        assertThat(info.firstVideo().codec()).isEqualTo("V_VP9");
+        assertThat(info.firstVideo().width()).isEqualTo(640);
+        assertThat(info.streams().get(1).sampleRate()).isEqualTo(48000);
+        assertThat(info.keyframesUs()).containsExactly(0L, 5_000_000L);
+    }
+
+    @Test
+    void unknownFormatYieldsNull() throws Exception {
+        Path file = write("notes.txt", ascii("just some text, not media"));
+
+        assertThat(ContainerProbe.probe(file)).isNull();
+        assertThat(ContainerProbe.tryProbe(tmp.resolve("missing.mp4"))).isNull();
+    }
+
+    private Path write(String name, byte[]... parts) throws Exception {
+        Path file = tmp.resolve(name);
+        Files.write(file, concat(parts));
+        return file;
+    }
+
+    private static byte[] box(String type, byte[]... content) {
+        byte[] body = concat(content);
+        return concat(u32(body.length + 8), ascii(type), body);
+    }
+
+    private static byte[] ebml(int id, long value) {
+        return ebml(id, ByteBuffer.allocate(8).putLong(value).array());
+    }
+
+    private static byte[] ebml(int id, byte[]... content) {
+        byte[] body = concat(content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int b = (id >>> shift) & 0xFF;
+            if (b != 0 || out.size() > 0) out.write(b);
+        }
+        // 8-byte size vint (marker 0x01)
+        out.write(0x01);
+        for (int shift = 48; shift >= 0; shift -= 8) out.write((int) ((long) body.length >>> shift) & 0xFF);
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    private static byte[] fullBox(int version) {
+        return new byte[]{(byte) version, 0, 0, 0};
+    }
+
+    private static byte[] u32(int v) {
+        return ByteBuffer.allocate(4).putInt(v).array();
+    }
+
+    private static byte[] u16(int v) {
+        return ByteBuffer.allocate(2).putShort((short) v).array();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+}
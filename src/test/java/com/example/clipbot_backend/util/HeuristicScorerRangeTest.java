@@ -0,0 +1,92 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.SentenceSpan;
+import com.example.clipbot_backend.dto.SpeakerTurn;
+import com.example.clipbot_backend.service.ClipAssembler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Golden test: prefix-feature scoring must give exactly the same result as the joined-text scorer.
+ */
+class HeuristicScorerRangeTest {
+
+    private static final String[] FRAGMENTS = {
+            "Here's the secret.", "so", "that's", "why", "in", "short", "the", "key", "is", "Bottom line:",
+            "show me how", "nothing special", "  ", "", "Watch this!", "a mistake?", "ultimately it works",
+            "  leading space", "trailing space  ", "The key is patience.", "somehow", "resulted", "result.",
+            "BIG NEWS", "crazy, right?", "— dash start", "123 go", "in  short"
+    };
+
+    private final HeuristicScorer scorer = new HeuristicScorer();
+
+    @Test
+    void scoreRangeMatchesScoreWindowForEveryWindow() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            List<SentenceSpan> sentences = randomSentences(rnd, 25);
+            var turns = List.of(new SpeakerTurn("A", 0, 9_000), new SpeakerTurn("B", 9_000, 30_000),
+                    new SpeakerTurn("A", 30_000, 200_000));
+            var ctx = new HeuristicScorer.SpeakerContext(turns, round % 2 == 0);
+            HeuristicScorer.Features features = scorer.prepare(sentences);
+
+            for (int i = 0; i < sentences.size(); i++) {
+                for (int j = i; j < sentences.size(); j++) {
+                    long s = sentences.get(i).startMs();
+                    long e = sentences.get(j).endMs();
+                    var expected = scorer.scoreWindow(sentences.subList(i, j + 1), 30, 10, ctx, s, e);
+                    var actual = scorer.scoreRange(features, i, j, 30, 10, ctx, s, e);
+                    assertThat(actual).as("window %d..%d of %s", i, j, sentences.subList(i, j + 1)).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void multiWordKeysAcrossSentenceBoundaryAreDetected() {
+        List<SentenceSpan> sentences = List.of(
+                new SentenceSpan(0, 1000, "and the"),
+                new SentenceSpan(1000, 2000, "key"),
+                new SentenceSpan(2000, 3000, "is timing"));
+        var features = scorer.prepare(sentences);
+
+        assertThat(scorer.scoreRange(features, 0, 2, 30, 10, null, 0, 3000).hasPayoff()).isTrue();
+        assertThat(scorer.scoreRange(features, 0, 1, 30, 10, null, 0, 2000).hasPayoff()).isFalse();
+        assertThat(scorer.scoreRange(features, 1, 2, 30, 10, null, 1000, 3000).hasPayoff()).isFalse();
+    }
+
+    @Test
+    void clipAssemblerWindowsKeepReferenceScores() {
+        List<SentenceSpan> sentences = randomSentences(new Random(7), 60);
+        var windows = new ClipAssembler().windows(sentences, List.of(), 5_000, 40_000, 0, 20, 8, 10, null);
+
+        assertThat(windows).isNotEmpty();
+        for (var w : windows) {
+            var expected = scorer.scoreWindow(sentences.subList(w.startIdx, w.endIdx + 1), 20, 8, null, w.startMs, w.endMs);
+            assertThat(w.score).isEqualTo(expected.overall());
+            assertThat(w.scoreComponents).isEqualTo(expected.toMeta());
+        }
+    }
+
+    private static List<SentenceSpan> randomSentences(Random rnd, int n) {
+        List<SentenceSpan> out = new ArrayList<>();
+        long t = 0;
+        for (int k = 0; k < n; k++) {
+            int words = 1 + rnd.nextInt(3);
+            StringBuilder sb = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) sb.append(' ');
+                sb.append(FRAGMENTS[rnd.nextInt(FRAGMENTS.length)]);
+            }
+            String text = rnd.nextInt(15) == 0 ? null : sb.toString();
+            long dur = 800 + rnd.nextInt(4_000);
+            out.add(new SentenceSpan(t, t + dur, text));
+            t += dur;
+        }
+        return out;
+    }
+}
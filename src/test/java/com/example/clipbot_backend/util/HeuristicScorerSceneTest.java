@@ -0,0 +1,58 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+import com.example.clipbot_backend.dto.SceneCut;
+import com.example.clipbot_backend.dto.SentenceSpan;
+import com.example.clipbot_backend.service.ClipAssembler;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HeuristicScorerSceneTest {
+
+    private final HeuristicScorer scorer = new HeuristicScorer();
+    private final List<SentenceSpan> sentences = List.of(
+            new SentenceSpan(0, 9_800, "This is the opening."),
+            new SentenceSpan(10_000, 19_700, "Then something happens."),
+            new SentenceSpan(20_000, 29_900, "And that is the end."));
+
+    @Test
+    void cutsBelowThresholdAreIgnored() {
+        var ctx = HeuristicScorer.SceneContext.of(List.of(new SceneCut(5_000, 0.3), new SceneCut(9_900, 0.6)), 0.4, 400, 0.12);
+
+        assertThat(ctx.cuts().size()).isEqualTo(1);
+        assertThat(ctx.snap(10_200)).isEqualTo(9_900);
+        assertThat(ctx.snap(5_000)).isEqualTo(-1);
+        assertThat(HeuristicScorer.SceneContext.of(List.of(new SceneCut(5_000, 0.3)), 0.4, 400, 0.12))
+                .isSameAs(HeuristicScorer.SceneContext.NONE);
+    }
+
+    @Test
+    void alignedBoundsEarnTheSceneBonus() {
+        var features = scorer.prepare(sentences);
+        var ctx = HeuristicScorer.SceneContext.of(List.of(new SceneCut(0, 0.9), new SceneCut(19_700, 0.8)), 0.4, 400, 0.12);
+
+        var plain = scorer.scoreRange(features, 0, 1, 30, 10, null, 0, 19_700);
+        var aligned = scorer.scoreRange(features, 0, 1, 30, 10, null, ctx, 0, 19_700);
+        var halfway = scorer.scoreRange(features, 0, 1, 30, 10, null, ctx, 200, 19_700);
+
+        assertThat(plain.sceneAlignBonus()).isZero();
+        assertThat(aligned.sceneAlignBonus()).isEqualTo(0.12);
+        assertThat(aligned.overall()).isCloseTo(plain.overall() + 0.12, offset(1e-9));
+        assertThat(halfway.sceneAlignBonus()).isCloseTo(0.09, offset(1e-9));
+    }
+
+    @Test
+    void assemblerSnapsToSceneCutWhenNoSilenceIsInReach() {
+        var ctx = HeuristicScorer.SceneContext.of(List.of(new SceneCut(10_250, 0.7)), 0.4, 400, 0.12);
+
+        var windows = new ClipAssembler(scorer).windows(sentences, List.of(), 5_000, 12_000, 400, 10, 6, 3, null, ctx);
+
+        assertThat(windows).anySatisfy(w -> {
+            assertThat(w.startIdx).isEqualTo(1);
+            assertThat(w.startMs).isEqualTo(10_250);
+            assertThat((double) w.scoreComponents.get("sceneAlignBonus")).isGreaterThan(0);
+        });
+    }
+}
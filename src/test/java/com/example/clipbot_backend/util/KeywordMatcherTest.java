@@ -0,0 +1,47 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KeywordMatcherTest {
+
+    @Test
+    void tokenizeLowercasesAndKeepsInnerApostrophes() {
+        assertThat(KeywordMatcher.tokenize("Here’s the TRUTH, isn't it?  'quoted'"))
+                .containsExactly("here's", "the", "truth", "isn't", "it", "quoted");
+    }
+
+    @Test
+    void matchesWholeTokensAndPhrasesAcrossPunctuation() {
+        KeywordMatcher matcher = KeywordMatcher.of(List.of("how", "the key is", "that's why"));
+
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("let me show you"))).isFalse();
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("this is how"))).isTrue();
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("and the key, is patience"))).isTrue();
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("the key was patience"))).isFalse();
+        assertThat(matcher.matchLengthAt(KeywordMatcher.tokenize("That's why."), 0)).isEqualTo(2);
+    }
+
+    @Test
+    void cliticSuffixesStillMatchTheBareKey() {
+        KeywordMatcher matcher = KeywordMatcher.of(List.of("how", "here's", "you will"));
+
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("How's that possible?"))).isTrue();
+        assertThat(matcher.matchLengthAt(KeywordMatcher.tokenize("here's the thing"), 0)).isEqualTo(1);
+        assertThat(matcher.matchLengthAt(KeywordMatcher.tokenize("you will've seen"), 0)).isEqualTo(2);
+        assertThat(matcher.containsAny(KeywordMatcher.tokenize("however it isn't"))).isFalse();
+        assertThat(KeywordMatcher.stripClitic("isn't")).isEqualTo("isn't");
+    }
+
+    @Test
+    void builtInVocabularyFollowsTranscriptLanguage() {
+        var tokens = KeywordMatcher.tokenize("Kortom, dit werkt");
+
+        assertThat(ScoringVocabulary.builtIn("nl-NL").payoff().containsAny(tokens)).isTrue();
+        assertThat(ScoringVocabulary.builtIn("en").payoff().containsAny(tokens)).isFalse();
+        assertThat(ScoringVocabulary.builtIn("xx")).isSameAs(ScoringVocabulary.ENGLISH);
+        assertThat(ScoringVocabulary.primaryLanguage("EN_us")).isEqualTo("en");
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PcmAudioTest {
+
+    @TempDir Path tmp;
+
+    /** 1 s toon, 1 s stilte, 0,3 s toon, 0,2 s stilte, 1 s toon, 0,8 s stilte tot het einde. */
+    private Path writeFixture() throws Exception {
+        int[] segmentsMs = {1000, 1000, 300, 200, 1000, 800};
+        int total = 0;
+        for (int ms : segmentsMs) total += ms * 16;
+        ByteBuffer buf = ByteBuffer.allocate(total * 2).order(ByteOrder.LITTLE_ENDIAN);
+        int n = 0;
+        for (int k = 0; k < segmentsMs.length; k++) {
+            boolean tone = k % 2 == 0;
+            for (int i = 0; i < segmentsMs[k] * 16; i++, n++) {
+                short v = tone ? (short) (8000 * Math.sin(2 * Math.PI * 440 * n / 16_000.0) + (n % 2 == 0 ? 600 : -600)) : (short) (n % 3 - 1);
+                buf.putShort(v);
+            }
+        }
+        Path pcm = tmp.resolve("audio.pcm");
+        Files.write(pcm, buf.array());
+        return pcm;
+    }
+
+    @Test
+    void detectsSilencesLongerThanMinimum() throws Exception {
+        PcmAudio audio = PcmAudio.map(writeFixture());
+
+        assertThat(audio.durationMs()).isEqualTo(4_300);
+        assertThat(audio.detectSilences(-35.0, 0.5))
+                .containsExactly(new SilenceEvent(1_000L, 2_000L), new SilenceEvent(3_500L, 4_300L));
+        assertThat(audio.detectSilences(-35.0, 0.15)).hasSize(3);
+    }
+
+    @Test
+    void slicesAreViewsOnTheMapping() throws Exception {
+        PcmAudio audio = PcmAudio.map(writeFixture());
+
+        ShortBuffer slice = audio.slice(1_000, 1_250);
+        assertThat(slice.remaining()).isEqualTo(4_000);
+        assertThat(slice.isDirect()).isTrue();
+        assertThat(audio.slice(4_000, Long.MAX_VALUE).remaining()).isEqualTo(300 * 16);
+    }
+
+    @Test
+    void writesWavWindowWithHeader() throws Exception {
+        PcmAudio audio = PcmAudio.map(writeFixture());
+        Path wav = tmp.resolve("win.wav");
+
+        int samples = audio.writeWav(wav, 2_000, 2_300);
+
+        byte[] bytes = Files.readAllBytes(wav);
+        ByteBuffer h = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(samples).isEqualTo(4_800);
+        assertThat(bytes).hasSize(44 + 4_800 * 2);
+        assertThat(new String(bytes, 0, 4)).isEqualTo("RIFF");
+        assertThat(new String(bytes, 8, 4)).isEqualTo("WAVE");
+        assertThat(h.getInt(24)).isEqualTo(16_000);
+        assertThat(h.getInt(40)).isEqualTo(4_800 * 2);
+        assertThat(h.getShort(44)).isEqualTo(audio.slice(2_000, 2_300).get(0));
+    }
+
+    @Test
+    void analyzeMatchesSeparatePassesInOneScan() throws Exception {
+        PcmAudio audio = PcmAudio.map(writeFixture());
+
+        PcmAudio.Analysis analysis = audio.analyze(-35.0, 0.5);
+        AudioFeatures separate = audio.features();
+
+        assertThat(analysis.silences()).isEqualTo(audio.detectSilences(-35.0, 0.5));
+        assertThat(analysis.features().frameCount()).isEqualTo(43).isEqualTo(separate.frameCount());
+        assertThat(analysis.features().toBytes()).isEqualTo(separate.toBytes());
+        assertThat(analysis.features().meanRms(0, 1_000)).isGreaterThan(analysis.features().meanRms(1_000, 2_000));
+    }
+}
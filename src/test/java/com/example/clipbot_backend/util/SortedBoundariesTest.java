@@ -0,0 +1,112 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.SilenceEvent;
+import com.example.clipbot_backend.dto.SpeakerTurn;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The indexed lookups must return exactly what the former linear scans returned, including tie-breaks.
+ */
+class SortedBoundariesTest {
+
+    @Test
+    void silenceSnapMatchesLinearScan() {
+        Random rnd = new Random(5);
+        for (int round = 0; round < 50; round++) {
+            List<SilenceEvent> silences = new ArrayList<>();
+            for (int k = 0; k < 1 + rnd.nextInt(40); k++) {
+                long s = rnd.nextInt(60_000) / 50 * 50L;
+                silences.add(new SilenceEvent(s, s + 50 + rnd.nextInt(20) * 50L));
+            }
+            if (round % 2 == 1) Collections.shuffle(silences, rnd);
+            long[] ends = silences.stream().mapToLong(SilenceEvent::endMs).toArray();
+            long[] starts = silences.stream().mapToLong(SilenceEvent::startMs).toArray();
+            SortedBoundaries endIdx = SortedBoundaries.of(ends);
+            SortedBoundaries startIdx = SortedBoundaries.of(starts);
+
+            for (int q = 0; q < 300; q++) {
+                long ms = rnd.nextInt(62_000) / 25 * 25L;
+                long thresh = rnd.nextInt(4) * 250L;
+                assertThat(endIdx.nearestWithin(ms, thresh)).isEqualTo(linearSnapLeft(ms, silences, thresh));
+                assertThat(startIdx.nearestWithin(ms, thresh)).isEqualTo(linearSnapRight(ms, silences, thresh));
+            }
+        }
+    }
+
+    @Test
+    void speakerLookupsMatchLinearScan() {
+        Random rnd = new Random(9);
+        for (int round = 0; round < 60; round++) {
+            List<SpeakerTurn> turns = randomTurns(rnd, round % 3);
+            var ctx = new HeuristicScorer.SpeakerContext(turns, true);
+            for (int q = 0; q < 300; q++) {
+                long a = rnd.nextInt(120_000);
+                long b = a + rnd.nextInt(40_000);
+                assertThat(ctx.distanceToBoundary(a)).isEqualTo(linearDistance(turns, a));
+                assertThat(ctx.countTurnsWithin(a, b)).isEqualTo(linearCount(turns, a, b));
+            }
+        }
+    }
+
+    @Test
+    void emptyInputsBehaveLikeNoBoundaries() {
+        assertThat(SortedBoundaries.of(new long[0]).nearestWithin(100, 1_000)).isEqualTo(-1);
+        var ctx = new HeuristicScorer.SpeakerContext(List.of(new SpeakerTurn("A", 0, 5_000)), true);
+        assertThat(ctx.distanceToBoundary(100)).isEqualTo(-1);
+        assertThat(ctx.countTurnsWithin(0, 5_000)).isZero();
+    }
+
+    /** mode 0: opeenvolgend, 1: met overlap, 2: ongesorteerd. */
+    private static List<SpeakerTurn> randomTurns(Random rnd, int mode) {
+        List<SpeakerTurn> turns = new ArrayList<>();
+        long t = 0;
+        String[] speakers = {"A", "B", "C"};
+        for (int k = 0; k < 1 + rnd.nextInt(30); k++) {
+            long start = mode == 1 ? Math.max(0, t - rnd.nextInt(2_000)) : t + rnd.nextInt(1_000);
+            long end = start + 500 + rnd.nextInt(8_000);
+            turns.add(new SpeakerTurn(speakers[rnd.nextInt(speakers.length)], start, end));
+            t = end;
+        }
+        if (mode == 2) Collections.shuffle(turns, rnd);
+        return turns;
+    }
+
+    private static long linearSnapLeft(long ms, List<SilenceEvent> silences, long thresh) {
+        long best = -1, distBest = Long.MAX_VALUE;
+        for (var s : silences) { long dist = Math.abs(ms - s.endMs()); if (dist <= thresh && dist < distBest) { distBest = dist; best = s.endMs(); } }
+        return best;
+    }
+
+    private static long linearSnapRight(long ms, List<SilenceEvent> silences, long thresh) {
+        long best = -1, distBest = Long.MAX_VALUE;
+        for (var s : silences) { long dist = Math.abs(ms - s.startMs()); if (dist <= thresh && dist < distBest) { distBest = dist; best = s.startMs(); } }
+        return best;
+    }
+
+    private static long linearDistance(List<SpeakerTurn> turns, long ts) {
+        long best = Long.MAX_VALUE;
+        for (int i = 1; i < turns.size(); i++) {
+            if (!turns.get(i).speaker().equals(turns.get(i - 1).speaker())) {
+                best = Math.min(best, Math.abs(ts - turns.get(i).startMs()));
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+
+    private static int linearCount(List<SpeakerTurn> turns, long startMs, long endMs) {
+        int count = 0;
+        SpeakerTurn prev = null;
+        for (SpeakerTurn t : turns) {
+            if (t.endMs() <= startMs || t.startMs() >= endMs) continue;
+            if (prev != null && !prev.speaker().equals(t.speaker())) count++;
+            prev = t;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.clipbot_backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.clipbot_backend.dto.WordTimeline;
+import com.example.clipbot_backend.dto.WordsParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The char scans must agree with the regexes they replaced.
+ */
+class TokenScanTest {
+
+    private static final List<String> WORDS = List.of(
+            "", "a", "Hello", "world!", "why?", "end.", "U.S.A.", "what?!", "don't", "Ünïcode", "ÄBC", "42",
+            "…", "mid!dle", "x.y", "  spaced  ", "tab\tbed", "Mixed-Case_99", "ok...", "wow!?");
+
+    @Test
+    void flagsMatchRegexes() {
+        for (String w : WORDS) {
+            int flags = TokenScan.flags(w);
+            assertThat((flags & TokenScan.SENTENCE_FINAL) != 0).as(w).isEqualTo(w.matches(".*[.!?]$"));
+            assertThat((flags & TokenScan.EXCITED) != 0).as(w).isEqualTo(w.matches(".*[!?].*"));
+            assertThat((flags & TokenScan.UPPERCASE) != 0).as(w).isEqualTo(w.chars().anyMatch(Character::isUpperCase));
+            assertThat(TokenScan.normalizeAlnum(w)).as(w).isEqualTo(w.replaceAll("[^a-zA-Z0-9]", "").toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Test
+    void collapseWhitespaceMatchesRegexAndReusesCleanInput() {
+        for (String t : List.of("", " ", "one", "one two", "  lead", "trail  ", "a \t\n b", "a  b  c ", "x\r\ny")) {
+            assertThat(TokenScan.collapseWhitespace(t)).as(t).isEqualTo(t.replaceAll("\\s+", " ").trim());
+        }
+        String clean = "already clean text";
+        assertThat(TokenScan.collapseWhitespace(clean)).isSameAs(clean);
+        String lower = "lowercase42";
+        assertThat(TokenScan.normalizeAlnum(lower)).isSameAs(lower);
+    }
+
+    @Test
+    void timelineSharesFlagsAcrossRepeatedWords() {
+        List<WordsParser.WordAdapter> words = new ArrayList<>();
+        for (int k = 0; k < 6; k++) {
+            words.add(new WordsParser.WordAdapter(k % 2 == 0 ? "Really?" : "fine.", k * 500L, k * 500L + 400L, 0.9));
+        }
+        WordTimeline timeline = WordTimeline.of(words);
+
+        assertThat(timeline.isExcited(4)).isTrue();
+        assertThat(timeline.hasUppercase(4)).isTrue();
+        assertThat(timeline.isSentenceFinal(5)).isTrue();
+        assertThat(timeline.hasUppercase(5)).isFalse();
+        assertThat(timeline.normalized(4)).isEqualTo("really").isSameAs(timeline.normalized(0));
+    }
+}